@@ -0,0 +1,95 @@
+package com.qbutton.concbugs.algorythm;
+
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.processor.BranchStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.CrossAssignmentStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.DeclarationStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.InnerAssignmentStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.LoopStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.MethodStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.ProcessorFacade;
+import com.qbutton.concbugs.algorythm.processor.ProcessorProvider;
+import com.qbutton.concbugs.algorythm.processor.StatementTracer;
+import com.qbutton.concbugs.algorythm.processor.SynchronizedStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.WaitStatementProcessor;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
+import com.qbutton.concbugs.algorythm.service.ClassFinderService;
+import com.qbutton.concbugs.algorythm.service.CycleService;
+import com.qbutton.concbugs.algorythm.service.GraphService;
+import com.qbutton.concbugs.algorythm.service.HierarchyClassFinderService;
+import com.qbutton.concbugs.algorythm.service.MergeService;
+import com.qbutton.concbugs.algorythm.service.StateService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
+import com.qbutton.concbugs.algorythm.service.VisitorService;
+import com.qbutton.concbugs.algorythm.synthetic.SyntheticLibrary;
+import com.qbutton.concbugs.algorythm.synthetic.SyntheticLibraryGenerator;
+import com.qbutton.concbugs.algorythm.synthetic.WorkloadParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end analysis of synthetic libraries of growing size, see {@link SyntheticLibraryGenerator}.
+ * Summaries are cleared before each invocation, so every invocation analyzes the library from scratch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AlgorythmFacadeBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int methods;
+
+    private AlgorythmFacade algorythmFacade;
+    private SummaryService summaryService;
+    private List<MethodStatement> publicMethods;
+
+    @Setup
+    public void setUp() {
+        SyntheticLibrary library = new SyntheticLibraryGenerator(WorkloadParameters.of(methods)).generate();
+        publicMethods = library.getPublicMethods();
+
+        ClassFinderService classFinderService = new HierarchyClassFinderService(library.getSuperClasses());
+        GraphService graphService = new GraphService(classFinderService);
+        VisitorService visitorService = new VisitorService();
+        StateService stateService = new StateService(graphService);
+        MergeService mergeService = new MergeService(classFinderService, graphService);
+        AnalysisBudget analysisBudget = new AnalysisBudget();
+        summaryService = new SummaryService(visitorService, new SummaryStore(), analysisBudget);
+        ProcessorProvider processorProvider = new ProcessorProvider(
+                new BranchStatementProcessor(mergeService),
+                new CrossAssignmentStatementProcessor(graphService),
+                new DeclarationStatementProcessor(graphService),
+                new InnerAssignmentStatementProcessor(graphService),
+                new LoopStatementProcessor(mergeService),
+                new MethodStatementProcessor(summaryService, stateService, mergeService, graphService),
+                new SynchronizedStatementProcessor(),
+                new WaitStatementProcessor());
+        ProcessorFacade processorFacade = new ProcessorFacade(processorProvider, new StatementTracer(), analysisBudget);
+        visitorService.setProcessorFacade(processorFacade);
+        algorythmFacade = new AlgorythmFacade(processorFacade, graphService,
+                new CallGraphService(summaryService), new CycleService(), analysisBudget);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearSummaries() {
+        summaryService.clear();
+    }
+
+    @Benchmark
+    public ClassEdgeGraph visitLibrary() {
+        return algorythmFacade.visitLibrary(publicMethods);
+    }
+}
@@ -0,0 +1,75 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
+import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import com.qbutton.concbugs.algorythm.dto.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Inputs of service benchmarks. Everything is deterministic, so that results of different runs are comparable.
+ */
+final class BenchmarkStates {
+
+    private static final int CLASSES = 16;
+
+    private BenchmarkStates() {
+    }
+
+    /**
+     * Heap objects of different program points and of {@value CLASSES} classes.
+     */
+    static List<HeapObject> heapObjects(String prefix, int size) {
+        List<HeapObject> heapObjects = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            heapObjects.add(HeapObject.of(ProgramPoint.of(prefix + i, i), "Lock" + i % CLASSES));
+        }
+        return heapObjects;
+    }
+
+    /**
+     * Lock-order graph where every node has edges to the next node and to a distant one, so that nodes have both
+     * incoming and outgoing edges.
+     */
+    static Graph graph(List<HeapObject> nodes) {
+        Graph graph = Graph.EMPTY_GRAPH;
+        for (int i = 0; i < nodes.size(); i++) {
+            graph = graph.withNode(nodes.get(i));
+            if (i + 1 < nodes.size()) {
+                graph = graph.withEdge(nodes.get(i), nodes.get(i + 1));
+            }
+            if (i + 7 < nodes.size()) {
+                graph = graph.withEdge(nodes.get(i), nodes.get(i + 7));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Every tenth node is a root.
+     */
+    static Set<HeapObject> roots(List<HeapObject> nodes) {
+        PersistentHashSet<HeapObject> roots = PersistentHashSet.empty();
+        for (int i = 0; i < nodes.size(); i += 10) {
+            roots = roots.plus(nodes.get(i));
+        }
+        return roots;
+    }
+
+    static List<EnvEntry> environment(List<HeapObject> heapObjects) {
+        List<EnvEntry> environment = new ArrayList<>(heapObjects.size());
+        for (int i = 0; i < heapObjects.size(); i++) {
+            environment.add(new EnvEntry("v" + i, heapObjects.get(i)));
+        }
+        return environment;
+    }
+
+    static State state(List<HeapObject> nodes, List<EnvEntry> environment) {
+        return new State(graph(nodes), roots(nodes), new ArrayList<>(), environment, PersistentHashSet.empty());
+    }
+}
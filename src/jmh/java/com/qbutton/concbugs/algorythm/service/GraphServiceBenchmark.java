@@ -0,0 +1,67 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GraphServiceBenchmark {
+
+    private static final int METHODS = 10;
+
+    @Param({"100", "1000", "10000"})
+    private int nodes;
+
+    private final GraphService graphService = new GraphService(new HierarchyClassFinderService());
+
+    private Graph graph;
+    private Set<HeapObject> roots;
+    private HeapObject middleNode;
+    private HeapObject newNode;
+    private List<com.qbutton.concbugs.algorythm.dto.State> methodStates;
+
+    @Setup
+    public void setUp() {
+        List<HeapObject> heapObjects = BenchmarkStates.heapObjects("v", nodes);
+        graph = BenchmarkStates.graph(heapObjects);
+        roots = BenchmarkStates.roots(heapObjects);
+        middleNode = heapObjects.get(nodes / 2);
+        newNode = HeapObject.of(ProgramPoint.of("new", -2), middleNode.getClazz());
+
+        methodStates = new ArrayList<>(METHODS);
+        for (int i = 0; i < METHODS; i++) {
+            methodStates.add(BenchmarkStates.state(BenchmarkStates.heapObjects("m" + i + "v", nodes), new ArrayList<>()));
+        }
+    }
+
+    @Benchmark
+    public GraphService.ReplaceNodeResult replaceNode() {
+        return graphService.replaceNode(graph, roots, middleNode, newNode);
+    }
+
+    @Benchmark
+    public GraphService.ReplaceNodeResult spliceOutNode() {
+        return graphService.spliceOutNode(graph, roots, middleNode);
+    }
+
+    @Benchmark
+    public ClassEdgeGraph postProcess() {
+        return graphService.postProcess(methodStates);
+    }
+}
@@ -0,0 +1,57 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class finder for benchmarks, which run without IDEA: hierarchy is given as a map of classes to their superclasses.
+ * Classes which are not in the map extend java.lang.Object.
+ */
+public class HierarchyClassFinderService extends ClassFinderService {
+
+    private static final String OBJECT = "java.lang.Object";
+
+    private final Map<String, String> superClasses;
+
+    /**
+     * Class finder where classes are not related to each other.
+     */
+    public HierarchyClassFinderService() {
+        this(Collections.emptyMap());
+    }
+
+    public HierarchyClassFinderService(Map<String, String> superClasses) {
+        this.superClasses = superClasses;
+    }
+
+    @Override
+    String findLowestSuperClass(String class1, String class2) {
+        Set<String> superClasses1 = new HashSet<>();
+        for (String clazz = class1; clazz != null; clazz = superClasses.get(clazz)) {
+            superClasses1.add(clazz);
+        }
+        for (String clazz = class2; clazz != null; clazz = superClasses.get(clazz)) {
+            if (superClasses1.contains(clazz)) {
+                return clazz;
+            }
+        }
+        return OBJECT;
+    }
+
+    @Override
+    Set<String> getSubclassesOf(String superClass) {
+        Set<String> subclasses = new HashSet<>();
+        subclasses.add(superClass);
+        for (String clazz : superClasses.keySet()) {
+            for (String ancestor = superClasses.get(clazz); ancestor != null; ancestor = superClasses.get(ancestor)) {
+                if (ancestor.equals(superClass)) {
+                    subclasses.add(clazz);
+                    break;
+                }
+            }
+        }
+        return subclasses;
+    }
+}
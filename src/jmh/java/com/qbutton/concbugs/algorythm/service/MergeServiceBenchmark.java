@@ -0,0 +1,63 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges of states of two branches, which assigned every other variable differently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MergeServiceBenchmark {
+
+    private static final int OFFSET = 1_000_000;
+
+    @Param({"10", "100", "1000"})
+    private int variables;
+
+    private MergeService mergeService;
+
+    private com.qbutton.concbugs.algorythm.dto.State state1;
+    private com.qbutton.concbugs.algorythm.dto.State state2;
+
+    @Setup
+    public void setUp() {
+        HierarchyClassFinderService classFinderService = new HierarchyClassFinderService();
+        mergeService = new MergeService(classFinderService, new GraphService(classFinderService));
+
+        List<HeapObject> heapObjects1 = BenchmarkStates.heapObjects("a", variables);
+        List<HeapObject> heapObjects2 = new ArrayList<>(heapObjects1);
+        List<HeapObject> otherHeapObjects = BenchmarkStates.heapObjects("b", variables);
+        for (int i = 0; i < variables; i += 2) {
+            heapObjects2.set(i, otherHeapObjects.get(i));
+        }
+
+        List<EnvEntry> environment1 = BenchmarkStates.environment(heapObjects1);
+        List<EnvEntry> environment2 = BenchmarkStates.environment(heapObjects2);
+        state1 = BenchmarkStates.state(heapObjects1, environment1);
+        state2 = BenchmarkStates.state(heapObjects2, environment2);
+    }
+
+    @Benchmark
+    public com.qbutton.concbugs.algorythm.dto.State mergeStates() {
+        return mergeService.mergeStates(state1, state2, OFFSET);
+    }
+
+    @Benchmark
+    public List<EnvEntry> mergeEnvs() {
+        return mergeService.mergeEnvs(state1.getEnvironment(), state2.getEnvironment(), OFFSET);
+    }
+}
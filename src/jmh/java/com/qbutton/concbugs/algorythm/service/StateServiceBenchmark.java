@@ -0,0 +1,62 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renaming of callee summary at a call site. Half of the nodes of callee graph are its formal parameters,
+ * every other of them is already locked by caller, the rest of nodes are objects created by callee.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StateServiceBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int nodes;
+
+    private final StateService stateService = new StateService(new GraphService(new HierarchyClassFinderService()));
+
+    private com.qbutton.concbugs.algorythm.dto.State calleeState;
+    private com.qbutton.concbugs.algorythm.dto.State callerState;
+    private List<HeapObject> formalParameters;
+    private List<HeapObject> actualParameters;
+
+    @Setup
+    public void setUp() {
+        List<HeapObject> calleeObjects = BenchmarkStates.heapObjects("formal", nodes);
+        formalParameters = calleeObjects.subList(0, nodes / 2);
+        actualParameters = BenchmarkStates.heapObjects("actual", nodes / 2);
+        calleeState = BenchmarkStates.state(calleeObjects, BenchmarkStates.environment(formalParameters));
+
+        List<HeapObject> callerLocks = new ArrayList<>();
+        for (int i = 0; i < actualParameters.size(); i += 2) {
+            callerLocks.add(actualParameters.get(i));
+        }
+        com.qbutton.concbugs.algorythm.dto.State callerObjects =
+                BenchmarkStates.state(actualParameters, BenchmarkStates.environment(actualParameters));
+        callerState = new com.qbutton.concbugs.algorythm.dto.State(
+                callerObjects.getGraph(),
+                callerObjects.getRoots(),
+                callerLocks,
+                callerObjects.getEnvironment(),
+                callerObjects.getWaits());
+    }
+
+    @Benchmark
+    public com.qbutton.concbugs.algorythm.dto.State renameFromCalleeToCallerContext() {
+        return stateService.renameFromCalleeToCallerContext(
+                calleeState, callerState, formalParameters, actualParameters);
+    }
+}
@@ -0,0 +1,19 @@
+package com.qbutton.concbugs.algorythm.synthetic;
+
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generated library: its public methods and hierarchy of its lock classes.
+ */
+@Data
+public final class SyntheticLibrary {
+    private final List<MethodStatement> publicMethods;
+    /**
+     * Lock classes mapped to their superclasses, classes extending java.lang.Object are not in the map.
+     */
+    private final Map<String, String> superClasses;
+}
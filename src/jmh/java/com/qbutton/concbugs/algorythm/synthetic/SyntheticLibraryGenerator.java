@@ -0,0 +1,402 @@
+package com.qbutton.concbugs.algorythm.synthetic;
+
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.DeclarationStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Generator of synthetic libraries for scaling benchmarks.
+ * <p>
+ * Every method is a public static method of two lock parameters. Its body is {@link WorkloadParameters#getNestingDepth()
+ * nestingDepth} nested synchronized blocks, each locking either a parameter or a new object, and the innermost block
+ * calls methods with greater numbers, so that the call graph has no cycles. Arguments of calls are variables
+ * in scope of suitable class, or new objects if there are none.
+ * <p>
+ * The same library can be written as Java sources, which map to the same statements, e.g. to be analyzed inside IDEA.
+ * Methods are in classes synthetic.LibraryN of {@value METHODS_PER_CLASS} methods, locks are synthetic.LockN.
+ */
+public final class SyntheticLibraryGenerator {
+
+    private static final String PACKAGE = "synthetic";
+    private static final int PARAMETERS = 2;
+    private static final int METHODS_PER_CLASS = 100;
+    private static final String INDENT = "    ";
+
+    private final WorkloadParameters parameters;
+
+    /**
+     * Declarations of methods generated so far, callees are generated before callers.
+     */
+    private final MethodDeclaration[] declarations;
+    private final int[][] parameterClasses;
+    private int nextOffset;
+
+    /**
+     * Writes Java sources, null if they are not written.
+     */
+    private SourceWriter sourceWriter;
+
+    public SyntheticLibraryGenerator(WorkloadParameters parameters) {
+        this.parameters = parameters.validate();
+        this.declarations = new MethodDeclaration[parameters.getMethods()];
+        this.parameterClasses = new int[parameters.getMethods()][];
+    }
+
+    /**
+     * Generates library in memory.
+     *
+     * @return library
+     */
+    public SyntheticLibrary generate() {
+        for (int method = parameters.getMethods() - 1; method >= 0; method--) {
+            declarations[method] = new MethodGeneration(method).generate();
+        }
+
+        List<MethodStatement> publicMethods = new ArrayList<>(declarations.length);
+        for (MethodDeclaration declaration : declarations) {
+            publicMethods.add(new MethodStatement(declaration.getOffset(), null,
+                    Collections.singletonList(declaration), "void", Collections.emptyList()));
+        }
+
+        Map<String, String> superClasses = new HashMap<>();
+        for (int clazz = 0; clazz < parameters.getClasses(); clazz++) {
+            if (superClass(clazz) >= 0) {
+                superClasses.put(className(clazz), className(superClass(clazz)));
+            }
+        }
+        return new SyntheticLibrary(publicMethods, superClasses);
+    }
+
+    /**
+     * Generates library in memory and writes its sources.
+     *
+     * @param sourceRoot source root, where package directory is created
+     * @return library
+     * @throws IOException if sources can't be written
+     */
+    public SyntheticLibrary generate(Path sourceRoot) throws IOException {
+        sourceWriter = new SourceWriter(Files.createDirectories(sourceRoot.resolve(PACKAGE)));
+        try {
+            for (int clazz = 0; clazz < parameters.getClasses(); clazz++) {
+                sourceWriter.writeLockClass(clazz);
+            }
+            SyntheticLibrary library = generate();
+            sourceWriter.flush();
+            return library;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            sourceWriter = null;
+        }
+    }
+
+    /**
+     * Writes sources of a library: {@code <sourceRoot> <methods> [seed]}, other parameters are default.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("usage: SyntheticLibraryGenerator <sourceRoot> <methods> [seed]");
+        }
+        WorkloadParameters defaults = WorkloadParameters.of(Integer.parseInt(args[1]));
+        WorkloadParameters parameters = new WorkloadParameters(
+                args.length > 2 ? Long.parseLong(args[2]) : defaults.getSeed(),
+                defaults.getMethods(),
+                defaults.getNestingDepth(),
+                defaults.getCallFanOut(),
+                defaults.getClasses(),
+                defaults.getHierarchyDepth(),
+                defaults.getAliasingRatio());
+        new SyntheticLibraryGenerator(parameters).generate(Paths.get(args[0]));
+    }
+
+    /**
+     * Classes form chains of hierarchyDepth classes, each extending the previous one.
+     *
+     * @return superclass number, or -1 if class extends java.lang.Object
+     */
+    private int superClass(int clazz) {
+        return clazz % parameters.getHierarchyDepth() == 0 ? -1 : clazz - 1;
+    }
+
+    private boolean isAssignable(int clazz, int toClass) {
+        for (int superClass = clazz; superClass >= 0; superClass = superClass(superClass)) {
+            if (superClass == toClass) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String simpleClassName(int clazz) {
+        return "Lock" + clazz;
+    }
+
+    private static String className(int clazz) {
+        return PACKAGE + "." + simpleClassName(clazz);
+    }
+
+    private static String libraryClassName(int method) {
+        return "Library" + method / METHODS_PER_CLASS;
+    }
+
+    /**
+     * Finalizer of SplitMix64: Random gives similar first numbers for close seeds, so seeds are mixed first.
+     */
+    private static long mix(long seed) {
+        long z = (seed ^ (seed >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static Statement sequence(List<Statement> statements) {
+        Statement[] sequence = statements.stream()
+                .filter(Objects::nonNull)
+                .toArray(Statement[]::new);
+        if (sequence.length == 0) {
+            return null;
+        }
+        return sequence.length == 1 ? sequence[0] : new SequentialStatement(sequence);
+    }
+
+    /**
+     * Generation of a single method. Random choices are seeded per method, so a method does not depend on
+     * how many methods were generated before it.
+     */
+    private final class MethodGeneration {
+        private final int method;
+        private final Random random;
+        /**
+         * Variables in scope, in order of declaration.
+         */
+        private final List<Variable> scope = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private int locals;
+        private int indent = 2;
+
+        private MethodGeneration(int method) {
+            this.method = method;
+            this.random = new Random(mix(parameters.getSeed() * 31 + method));
+        }
+
+        private MethodDeclaration generate() {
+            int offset = nextOffset++;
+            int[] classes = new int[PARAMETERS];
+            List<MethodDeclaration.Variable> variables = new ArrayList<>(PARAMETERS);
+            List<String> parameterTexts = new ArrayList<>(PARAMETERS);
+            for (int i = 0; i < PARAMETERS; i++) {
+                classes[i] = random.nextInt(parameters.getClasses());
+                Variable parameter = new Variable("p" + i, classes[i]);
+                scope.add(parameter);
+                variables.add(new MethodDeclaration.Variable(parameter.name, className(parameter.clazz)));
+                parameterTexts.add(simpleClassName(parameter.clazz) + " " + parameter.name);
+            }
+            parameterClasses[method] = classes;
+
+            Statement body = block(0);
+            if (sourceWriter != null) {
+                sourceWriter.addMethod(method, INDENT + "public static void m" + method
+                        + "(" + String.join(", ", parameterTexts) + ") {\n" + text + INDENT + "}\n");
+            }
+            return new MethodDeclaration("m" + method, variables, body, offset, PACKAGE + "." + libraryClassName(method));
+        }
+
+        private Statement block(int level) {
+            if (level == parameters.getNestingDepth()) {
+                return calls();
+            }
+
+            List<Statement> statements = new ArrayList<>();
+            Variable lock = random.nextDouble() < parameters.getAliasingRatio()
+                    ? scope.get(random.nextInt(PARAMETERS))
+                    : declareLocal(random.nextInt(parameters.getClasses()), statements);
+            int offset = nextOffset++;
+            Statement inner = inScope(() -> {
+                line("synchronized (" + lock.name + ") {");
+                indent++;
+                Statement innerStatement = block(level + 1);
+                indent--;
+                line("}");
+                return innerStatement;
+            });
+            statements.add(new SynchronizedStatement(offset, lock.name, inner, className(lock.clazz)));
+            return sequence(statements);
+        }
+
+        /**
+         * Calls of methods with greater numbers, pairs of them being branches of if statements. New objects passed
+         * as arguments are declared before if statements, as branches should declare the same variables.
+         */
+        private Statement calls() {
+            if (method == parameters.getMethods() - 1) {
+                return null;
+            }
+
+            List<Statement> statements = new ArrayList<>();
+            for (int i = 0; i < parameters.getCallFanOut(); i += 2) {
+                if (i + 1 < parameters.getCallFanOut()) {
+                    int callee1 = nextCallee();
+                    List<String> arguments1 = arguments(callee1, statements);
+                    int callee2 = nextCallee();
+                    List<String> arguments2 = arguments(callee2, statements);
+                    int offset = nextOffset++;
+                    line("if (flag) {");
+                    indent++;
+                    Statement stmt1 = call(callee1, arguments1);
+                    indent--;
+                    line("} else {");
+                    indent++;
+                    Statement stmt2 = call(callee2, arguments2);
+                    indent--;
+                    line("}");
+                    statements.add(new BranchStatement(offset, null, stmt1, stmt2));
+                } else {
+                    int callee = nextCallee();
+                    statements.add(call(callee, arguments(callee, statements)));
+                }
+            }
+            return sequence(statements);
+        }
+
+        private int nextCallee() {
+            return method + 1 + random.nextInt(parameters.getMethods() - method - 1);
+        }
+
+        /**
+         * Chooses arguments of a call among variables in scope, declaring new objects if there are no suitable ones.
+         */
+        private List<String> arguments(int callee, List<Statement> statements) {
+            List<String> arguments = new ArrayList<>(PARAMETERS);
+            for (int parameterClass : parameterClasses[callee]) {
+                List<Variable> candidates = new ArrayList<>();
+                for (Variable variable : scope) {
+                    if (isAssignable(variable.clazz, parameterClass)) {
+                        candidates.add(variable);
+                    }
+                }
+                Variable argument = candidates.isEmpty()
+                        ? declareLocal(parameterClass, statements)
+                        : candidates.get(random.nextInt(candidates.size()));
+                arguments.add(argument.name);
+            }
+            return arguments;
+        }
+
+        private Statement call(int callee, List<String> arguments) {
+            line(libraryClassName(callee) + ".m" + callee + "(" + String.join(", ", arguments) + ");");
+            return new MethodStatement(nextOffset++, null,
+                    Collections.singletonList(declarations[callee]), "void", arguments);
+        }
+
+        private Variable declareLocal(int clazz, List<Statement> statements) {
+            Variable local = new Variable("l" + locals++, clazz);
+            scope.add(local);
+            String simpleClassName = simpleClassName(clazz);
+            line(simpleClassName + " " + local.name + " = new " + simpleClassName + "();");
+            statements.add(new DeclarationStatement(nextOffset++, local.name, className(clazz)));
+            return local;
+        }
+
+        /**
+         * Generates statements of a Java block: variables declared inside it are not in scope after it.
+         */
+        private Statement inScope(Supplier<Statement> block) {
+            int scopeSize = scope.size();
+            Statement statement = block.get();
+            scope.subList(scopeSize, scope.size()).clear();
+            return statement;
+        }
+
+        private void line(String line) {
+            if (sourceWriter != null) {
+                for (int i = 0; i < indent; i++) {
+                    text.append(INDENT);
+                }
+                text.append(line).append('\n');
+            }
+        }
+    }
+
+    private static final class Variable {
+        private final String name;
+        private final int clazz;
+
+        private Variable(String name, int clazz) {
+            this.name = name;
+            this.clazz = clazz;
+        }
+    }
+
+    /**
+     * Writes classes of methods. Methods are generated from the last one, so a class is written when generation
+     * moves to the previous class.
+     */
+    private final class SourceWriter {
+        private final Path packageDirectory;
+        private final Deque<String> methods = new ArrayDeque<>();
+        private String libraryClass;
+
+        private SourceWriter(Path packageDirectory) {
+            this.packageDirectory = packageDirectory;
+        }
+
+        private void writeLockClass(int clazz) throws IOException {
+            String superClass = superClass(clazz) >= 0 ? " extends " + simpleClassName(superClass(clazz)) : "";
+            write(simpleClassName(clazz), "public class " + simpleClassName(clazz) + superClass + " {\n}\n");
+        }
+
+        private void addMethod(int method, String methodText) {
+            String methodClass = libraryClassName(method);
+            if (!methodClass.equals(libraryClass)) {
+                flushUnchecked();
+                libraryClass = methodClass;
+            }
+            methods.addFirst(methodText);
+        }
+
+        private void flush() throws IOException {
+            if (libraryClass == null) {
+                return;
+            }
+            StringBuilder text = new StringBuilder("public class " + libraryClass + " {\n\n"
+                    + INDENT + "static volatile boolean flag;\n");
+            methods.forEach(methodText -> text.append('\n').append(methodText));
+            write(libraryClass, text.append("}\n").toString());
+            methods.clear();
+            libraryClass = null;
+        }
+
+        private void flushUnchecked() {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void write(String className, String classText) throws IOException {
+            Files.write(packageDirectory.resolve(className + ".java"),
+                    ("package " + PACKAGE + ";\n\n" + classText).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.qbutton.concbugs.algorythm.synthetic;
+
+import lombok.Data;
+
+/**
+ * Knobs of synthetic library generation.
+ */
+@Data
+public final class WorkloadParameters {
+
+    /**
+     * Seed of random choices, the same parameters always give the same library.
+     */
+    private final long seed;
+    /**
+     * Number of methods, all of them public.
+     */
+    private final int methods;
+    /**
+     * Number of nested synchronized blocks in each method.
+     */
+    private final int nestingDepth;
+    /**
+     * Number of calls in the innermost synchronized block of each method. Pairs of calls are branches of if statements.
+     */
+    private final int callFanOut;
+    /**
+     * Number of lock classes.
+     */
+    private final int classes;
+    /**
+     * Length of chains of lock classes extending each other, 1 for unrelated classes.
+     */
+    private final int hierarchyDepth;
+    /**
+     * Share of synchronized blocks which lock a parameter, and so may lock the same object as other methods.
+     * Other blocks lock new objects.
+     */
+    private final double aliasingRatio;
+
+    /**
+     * Default parameters for a given number of methods.
+     *
+     * @param methods number of methods
+     * @return parameters
+     */
+    public static WorkloadParameters of(int methods) {
+        return new WorkloadParameters(42, methods, 2, 2, 32, 3, 0.5);
+    }
+
+    /**
+     * Validates parameters.
+     *
+     * @return this
+     * @throws IllegalArgumentException if parameters are out of their ranges
+     */
+    WorkloadParameters validate() {
+        if (methods <= 0 || nestingDepth <= 0 || callFanOut < 0 || classes <= 0 || hierarchyDepth <= 0) {
+            throw new IllegalArgumentException("Invalid parameters: " + this);
+        }
+        if (aliasingRatio < 0 || aliasingRatio > 1) {
+            throw new IllegalArgumentException("Aliasing ratio should be between 0 and 1, but it is " + aliasingRatio);
+        }
+        return this;
+    }
+}
@@ -1,28 +1,160 @@
 package com.qbutton.concbugs.algorythm;
 
-import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.Cycle;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
 import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
 import com.qbutton.concbugs.algorythm.processor.ProcessorFacade;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
+import com.qbutton.concbugs.algorythm.service.CycleService;
 import com.qbutton.concbugs.algorythm.service.GraphService;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class AlgorythmFacade {
 
     private final ProcessorFacade processorFacade;
     private final GraphService graphService;
+    private final CallGraphService callGraphService;
+    private final CycleService cycleService;
+    private final AnalysisBudget analysisBudget;
+
+    /**
+     * Number of threads public methods are visited by. Default is 1, as inside IDE the analysis runs under
+     * a read action, and worker threads taking read actions of their own could deadlock with a pending write action.
+     */
+    @Getter
+    private int parallelism = 1;
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new AlgorithmValidationException("Parallelism must be positive, but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Visits public methods and builds global graph of them. The graph records methods which were truncated,
+     * as they ran out of {@link AnalysisBudget}.
+     *
+     * @param publicMethods public methods
+     * @return global graph
+     */
+    public ClassEdgeGraph visitLibrary(List<MethodStatement> publicMethods) {
+        List<String> methodNames = publicMethods.stream()
+                .map(AlgorythmFacade::getMethodName)
+                .collect(Collectors.toList());
+        return buildGraph(visitMethods(publicMethods), methodNames).withTruncatedMethods(getTruncatedMethodNames());
+    }
+
+    /**
+     * Visits public methods without building a global graph, so that states of methods which did not change
+     * can be kept by caller and reused by {@link #buildGraph(List, List)}. Each call starts a new analysis budget.
+     *
+     * @param publicMethods public methods
+     * @return states of methods, in the same order
+     */
+    public List<State> visitMethods(List<MethodStatement> publicMethods) {
+        analysisBudget.start();
+        return parallelism == 1
+                ? visitSequentially(publicMethods)
+                : visitInParallel(publicMethods);
+    }
+
+    /**
+     * Builds global graph from states of public methods.
+     *
+     * @param methodStates states returned by {@link #visitMethods(List)}
+     * @param methodNames  names of the methods, see {@link #getMethodName(MethodStatement)}
+     * @return global graph
+     */
+    public ClassEdgeGraph buildGraph(List<State> methodStates, List<String> methodNames) {
+        return graphService.postProcess(methodStates, methodNames);
+    }
+
+    /**
+     * Name of a public method, which edges of the global graph refer to.
+     *
+     * @param publicMethod public method
+     * @return qualified name, e.g. "a.A.transfer", or null if the method has no declaration
+     */
+    public static String getMethodName(MethodStatement publicMethod) {
+        List<MethodDeclaration> methodDeclarations = publicMethod.getMethodDeclarations();
+        if (methodDeclarations.isEmpty()) {
+            return null;
+        }
+        return getMethodName(methodDeclarations.get(0));
+    }
+
+    private static String getMethodName(MethodDeclaration methodDeclaration) {
+        return methodDeclaration.getDeclaringClass() + "." + methodDeclaration.getMethodName();
+    }
+
+    private List<State> visitSequentially(List<MethodStatement> publicMethods) {
+        //summaries of all reachable methods are computed bottom-up, so that processing below only reuses them
+        callGraphService.computeSummaries(publicMethods);
 
-    public Graph visitLibrary(List<MethodStatement> publicMethods) {
         List<State> fixedMethodStates = new ArrayList<>(publicMethods.size());
         publicMethods.forEach(method -> {
             State methodProcessResult = processorFacade.process(method, State.EMPTY_STATE);
             fixedMethodStates.add(methodProcessResult);
         });
+        return fixedMethodStates;
+    }
+
+    /**
+     * Visits public methods on a fork-join pool. Results are collected in order of methods,
+     * so the merged graph does not depend on scheduling.
+     */
+    private List<State> visitInParallel(List<MethodStatement> publicMethods) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            callGraphService.computeSummaries(publicMethods, pool);
+
+            return pool.submit(() -> publicMethods.parallelStream()
+                    .map(method -> processorFacade.process(method, State.EMPTY_STATE))
+                    .collect(Collectors.toList()))
+                    .get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AlgorithmValidationException("Failed to visit library: " + cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AlgorithmValidationException("Interrupted while visiting library");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Finds names of methods truncated by the last {@link #visitMethods(List)}, in alphabetical order.
+     *
+     * @return qualified names of truncated methods, e.g. "a.A.run"
+     */
+    public Set<String> getTruncatedMethodNames() {
+        Set<String> truncatedMethodNames = new TreeSet<>();
+        for (MethodDeclaration methodDeclaration : analysisBudget.getTruncatedMethods()) {
+            truncatedMethodNames.add(getMethodName(methodDeclaration));
+        }
+        return truncatedMethodNames;
+    }
 
-        return graphService.postProcess(fixedMethodStates);
+    public List<Cycle> findDeadlocks(ClassEdgeGraph graph) {
+        return cycleService.findCycles(graph);
     }
 }
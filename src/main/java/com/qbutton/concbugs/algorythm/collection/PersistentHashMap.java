@@ -0,0 +1,425 @@
+package com.qbutton.concbugs.algorythm.collection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Persistent hash map - a hash array mapped trie.
+ * <p>
+ * The map is immutable: {@link #plus(Object, Object)} and {@link #minus(Object)} return a new map, which shares
+ * all untouched subtries with this one, so both of them take O(log n) time and memory.
+ * Mutators of {@link java.util.Map} interface throw {@link UnsupportedOperationException}.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    /**
+     * Either null for empty map, or a {@link Node}.
+     */
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap) {
+            return (PersistentHashMap<K, V>) map;
+        }
+
+        PersistentHashMap<K, V> result = empty();
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Returns map with given mapping added or replaced.
+     *
+     * @param key   key
+     * @param value value
+     * @return new map, or this map if it already contains exactly this mapping
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        int hash = hash(key);
+        boolean[] added = new boolean[1];
+
+        Node newRoot = root == null
+                ? new Node(bit(hash, 0), new Object[]{new Leaf(hash, key, value, null)})
+                : root.plus(0, hash, key, value, added);
+
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, root == null || added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns map without given key.
+     *
+     * @param key key
+     * @return new map, or this map if it does not contain the key
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (root == null) {
+            return this;
+        }
+
+        Node newRoot = root.minus(0, hash(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf leaf = root == null ? null : root.find(0, hash(key), key);
+        return leaf == null ? null : (V) leaf.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root != null && root.find(0, hash(key), key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) {
+            root.forEach((BiConsumer<Object, Object>) action);
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new LeafIterator<Map.Entry<K, V>>(root) {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    Map.Entry<K, V> map(Leaf leaf) {
+                        return new SimpleImmutableEntry<>((K) leaf.key, (V) leaf.value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterates keys without allocating entries.
+     */
+    Iterator<K> keyIterator() {
+        return new LeafIterator<K>(root) {
+            @Override
+            @SuppressWarnings("unchecked")
+            K map(Leaf leaf) {
+                return (K) leaf.key;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private static int index(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << index(hash, shift);
+    }
+
+    /**
+     * Inner node of a trie. Slots are either {@link Leaf}s or child {@link Node}s, bitmap tells which
+     * of 32 possible positions are present.
+     */
+    private static final class Node {
+        private final int bitmap;
+        private final Object[] slots;
+
+        private Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private int position(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Leaf find(int shift, int hash, Object key) {
+            Node node = this;
+            while (true) {
+                int bit = bit(hash, shift);
+                if ((node.bitmap & bit) == 0) {
+                    return null;
+                }
+
+                Object slot = node.slots[node.position(bit)];
+                if (slot instanceof Leaf) {
+                    return ((Leaf) slot).find(hash, key);
+                }
+
+                node = (Node) slot;
+                shift += BITS;
+            }
+        }
+
+        private Node plus(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int position = position(bit);
+
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, position);
+                newSlots[position] = new Leaf(hash, key, value, null);
+                System.arraycopy(slots, position, newSlots, position + 1, slots.length - position);
+                return new Node(bitmap | bit, newSlots);
+            }
+
+            Object slot = slots[position];
+            Object newSlot;
+            if (slot instanceof Node) {
+                newSlot = ((Node) slot).plus(shift + BITS, hash, key, value, added);
+            } else {
+                Leaf leaf = (Leaf) slot;
+                if (leaf.hash == hash) {
+                    newSlot = leaf.plus(key, value, added);
+                } else {
+                    added[0] = true;
+                    newSlot = merge(shift + BITS, leaf, new Leaf(hash, key, value, null));
+                }
+            }
+
+            return newSlot == slot ? this : withSlot(position, newSlot);
+        }
+
+        private Node minus(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int position = position(bit);
+            Object slot = slots[position];
+            Object newSlot = slot instanceof Node
+                    ? ((Node) slot).minus(shift + BITS, hash, key)
+                    : ((Leaf) slot).minus(hash, key);
+
+            if (newSlot == slot) {
+                return this;
+            }
+            if (newSlot != null) {
+                return withSlot(position, collapse(newSlot));
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, position);
+            System.arraycopy(slots, position + 1, newSlots, position, slots.length - position - 1);
+            return new Node(bitmap & ~bit, newSlots);
+        }
+
+        private void forEach(BiConsumer<Object, Object> action) {
+            for (Object slot : slots) {
+                if (slot instanceof Node) {
+                    ((Node) slot).forEach(action);
+                } else {
+                    for (Leaf leaf = (Leaf) slot; leaf != null; leaf = leaf.next) {
+                        action.accept(leaf.key, leaf.value);
+                    }
+                }
+            }
+        }
+
+        private Node withSlot(int position, Object slot) {
+            Object[] newSlots = Arrays.copyOf(slots, slots.length);
+            newSlots[position] = slot;
+            return new Node(bitmap, newSlots);
+        }
+
+        /**
+         * A child node left with a single leaf is replaced with that leaf.
+         */
+        private static Object collapse(Object slot) {
+            if (slot instanceof Node) {
+                Node node = (Node) slot;
+                if (node.slots.length == 1 && node.slots[0] instanceof Leaf) {
+                    return node.slots[0];
+                }
+            }
+            return slot;
+        }
+
+        private static Node merge(int shift, Leaf first, Leaf second) {
+            int firstIndex = index(first.hash, shift);
+            int secondIndex = index(second.hash, shift);
+
+            if (firstIndex == secondIndex) {
+                return new Node(1 << firstIndex, new Object[]{merge(shift + BITS, first, second)});
+            }
+
+            Object[] slots = firstIndex < secondIndex
+                    ? new Object[]{first, second}
+                    : new Object[]{second, first};
+            return new Node((1 << firstIndex) | (1 << secondIndex), slots);
+        }
+    }
+
+    /**
+     * Mapping. Keys with the same full hash are chained via next.
+     */
+    private static final class Leaf {
+        private final int hash;
+        private final Object key;
+        private final Object value;
+        private final Leaf next;
+
+        private Leaf(int hash, Object key, Object value, Leaf next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        private Leaf find(int hash, Object key) {
+            if (this.hash != hash) {
+                return null;
+            }
+            for (Leaf leaf = this; leaf != null; leaf = leaf.next) {
+                if (Objects.equals(leaf.key, key)) {
+                    return leaf;
+                }
+            }
+            return null;
+        }
+
+        private Leaf plus(Object key, Object value, boolean[] added) {
+            Leaf existing = find(hash, key);
+            if (existing == null) {
+                added[0] = true;
+                return new Leaf(hash, key, value, this);
+            }
+            if (existing.value == value) {
+                return this;
+            }
+            return new Leaf(hash, key, value, minus(hash, key));
+        }
+
+        private Leaf minus(int hash, Object key) {
+            if (find(hash, key) == null) {
+                return this;
+            }
+            if (Objects.equals(this.key, key)) {
+                return next;
+            }
+            return new Leaf(this.hash, this.key, this.value, next.minus(hash, key));
+        }
+    }
+
+    /**
+     * Depth-first iterator over leaves of a trie.
+     */
+    private abstract static class LeafIterator<T> implements Iterator<T> {
+        private final Deque<Object[]> slotsStack = new ArrayDeque<>();
+        private final Deque<Integer> positionStack = new ArrayDeque<>();
+        private Leaf nextLeaf;
+
+        LeafIterator(Node root) {
+            if (root != null) {
+                slotsStack.push(root.slots);
+                positionStack.push(0);
+            }
+            advance();
+        }
+
+        abstract T map(Leaf leaf);
+
+        @Override
+        public boolean hasNext() {
+            return nextLeaf != null;
+        }
+
+        @Override
+        public T next() {
+            if (nextLeaf == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf current = nextLeaf;
+            if (current.next != null) {
+                nextLeaf = current.next;
+            } else {
+                advance();
+            }
+            return map(current);
+        }
+
+        private void advance() {
+            nextLeaf = null;
+            while (!slotsStack.isEmpty()) {
+                Object[] slots = slotsStack.peek();
+                int position = positionStack.pop();
+                if (position == slots.length) {
+                    slotsStack.pop();
+                    continue;
+                }
+                positionStack.push(position + 1);
+
+                Object slot = slots[position];
+                if (slot instanceof Leaf) {
+                    nextLeaf = (Leaf) slot;
+                    return;
+                }
+                slotsStack.push(((Node) slot).slots);
+                positionStack.push(0);
+            }
+        }
+    }
+}
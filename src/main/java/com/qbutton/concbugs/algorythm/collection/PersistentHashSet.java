@@ -0,0 +1,96 @@
+package com.qbutton.concbugs.algorythm.collection;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Persistent hash set, backed by {@link PersistentHashMap}.
+ * <p>
+ * The set is immutable: {@link #plus(Object)}, {@link #minus(Object)} and {@link #union(Collection)} return a new set,
+ * which shares structure with this one.
+ *
+ * @param <E> element type
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+
+    private static final PersistentHashSet<?> EMPTY = new PersistentHashSet<>(PersistentHashMap.empty());
+
+    private final PersistentHashMap<E, Boolean> map;
+
+    private PersistentHashSet(PersistentHashMap<E, Boolean> map) {
+        this.map = map;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    public static <E> PersistentHashSet<E> of(E element) {
+        return PersistentHashSet.<E>empty().plus(element);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> copyOf(Collection<? extends E> collection) {
+        if (collection instanceof PersistentHashSet) {
+            return (PersistentHashSet<E>) collection;
+        }
+        return PersistentHashSet.<E>empty().union(collection);
+    }
+
+    public PersistentHashSet<E> plus(E element) {
+        return wrap(map.plus(element, Boolean.TRUE));
+    }
+
+    public PersistentHashSet<E> minus(Object element) {
+        return wrap(map.minus(element));
+    }
+
+    /**
+     * Returns union of this set and given collection. If the collection is a bigger persistent set,
+     * elements of this set are added to it instead.
+     *
+     * @param collection elements to add
+     * @return union, which is this set if nothing was added
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentHashSet<E> union(Collection<? extends E> collection) {
+        if (collection instanceof PersistentHashSet && collection.size() > size()) {
+            return ((PersistentHashSet<E>) collection).union(this);
+        }
+
+        PersistentHashMap<E, Boolean> result = map;
+        for (E element : collection) {
+            result = result.plus(element, Boolean.TRUE);
+        }
+        return wrap(result);
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return map.containsKey(element);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return map.keyIterator();
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    private PersistentHashSet<E> wrap(PersistentHashMap<E, Boolean> newMap) {
+        if (newMap == map) {
+            return this;
+        }
+        return newMap.isEmpty() ? empty() : new PersistentHashSet<>(newMap);
+    }
+}
@@ -0,0 +1,166 @@
+package com.qbutton.concbugs.algorythm.dto;
+
+import com.qbutton.concbugs.algorythm.collection.PersistentHashMap;
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Adjacency matrix - dense representation of a graph with one bitset row of long words per heap object.
+ * <p>
+ * It is used instead of {@link Graph} maps when most of node pairs are connected, e.g. after edges are expanded
+ * over subclasses: rows are united and reachability is computed word by word. Heap object id is its position
+ * in the list given on creation. Unlike {@link Graph}, matrix is mutable.
+ */
+public final class AdjacencyMatrix {
+
+    /**
+     * Graphs having at least this share of all possible edges are dense.
+     */
+    static final double DENSITY_THRESHOLD = 0.125;
+    /**
+     * Smaller graphs are never dense - maps are cheap for them.
+     */
+    static final int MIN_DENSE_SIZE = 64;
+
+    private final List<HeapObject> heapObjects;
+    private final long[][] rows;
+
+    public AdjacencyMatrix(List<HeapObject> heapObjects) {
+        this.heapObjects = new ArrayList<>(heapObjects);
+        this.rows = new long[heapObjects.size()][words(heapObjects.size())];
+    }
+
+    public static AdjacencyMatrix of(HeapObjectIndex index) {
+        List<HeapObject> heapObjects = new ArrayList<>(index.size());
+        for (int id = 0; id < index.size(); id++) {
+            heapObjects.add(index.get(id));
+        }
+
+        AdjacencyMatrix matrix = new AdjacencyMatrix(heapObjects);
+        for (int id = 0; id < index.size(); id++) {
+            for (int successor : index.getSuccessors(id)) {
+                matrix.addEdge(id, successor);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Tells whether graph with given number of nodes and edges should be kept as a matrix.
+     *
+     * @param nodes number of nodes
+     * @param edges number of edges
+     * @return true if graph is dense
+     */
+    public static boolean isDense(int nodes, long edges) {
+        return nodes >= MIN_DENSE_SIZE && edges >= DENSITY_THRESHOLD * nodes * nodes;
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    public HeapObject get(int id) {
+        return heapObjects.get(id);
+    }
+
+    public boolean hasEdge(int from, int to) {
+        return (rows[from][to >>> 6] & (1L << to)) != 0;
+    }
+
+    public void addEdge(int from, int to) {
+        rows[from][to >>> 6] |= 1L << to;
+    }
+
+    /**
+     * Adds edges from a node to all nodes of a row.
+     *
+     * @param from    node id
+     * @param targets row with target nodes, created by {@link #newRow()}
+     */
+    public void addEdges(int from, long[] targets) {
+        or(rows[from], targets);
+    }
+
+    /**
+     * @return empty row, which can be filled with {@link #set(long[], int)}
+     */
+    public long[] newRow() {
+        return new long[words(rows.length)];
+    }
+
+    public static void set(long[] row, int id) {
+        row[id >>> 6] |= 1L << id;
+    }
+
+    /**
+     * Computes reachability - an edge from a to b is present in result if there is a non-empty path from a to b.
+     * Warshall's algorithm, where each step unites whole rows.
+     *
+     * @return new matrix
+     */
+    public AdjacencyMatrix transitiveClosure() {
+        AdjacencyMatrix closure = new AdjacencyMatrix(heapObjects);
+        for (int i = 0; i < rows.length; i++) {
+            System.arraycopy(rows[i], 0, closure.rows[i], 0, rows[i].length);
+        }
+
+        for (int k = 0; k < rows.length; k++) {
+            long[] rowK = closure.rows[k];
+            for (int i = 0; i < rows.length; i++) {
+                if (closure.hasEdge(i, k)) {
+                    or(closure.rows[i], rowK);
+                }
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * Converts matrix to a graph, which contains all heap objects of the matrix as nodes.
+     *
+     * @return graph
+     */
+    public Graph toGraph() {
+        PersistentHashMap<HeapObject, Set<HeapObject>> neighbors = PersistentHashMap.empty();
+        for (int from = 0; from < rows.length; from++) {
+            PersistentHashSet<HeapObject> edges = PersistentHashSet.empty();
+            for (int to = nextSetBit(rows[from], 0); to >= 0; to = nextSetBit(rows[from], to + 1)) {
+                edges = edges.plus(heapObjects.get(to));
+            }
+            neighbors = neighbors.plus(heapObjects.get(from), edges);
+        }
+        return new Graph(neighbors);
+    }
+
+    private static int nextSetBit(long[] row, int fromIndex) {
+        int wordIndex = fromIndex >>> 6;
+        if (wordIndex >= row.length) {
+            return -1;
+        }
+
+        long word = row[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == row.length) {
+                return -1;
+            }
+            word = row[wordIndex];
+        }
+    }
+
+    private static void or(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= source[i];
+        }
+    }
+
+    private static int words(int size) {
+        return (size + Long.SIZE - 1) / Long.SIZE;
+    }
+}
@@ -0,0 +1,255 @@
+package com.qbutton.concbugs.algorythm.dto;
+
+import lombok.Data;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Class edge graph - global lock-order graph kept at the level of declared classes.
+ * <p>
+ * An edge between declared classes A and B stands for edges between every subclass of A and every subclass of B,
+ * as a lock of declared class may be an object of any of its subclasses. These expanded edges between heap objects
+ * with unknown program points are built only on demand by {@link #expand()}, so the graph itself takes memory
+ * proportional to the number of source edges and the size of hierarchy rather than to its square.
+ * Where the expanded graph is only read once, e.g. when it is exported, {@link #expandedNeighbors()} gives its
+ * edges one source at a time instead.
+ * <p>
+ * Every edge between declared classes keeps a public method it was found in, so that cycles of the expanded graph,
+ * whose heap objects have no program points, can still be traced back to code, see {@link #withMethods(List)}.
+ */
+@Data
+public final class ClassEdgeGraph {
+
+    public static final ClassEdgeGraph EMPTY_GRAPH = new ClassEdgeGraph(Collections.emptyMap(), Collections.emptyMap());
+
+    /**
+     * Declared classes each declared class has edges to.
+     */
+    private final Map<String, Set<String>> edges;
+    /**
+     * Subclasses of each declared class, including the class itself.
+     */
+    private final Map<String, Set<String>> subclasses;
+    /**
+     * Public methods edges between declared classes were found in, by declared classes of their source and target.
+     */
+    private final Map<String, Map<String, String>> methods;
+    /**
+     * Names of methods which ran out of analysis budget and were given conservative summaries.
+     */
+    private final Set<String> truncatedMethods;
+
+    /**
+     * Creates a graph. Every class met in edges must have its subclasses given.
+     *
+     * @param edges      declared classes each declared class has edges to
+     * @param subclasses subclasses of each declared class
+     */
+    public ClassEdgeGraph(Map<String, ? extends Set<String>> edges, Map<String, ? extends Set<String>> subclasses) {
+        this(edges, subclasses, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a graph which records methods of edges. Edges may lack methods.
+     *
+     * @param edges      declared classes each declared class has edges to
+     * @param subclasses subclasses of each declared class
+     * @param methods    public methods edges were found in, by declared classes of their source and target
+     */
+    public ClassEdgeGraph(Map<String, ? extends Set<String>> edges,
+                          Map<String, ? extends Set<String>> subclasses,
+                          Map<String, ? extends Map<String, String>> methods) {
+        this(edges, subclasses, methods, Collections.emptySet());
+    }
+
+    private ClassEdgeGraph(Map<String, ? extends Set<String>> edges,
+                           Map<String, ? extends Set<String>> subclasses,
+                           Map<String, ? extends Map<String, String>> methods,
+                           Set<String> truncatedMethods) {
+        this.edges = Collections.unmodifiableMap(new LinkedHashMap<>(edges));
+        this.subclasses = Collections.unmodifiableMap(new LinkedHashMap<>(subclasses));
+        this.methods = Collections.unmodifiableMap(new LinkedHashMap<>(methods));
+        this.truncatedMethods = Collections.unmodifiableSet(new LinkedHashSet<>(truncatedMethods));
+    }
+
+    /**
+     * Creates the same graph, which records that it was built from truncated methods.
+     *
+     * @param truncatedMethods names of truncated methods
+     * @return graph
+     */
+    public ClassEdgeGraph withTruncatedMethods(Set<String> truncatedMethods) {
+        return truncatedMethods.isEmpty() && this.truncatedMethods.isEmpty()
+                ? this
+                : new ClassEdgeGraph(edges, subclasses, methods, truncatedMethods);
+    }
+
+    /**
+     * Builds lock-order graph with all edges expanded over subclasses.
+     *
+     * @return expanded graph
+     */
+    public Graph expand() {
+        return expand(clazz -> true);
+    }
+
+    /**
+     * Builds lock-order graph with edges expanded over subclasses, keeping only edges between given classes.
+     *
+     * @param classes classes to keep
+     * @return expanded graph
+     */
+    public Graph expand(Set<String> classes) {
+        return expand(classes::contains);
+    }
+
+    private Graph expand(Predicate<String> filter) {
+        List<ExpandedEdges> expandedEdges = new ArrayList<>();
+        Map<String, Integer> classIds = new LinkedHashMap<>();
+        long edgeEstimate = 0;
+
+        for (Map.Entry<String, Set<String>> entry : edges.entrySet()) {
+            Set<String> subclassesOfFrom = filter(subclasses.get(entry.getKey()), filter);
+            Set<String> subclassesOfTo = new LinkedHashSet<>();
+            entry.getValue().forEach(to -> subclassesOfTo.addAll(filter(subclasses.get(to), filter)));
+
+            if (subclassesOfFrom.isEmpty() || subclassesOfTo.isEmpty()) {
+                continue;
+            }
+            expandedEdges.add(new ExpandedEdges(subclassesOfFrom, subclassesOfTo));
+            subclassesOfFrom.forEach(clazz -> classIds.putIfAbsent(clazz, classIds.size()));
+            subclassesOfTo.forEach(clazz -> classIds.putIfAbsent(clazz, classIds.size()));
+            edgeEstimate += (long) subclassesOfFrom.size() * subclassesOfTo.size();
+        }
+
+        return AdjacencyMatrix.isDense(classIds.size(), edgeEstimate)
+                ? expandDense(expandedEdges, classIds)
+                : expandSparse(expandedEdges);
+    }
+
+    /**
+     * Lazily expands edges over subclasses: every heap object with edges, along with heap objects it has edges to.
+     * Only the current source and its targets are held in memory, in addition to the graph itself.
+     * Unlike {@link #expand()}, heap objects without edges from them are not listed as sources.
+     *
+     * @return neighbors of the expanded graph, computed while they are iterated
+     */
+    public Iterable<Map.Entry<HeapObject, Set<HeapObject>>> expandedNeighbors() {
+        Map<String, List<String>> declaredClasses = indexDeclaredSources();
+        return () -> declaredClasses.entrySet().stream()
+                .map(entry -> {
+                    Set<HeapObject> targets = new LinkedHashSet<>();
+                    entry.getValue().forEach(from -> edges.get(from).forEach(to -> subclasses.get(to).forEach(
+                            subclassOfTo -> targets.add(HeapObject.of(ProgramPoint.UNKNOWN, subclassOfTo)))));
+                    return (Map.Entry<HeapObject, Set<HeapObject>>) new AbstractMap.SimpleImmutableEntry<>(
+                            HeapObject.of(ProgramPoint.UNKNOWN, entry.getKey()), targets);
+                })
+                .filter(entry -> !entry.getValue().isEmpty())
+                .iterator();
+    }
+
+    /**
+     * Finds methods of cycles of the expanded graph: for every edge of a cycle, a method of an edge between
+     * declared classes it was expanded from.
+     *
+     * @param cycles cycles of the expanded graph
+     * @return cycles with methods, or the same cycles where no method is known
+     */
+    public List<Cycle> withMethods(List<Cycle> cycles) {
+        if (methods.isEmpty()) {
+            return cycles;
+        }
+
+        Map<String, List<String>> declaredClasses = indexDeclaredSources();
+        List<Cycle> result = new ArrayList<>(cycles.size());
+        for (Cycle cycle : cycles) {
+            List<HeapObject> heapObjects = cycle.getHeapObjects();
+            List<String> cycleMethods = new ArrayList<>(heapObjects.size());
+            for (int i = 0; i < heapObjects.size(); i++) {
+                String from = heapObjects.get(i).getClazz();
+                String to = heapObjects.get((i + 1) % heapObjects.size()).getClazz();
+                cycleMethods.add(findMethod(declaredClasses.getOrDefault(from, Collections.emptyList()), to));
+            }
+            result.add(cycleMethods.stream().allMatch(Objects::isNull) ? cycle : new Cycle(heapObjects, cycleMethods));
+        }
+        return result;
+    }
+
+    private String findMethod(List<String> declaredSources, String to) {
+        for (String declaredFrom : declaredSources) {
+            Map<String, String> methodsOfSource = methods.getOrDefault(declaredFrom, Collections.emptyMap());
+            for (String declaredTo : edges.get(declaredFrom)) {
+                String method = methodsOfSource.get(declaredTo);
+                if (method != null && subclasses.get(declaredTo).contains(to)) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Declared classes with edges whose subclasses include each class.
+     */
+    private Map<String, List<String>> indexDeclaredSources() {
+        Map<String, List<String>> declaredClasses = new LinkedHashMap<>();
+        edges.keySet().forEach(from -> subclasses.get(from).forEach(subclassOfFrom ->
+                declaredClasses.computeIfAbsent(subclassOfFrom, key -> new ArrayList<>()).add(from)));
+        return declaredClasses;
+    }
+
+    private static Set<String> filter(Set<String> classes, Predicate<String> filter) {
+        return classes.stream()
+                .filter(filter)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static Graph expandSparse(List<ExpandedEdges> expandedEdges) {
+        Graph result = Graph.EMPTY_GRAPH;
+        for (ExpandedEdges edges : expandedEdges) {
+            for (String subclassOfFrom : edges.getFrom()) {
+                HeapObject unknownHoFrom = HeapObject.of(ProgramPoint.UNKNOWN, subclassOfFrom);
+                for (String subclassOfTo : edges.getTo()) {
+                    HeapObject unknownHoTo = HeapObject.of(ProgramPoint.UNKNOWN, subclassOfTo);
+
+                    result = result.withEdge(unknownHoFrom, unknownHoTo);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Expanded graph is often dense, then it is built as a bit matrix instead of adding edges one by one.
+     */
+    private static Graph expandDense(List<ExpandedEdges> expandedEdges, Map<String, Integer> classIds) {
+        List<HeapObject> heapObjects = classIds.keySet().stream()
+                .map(clazz -> HeapObject.of(ProgramPoint.UNKNOWN, clazz))
+                .collect(Collectors.toList());
+        AdjacencyMatrix matrix = new AdjacencyMatrix(heapObjects);
+
+        for (ExpandedEdges edges : expandedEdges) {
+            long[] targets = matrix.newRow();
+            edges.getTo().forEach(subclassOfTo -> AdjacencyMatrix.set(targets, classIds.get(subclassOfTo)));
+            edges.getFrom().forEach(subclassOfFrom -> matrix.addEdges(classIds.get(subclassOfFrom), targets));
+        }
+
+        return matrix.toGraph();
+    }
+
+    @Data
+    private static class ExpandedEdges {
+        private final Set<String> from;
+        private final Set<String> to;
+    }
+}
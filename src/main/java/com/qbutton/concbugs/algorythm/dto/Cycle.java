@@ -0,0 +1,71 @@
+package com.qbutton.concbugs.algorythm.dto;
+
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Cycle - an elementary cycle in lock-order graph, which is a potential deadlock.
+ * Heap objects go in locking order, the last one is followed by the first one.
+ * <p>
+ * Heap objects of a cycle found in the global graph have unknown program points, so such a cycle carries methods
+ * its edges were found in instead.
+ */
+@Data
+public final class Cycle {
+    private final List<HeapObject> heapObjects;
+    /**
+     * Methods of edges, the i-th one for the edge from the i-th heap object to the next one, or null if it is not
+     * known. Empty if no method is known.
+     */
+    private final List<String> methods;
+
+    public Cycle(List<HeapObject> heapObjects) {
+        this(heapObjects, Collections.emptyList());
+    }
+
+    public Cycle(List<HeapObject> heapObjects, List<String> methods) {
+        this.heapObjects = heapObjects;
+        this.methods = methods;
+    }
+
+    public int length() {
+        return heapObjects.size();
+    }
+
+    /**
+     * Human-readable description, e.g. "a.A -> b.B (lock at 120) -> a.A". A cycle with methods is described
+     * edge by edge, e.g. "a.A -> b.B in c.C.transfer; b.B -> a.A in c.C.refund".
+     *
+     * @return description
+     */
+    public String describe() {
+        if (methods.isEmpty()) {
+            return Stream.concat(heapObjects.stream(), Stream.of(heapObjects.get(0)))
+                    .map(Cycle::describe)
+                    .collect(Collectors.joining(" -> "));
+        }
+        return IntStream.range(0, heapObjects.size())
+                .mapToObj(this::describeEdge)
+                .collect(Collectors.joining("; "));
+    }
+
+    private String describeEdge(int index) {
+        String edge = describe(heapObjects.get(index)) + " -> "
+                + describe(heapObjects.get((index + 1) % heapObjects.size()));
+        String method = methods.get(index);
+        return method == null ? edge : edge + " in " + method;
+    }
+
+    private static String describe(HeapObject heapObject) {
+        ProgramPoint programPoint = heapObject.getProgramPoint();
+        if (programPoint.isUnknown()) {
+            return heapObject.getClazz();
+        }
+        return heapObject.getClazz() + " (" + programPoint.getVariableName() + " at " + programPoint.getOffset() + ")";
+    }
+}
@@ -0,0 +1,115 @@
+package com.qbutton.concbugs.algorythm.dto;
+
+import com.qbutton.concbugs.algorythm.collection.PersistentHashMap;
+
+import java.util.AbstractList;
+import java.util.Collection;
+
+/**
+ * Environment of a state - entries mapping local variables to heap objects, in order variables were added.
+ * <p>
+ * Every variable gets the next slot when it is added, and keeps it when its heap object is replaced. Variable names
+ * are mapped to slots and slots to entries by persistent hash maps, so a variable is found or replaced in
+ * practically constant time, and a new environment shares structure with the one it was made of.
+ * As a list, environment holds its entries in order of slots.
+ */
+public final class Environment extends AbstractList<EnvEntry> {
+
+    private static final Environment EMPTY = new Environment(PersistentHashMap.empty(), PersistentHashMap.empty());
+
+    private final PersistentHashMap<String, Integer> slots;
+    private final PersistentHashMap<Integer, EnvEntry> entries;
+
+    private Environment(PersistentHashMap<String, Integer> slots, PersistentHashMap<Integer, EnvEntry> entries) {
+        this.slots = slots;
+        this.entries = entries;
+    }
+
+    public static Environment empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates environment of given entries. An entry replaces previous entry of the same variable.
+     *
+     * @param entries entries
+     * @return environment, which is the given one if entries are an environment already
+     */
+    public static Environment copyOf(Collection<EnvEntry> entries) {
+        if (entries instanceof Environment) {
+            return (Environment) entries;
+        }
+
+        Environment environment = EMPTY;
+        for (EnvEntry entry : entries) {
+            environment = environment.with(entry);
+        }
+        return environment;
+    }
+
+    /**
+     * Finds heap object of a variable.
+     *
+     * @param varName variable name
+     * @return heap object, or null if there is no such variable
+     */
+    public HeapObject getHeapObject(String varName) {
+        Integer slot = slots.get(varName);
+        return slot == null ? null : entries.get(slot).getHeapObject();
+    }
+
+    public boolean containsVariable(String varName) {
+        return slots.containsKey(varName);
+    }
+
+    /**
+     * Adds an entry, or replaces entry of the same variable keeping its slot.
+     *
+     * @param entry entry
+     * @return new environment, or this one if it already has the entry
+     */
+    public Environment with(EnvEntry entry) {
+        Integer slot = slots.get(entry.getVarName());
+        if (slot == null) {
+            int newSlot = size();
+            return new Environment(slots.plus(entry.getVarName(), newSlot), entries.plus(newSlot, entry));
+        }
+        if (entries.get(slot).equals(entry)) {
+            return this;
+        }
+        return new Environment(slots, entries.plus(slot, entry));
+    }
+
+    /**
+     * Keeps only variables of another environment, e.g. when a scope with variables declared in it is left.
+     *
+     * @param scope environment whose variables are kept
+     * @return new environment, or this one if all its variables are kept
+     */
+    public Environment retainVariablesOf(Environment scope) {
+        Environment environment = EMPTY;
+        boolean changed = false;
+        for (int slot = 0; slot < size(); slot++) {
+            EnvEntry entry = entries.get(slot);
+            if (scope.containsVariable(entry.getVarName())) {
+                environment = environment.with(entry);
+            } else {
+                changed = true;
+            }
+        }
+        return changed ? environment : this;
+    }
+
+    @Override
+    public EnvEntry get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of environment of size " + size());
+        }
+        return entries.get(index);
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+}
@@ -1,41 +1,195 @@
 package com.qbutton.concbugs.algorythm.dto;
 
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import com.qbutton.concbugs.algorythm.collection.PersistentHashMap;
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Graph - directed graph of heap objects.
+ * <p>
+ * Graph is immutable and persistent: every modification returns a new graph, which shares all untouched nodes
+ * and edge sets with the original one, so there is no need to copy graphs defensively.
+ * <p>
+ * Graph also keeps incoming edges of every node, so removing or replacing a node touches only edge sets of
+ * its neighbors instead of every edge set of the graph.
  */
 @Data
-public final class Graph implements Cloneable {
-    private final Map<HeapObject, Set<HeapObject>> neighbors;
+@EqualsAndHashCode(exclude = "predecessors")
+@ToString(exclude = "predecessors")
+public final class Graph {
 
-    @SuppressFBWarnings("CN_IDIOM_NO_SUPER_CALL")
-    @Override
-    public Graph clone() {
-        Map<HeapObject, Set<HeapObject>> clonedMap = new HashMap<>();
+    public static final Graph EMPTY_GRAPH = new Graph(PersistentHashMap.empty());
 
-        neighbors.forEach((node, edges) -> clonedMap.put(node.clone(), ImmutableSet.copyOf(edges)));
+    private final PersistentHashMap<HeapObject, Set<HeapObject>> neighbors;
+    /**
+     * Nodes having an edge to a node, by that node. Nodes without incoming edges are absent.
+     */
+    @Getter(AccessLevel.NONE)
+    private final PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> predecessors;
 
-        return new Graph(clonedMap);
+    /**
+     * Creates a graph. Edge sets are not copied, so they must not be modified afterwards.
+     *
+     * @param neighbors edges of each node
+     */
+    public Graph(Map<HeapObject, ? extends Set<HeapObject>> neighbors) {
+        this(PersistentHashMap.copyOf(neighbors), indexPredecessors(neighbors));
     }
 
+    private Graph(PersistentHashMap<HeapObject, Set<HeapObject>> neighbors,
+                  PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> predecessors) {
+        this.neighbors = neighbors;
+        this.predecessors = predecessors;
+    }
+
+    /**
+     * Finds nodes having an edge to a node.
+     *
+     * @param node node
+     * @return nodes with edges to the node, empty if there are none
+     */
+    public Set<HeapObject> getPredecessors(HeapObject node) {
+        PersistentHashSet<HeapObject> nodePredecessors = predecessors.get(node);
+        return nodePredecessors == null ? PersistentHashSet.empty() : nodePredecessors;
+    }
+
+    public Graph withNode(HeapObject node) {
+        if (neighbors.containsKey(node)) {
+            return this;
+        }
+        return new Graph(neighbors.plus(node, PersistentHashSet.empty()), predecessors);
+    }
 
     public Graph withEdge(HeapObject from, HeapObject to) {
-        Map<HeapObject, Set<HeapObject>> newNeighbors = new HashMap<>(neighbors);
+        PersistentHashMap<HeapObject, Set<HeapObject>> newNeighbors = neighbors;
+        PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> newPredecessors = predecessors;
+
+        Set<HeapObject> fromEdges = neighbors.get(from);
+        if (fromEdges == null || !fromEdges.contains(to)) {
+            newNeighbors = newNeighbors.plus(from, fromEdges == null
+                    ? PersistentHashSet.of(to)
+                    : PersistentHashSet.copyOf(fromEdges).plus(to));
+            newPredecessors = withPredecessor(newPredecessors, to, from);
+        }
+
+        if (!newNeighbors.containsKey(to)) {
+            newNeighbors = newNeighbors.plus(to, PersistentHashSet.empty());
+        }
+
+        return newNeighbors == neighbors ? this : new Graph(newNeighbors, newPredecessors);
+    }
+
+    /**
+     * Adds edges from a node, and the node itself if needed. If the node has no edges yet, the given edge set
+     * is shared rather than copied, so it must not be modified afterwards.
+     *
+     * @param from  node
+     * @param edges nodes to draw edges to, which must be in the graph already or be added later
+     * @return new graph, or this one if it already has all the edges
+     */
+    public Graph withEdges(HeapObject from, Set<HeapObject> edges) {
+        Set<HeapObject> fromEdges = neighbors.get(from);
+        if (fromEdges == edges) {
+            return this;
+        }
+
+        Set<HeapObject> newEdges = fromEdges == null ? edges : PersistentHashSet.copyOf(fromEdges).union(edges);
+        if (newEdges == fromEdges) {
+            return this;
+        }
 
-        ImmutableSet<HeapObject> newTo = ImmutableSet.of(to);
-        newNeighbors.merge(from, newTo, Sets::union);
+        PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> newPredecessors = predecessors;
+        for (HeapObject to : edges) {
+            if (fromEdges == null || !fromEdges.contains(to)) {
+                newPredecessors = withPredecessor(newPredecessors, to, from);
+            }
+        }
+        return new Graph(neighbors.plus(from, newEdges), newPredecessors);
+    }
+
+    /**
+     * Removes an edge.
+     *
+     * @param from node edge starts at
+     * @param to   node edge ends at
+     * @return new graph, or this one if there is no such edge
+     */
+    public Graph withoutEdge(HeapObject from, HeapObject to) {
+        Set<HeapObject> fromEdges = neighbors.get(from);
+        if (fromEdges == null || !fromEdges.contains(to)) {
+            return this;
+        }
+        return new Graph(
+                neighbors.plus(from, PersistentHashSet.copyOf(fromEdges).minus(to)),
+                withoutPredecessor(predecessors, to, from));
+    }
+
+    /**
+     * Removes a node together with its outgoing and incoming edges.
+     *
+     * @param node node
+     * @return new graph, or this one if there is no such node
+     */
+    public Graph withoutNode(HeapObject node) {
+        Set<HeapObject> edges = neighbors.get(node);
+        if (edges == null) {
+            return this;
+        }
+
+        PersistentHashMap<HeapObject, Set<HeapObject>> newNeighbors = neighbors.minus(node);
+        for (HeapObject predecessor : getPredecessors(node)) {
+            Set<HeapObject> predecessorEdges = newNeighbors.get(predecessor);
+            //absent for a self-link, which is gone with the node
+            if (predecessorEdges != null) {
+                newNeighbors = newNeighbors.plus(predecessor, PersistentHashSet.copyOf(predecessorEdges).minus(node));
+            }
+        }
+
+        PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> newPredecessors = predecessors.minus(node);
+        for (HeapObject successor : edges) {
+            newPredecessors = withoutPredecessor(newPredecessors, successor, node);
+        }
 
-        newNeighbors.putIfAbsent(to, Collections.emptySet());
+        return new Graph(newNeighbors, newPredecessors);
+    }
+
+    private static PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> indexPredecessors(
+            Map<HeapObject, ? extends Set<HeapObject>> neighbors) {
+        PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> predecessors = PersistentHashMap.empty();
+        for (Map.Entry<HeapObject, ? extends Set<HeapObject>> entry : neighbors.entrySet()) {
+            for (HeapObject to : entry.getValue()) {
+                predecessors = withPredecessor(predecessors, to, entry.getKey());
+            }
+        }
+        return predecessors;
+    }
+
+    private static PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> withPredecessor(
+            PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> predecessors,
+            HeapObject node,
+            HeapObject predecessor) {
+        PersistentHashSet<HeapObject> nodePredecessors = predecessors.get(node);
+        return predecessors.plus(node, nodePredecessors == null
+                ? PersistentHashSet.of(predecessor)
+                : nodePredecessors.plus(predecessor));
+    }
 
-        return new Graph(newNeighbors);
+    private static PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> withoutPredecessor(
+            PersistentHashMap<HeapObject, PersistentHashSet<HeapObject>> predecessors,
+            HeapObject node,
+            HeapObject predecessor) {
+        PersistentHashSet<HeapObject> nodePredecessors = predecessors.get(node);
+        if (nodePredecessors == null) {
+            return predecessors;
+        }
+        nodePredecessors = nodePredecessors.minus(predecessor);
+        return nodePredecessors.isEmpty() ? predecessors.minus(node) : predecessors.plus(node, nodePredecessors);
     }
 }
@@ -1,20 +1,65 @@
 package com.qbutton.concbugs.algorythm.dto;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Objects;
 
 /**
  * Heap object - a combination of program point and variable class.
+ * <p>
+ * Heap objects are used as keys of every graph and set, so hash code is computed once. Instances created via
+ * {@link #of(ProgramPoint, String)} are interned, so equal heap objects are usually the same instance and are
+ * compared by reference.
  */
 @Data
-public final class HeapObject implements Cloneable {
+@ToString(exclude = "hash")
+public final class HeapObject {
+
+    private static final Interner<HeapObject> INTERNER = Interners.newWeakInterner();
+
     private final ProgramPoint programPoint;
     private final String clazz;
+    @Getter(AccessLevel.NONE)
+    private final int hash;
+
+    public HeapObject(ProgramPoint programPoint, String clazz) {
+        this.programPoint = programPoint;
+        this.clazz = clazz;
+        this.hash = 31 * Objects.hashCode(programPoint) + Objects.hashCode(clazz);
+    }
+
+    /**
+     * Returns canonical heap object.
+     *
+     * @param programPoint program point
+     * @param clazz        class
+     * @return interned heap object
+     */
+    public static HeapObject of(ProgramPoint programPoint, String clazz) {
+        return INTERNER.intern(new HeapObject(programPoint, clazz));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HeapObject)) {
+            return false;
+        }
+        HeapObject other = (HeapObject) o;
+        return hash == other.hash
+                && Objects.equals(programPoint, other.programPoint)
+                && Objects.equals(clazz, other.clazz);
+    }
 
-    @SuppressFBWarnings("CN_IDIOM_NO_SUPER_CALL")
     @Override
-    public HeapObject clone() {
-        ProgramPoint programPointClone = this.programPoint.clone();
-        return new HeapObject(programPointClone, clazz);
+    public int hashCode() {
+        return hash;
     }
 }
@@ -0,0 +1,88 @@
+package com.qbutton.concbugs.algorythm.dto;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Heap object index - numbers heap objects of a graph with dense int ids, so graph algorithms can work on
+ * int arrays and bitsets instead of hashing heap objects.
+ * <p>
+ * Ids are given in the order nodes are met in a graph; edge targets which are not nodes themselves get ids too.
+ */
+public final class HeapObjectIndex {
+
+    private final Map<HeapObject, Integer> ids = new HashMap<>();
+    private final List<HeapObject> heapObjects = new ArrayList<>();
+    private final int[][] successors;
+    private final long edgeCount;
+
+    private HeapObjectIndex(Graph graph) {
+        Map<HeapObject, Set<HeapObject>> neighbors = graph.getNeighbors();
+        neighbors.forEach((node, edges) -> register(node));
+        neighbors.forEach((node, edges) -> edges.forEach(this::register));
+
+        successors = new int[heapObjects.size()][];
+        long totalEdges = 0;
+        for (int id = 0; id < successors.length; id++) {
+            Set<HeapObject> edges = neighbors.get(heapObjects.get(id));
+            int[] edgeIds = edges == null
+                    ? new int[0]
+                    : edges.stream().mapToInt(ids::get).toArray();
+            Arrays.sort(edgeIds);
+            successors[id] = edgeIds;
+            totalEdges += edgeIds.length;
+        }
+        edgeCount = totalEdges;
+    }
+
+    public static HeapObjectIndex of(Graph graph) {
+        return new HeapObjectIndex(graph);
+    }
+
+    /**
+     * @param heapObject heap object
+     * @return id of heap object, or -1 if it is not in the graph
+     */
+    public int find(HeapObject heapObject) {
+        Integer id = ids.get(heapObject);
+        return id == null ? -1 : id;
+    }
+
+    public HeapObject get(int id) {
+        return heapObjects.get(id);
+    }
+
+    /**
+     * @param id id of heap object
+     * @return sorted ids of heap objects this one has edges to, must not be modified
+     */
+    @SuppressFBWarnings("EI_EXPOSE_REP")
+    public int[] getSuccessors(int id) {
+        return successors[id];
+    }
+
+    public boolean hasEdge(int from, int to) {
+        return Arrays.binarySearch(successors[from], to) >= 0;
+    }
+
+    public int size() {
+        return heapObjects.size();
+    }
+
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    private void register(HeapObject heapObject) {
+        ids.computeIfAbsent(heapObject, key -> {
+            heapObjects.add(key);
+            return heapObjects.size() - 1;
+        });
+    }
+}
@@ -2,10 +2,18 @@ package com.qbutton.concbugs.algorythm.dto;
 
 import com.qbutton.concbugs.algorythm.dto.statement.Statement;
 import lombok.Data;
+import lombok.ToString;
 
 import java.util.List;
 
+/**
+ * Method declaration.
+ * <p>
+ * Recursive methods have themselves among method declarations of some method statement in their body, so body is
+ * excluded from toString.
+ */
 @Data
+@ToString(exclude = "methodBody")
 public class MethodDeclaration {
     private final String methodName;
     /**
@@ -14,6 +22,11 @@ public class MethodDeclaration {
     private final List<Variable> variables;
     private final Statement methodBody;
     private final int offset;
+    /**
+     * Qualified name of the class declaring the method. Static methods of different classes may have the same name,
+     * parameters and offset, so it tells their declarations apart.
+     */
+    private final String declaringClass;
 
     @Data
     public static class Variable {
@@ -1,25 +1,70 @@
 package com.qbutton.concbugs.algorythm.dto;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import lombok.AccessLevel;
 import lombok.Data;
-import lombok.SneakyThrows;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Objects;
 
 /**
  * Program point - a combination of variable name and line number.
+ * <p>
+ * Like {@link HeapObject}, program point caches its hash code and is interned when created via
+ * {@link #of(String, int)}.
  */
 @Data
-public final class ProgramPoint implements Cloneable {
+@ToString(exclude = "hash")
+public final class ProgramPoint {
+
+    private static final Interner<ProgramPoint> INTERNER = Interners.newWeakInterner();
+
     private final String variableName;
     private final int offset;
+    @Getter(AccessLevel.NONE)
+    private final int hash;
+
+    public static final ProgramPoint UNKNOWN = of(null, -1);
+
+    public ProgramPoint(String variableName, int offset) {
+        this.variableName = variableName;
+        this.offset = offset;
+        this.hash = 31 * Objects.hashCode(variableName) + offset;
+    }
 
-    public static final ProgramPoint UNKNOWN = new ProgramPoint(null, -1);
+    /**
+     * Returns canonical program point.
+     *
+     * @param variableName variable name
+     * @param offset       offset
+     * @return interned program point
+     */
+    public static ProgramPoint of(String variableName, int offset) {
+        return INTERNER.intern(new ProgramPoint(variableName, offset));
+    }
 
     public boolean isUnknown() {
-        return this.equals(UNKNOWN);
+        return this == UNKNOWN || this.equals(UNKNOWN);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProgramPoint)) {
+            return false;
+        }
+        ProgramPoint other = (ProgramPoint) o;
+        return hash == other.hash
+                && offset == other.offset
+                && Objects.equals(variableName, other.variableName);
     }
 
-    @SneakyThrows
     @Override
-    public ProgramPoint clone() {
-        return (ProgramPoint) super.clone();
+    public int hashCode() {
+        return hash;
     }
 }
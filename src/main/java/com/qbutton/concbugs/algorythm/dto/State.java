@@ -1,16 +1,12 @@
 package com.qbutton.concbugs.algorythm.dto;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
 import lombok.Data;
 
 import java.util.List;
 import java.util.Set;
 
 import static java.util.Collections.emptyList;
-import static java.util.Collections.emptyMap;
-import static java.util.Collections.emptySet;
 
 /**
  * The state is a 5-tuple consisting of:
@@ -35,9 +31,12 @@ import static java.util.Collections.emptySet;
  * <p>
  * - A set of objects that have had wait called on them without an enclosing
  * synchronized statement in the current method.
+ * <p>
+ * State is immutable, roots and waits are kept as persistent sets and environment as {@link Environment}, so states
+ * share structure with each other.
  */
 @Data
-public class State implements Cloneable {
+public class State {
     private final Graph graph;
     private final Set<HeapObject> roots;
     private final List<HeapObject> locks;
@@ -45,27 +44,26 @@ public class State implements Cloneable {
      * Environment should have 'this' if it is instance method put at the beginning of the method, or 'Class.class' if it is
      * static method.
      */
-    private final List<EnvEntry> environment;
+    private final Environment environment;
     private final Set<HeapObject> waits;
 
-    @SuppressFBWarnings("CN_IDIOM_NO_SUPER_CALL")
-    @Override
-    public State clone() {
-        return new State(
-                graph.clone(),
-                ImmutableSet.copyOf(roots),
-                ImmutableList.copyOf(locks),
-                ImmutableList.copyOf(environment),
-                ImmutableSet.copyOf(waits)
-        );
+    public State(Graph graph,
+                 Set<HeapObject> roots,
+                 List<HeapObject> locks,
+                 List<EnvEntry> environment,
+                 Set<HeapObject> waits) {
+        this.graph = graph;
+        this.roots = PersistentHashSet.copyOf(roots);
+        this.locks = locks;
+        this.environment = Environment.copyOf(environment);
+        this.waits = PersistentHashSet.copyOf(waits);
     }
 
     public static final State EMPTY_STATE = new State(
-            new Graph(
-                    emptyMap()),
-            emptySet(),
+            Graph.EMPTY_GRAPH,
+            PersistentHashSet.empty(),
             emptyList(),
             emptyList(),
-            emptySet()
+            PersistentHashSet.empty()
     );
 }
@@ -0,0 +1,23 @@
+package com.qbutton.concbugs.algorythm.dto.statement;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Loop statement, e.g.:
+ * while (...) statement, for (...) statement, do statement while (...).
+ * <p>
+ * Body may be executed any number of times, including zero.
+ */
+@Getter
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public final class LoopStatement extends Statement {
+    private final Statement body;
+
+    public LoopStatement(int offset, String varName, Statement body) {
+        super(offset, varName);
+        this.body = body;
+    }
+}
@@ -3,25 +3,33 @@ package com.qbutton.concbugs.algorythm.dto.statement;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Sequential statement (to be executed sequentially), e.g.:
- * statement1; statement2.
+ * statement1; statement2; ...; statementN.
  */
 @Getter
 @ToString(callSuper = true)
 public final class SequentialStatement extends Statement {
-    private final Statement stmt1;
-    private final Statement stmt2;
+    /**
+     * Statements in order of execution, backed by the array given to constructor.
+     */
+    private final List<Statement> statements;
 
-    public SequentialStatement(int offset, String varName, Statement stmt1, Statement stmt2) {
+    public SequentialStatement(int offset, String varName, Statement... statements) {
         super(offset, varName);
-        this.stmt1 = stmt1;
-        this.stmt2 = stmt2;
+        this.statements = Collections.unmodifiableList(Arrays.asList(statements));
     }
 
-    public SequentialStatement(Statement stmt1, Statement stmt2) {
-        super(0, "any");
-        this.stmt1 = stmt1;
-        this.stmt2 = stmt2;
+    /**
+     * Creates sequential statement of given statements. The array is not copied, so it must not be changed later.
+     *
+     * @param statements statements, none of them null
+     */
+    public SequentialStatement(Statement... statements) {
+        this(0, "any", statements);
     }
 }
@@ -0,0 +1,7 @@
+package com.qbutton.concbugs.algorythm.exception;
+
+public class BudgetExceededException extends RuntimeException {
+    public BudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -3,31 +3,28 @@ package com.qbutton.concbugs.algorythm.processor;
 import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
 import com.qbutton.concbugs.algorythm.service.MergeService;
-import com.qbutton.concbugs.algorythm.service.VisitorService;
 import lombok.RequiredArgsConstructor;
 
+/**
+ * Processes end of branch statement, joining states after both branches.
+ */
 @RequiredArgsConstructor
-public final class BranchStatementProcessor extends AbstractStatementProcessor<BranchStatement> {
+public final class BranchStatementProcessor {
 
-    private final VisitorService visitorService;
     private final MergeService mergeService;
 
-    @Override
-    State process(BranchStatement statement, State originalState) {
-
-        State firstBranchState =
-                statement.getStmt1() != null
-                        ? visitorService.visitStatement(statement.getStmt1(), originalState)
-                        : State.EMPTY_STATE;
-        State secondBranchState =
-                statement.getStmt2() != null
-                        ? visitorService.visitStatement(statement.getStmt2(), originalState)
-                        : State.EMPTY_STATE;
-
-        if (firstBranchState == State.EMPTY_STATE && secondBranchState == State.EMPTY_STATE) {
-            return originalState;
-        }
-
-        return mergeService.mergeStates(firstBranchState, secondBranchState, statement.getOffset());
+    /**
+     * Joins states after branches. State of an absent branch is ignored.
+     *
+     * @param statement         branch statement
+     * @param firstBranchState  state after first branch
+     * @param secondBranchState state after second branch
+     * @return joined state
+     */
+    State join(BranchStatement statement, State firstBranchState, State secondBranchState) {
+        return mergeService.mergeStates(
+                statement.getStmt1() != null ? firstBranchState : State.EMPTY_STATE,
+                statement.getStmt2() != null ? secondBranchState : State.EMPTY_STATE,
+                statement.getOffset());
     }
 }
@@ -0,0 +1,266 @@
+package com.qbutton.concbugs.algorythm.processor;
+
+import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Control flow graph of a statement, flattened to nodes for simple statements and for entries and exits
+ * of compound ones. Sequential statements become edges.
+ * <p>
+ * Nodes are numbered in reverse postorder: every edge leads to a node with a greater index, except back edges
+ * from ends of loop bodies to loop heads. Index {@link #size()} stands for the exit of the whole statement.
+ * <p>
+ * Some nodes have two inputs, called slots: a join takes the state of the first branch into slot 0 and of the
+ * second one into slot 1, a loop head takes the state before the loop into slot 0 and the state after its body
+ * into slot 1.
+ * <p>
+ * Graph is built without recursion, so depth of statements is not limited by stack size. It is immutable
+ * and may be shared between threads.
+ */
+final class ControlFlowGraph {
+
+    enum Kind {
+        /**
+         * Statement without nested statements, processed by its processor.
+         */
+        STATEMENT,
+        /**
+         * Start of synchronized statement, which takes the lock.
+         */
+        MONITOR_ENTER,
+        /**
+         * End of synchronized statement, which releases the lock taken by its partner.
+         */
+        MONITOR_EXIT,
+        /**
+         * Start of branch statement, leading to first branch by next edge and to second one by alternative edge.
+         */
+        BRANCH,
+        /**
+         * End of branch statement, joining both branches.
+         */
+        JOIN,
+        /**
+         * Loop head, leading to loop body by next edge and out of the loop by alternative edge.
+         */
+        LOOP
+    }
+
+    private final List<Node> nodes;
+
+    private ControlFlowGraph(List<Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    static ControlFlowGraph of(Statement statement) {
+        return new Builder().build(statement);
+    }
+
+    /**
+     * Tells whether a statement has nested statements, so that it has to be flattened before processing.
+     *
+     * @param statement statement
+     * @return true if statement is compound
+     */
+    static boolean isCompound(Statement statement) {
+        return statement instanceof SequentialStatement
+                || statement instanceof BranchStatement
+                || statement instanceof SynchronizedStatement
+                || statement instanceof LoopStatement;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    Kind getKind(int node) {
+        return nodes.get(node).kind;
+    }
+
+    Statement getStatement(int node) {
+        return nodes.get(node).statement;
+    }
+
+    int getNext(int node) {
+        return nodes.get(node).next;
+    }
+
+    int getNextSlot(int node) {
+        return nodes.get(node).nextSlot;
+    }
+
+    int getAlternative(int node) {
+        return nodes.get(node).alternative;
+    }
+
+    int getAlternativeSlot(int node) {
+        return nodes.get(node).alternativeSlot;
+    }
+
+    /**
+     * Returns monitor enter node of a monitor exit node.
+     */
+    int getPartner(int node) {
+        return nodes.get(node).partner;
+    }
+
+    private static final class Node {
+        private final Kind kind;
+        private final Statement statement;
+        private final int partner;
+        private int next;
+        private int nextSlot;
+        private int alternative;
+        private int alternativeSlot;
+
+        private Node(Kind kind, Statement statement, int partner) {
+            this.kind = kind;
+            this.statement = statement;
+            this.partner = partner;
+        }
+    }
+
+    /**
+     * Emits nodes in program order. As every statement has a single entry and a single exit, there is always
+     * a single edge waiting to be linked to the next emitted node.
+     * <p>
+     * Work to do is kept on an explicit stack: statements to emit, and actions finishing compound statements
+     * after their nested statements are emitted.
+     */
+    private static final class Builder {
+        private final List<Node> nodes = new ArrayList<>();
+        private final Deque<Object> work = new ArrayDeque<>();
+
+        /**
+         * Node whose edge is not linked yet, or -1 before the first node.
+         */
+        private int danglingNode = -1;
+        private boolean danglingAlternative;
+
+        ControlFlowGraph build(Statement statement) {
+            push(statement);
+            while (!work.isEmpty()) {
+                Object item = work.pop();
+                if (item instanceof Statement) {
+                    emit((Statement) item);
+                } else {
+                    ((Runnable) item).run();
+                }
+            }
+            link(nodes.size(), 0);
+            return new ControlFlowGraph(nodes);
+        }
+
+        private void emit(Statement statement) {
+            if (statement instanceof SequentialStatement) {
+                List<Statement> statements = ((SequentialStatement) statement).getStatements();
+                for (int i = statements.size() - 1; i >= 0; i--) {
+                    push(statements.get(i));
+                }
+            } else if (statement instanceof BranchStatement) {
+                emitBranch((BranchStatement) statement);
+            } else if (statement instanceof SynchronizedStatement) {
+                emitSynchronized((SynchronizedStatement) statement);
+            } else if (statement instanceof LoopStatement) {
+                emitLoop((LoopStatement) statement);
+            } else {
+                int node = add(Kind.STATEMENT, statement, -1);
+                link(node, 0);
+                dangle(node, false);
+            }
+        }
+
+        private void emitBranch(BranchStatement statement) {
+            if (statement.getStmt1() == null && statement.getStmt2() == null) {
+                return;
+            }
+
+            int branch = add(Kind.BRANCH, statement, -1);
+            link(branch, 0);
+            dangle(branch, false);
+
+            int[] firstBranchEnd = new int[2];
+            work.push((Runnable) () -> {
+                int join = add(Kind.JOIN, statement, -1);
+                link(join, 1);
+                dangle(firstBranchEnd[0], firstBranchEnd[1] == 1);
+                link(join, 0);
+                dangle(join, false);
+            });
+            push(statement.getStmt2());
+            work.push((Runnable) () -> {
+                firstBranchEnd[0] = danglingNode;
+                firstBranchEnd[1] = danglingAlternative ? 1 : 0;
+                dangle(branch, true);
+            });
+            push(statement.getStmt1());
+        }
+
+        private void emitSynchronized(SynchronizedStatement statement) {
+            int enter = add(Kind.MONITOR_ENTER, statement, -1);
+            link(enter, 0);
+            dangle(enter, false);
+
+            work.push((Runnable) () -> {
+                int exit = add(Kind.MONITOR_EXIT, statement, enter);
+                link(exit, 0);
+                dangle(exit, false);
+            });
+            push(statement.getInnerStatement());
+        }
+
+        private void emitLoop(LoopStatement statement) {
+            if (statement.getBody() == null) {
+                return;
+            }
+
+            int head = add(Kind.LOOP, statement, -1);
+            link(head, 0);
+            dangle(head, false);
+
+            work.push((Runnable) () -> {
+                link(head, 1);
+                dangle(head, true);
+            });
+            push(statement.getBody());
+        }
+
+        private void push(Statement statement) {
+            if (statement != null) {
+                work.push(statement);
+            }
+        }
+
+        private int add(Kind kind, Statement statement, int partner) {
+            nodes.add(new Node(kind, statement, partner));
+            return nodes.size() - 1;
+        }
+
+        private void dangle(int node, boolean alternative) {
+            danglingNode = node;
+            danglingAlternative = alternative;
+        }
+
+        private void link(int target, int slot) {
+            if (danglingNode < 0) {
+                return;
+            }
+            Node node = nodes.get(danglingNode);
+            if (danglingAlternative) {
+                node.alternative = target;
+                node.alternativeSlot = slot;
+            } else {
+                node.next = target;
+                node.nextSlot = slot;
+            }
+        }
+    }
+}
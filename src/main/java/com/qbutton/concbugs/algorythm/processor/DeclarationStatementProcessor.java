@@ -1,7 +1,5 @@
 package com.qbutton.concbugs.algorythm.processor;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
 import com.qbutton.concbugs.algorythm.dto.EnvEntry;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
@@ -22,19 +20,19 @@ public final class DeclarationStatementProcessor extends AbstractStatementProces
 
         EnvEntry newEnvEntry = new EnvEntry(
                 statement.getVarName(),
-                new HeapObject(
-                        new ProgramPoint(statement.getVarName(), statement.getOffset()),
+                HeapObject.of(
+                        ProgramPoint.of(statement.getVarName(), statement.getOffset()),
                         statement.getClazz()
                 ));
 
         List<EnvEntry> newEnv = graphService.addOrReplaceEnv(newEnvEntry, originalState.getEnvironment());
 
         return new State(
-                originalState.getGraph().clone(),
-                ImmutableSet.copyOf(originalState.getRoots()),
-                ImmutableList.copyOf(originalState.getLocks()),
+                originalState.getGraph(),
+                originalState.getRoots(),
+                originalState.getLocks(),
                 newEnv,
-                ImmutableSet.copyOf(originalState.getWaits())
+                originalState.getWaits()
         );
     }
 }
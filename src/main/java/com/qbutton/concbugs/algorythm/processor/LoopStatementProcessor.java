@@ -0,0 +1,56 @@
+package com.qbutton.concbugs.algorythm.processor;
+
+import com.qbutton.concbugs.algorythm.dto.Environment;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
+import com.qbutton.concbugs.algorythm.service.MergeService;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Processes loop heads. Loop body is iterated to a fixpoint: state before the next iteration is the join of state
+ * before the previous one and state after it, so locks taken in one iteration are ordered before locks taken
+ * in the next.
+ * <p>
+ * Graphs, roots and waits only grow and are bounded by heap objects of the body, so only the environment may keep
+ * changing, when classes of joined objects keep getting more general. After the environment has changed
+ * {@link #WIDENING_THRESHOLD} times, states are widened instead of merged, which bounds the number of iterations.
+ */
+@RequiredArgsConstructor
+public final class LoopStatementProcessor {
+
+    static final int WIDENING_THRESHOLD = 3;
+
+    private final MergeService mergeService;
+
+    /**
+     * Joins state before an iteration with state after it. The loop has reached a fixpoint if the result
+     * is equal to the state before the iteration.
+     *
+     * @param statement          loop statement
+     * @param loopState          state before the iteration
+     * @param bodyState          state after the iteration
+     * @param environmentChanges how many times the environment has changed in previous iterations
+     * @return state before the next iteration
+     */
+    State join(LoopStatement statement, State loopState, State bodyState, int environmentChanges) {
+        State scopedBodyState = leaveScope(bodyState, loopState);
+        return environmentChanges < WIDENING_THRESHOLD
+                ? mergeService.mergeStates(loopState, scopedBodyState, statement.getOffset())
+                : mergeService.widenStates(loopState, scopedBodyState, statement.getOffset());
+    }
+
+    /**
+     * Drops variables declared in loop body, as they are not visible after it.
+     */
+    private State leaveScope(State bodyState, State loopState) {
+        Environment bodyEnv = bodyState.getEnvironment();
+        if (bodyEnv.size() == loopState.getEnvironment().size()) {
+            return bodyState;
+        }
+
+        Environment loopEnv = bodyEnv.retainVariablesOf(loopState.getEnvironment());
+
+        return new State(bodyState.getGraph(), bodyState.getRoots(), bodyState.getLocks(), loopEnv,
+                bodyState.getWaits());
+    }
+}
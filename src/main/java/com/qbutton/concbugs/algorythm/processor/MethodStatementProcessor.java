@@ -1,7 +1,8 @@
 package com.qbutton.concbugs.algorythm.processor;
 
-import com.google.common.collect.Sets;
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
 import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Environment;
 import com.qbutton.concbugs.algorythm.dto.Graph;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
@@ -12,7 +13,7 @@ import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
 import com.qbutton.concbugs.algorythm.service.GraphService;
 import com.qbutton.concbugs.algorythm.service.MergeService;
 import com.qbutton.concbugs.algorythm.service.StateService;
-import com.qbutton.concbugs.algorythm.service.VisitorService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
 import lombok.RequiredArgsConstructor;
 
 import java.util.List;
@@ -22,14 +23,14 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public final class MethodStatementProcessor extends AbstractStatementProcessor<MethodStatement> {
 
-    private final VisitorService visitorService;
+    private final SummaryService summaryService;
     private final StateService stateService;
     private final MergeService mergeService;
     private final GraphService graphService;
 
     @Override
     State process(MethodStatement statement, State originalState) {
-        List<EnvEntry> newEnv = registerMethodResultInEnv(statement, originalState);
+        Environment newEnv = registerMethodResultInEnv(statement, originalState);
 
         State currentState = new State(
                 originalState.getGraph(), originalState.getRoots(), originalState.getLocks(), newEnv, originalState.getWaits()
@@ -42,10 +43,10 @@ public final class MethodStatementProcessor extends AbstractStatementProcessor<M
         return currentState;
     }
 
-    private List<EnvEntry> registerMethodResultInEnv(MethodStatement statement, State originalState) {
+    private Environment registerMethodResultInEnv(MethodStatement statement, State originalState) {
         if (statement.getVarName() != null) {
-            ProgramPoint newProgramPoint = new ProgramPoint(statement.getVarName(), statement.getOffset());
-            HeapObject returnVarHeapObject = new HeapObject(newProgramPoint, statement.getReturnType());
+            ProgramPoint newProgramPoint = ProgramPoint.of(statement.getVarName(), statement.getOffset());
+            HeapObject returnVarHeapObject = HeapObject.of(newProgramPoint, statement.getReturnType());
             EnvEntry newEnvEntry = new EnvEntry(statement.getVarName(), returnVarHeapObject);
 
             return graphService.addOrReplaceEnv(newEnvEntry, originalState.getEnvironment());
@@ -55,11 +56,11 @@ public final class MethodStatementProcessor extends AbstractStatementProcessor<M
     }
 
     private State mergeMethod(State originalState,
-                              List<EnvEntry> newEnv,
+                              Environment newEnv,
                               State currentState,
                               MethodDeclaration method,
                               List<String> actualStringParameters) {
-        State returnedMethodState = visitorService.visitMethod(method);
+        State returnedMethodState = summaryService.getSummary(method);
         //the fist envs in env will be formal parameters, including this
         List<HeapObject> formalParameters = returnedMethodState.getEnvironment().stream()
                 .map(EnvEntry::getHeapObject)
@@ -78,8 +79,8 @@ public final class MethodStatementProcessor extends AbstractStatementProcessor<M
 
         if (originalState.getLocks().isEmpty()) {
             //connect current lock to roots of returnedMethodState
-            newRoots = Sets.union(newRoots, renamedState.getRoots());
-            newWaits = Sets.union(newWaits, renamedState.getWaits());
+            newRoots = PersistentHashSet.copyOf(newRoots).union(renamedState.getRoots());
+            newWaits = PersistentHashSet.copyOf(newWaits).union(renamedState.getWaits());
         } else {
             HeapObject lastLock = originalState.getLocks().get(originalState.getLocks().size() - 1);
 
@@ -105,21 +106,20 @@ public final class MethodStatementProcessor extends AbstractStatementProcessor<M
                 ?
                 //top level method, replace with unknown heap objects
                 formalParameters.stream()
-                        .map(ho -> new HeapObject(ProgramPoint.UNKNOWN, ho.getClazz()))
+                        .map(ho -> HeapObject.of(ProgramPoint.UNKNOWN, ho.getClazz()))
                         .collect(Collectors.toList())
                 :
                 actualStringParameters.stream()
-                        .map(varName -> findEntryInOriginalEnv(originalState, varName))
-                        .map(EnvEntry::getHeapObject)
+                        .map(varName -> findHeapObjectInOriginalEnv(originalState, varName))
                         .collect(Collectors.toList());
     }
 
-    private EnvEntry findEntryInOriginalEnv(State originalState, String varName) {
-        return originalState.getEnvironment()
-                .stream()
-                .filter(envEntry -> envEntry.getVarName().equals(varName))
-                .findAny()
-                .orElseThrow(() -> new AlgorithmValidationException("Original env does not contain variable with name " + varName));
+    private HeapObject findHeapObjectInOriginalEnv(State originalState, String varName) {
+        HeapObject heapObject = originalState.getEnvironment().getHeapObject(varName);
+        if (heapObject == null) {
+            throw new AlgorithmValidationException("Original env does not contain variable with name " + varName);
+        }
+        return heapObject;
     }
 
     private void checkGraphContainsLock(Graph newGraph, HeapObject lastLock) {
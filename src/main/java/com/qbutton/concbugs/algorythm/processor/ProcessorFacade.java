@@ -1,22 +1,189 @@
 package com.qbutton.concbugs.algorythm.processor;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
 import lombok.RequiredArgsConstructor;
 
-import java.util.logging.Logger;
+import java.util.BitSet;
 
+/**
+ * Processes statements.
+ * <p>
+ * Simple statements are processed by their processors directly. Compound statements are flattened to
+ * a {@link ControlFlowGraph}, which is processed by a worklist, so nesting of statements does not grow the stack.
+ * Graphs are remembered per statement instance until the statement is garbage collected, as method bodies
+ * are processed many times while recursive methods are iterated to a fixpoint.
+ * <p>
+ * Every call processes its statement with its own worklist, so the facade may be called concurrently, and
+ * re-entrantly from processors of method statements.
+ */
 @RequiredArgsConstructor
 public class ProcessorFacade {
 
     private final ProcessorProvider processorProvider;
+    private final StatementTracer statementTracer;
+    private final AnalysisBudget analysisBudget;
 
-    private static final Logger LOGGER = Logger.getLogger(ProcessorFacade.class.getName());
+    private final Cache<Statement, ControlFlowGraph> controlFlowGraphs = CacheBuilder.newBuilder().weakKeys().build();
 
     public <T extends Statement> State process(T statement, State originalState) {
+        if (ControlFlowGraph.isCompound(statement)) {
+            return new Worklist(getControlFlowGraph(statement)).run(originalState);
+        }
+
+        analysisBudget.charge();
+        return processStatement(statement, originalState);
+    }
+
+    private ControlFlowGraph getControlFlowGraph(Statement statement) {
+        ControlFlowGraph graph = controlFlowGraphs.getIfPresent(statement);
+        if (graph == null) {
+            graph = ControlFlowGraph.of(statement);
+            controlFlowGraphs.put(statement, graph);
+        }
+        return graph;
+    }
+
+    private <T extends Statement> State processStatement(T statement, State originalState) {
         AbstractStatementProcessor<T> processor = processorProvider.get(statement);
-        LOGGER.info("processing statement " + statement);
-        LOGGER.info("current state is " + originalState);
-        return processor.process(statement, originalState);
+        if (!statementTracer.sample()) {
+            return processor.process(statement, originalState);
+        }
+
+        long start = System.nanoTime();
+        State resultState = processor.process(statement, originalState);
+        statementTracer.trace(processor, statement, resultState, System.nanoTime() - start);
+        return resultState;
+    }
+
+    /**
+     * A single pass over a control flow graph.
+     * <p>
+     * Nodes waiting to be processed are marked by dirty bits, which also serve as a priority queue: the dirty node
+     * with the lowest index, i.e. first in reverse postorder, is processed next. So a node is processed only after
+     * all its predecessors are, except for loop heads, which are processed again after their bodies, until
+     * the loop reaches a fixpoint.
+     */
+    private final class Worklist {
+        private final ControlFlowGraph graph;
+        /**
+         * States in slot 0 of nodes. For loop heads, the state before the current iteration.
+         */
+        private final State[] inputs;
+        /**
+         * States in slot 1 of joins and loop heads.
+         */
+        private final State[] secondInputs;
+        private final BitSet dirty;
+        /**
+         * Loop heads reached from before the loop, whose iterations have to start over.
+         */
+        private final BitSet enteredLoops;
+        private final int[] environmentChanges;
+        /**
+         * No node before the cursor is dirty.
+         */
+        private int cursor;
+
+        private Worklist(ControlFlowGraph graph) {
+            this.graph = graph;
+            int size = graph.size();
+            this.inputs = new State[size + 1];
+            this.secondInputs = new State[size];
+            this.dirty = new BitSet(size);
+            this.enteredLoops = new BitSet(size);
+            this.environmentChanges = new int[size];
+        }
+
+        State run(State originalState) {
+            deliver(0, 0, originalState);
+
+            for (int node = dirty.nextSetBit(cursor); node >= 0; node = dirty.nextSetBit(cursor)) {
+                dirty.clear(node);
+                cursor = node;
+                analysisBudget.charge();
+                processNode(node);
+            }
+
+            return inputs[graph.size()];
+        }
+
+        private void processNode(int node) {
+            State state = inputs[node];
+            switch (graph.getKind(node)) {
+                case STATEMENT:
+                case MONITOR_ENTER:
+                    deliverNext(node, processStatement(graph.getStatement(node), state));
+                    break;
+                case MONITOR_EXIT:
+                    deliverNext(node, processorProvider.getSynchronizedStatementProcessor()
+                            .release(state, inputs[graph.getPartner(node)]));
+                    break;
+                case BRANCH:
+                    deliverNext(node, state);
+                    deliverAlternative(node, state);
+                    break;
+                case JOIN:
+                    deliverNext(node, processorProvider.getBranchStatementProcessor()
+                            .join((BranchStatement) graph.getStatement(node), state, secondInputs[node]));
+                    break;
+                case LOOP:
+                    processLoop(node, state);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown node kind: " + graph.getKind(node));
+            }
+        }
+
+        private void processLoop(int node, State loopState) {
+            if (enteredLoops.get(node)) {
+                enteredLoops.clear(node);
+                environmentChanges[node] = 0;
+                deliverNext(node, loopState);
+                return;
+            }
+
+            State joinedState = processorProvider.getLoopStatementProcessor().join(
+                    (LoopStatement) graph.getStatement(node), loopState, secondInputs[node], environmentChanges[node]);
+            if (joinedState.equals(loopState)) {
+                deliverAlternative(node, loopState);
+                return;
+            }
+
+            if (!joinedState.getEnvironment().equals(loopState.getEnvironment())) {
+                environmentChanges[node]++;
+            }
+            inputs[node] = joinedState;
+            deliverNext(node, joinedState);
+        }
+
+        private void deliverNext(int node, State state) {
+            deliver(graph.getNext(node), graph.getNextSlot(node), state);
+        }
+
+        private void deliverAlternative(int node, State state) {
+            deliver(graph.getAlternative(node), graph.getAlternativeSlot(node), state);
+        }
+
+        private void deliver(int node, int slot, State state) {
+            if (slot == 0) {
+                inputs[node] = state;
+            } else {
+                secondInputs[node] = state;
+            }
+
+            if (node < graph.size()) {
+                if (slot == 0 && graph.getKind(node) == ControlFlowGraph.Kind.LOOP) {
+                    enteredLoops.set(node);
+                }
+                dirty.set(node);
+                cursor = Math.min(cursor, node);
+            }
+        }
     }
 }
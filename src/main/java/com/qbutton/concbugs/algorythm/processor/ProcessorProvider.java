@@ -1,36 +1,49 @@
 package com.qbutton.concbugs.algorythm.processor;
 
-import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.CrossAssignmentStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.DeclarationStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.InnerAssignmentStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
-import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.Statement;
 import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Provides processors of statements. Simple statements and starts of synchronized statements are processed
+ * by a processor registered for their class, ends of compound statements have dedicated processors.
+ */
 public final class ProcessorProvider {
 
+    @Getter(AccessLevel.PACKAGE)
+    private final BranchStatementProcessor branchStatementProcessor;
+    @Getter(AccessLevel.PACKAGE)
+    private final LoopStatementProcessor loopStatementProcessor;
+    @Getter(AccessLevel.PACKAGE)
+    private final SynchronizedStatementProcessor synchronizedStatementProcessor;
+
     public ProcessorProvider(BranchStatementProcessor branchStatementProcessor,
                              CrossAssignmentStatementProcessor crossAssignmentStatementProcessor,
                              DeclarationStatementProcessor declarationStatementProcessor,
                              InnerAssignmentStatementProcessor innerAssignmentStatementProcessor,
+                             LoopStatementProcessor loopStatementProcessor,
                              MethodStatementProcessor methodStatementProcessor,
-                             SequentialStatementProcessor sequentialStatementProcessor,
                              SynchronizedStatementProcessor synchronizedStatementProcessor,
                              WaitStatementProcessor waitStatementProcessor) {
 
-        registerStatement(BranchStatement.class).withProcessor(branchStatementProcessor);
+        this.branchStatementProcessor = branchStatementProcessor;
+        this.loopStatementProcessor = loopStatementProcessor;
+        this.synchronizedStatementProcessor = synchronizedStatementProcessor;
+
         registerStatement(CrossAssignmentStatement.class).withProcessor(crossAssignmentStatementProcessor);
         registerStatement(DeclarationStatement.class).withProcessor(declarationStatementProcessor);
         registerStatement(InnerAssignmentStatement.class).withProcessor(innerAssignmentStatementProcessor);
         registerStatement(MethodStatement.class).withProcessor(methodStatementProcessor);
-        registerStatement(SequentialStatement.class).withProcessor(sequentialStatementProcessor);
         registerStatement(SynchronizedStatement.class).withProcessor(synchronizedStatementProcessor);
         registerStatement(WaitStatement.class).withProcessor(waitStatementProcessor);
     }
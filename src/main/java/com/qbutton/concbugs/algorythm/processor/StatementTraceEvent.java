@@ -0,0 +1,19 @@
+package com.qbutton.concbugs.algorythm.processor;
+
+import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import lombok.Data;
+
+/**
+ * A sampled fact about a single processed statement. States are described by their sizes only,
+ * so that tracing does not depend on the cost of stringifying a whole state.
+ */
+@Data
+public final class StatementTraceEvent {
+    private final Class<?> processorClass;
+    private final Statement statement;
+    private final long durationNanos;
+    private final int graphNodes;
+    private final int locks;
+    private final int environmentEntries;
+    private final int waits;
+}
@@ -0,0 +1,93 @@
+package com.qbutton.concbugs.algorythm.processor;
+
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracer of statements processed by {@link ProcessorFacade}.
+ * <p>
+ * Tracing is off by default, and then it costs a single volatile read per statement and allocates nothing.
+ * When it is on, every sampleRate-th statement is reported to the listener as a {@link StatementTraceEvent}.
+ * It can be turned on with -Dconcbugs.trace.sampleRate=N, which reports events to the log on FINE level.
+ */
+public class StatementTracer {
+
+    static final String SAMPLE_RATE_PROPERTY = "concbugs.trace.sampleRate";
+
+    private static final Logger LOGGER = Logger.getLogger(StatementTracer.class.getName());
+
+    private final AtomicLong statementCounter = new AtomicLong();
+
+    /**
+     * Null when tracing is off.
+     */
+    private volatile Consumer<StatementTraceEvent> listener;
+    private volatile int sampleRate = 1;
+
+    public StatementTracer() {
+        int sampleRateFromProperty = Integer.getInteger(SAMPLE_RATE_PROPERTY, 0);
+        if (sampleRateFromProperty > 0) {
+            enable(StatementTracer::log, sampleRateFromProperty);
+        }
+    }
+
+    /**
+     * Turns tracing on.
+     *
+     * @param listener   consumer of events, called on the thread processing the statement
+     * @param sampleRate one of how many statements is reported
+     */
+    public void enable(Consumer<StatementTraceEvent> listener, int sampleRate) {
+        if (sampleRate < 1) {
+            throw new AlgorithmValidationException("Sample rate must be positive, but was " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        this.listener = listener;
+    }
+
+    public void disable() {
+        listener = null;
+    }
+
+    public boolean isEnabled() {
+        return listener != null;
+    }
+
+    /**
+     * Tells whether the next statement should be traced. Always false when tracing is off.
+     *
+     * @return true if statement is sampled
+     */
+    boolean sample() {
+        return listener != null && statementCounter.incrementAndGet() % sampleRate == 0;
+    }
+
+    void trace(AbstractStatementProcessor<?> processor, Statement statement, State resultState, long durationNanos) {
+        Consumer<StatementTraceEvent> currentListener = listener;
+        if (currentListener == null) {
+            return;
+        }
+
+        currentListener.accept(new StatementTraceEvent(
+                processor.getClass(),
+                statement,
+                durationNanos,
+                resultState.getGraph().getNeighbors().size(),
+                resultState.getLocks().size(),
+                resultState.getEnvironment().size(),
+                resultState.getWaits().size()
+        ));
+    }
+
+    private static void log(StatementTraceEvent event) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(event.toString());
+        }
+    }
+}
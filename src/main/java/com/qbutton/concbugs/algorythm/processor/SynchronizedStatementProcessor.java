@@ -1,73 +1,65 @@
 package com.qbutton.concbugs.algorythm.processor;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
 import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Environment;
 import com.qbutton.concbugs.algorythm.dto.Graph;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
 import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
-import com.qbutton.concbugs.algorythm.service.VisitorService;
-import lombok.RequiredArgsConstructor;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.logging.Logger;
 
-@RequiredArgsConstructor
+/**
+ * Processes start of synchronized statement: takes the lock, adding it to the graph. Statements inside are
+ * processed afterwards, and the lock is released by {@link #release(State, State)}.
+ */
 public final class SynchronizedStatementProcessor extends AbstractStatementProcessor<SynchronizedStatement> {
 
     private static final Logger LOGGER = Logger.getLogger(SynchronizedStatementProcessor.class.getName());
 
-    private final VisitorService visitorService;
-
     @Override
     State process(SynchronizedStatement statement, State originalState) {
 
-        Optional<HeapObject> hoOptional = originalState.getEnvironment().stream()
-                .filter(envEntry -> statement.getVarName().equals(envEntry.getVarName()))
-                .map(EnvEntry::getHeapObject)
-                .findAny();
+        HeapObject heapObject = originalState.getEnvironment().getHeapObject(statement.getVarName());
 
-        if (!hoOptional.isPresent()) {
+        if (heapObject == null) {
             //it might be a field reference, add it to envs
             LOGGER.warning("no envEntry found for varName " + statement.getVarName() + ", may be a field reference");
-            HeapObject newHeapObject = new HeapObject(ProgramPoint.UNKNOWN, statement.getClassName());
-            hoOptional = Optional.of(newHeapObject);
+            heapObject = HeapObject.of(ProgramPoint.UNKNOWN, statement.getClassName());
 
-            List<EnvEntry> newEnv = new ArrayList<>(originalState.getEnvironment());
-            newEnv.add(new EnvEntry(statement.getVarName(), newHeapObject));
+            Environment newEnv = originalState.getEnvironment().with(new EnvEntry(statement.getVarName(), heapObject));
 
             originalState = new State(
                     originalState.getGraph(), originalState.getRoots(), originalState.getLocks(), newEnv, originalState.getWaits()
             );
         }
 
-        HeapObject heapObject = hoOptional.get();
-
         List<HeapObject> originalLocks = originalState.getLocks();
-        State mergedState;
         if (originalLocks.contains(heapObject)) {
-            mergedState = originalState.clone();
-        } else {
-            mergedState = patchState(originalState, heapObject, originalLocks);
+            return originalState;
         }
+        return patchState(originalState, heapObject, originalLocks);
+    }
 
-        State visitResultState = visitorService.visitStatement(statement.getInnerStatement(), mergedState);
-
+    /**
+     * Releases the lock at the end of synchronized statement, restoring locks held before it.
+     *
+     * @param innerState    state after statements inside
+     * @param originalState state before synchronized statement
+     * @return new state
+     */
+    State release(State innerState, State originalState) {
         return new State(
-                visitResultState.getGraph(),
-                visitResultState.getRoots(),
-                originalLocks,
-                visitResultState.getEnvironment(),
-                visitResultState.getWaits());
+                innerState.getGraph(),
+                innerState.getRoots(),
+                originalState.getLocks(),
+                innerState.getEnvironment(),
+                innerState.getWaits());
     }
 
     /**
@@ -84,21 +76,19 @@ public final class SynchronizedStatementProcessor extends AbstractStatementProce
         List<HeapObject> newLocks = new ArrayList<>(originalLocks);
         newLocks.add(heapObject);
         if (originalLocks.isEmpty()) {
-            Map<HeapObject, Set<HeapObject>> newGraphMap = new HashMap<>(originalState.getGraph().getNeighbors());
-            newGraphMap.putIfAbsent(heapObject, Collections.emptySet());
-            newGraph = new Graph(newGraphMap);
-            newRoots = Sets.union(ImmutableSet.of(heapObject), originalState.getRoots());
+            newGraph = originalState.getGraph().withNode(heapObject);
+            newRoots = PersistentHashSet.copyOf(originalState.getRoots()).plus(heapObject);
 
         } else {
             newGraph = originalState.getGraph().withEdge(originalLocks.get(originalLocks.size() - 1), heapObject);
-            newRoots = ImmutableSet.copyOf(originalState.getRoots());
+            newRoots = originalState.getRoots();
         }
         mergedState = new State(
                 newGraph,
                 newRoots,
                 newLocks,
-                ImmutableList.copyOf(originalState.getEnvironment()),
-                ImmutableSet.copyOf(originalState.getWaits())
+                originalState.getEnvironment(),
+                originalState.getWaits()
         );
         return mergedState;
     }
@@ -1,37 +1,32 @@
 package com.qbutton.concbugs.algorythm.processor;
 
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
-import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
 import com.qbutton.concbugs.algorythm.dto.Graph;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
 import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
 
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public final class WaitStatementProcessor extends AbstractStatementProcessor<WaitStatement> {
 
     @Override
     State process(WaitStatement statement, State originalState) {
 
-        HeapObject heapObject = originalState.getEnvironment().stream()
-                .filter(envEntry -> statement.getVarName().equals(envEntry.getVarName()))
-                .map(EnvEntry::getHeapObject)
-                .findAny()
-                .orElseThrow(() -> new AlgorithmValidationException("no envEntry found for varName " + statement.getVarName()));
+        HeapObject heapObject = originalState.getEnvironment().getHeapObject(statement.getVarName());
+        if (heapObject == null) {
+            throw new AlgorithmValidationException("no envEntry found for varName " + statement.getVarName());
+        }
 
-        Set<HeapObject> newWaits = new HashSet<>(originalState.getWaits());
+        PersistentHashSet<HeapObject> newWaits = PersistentHashSet.copyOf(originalState.getWaits());
 
         Graph originalGraph = originalState.getGraph();
-        Graph newGraph = originalGraph.clone();
+        Graph newGraph = originalGraph;
 
         List<HeapObject> currentLocks = originalState.getLocks();
         if (currentLocks.isEmpty()) {
-            newWaits.add(heapObject);
+            newWaits = newWaits.plus(heapObject);
         } else {
             HeapObject lastLock = currentLocks.get(currentLocks.size() - 1);
             if (!lastLock.equals(heapObject)) {
@@ -45,9 +40,9 @@ public final class WaitStatementProcessor extends AbstractStatementProcessor<Wai
 
         return new State(
                 newGraph,
-                ImmutableSet.copyOf(originalState.getRoots()),
-                ImmutableList.copyOf(originalState.getLocks()),
-                ImmutableList.copyOf(originalState.getEnvironment()),
+                originalState.getRoots(),
+                originalState.getLocks(),
+                originalState.getEnvironment(),
                 newWaits
         );
     }
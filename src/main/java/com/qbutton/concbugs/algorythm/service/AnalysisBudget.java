@@ -0,0 +1,157 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+import com.qbutton.concbugs.algorythm.exception.BudgetExceededException;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Time and work budget of an analysis.
+ * <p>
+ * Every processed statement is {@link #charge() charged}. While a method is {@link #meter(Supplier) metered},
+ * statements count towards its work, and visiting it fails with {@link BudgetExceededException} once it has done
+ * more than maxStatementsPerMethod statements, or once the analysis has run for longer than maxMillis.
+ * Such methods are given a conservative summary and are recorded as truncated.
+ * <p>
+ * Charging also checks for cancellation, e.g. of IDEA progress indicator, which stops the analysis completely.
+ */
+public class AnalysisBudget {
+
+    static final int DEFAULT_MAX_STATEMENTS_PER_METHOD = 1_000_000;
+
+    private static final Runnable NOT_CANCELLABLE = () -> {
+    };
+
+    /**
+     * Time limit of a single analysis, 0 for no limit.
+     */
+    @Getter
+    private volatile long maxMillis;
+
+    @Getter
+    private volatile int maxStatementsPerMethod = DEFAULT_MAX_STATEMENTS_PER_METHOD;
+
+    /**
+     * Throws an exception if the analysis is cancelled.
+     */
+    @Setter
+    private volatile Runnable cancellationCheck = NOT_CANCELLABLE;
+
+    /**
+     * Deadline of the current analysis in terms of System.nanoTime(), valid only if maxMillis is positive.
+     */
+    private volatile long deadline;
+    /**
+     * Incremented by each analysis, so that results of previous ones can be told apart.
+     */
+    @Getter
+    private volatile long generation;
+
+    /**
+     * Methods truncated by the current analysis. Guarded by this.
+     */
+    private final Set<MethodDeclaration> truncatedMethods = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Statements done by the method being metered on this thread, null if none is.
+     */
+    private final ThreadLocal<int[]> statementCount = new ThreadLocal<>();
+
+    /**
+     * Starts a new analysis: its time limit starts now, and nothing is truncated yet.
+     */
+    public synchronized void start() {
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        generation++;
+        truncatedMethods.clear();
+    }
+
+    /**
+     * Charges a single statement.
+     *
+     * @throws BudgetExceededException if a method is metered on this thread and the budget is spent
+     */
+    public void charge() {
+        cancellationCheck.run();
+
+        int[] count = statementCount.get();
+        if (count == null) {
+            return;
+        }
+        if (++count[0] > maxStatementsPerMethod) {
+            throw new BudgetExceededException("More than " + maxStatementsPerMethod + " statements are processed");
+        }
+        if (isTimeOver()) {
+            throw new BudgetExceededException("Analysis takes more than " + maxMillis + " ms");
+        }
+    }
+
+    /**
+     * Does the work of visiting a single method. Statements of methods it visits in turn do not count towards it.
+     *
+     * @param work visiting of the method
+     * @return result of the work
+     * @throws BudgetExceededException if the budget is spent
+     */
+    <T> T meter(Supplier<T> work) {
+        if (isTimeOver()) {
+            throw new BudgetExceededException("Analysis takes more than " + maxMillis + " ms");
+        }
+
+        int[] outerCount = statementCount.get();
+        statementCount.set(new int[1]);
+        try {
+            return work.get();
+        } finally {
+            statementCount.set(outerCount);
+        }
+    }
+
+    synchronized void truncated(MethodDeclaration methodDeclaration) {
+        truncatedMethods.add(methodDeclaration);
+    }
+
+    /**
+     * Finds methods whose summaries were replaced with conservative ones by the current analysis.
+     *
+     * @return truncated methods
+     */
+    public synchronized Set<MethodDeclaration> getTruncatedMethods() {
+        Set<MethodDeclaration> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        result.addAll(truncatedMethods);
+        return result;
+    }
+
+    public void setMaxMillis(long maxMillis) {
+        if (maxMillis < 0) {
+            throw new AlgorithmValidationException("maxMillis should not be negative, but it is " + maxMillis);
+        }
+        this.maxMillis = maxMillis;
+    }
+
+    public void setMaxStatementsPerMethod(int maxStatementsPerMethod) {
+        if (maxStatementsPerMethod <= 0) {
+            throw new AlgorithmValidationException(
+                    "maxStatementsPerMethod should be positive, but it is " + maxStatementsPerMethod);
+        }
+        this.maxStatementsPerMethod = maxStatementsPerMethod;
+    }
+
+    /**
+     * Stops checking for cancellation.
+     */
+    public void resetCancellationCheck() {
+        cancellationCheck = NOT_CANCELLABLE;
+    }
+
+    private boolean isTimeOver() {
+        return maxMillis > 0 && System.nanoTime() - deadline > 0;
+    }
+}
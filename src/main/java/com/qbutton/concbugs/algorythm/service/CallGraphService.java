@@ -0,0 +1,148 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Call graph pass.
+ * <p>
+ * Nodes of the call graph are method declarations, there is an edge from a method to every declaration
+ * it may call. Summaries are computed for strongly connected components of the graph bottom-up, so that
+ * every method is visited after all methods it calls, and recursive components are iterated to a fixpoint.
+ */
+@RequiredArgsConstructor
+public class CallGraphService {
+
+    private final SummaryService summaryService;
+
+    public void computeSummaries(List<MethodStatement> publicMethods) {
+        CallGraph callGraph = new CallGraph();
+        for (List<MethodDeclaration> component : callGraph.findComponents(publicMethods)) {
+            computeSummaries(component, callGraph);
+        }
+    }
+
+    /**
+     * Computes summaries in parallel. Each component is scheduled as soon as summaries of all components
+     * it calls are computed, so independent parts of the call graph are visited concurrently.
+     *
+     * @param publicMethods public methods
+     * @param executor      executor to visit components on
+     */
+    public void computeSummaries(List<MethodStatement> publicMethods, Executor executor) {
+        CallGraph callGraph = new CallGraph();
+        List<List<MethodDeclaration>> components = callGraph.findComponents(publicMethods);
+
+        Map<MethodDeclaration, CompletableFuture<Void>> tasks = new HashMap<>();
+        for (List<MethodDeclaration> component : components) {
+            //components are in reverse topological order, so tasks of all callees are already created
+            CompletableFuture<?>[] calleeTasks = component.stream()
+                    .flatMap(method -> callGraph.getCallees(method).stream())
+                    .map(tasks::get)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toArray(CompletableFuture<?>[]::new);
+
+            CompletableFuture<Void> task = CompletableFuture.allOf(calleeTasks)
+                    .thenRunAsync(() -> computeSummaries(component, callGraph), executor);
+            component.forEach(method -> tasks.put(method, task));
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void computeSummaries(List<MethodDeclaration> component, CallGraph callGraph) {
+        MethodDeclaration first = component.get(0);
+        if (component.size() == 1 && !callGraph.getCallees(first).contains(first)) {
+            summaryService.getSummary(first);
+        } else {
+            summaryService.computeFixpoint(component);
+        }
+    }
+
+    /**
+     * Finds all method declarations which can be called directly from the method body.
+     *
+     * @param methodDeclaration method declaration
+     * @return callees in order of appearance
+     */
+    public Set<MethodDeclaration> getCallees(MethodDeclaration methodDeclaration) {
+        Set<MethodDeclaration> callees = new LinkedHashSet<>();
+
+        Deque<Statement> statements = new ArrayDeque<>();
+        pushIfPresent(statements, methodDeclaration.getMethodBody());
+
+        while (!statements.isEmpty()) {
+            Statement statement = statements.pop();
+
+            if (statement instanceof MethodStatement) {
+                callees.addAll(((MethodStatement) statement).getMethodDeclarations());
+            } else if (statement instanceof SequentialStatement) {
+                List<Statement> sequence = ((SequentialStatement) statement).getStatements();
+                for (int i = sequence.size() - 1; i >= 0; i--) {
+                    pushIfPresent(statements, sequence.get(i));
+                }
+            } else if (statement instanceof BranchStatement) {
+                pushIfPresent(statements, ((BranchStatement) statement).getStmt2());
+                pushIfPresent(statements, ((BranchStatement) statement).getStmt1());
+            } else if (statement instanceof SynchronizedStatement) {
+                pushIfPresent(statements, ((SynchronizedStatement) statement).getInnerStatement());
+            } else if (statement instanceof LoopStatement) {
+                pushIfPresent(statements, ((LoopStatement) statement).getBody());
+            }
+        }
+
+        return callees;
+    }
+
+    private void pushIfPresent(Deque<Statement> statements, Statement statement) {
+        if (statement != null) {
+            statements.push(statement);
+        }
+    }
+
+    /**
+     * Lazily built call graph. It is filled while components are searched and only read afterwards,
+     * so it can be shared by threads computing summaries.
+     */
+    private final class CallGraph {
+        private final Map<MethodDeclaration, Set<MethodDeclaration>> callees = new HashMap<>();
+
+        private List<List<MethodDeclaration>> findComponents(List<MethodStatement> publicMethods) {
+            List<MethodDeclaration> roots = new ArrayList<>();
+            publicMethods.forEach(method -> roots.addAll(method.getMethodDeclarations()));
+            return StronglyConnectedComponents.find(roots, this::getCallees);
+        }
+
+        private Set<MethodDeclaration> getCallees(MethodDeclaration methodDeclaration) {
+            return callees.computeIfAbsent(methodDeclaration, CallGraphService.this::getCallees);
+        }
+    }
+}
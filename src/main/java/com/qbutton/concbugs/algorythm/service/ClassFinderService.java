@@ -2,28 +2,83 @@ package com.qbutton.concbugs.algorythm.service;
 
 import com.intellij.openapi.application.ex.ApplicationManagerEx;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.searches.ClassInheritorsSearch;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.qbutton.concbugs.algorythm.exception.IdeaIntegrationException;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.SneakyThrows;
 import org.apache.commons.lang3.ClassUtils;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+/**
+ * Answers class hierarchy questions via PSI.
+ * <p>
+ * PSI searches are expensive, so answers are cached per project until PSI is modified.
+ */
 @RequiredArgsConstructor
 @Setter
 public class ClassFinderService {
 
-    private Project project;
+    private static final Key<CachedValue<HierarchyCache>> HIERARCHY_CACHE_KEY = Key.create("concbugs.hierarchyCache");
+
+    private volatile Project project;
 
     String findLowestSuperClass(String class1, String class2) {
+        if (class1.equals(class2)) {
+            //the most common case, e.g. locks of the same class merged after a loop, needs no cache
+            return class1;
+        }
+
+        HierarchyCache cache = getHierarchyCache();
+        ClassPair classPair = new ClassPair(class1, class2);
+
+        String lowestSuperClass = cache.lowestSuperClasses.get(classPair);
+        if (lowestSuperClass == null) {
+            lowestSuperClass = searchLowestSuperClass(class1, class2);
+            cache.lowestSuperClasses.putIfAbsent(classPair, lowestSuperClass);
+        }
+        return lowestSuperClass;
+    }
+
+    Set<String> getSubclassesOf(String superClass) {
+        HierarchyCache cache = getHierarchyCache();
+
+        Set<String> subclasses = cache.subclasses.get(superClass);
+        if (subclasses == null) {
+            subclasses = Collections.unmodifiableSet(searchSubclassesOf(superClass));
+            cache.subclasses.putIfAbsent(superClass, subclasses);
+        }
+        return subclasses;
+    }
+
+    private HierarchyCache getHierarchyCache() {
+        Project currentProject = project;
+        return CachedValuesManager.getManager(currentProject).getCachedValue(
+                currentProject,
+                HIERARCHY_CACHE_KEY,
+                () -> CachedValueProvider.Result.create(
+                        new HierarchyCache(),
+                        PsiModificationTracker.SERVICE.getInstance(currentProject)),
+                false);
+    }
+
+    private String searchLowestSuperClass(String class1, String class2) {
 
         AtomicReference<String> realClass1 = new AtomicReference<>(class1);
         AtomicReference<String> realClass2 = new AtomicReference<>(class2);
@@ -44,7 +99,7 @@ public class ClassFinderService {
         return commonSuperClass.get();
     }
 
-    Set<String> getSubclassesOf(String superClass) {
+    private Set<String> searchSubclassesOf(String superClass) {
         Set<String> inheritors = new HashSet<>();
 
         runInReadAction(() -> {
@@ -103,4 +158,18 @@ public class ClassFinderService {
     private void runInReadAction(Runnable runnable) {
         ApplicationManagerEx.getApplicationEx().runReadAction(runnable);
     }
+
+    /**
+     * Answers found for a single version of project PSI. Searches may run concurrently, so maps are concurrent.
+     */
+    private static final class HierarchyCache {
+        private final Map<String, Set<String>> subclasses = new ConcurrentHashMap<>();
+        private final Map<ClassPair, String> lowestSuperClasses = new ConcurrentHashMap<>();
+    }
+
+    @Data
+    private static final class ClassPair {
+        private final String class1;
+        private final String class2;
+    }
 }
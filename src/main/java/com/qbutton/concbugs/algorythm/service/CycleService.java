@@ -0,0 +1,286 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.google.common.primitives.Ints;
+import com.qbutton.concbugs.algorythm.dto.AdjacencyMatrix;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.Cycle;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.HeapObjectIndex;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Finds deadlocks - cycles in lock-order graph.
+ * <p>
+ * Strongly connected components are found in linear time, or from bit matrix reachability for dense graphs, then
+ * elementary cycles are enumerated only inside non-trivial components with Johnson's algorithm. Heap objects are
+ * numbered with {@link HeapObjectIndex}, so the search works on int arrays and bitsets. Enumeration stops after
+ * maxCycles cycles, as there may be exponentially many of them.
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class CycleService {
+
+    public static final int DEFAULT_MAX_CYCLES = 1_000;
+
+    private static final Comparator<Cycle> BY_RANK = Comparator
+            .comparingInt(Cycle::length)
+            .thenComparing(Cycle::describe);
+
+    private int maxCycles = DEFAULT_MAX_CYCLES;
+
+    /**
+     * Finds elementary cycles of the graph.
+     *
+     * @param graph lock-order graph
+     * @return cycles, shortest first
+     */
+    public List<Cycle> findCycles(Graph graph) {
+        HeapObjectIndex index = HeapObjectIndex.of(graph);
+
+        List<List<Integer>> components = AdjacencyMatrix.isDense(index.size(), index.getEdgeCount())
+                ? findDenseComponents(index)
+                : StronglyConnectedComponents.find(
+                        IntStream.range(0, index.size()).boxed().collect(Collectors.toList()),
+                        node -> Ints.asList(index.getSuccessors(node)));
+
+        List<Cycle> cycles = new ArrayList<>();
+        for (List<Integer> component : components) {
+            if (cycles.size() >= maxCycles) {
+                break;
+            }
+            //self-link means two different objects of the same symbolic heap object are locked one under another
+            for (int node : component) {
+                if (index.hasEdge(node, node) && cycles.size() < maxCycles) {
+                    cycles.add(new Cycle(Collections.singletonList(index.get(node))));
+                }
+            }
+            if (component.size() > 1) {
+                findCycles(index, component, cycles);
+            }
+        }
+
+        cycles.sort(BY_RANK);
+        return cycles;
+    }
+
+    /**
+     * Finds elementary cycles of the global graph. Only edges between classes which may be on a cycle are expanded.
+     * Cycles are given methods of their edges, see {@link ClassEdgeGraph#withMethods(List)}.
+     *
+     * @param graph global lock-order graph
+     * @return cycles, shortest first
+     */
+    public List<Cycle> findCycles(ClassEdgeGraph graph) {
+        List<Cycle> cycles = new ArrayList<>(graph.withMethods(findCycles(graph.expand(findCyclicClasses(graph)))));
+        cycles.sort(BY_RANK);
+        return cycles;
+    }
+
+    /**
+     * Finds classes which are on a cycle of expanded graph without expanding it. Every declared class becomes a hub
+     * node, which all of its subclasses have an edge to, and which has edges to all subclasses of declared classes
+     * it has edges to. A path between classes in expanded graph is a path via hubs here, so strongly connected
+     * components are the same, while this graph has size linear in source edges and hierarchy.
+     */
+    Set<String> findCyclicClasses(ClassEdgeGraph graph) {
+        Map<String, Integer> classIds = new LinkedHashMap<>();
+        graph.getSubclasses().values().forEach(subclasses ->
+                subclasses.forEach(clazz -> classIds.putIfAbsent(clazz, classIds.size())));
+        List<String> classes = new ArrayList<>(classIds.keySet());
+
+        List<String> hubs = new ArrayList<>(graph.getEdges().keySet());
+        List<List<Integer>> successors = new ArrayList<>(classes.size() + hubs.size());
+        classes.forEach(clazz -> successors.add(new ArrayList<>()));
+        for (int hub = 0; hub < hubs.size(); hub++) {
+            int hubId = classes.size() + hub;
+            Set<Integer> hubSuccessors = new LinkedHashSet<>();
+            for (String to : graph.getEdges().get(hubs.get(hub))) {
+                graph.getSubclasses().get(to).forEach(clazz -> hubSuccessors.add(classIds.get(clazz)));
+            }
+            successors.add(new ArrayList<>(hubSuccessors));
+            graph.getSubclasses().get(hubs.get(hub)).forEach(clazz -> successors.get(classIds.get(clazz)).add(hubId));
+        }
+
+        List<List<Integer>> components = StronglyConnectedComponents.find(
+                IntStream.range(0, successors.size()).boxed().collect(Collectors.toList()),
+                successors::get);
+
+        //a component of a single node has no cycle, as hubs and classes alternate on every path
+        Set<String> cyclicClasses = new HashSet<>();
+        for (List<Integer> component : components) {
+            if (component.size() > 1) {
+                component.stream()
+                        .filter(node -> node < classes.size())
+                        .forEach(node -> cyclicClasses.add(classes.get(node)));
+            }
+        }
+        return cyclicClasses;
+    }
+
+    /**
+     * Strongly connected components of a dense graph: nodes are in the same component if they are reachable
+     * from each other. Reachability is computed on a bit matrix, which is cheaper than walking dense edge lists.
+     */
+    private List<List<Integer>> findDenseComponents(HeapObjectIndex index) {
+        AdjacencyMatrix reachability = AdjacencyMatrix.of(index).transitiveClosure();
+
+        List<List<Integer>> components = new ArrayList<>();
+        boolean[] assigned = new boolean[index.size()];
+        for (int node = 0; node < index.size(); node++) {
+            if (assigned[node]) {
+                continue;
+            }
+            List<Integer> component = new ArrayList<>();
+            component.add(node);
+            for (int other = node + 1; other < index.size(); other++) {
+                if (!assigned[other] && reachability.hasEdge(node, other) && reachability.hasEdge(other, node)) {
+                    component.add(other);
+                    assigned[other] = true;
+                }
+            }
+            components.add(component);
+        }
+        return components;
+    }
+
+    /**
+     * Johnson's enumeration of elementary cycles inside one strongly connected component.
+     * Each cycle is found starting from its node with the smallest index, so it is found once.
+     * Nodes are renumbered inside of the component, so all the bookkeeping is kept in arrays and bitsets.
+     */
+    private void findCycles(HeapObjectIndex index, List<Integer> component, List<Cycle> cycles) {
+        int size = component.size();
+        int[][] successors = localSuccessors(index, component);
+
+        BitSet blocked = new BitSet(size);
+        BitSet[] blockedBy = new BitSet[size];
+        boolean[] foundCycle = new boolean[size];
+        int[] nextSuccessor = new int[size];
+        int[] path = new int[size];
+
+        for (int start = 0; start < size; start++) {
+            blocked.clear();
+            Arrays.fill(blockedBy, null);
+
+            int depth = 0;
+            path[depth++] = enter(start, blocked, foundCycle, nextSuccessor);
+
+            while (depth > 0) {
+                int node = path[depth - 1];
+
+                if (nextSuccessor[node] < successors[node].length) {
+                    int next = successors[node][nextSuccessor[node]++];
+                    if (next < start) {
+                        //already processed as a start
+                        continue;
+                    }
+
+                    if (next == start) {
+                        if (node == start) {
+                            //self-link, it is already found
+                            continue;
+                        }
+                        List<HeapObject> cycle = new ArrayList<>(depth);
+                        for (int i = 0; i < depth; i++) {
+                            cycle.add(index.get(component.get(path[i])));
+                        }
+                        cycles.add(new Cycle(cycle));
+                        foundCycle[node] = true;
+                        if (cycles.size() >= maxCycles) {
+                            return;
+                        }
+                    } else if (!blocked.get(next)) {
+                        path[depth++] = enter(next, blocked, foundCycle, nextSuccessor);
+                    }
+                    continue;
+                }
+
+                depth--;
+
+                if (foundCycle[node]) {
+                    unblock(node, blocked, blockedBy);
+                } else {
+                    for (int successor : successors[node]) {
+                        if (successor >= start) {
+                            if (blockedBy[successor] == null) {
+                                blockedBy[successor] = new BitSet(size);
+                            }
+                            blockedBy[successor].set(node);
+                        }
+                    }
+                }
+
+                if (depth > 0) {
+                    foundCycle[path[depth - 1]] |= foundCycle[node];
+                }
+            }
+        }
+    }
+
+    /**
+     * Successors of component nodes, restricted to the component and numbered by position in it.
+     */
+    private int[][] localSuccessors(HeapObjectIndex index, List<Integer> component) {
+        Map<Integer, Integer> positions = new HashMap<>(component.size());
+        for (int i = 0; i < component.size(); i++) {
+            positions.put(component.get(i), i);
+        }
+
+        int[][] successors = new int[component.size()][];
+        for (int i = 0; i < component.size(); i++) {
+            successors[i] = Arrays.stream(index.getSuccessors(component.get(i)))
+                    .filter(positions::containsKey)
+                    .map(positions::get)
+                    .toArray();
+        }
+        return successors;
+    }
+
+    private int enter(int node, BitSet blocked, boolean[] foundCycle, int[] nextSuccessor) {
+        blocked.set(node);
+        foundCycle[node] = false;
+        nextSuccessor[node] = 0;
+        return node;
+    }
+
+    private void unblock(int node, BitSet blocked, BitSet[] blockedBy) {
+        Deque<Integer> toUnblock = new ArrayDeque<>();
+        toUnblock.push(node);
+
+        while (!toUnblock.isEmpty()) {
+            int current = toUnblock.pop();
+            blocked.clear(current);
+
+            BitSet waiting = blockedBy[current];
+            blockedBy[current] = null;
+            if (waiting != null) {
+                for (int waitingNode = waiting.nextSetBit(0); waitingNode >= 0; waitingNode = waiting.nextSetBit(waitingNode + 1)) {
+                    if (blocked.get(waitingNode)) {
+                        toUnblock.push(waitingNode);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.CrossAssignmentStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.DeclarationStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.InnerAssignmentStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content hash of method declarations.
+ * <p>
+ * Hash of a declaration covers its own body and bodies of all declarations it may call transitively, so it changes
+ * whenever anything its summary is computed from changes. Declarations are hashed by Tarjan's algorithm: members of
+ * a recursive component are given the hash of the whole component, mixed with their position in it.
+ * <p>
+ * Hashes are remembered per declaration instance until the declaration is garbage collected.
+ */
+final class DeclarationHasher {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final byte NULL = 0;
+    private static final byte SEQUENTIAL = 1;
+    private static final byte BRANCH = 2;
+    private static final byte SYNCHRONIZED = 3;
+    private static final byte METHOD = 4;
+    private static final byte DECLARATION = 5;
+    private static final byte INNER_ASSIGNMENT = 6;
+    private static final byte CROSS_ASSIGNMENT = 7;
+    private static final byte WAIT = 8;
+    private static final byte CALL = 9;
+    private static final byte RECURSIVE_CALL = 10;
+    private static final byte LOOP = 11;
+
+    /**
+     * Marks absent statements, as deque does not permit nulls.
+     */
+    private static final Statement ABSENT = new WaitStatement(-1, null);
+
+    private final Cache<MethodDeclaration, Long> hashes = CacheBuilder.newBuilder().weakKeys().build();
+
+    long hash(MethodDeclaration methodDeclaration) {
+        Long hash = hashes.getIfPresent(methodDeclaration);
+        return hash != null ? hash : new Traversal().visit(methodDeclaration).hash;
+    }
+
+    /**
+     * A single depth-first traversal of the call graph.
+     */
+    private final class Traversal {
+        /**
+         * Indexes of visited declarations, which are not given their hash yet.
+         */
+        private final Map<MethodDeclaration, Integer> indexes = new IdentityHashMap<>();
+        private final Deque<MethodDeclaration> component = new ArrayDeque<>();
+        private int nextIndex;
+
+        private Visit visit(MethodDeclaration methodDeclaration) {
+            int index = nextIndex++;
+            indexes.put(methodDeclaration, index);
+            component.push(methodDeclaration);
+
+            Hasher hasher = HASH_FUNCTION.newHasher();
+            putString(hasher, methodDeclaration.getMethodName());
+            putString(hasher, methodDeclaration.getDeclaringClass());
+            hasher.putInt(methodDeclaration.getOffset());
+            hasher.putInt(methodDeclaration.getVariables().size());
+            methodDeclaration.getVariables().forEach(variable -> {
+                putString(hasher, variable.getVariableName());
+                putString(hasher, variable.getVariableClass());
+            });
+
+            int lowLink = index;
+            Deque<Statement> statements = new ArrayDeque<>();
+            statements.push(orAbsent(methodDeclaration.getMethodBody()));
+            while (!statements.isEmpty()) {
+                Statement statement = statements.pop();
+                putStatement(hasher, statement, statements);
+                if (statement instanceof MethodStatement) {
+                    for (MethodDeclaration callee : ((MethodStatement) statement).getMethodDeclarations()) {
+                        lowLink = Math.min(lowLink, putCallee(hasher, callee));
+                    }
+                }
+            }
+
+            long hash = hasher.hash().asLong();
+            if (lowLink == index) {
+                assignComponent(methodDeclaration, hash);
+            }
+            return new Visit(hash, lowLink);
+        }
+
+        /**
+         * Puts hash of a callee, visiting it if needed.
+         *
+         * @return lowest index the callee refers to
+         */
+        private int putCallee(Hasher hasher, MethodDeclaration callee) {
+            Long calleeHash = hashes.getIfPresent(callee);
+            if (calleeHash != null) {
+                hasher.putByte(CALL).putLong(calleeHash);
+                return Integer.MAX_VALUE;
+            }
+
+            Integer calleeIndex = indexes.get(callee);
+            if (calleeIndex != null) {
+                //callee is in the same recursive component, its content is hashed by the component root
+                hasher.putByte(RECURSIVE_CALL).putInt(calleeIndex);
+                return calleeIndex;
+            }
+
+            Visit visit = visit(callee);
+            hasher.putByte(CALL).putLong(visit.hash);
+            return visit.lowLink;
+        }
+
+        private void assignComponent(MethodDeclaration root, long rootHash) {
+            MethodDeclaration member;
+            do {
+                member = component.pop();
+                long memberHash = member == root
+                        ? rootHash
+                        : HASH_FUNCTION.newHasher().putLong(rootHash).putInt(indexes.get(member)).hash().asLong();
+                hashes.put(member, memberHash);
+                indexes.remove(member);
+            } while (member != root);
+        }
+    }
+
+    /**
+     * Puts statement fields to hasher, and pushes its children to be hashed after it.
+     * Callees of method statements are hashed by caller.
+     */
+    private static void putStatement(Hasher hasher, Statement statement, Deque<Statement> statements) {
+        if (statement == ABSENT) {
+            hasher.putByte(NULL);
+            return;
+        }
+
+        if (statement instanceof SequentialStatement) {
+            List<Statement> sequence = ((SequentialStatement) statement).getStatements();
+            hasher.putByte(SEQUENTIAL);
+            hasher.putInt(sequence.size());
+            for (int i = sequence.size() - 1; i >= 0; i--) {
+                statements.push(orAbsent(sequence.get(i)));
+            }
+        } else if (statement instanceof BranchStatement) {
+            hasher.putByte(BRANCH);
+            statements.push(orAbsent(((BranchStatement) statement).getStmt2()));
+            statements.push(orAbsent(((BranchStatement) statement).getStmt1()));
+        } else if (statement instanceof SynchronizedStatement) {
+            hasher.putByte(SYNCHRONIZED);
+            putString(hasher, ((SynchronizedStatement) statement).getClassName());
+            statements.push(orAbsent(((SynchronizedStatement) statement).getInnerStatement()));
+        } else if (statement instanceof LoopStatement) {
+            hasher.putByte(LOOP);
+            statements.push(orAbsent(((LoopStatement) statement).getBody()));
+        } else if (statement instanceof MethodStatement) {
+            MethodStatement methodStatement = (MethodStatement) statement;
+            hasher.putByte(METHOD);
+            putString(hasher, methodStatement.getReturnType());
+            hasher.putInt(methodStatement.getActualParameters().size());
+            methodStatement.getActualParameters().forEach(parameter -> putString(hasher, parameter));
+            hasher.putInt(methodStatement.getMethodDeclarations().size());
+        } else if (statement instanceof DeclarationStatement) {
+            hasher.putByte(DECLARATION);
+            putString(hasher, ((DeclarationStatement) statement).getClazz());
+        } else if (statement instanceof InnerAssignmentStatement) {
+            hasher.putByte(INNER_ASSIGNMENT);
+            putString(hasher, ((InnerAssignmentStatement) statement).getClazz());
+        } else if (statement instanceof CrossAssignmentStatement) {
+            hasher.putByte(CROSS_ASSIGNMENT);
+            putString(hasher, ((CrossAssignmentStatement) statement).getRightValueName());
+        } else if (statement instanceof WaitStatement) {
+            hasher.putByte(WAIT);
+        } else {
+            throw new AlgorithmValidationException("Unknown statement: " + statement);
+        }
+
+        hasher.putInt(statement.getOffset());
+        putString(hasher, statement.getVarName());
+    }
+
+    private static Statement orAbsent(Statement statement) {
+        return statement == null ? ABSENT : statement;
+    }
+
+    private static void putString(Hasher hasher, String string) {
+        if (string == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(string.length()).putString(string, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Visit {
+        private final long hash;
+        private final int lowLink;
+
+        private Visit(long hash, int lowLink) {
+            this.hash = hash;
+            this.lowLink = lowLink;
+        }
+    }
+}
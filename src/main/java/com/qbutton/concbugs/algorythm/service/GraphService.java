@@ -1,24 +1,23 @@
 package com.qbutton.concbugs.algorythm.service;
 
-import com.google.common.collect.Sets;
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
 import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Environment;
 import com.qbutton.concbugs.algorythm.dto.Graph;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
-import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
 import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.OptionalInt;
 import java.util.Set;
-import java.util.stream.IntStream;
 
 @RequiredArgsConstructor
 public class GraphService {
@@ -36,44 +35,44 @@ public class GraphService {
                                          Set<HeapObject> roots,
                                          HeapObject oldHO,
                                          HeapObject newHo) {
-        Map<HeapObject, Set<HeapObject>> neighbors = new HashMap<>(graph.getNeighbors().size());
-        graph.getNeighbors().forEach((node, edges) -> neighbors.put(node, new HashSet<>(edges)));
-
         boolean needToReplace = newHo != null;
 
-        //remove node itself
-        Set<HeapObject> oldEdges = neighbors.remove(oldHO);
+        //remove node itself, with connections to it.
+        //Only edge sets of its neighbors are copied, the rest are shared with the original graph
+        Set<HeapObject> oldEdges = graph.getNeighbors().get(oldHO);
 
         if (oldEdges == null) {
             throw new AlgorithmValidationException(
                     String.format("graph %s does not contain heapObject %s, it cannot be removed", graph, oldHO));
         }
+        Set<HeapObject> predecessors = graph.getPredecessors(oldHO);
+        Graph updatedGraph = graph.withoutNode(oldHO);
 
-        //if this is a replace, not a remove operation, put a new node
+        //if this is a replace, not a remove operation, put a new node and connections to it
         if (needToReplace) {
-            //a merge is needed because this node might already be in the set
-            neighbors.merge(newHo, oldEdges, (oldObjects, newObjects) -> new HashSet<>(Sets.union(oldObjects, newObjects)));
+            //a merge is needed because this node might already be in the set.
+            //Nodes edges lead to are not added, so the node set changes only by the replaced node
+            updatedGraph = updatedGraph.withEdges(newHo, PersistentHashSet.copyOf(oldEdges).minus(oldHO));
             //ensure there is no self-link
             if (!newHo.getProgramPoint().isUnknown()) {
-                neighbors.get(newHo).remove(newHo);
+                updatedGraph = updatedGraph.withoutEdge(newHo, newHo);
             }
-        }
 
-        //remove connections to this node and add new, if it is a replace operation
-        neighbors.forEach((node, edges) -> {
-            boolean wasPresent = edges.remove(oldHO);
-            //do not allow self-link - we cannot obtain the lock twice
-            if (wasPresent && needToReplace && newHo != node) {
-                edges.add(newHo);
+            for (HeapObject node : predecessors) {
+                //do not allow self-link - we cannot obtain the lock twice
+                if (!node.equals(oldHO) && !node.equals(newHo)) {
+                    updatedGraph = updatedGraph.withEdge(node, newHo);
+                }
             }
-        });
-
-        Set<HeapObject> updatedRoots = new HashSet<>(roots);
-        if (updatedRoots.remove(oldHO) && needToReplace) {
-            updatedRoots.add(newHo);
         }
 
-        Graph updatedGraph = new Graph(neighbors);
+        PersistentHashSet<HeapObject> updatedRoots = PersistentHashSet.copyOf(roots);
+        if (updatedRoots.contains(oldHO)) {
+            updatedRoots = updatedRoots.minus(oldHO);
+            if (needToReplace) {
+                updatedRoots = updatedRoots.plus(newHo);
+            }
+        }
 
         return new ReplaceNodeResult(updatedGraph, updatedRoots);
     }
@@ -91,82 +90,85 @@ public class GraphService {
     ReplaceNodeResult spliceOutNode(Graph graph,
                                            Set<HeapObject> roots,
                                            HeapObject oldHO) {
-        Map<HeapObject, Set<HeapObject>> neighbors = new HashMap<>(graph.getNeighbors().size());
-        graph.getNeighbors().forEach((node, edges) -> neighbors.put(node, new HashSet<>(edges)));
-
-        //remove node itself
-        Set<HeapObject> oldEdges = neighbors.remove(oldHO);
+        //remove node itself, with edges to it
+        Set<HeapObject> oldEdges = graph.getNeighbors().get(oldHO);
 
         if (oldEdges == null) {
             throw new AlgorithmValidationException(
                     String.format("graph %s does not contain heapObject %s, it cannot be spliced out", graph, oldHO));
         }
-
-        //remove edges to this node. If there was one, replace node with all outgoing edges
-        neighbors.forEach((node, edges) -> {
-            boolean wasPresent = edges.remove(oldHO);
-            if (wasPresent) {
-                edges.addAll(oldEdges);
+        Set<HeapObject> predecessors = graph.getPredecessors(oldHO);
+        Graph updatedGraph = graph.withoutNode(oldHO);
+
+        //replace every removed edge with edges to all children of the node
+        PersistentHashSet<HeapObject> children = PersistentHashSet.copyOf(oldEdges).minus(oldHO);
+        for (HeapObject node : predecessors) {
+            if (!node.equals(oldHO)) {
+                //ensure there is no self-link
+                updatedGraph = updatedGraph.withEdges(node, children.minus(node));
             }
-
-            //ensure there is no self-link
-            edges.remove(node);
-        });
-
-        Set<HeapObject> updatedRoots = new HashSet<>(roots);
-        if (updatedRoots.remove(oldHO)) {
-            updatedRoots.addAll(oldEdges);
         }
 
-        Graph updatedGraph = new Graph(neighbors);
+        PersistentHashSet<HeapObject> updatedRoots = PersistentHashSet.copyOf(roots);
+        if (updatedRoots.contains(oldHO)) {
+            updatedRoots = updatedRoots.minus(oldHO).union(oldEdges);
+        }
 
         return new ReplaceNodeResult(updatedGraph, updatedRoots);
     }
 
-    public List<EnvEntry> addOrReplaceEnv(EnvEntry newEnvEntry, List<EnvEntry> oldEnv) {
-        List<EnvEntry> newEnv = new ArrayList<>(oldEnv);
-
-        OptionalInt varExists = IntStream.range(0, newEnv.size())
-                .filter(i -> newEnv.get(i).getVarName().equals(newEnvEntry.getVarName()))
-                .findAny();
-
-        if (varExists.isPresent()) {
-            newEnv.set(varExists.getAsInt(), newEnvEntry);
-        } else {
-            newEnv.add(newEnvEntry);
-        }
+    public Environment addOrReplaceEnv(EnvEntry newEnvEntry, Environment oldEnv) {
+        return oldEnv.with(newEnvEntry);
+    }
 
-        return newEnv;
+    /**
+     * Builds global lock-order graph from edges of all method graphs, without recording methods of edges.
+     *
+     * @param fixedMethodStates states of public methods
+     * @return global graph
+     */
+    public ClassEdgeGraph postProcess(List<State> fixedMethodStates) {
+        return postProcess(fixedMethodStates, Collections.nCopies(fixedMethodStates.size(), null));
     }
 
-    @SuppressWarnings("unchecked")
-    public Graph postProcess(List<State> fixedMethodStates) {
-        Graph result = new Graph(Collections.emptyMap());
+    /**
+     * Builds global lock-order graph from edges of all method graphs. Edges are kept between declared classes
+     * of heap objects and are expanded over subclasses only on demand, see {@link ClassEdgeGraph}.
+     * Every edge records the first public method it was found in.
+     *
+     * @param fixedMethodStates states of public methods
+     * @param methodNames       names of public methods, in the same order, null where unknown
+     * @return global graph
+     */
+    public ClassEdgeGraph postProcess(List<State> fixedMethodStates, List<String> methodNames) {
+        Map<String, Set<String>> classEdges = new LinkedHashMap<>();
+        Map<String, Set<String>> subclasses = new HashMap<>();
+        Map<String, Map<String, String>> methods = new HashMap<>();
 
         //for each of public methods results
-        for (State fixedMethodState : fixedMethodStates) {
+        for (int i = 0; i < fixedMethodStates.size(); i++) {
+            State fixedMethodState = fixedMethodStates.get(i);
+            String methodName = methodNames.get(i);
             //for each graph edge
             for (Map.Entry<HeapObject, Set<HeapObject>> entry : fixedMethodState.getGraph().getNeighbors().entrySet()) {
-                HeapObject from = entry.getKey();
-                Set<HeapObject> edges = entry.getValue();
-                Set<String> subclassesOfFrom = classFinderService.getSubclassesOf(from.getClazz());
-                Set<String> subclassesOfTo = new HashSet<>();
-                for (HeapObject to : edges) {
-                    subclassesOfTo.addAll(classFinderService.getSubclassesOf(to.getClazz()));
+                if (entry.getValue().isEmpty()) {
+                    continue;
                 }
-
-                for (String subclassOfFrom : subclassesOfFrom) {
-                    for (String subclassOfTo : subclassesOfTo) {
-                        HeapObject unknownHoFrom = new HeapObject(ProgramPoint.UNKNOWN, subclassOfFrom);
-                        HeapObject unknownHoTo = new HeapObject(ProgramPoint.UNKNOWN, subclassOfTo);
-
-                        result = result.withEdge(unknownHoFrom, unknownHoTo);
+                String from = entry.getKey().getClazz();
+                subclasses.computeIfAbsent(from, classFinderService::getSubclassesOf);
+
+                Set<String> edges = classEdges.computeIfAbsent(from, clazz -> new LinkedHashSet<>());
+                for (HeapObject to : entry.getValue()) {
+                    subclasses.computeIfAbsent(to.getClazz(), classFinderService::getSubclassesOf);
+                    edges.add(to.getClazz());
+                    if (methodName != null) {
+                        methods.computeIfAbsent(from, clazz -> new HashMap<>()).putIfAbsent(to.getClazz(), methodName);
                     }
                 }
             }
         }
 
-        return result;
+        return new ClassEdgeGraph(classEdges, subclasses, methods);
     }
 
     @Data
@@ -1,44 +1,75 @@
 package com.qbutton.concbugs.algorythm.service;
 
-import com.google.common.collect.Sets;
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
 import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Environment;
 import com.qbutton.concbugs.algorythm.dto.Graph;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
 import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
 import lombok.RequiredArgsConstructor;
-import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class MergeService {
 
+    private static final String OBJECT_CLASS = "java.lang.Object";
+
     private final ClassFinderService classFinderService;
     private final GraphService graphService;
 
+    /**
+     * Merges 2 graphs. Nodes of the smaller graph are added to the bigger one, edge sets present in only one
+     * of graphs are shared with it.
+     *
+     * @param g1 graph1
+     * @param g2 graph2
+     * @return merged graph
+     */
     public Graph mergeGraphs(Graph g1, Graph g2) {
-        Graph updatedGraph = g1.clone();
-
-        g2.getNeighbors().forEach((node, edges) ->
-                updatedGraph.getNeighbors().merge(node, edges, Sets::union));
+        Graph bigger = g1.getNeighbors().size() >= g2.getNeighbors().size() ? g1 : g2;
+        Graph smaller = bigger == g1 ? g2 : g1;
 
-        return updatedGraph;
+        Graph merged = bigger;
+        for (Map.Entry<HeapObject, Set<HeapObject>> entry : smaller.getNeighbors().entrySet()) {
+            merged = merged.withEdges(entry.getKey(), entry.getValue());
+        }
+        return merged;
     }
 
     public State mergeStates(State s1, State s2, int offset) {
+        return mergeStates(s1, s2, offset, false);
+    }
+
+    /**
+     * Merges 2 states like {@link #mergeStates(State, State, int)}, but a variable mapped to different heap objects
+     * is given a fresh object of the most general class instead of their lowest common superclass.
+     * <p>
+     * The environment of the result does not change anymore when it is widened with a state computed from it,
+     * which bounds the number of iterations needed to reach a fixpoint.
+     *
+     * @param s1     state1
+     * @param s2     state2
+     * @param offset offset where merge happens
+     * @return widened state
+     */
+    public State widenStates(State s1, State s2, int offset) {
+        return mergeStates(s1, s2, offset, true);
+    }
+
+    private State mergeStates(State s1, State s2, int offset, boolean widen) {
         Graph mergedGraph = mergeGraphs(s1.getGraph(), s2.getGraph());
-        Set<HeapObject> mergedRoots = Sets.union(s1.getRoots(), s2.getRoots());
+        Set<HeapObject> mergedRoots = PersistentHashSet.copyOf(s1.getRoots()).union(s2.getRoots());
 
         //because hierarchy of synchronized guarantees locks to be the same
-        List<HeapObject> mergedLocks = new ArrayList<>(s1.getLocks());
-        Set<HeapObject> mergedWaits = Sets.union(s1.getWaits(), s2.getWaits());
+        List<HeapObject> mergedLocks = s1.getLocks();
+        Set<HeapObject> mergedWaits = PersistentHashSet.copyOf(s1.getWaits()).union(s2.getWaits());
 
-        List<EnvEntry> mergedEnvs = mergeEnvs(s1.getEnvironment(), s2.getEnvironment(), offset);
+        Environment mergedEnvs = mergeEnvs(s1.getEnvironment(), s2.getEnvironment(), offset, widen);
 
         return new State(mergedGraph, mergedRoots, mergedLocks, mergedEnvs, mergedWaits);
     }
@@ -59,35 +90,36 @@ public class MergeService {
      * @param offset     offset where merge happens
      * @return merged environment
      */
-    List<EnvEntry> mergeEnvs(List<EnvEntry> env1,
-                                           List<EnvEntry> env2,
-                                           int offset) {
-        Set<String> env1Keys = getKeys(env1);
-        Set<String> env2Keys = getKeys(env2);
-
-        if (!env1Keys.equals(env2Keys)) {
-            String message = String.format(
-                    "The keysets of two envs [%s, %s] are different, merging seems to be incorrect.", env1, env2);
-            throw new AlgorithmValidationException(message);
+    Environment mergeEnvs(Environment env1, Environment env2, int offset) {
+        return mergeEnvs(env1, env2, offset, false);
+    }
+
+    private Environment mergeEnvs(Environment env1, Environment env2, int offset, boolean widen) {
+        if (env1.size() != env2.size()) {
+            throw differentKeysetsException(env1, env2);
         }
 
-        List<EnvEntry> mergedEnv = new ArrayList<>(env1.size());
+        Environment mergedEnv = Environment.empty();
 
         int bound = env1.size();
         for (int idx = 0; idx < bound; idx++) {
             EnvEntry env1Entry = env1.get(idx);
             HeapObject ho1 = env1Entry.getHeapObject();
-            EnvEntry env2Entry = env2.get(idx);
-            HeapObject ho2 = env2Entry.getHeapObject();
+            HeapObject ho2 = env2.getHeapObject(env1Entry.getVarName());
+            if (ho2 == null) {
+                throw differentKeysetsException(env1, env2);
+            }
 
             if (ho1.equals(ho2)) {
                 mergedEnv = graphService.addOrReplaceEnv(env1Entry, mergedEnv);
             } else {
-                String lowestSuperClass = classFinderService.findLowestSuperClass(ho1.getClazz(), ho2.getClazz());
-                ProgramPoint freshProgramPoint = new ProgramPoint(env1Entry.getVarName(), offset);
+                String lowestSuperClass = widen
+                        ? OBJECT_CLASS
+                        : classFinderService.findLowestSuperClass(ho1.getClazz(), ho2.getClazz());
+                ProgramPoint freshProgramPoint = ProgramPoint.of(env1Entry.getVarName(), offset);
 
                 mergedEnv = graphService.addOrReplaceEnv(
-                        new EnvEntry(env1Entry.getVarName(), new HeapObject(freshProgramPoint, lowestSuperClass)), mergedEnv
+                        new EnvEntry(env1Entry.getVarName(), HeapObject.of(freshProgramPoint, lowestSuperClass)), mergedEnv
                 );
             }
         }
@@ -95,8 +127,9 @@ public class MergeService {
         return mergedEnv;
     }
 
-    @NotNull
-    private Set<String> getKeys(List<EnvEntry> env) {
-        return env.stream().map(EnvEntry::getVarName).collect(Collectors.toSet());
+    private AlgorithmValidationException differentKeysetsException(Environment env1, Environment env2) {
+        String message = String.format(
+                "The keysets of two envs [%s, %s] are different, merging seems to be incorrect.", env1, env2);
+        return new AlgorithmValidationException(message);
     }
 }
@@ -0,0 +1,205 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
+import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary form of states.
+ * <p>
+ * Strings and heap objects are written once into tables at the beginning, everything else refers to them by index.
+ * Numbers are written as variable-length integers, so most of them take a single byte.
+ * Decoded heap objects and program points are interned, like those created by the algorithm.
+ */
+final class StateCodec {
+
+    private StateCodec() {
+    }
+
+    static byte[] encode(State state) {
+        Tables tables = new Tables();
+        state.getGraph().getNeighbors().forEach((node, edges) -> {
+            tables.add(node);
+            edges.forEach(tables::add);
+        });
+        state.getRoots().forEach(tables::add);
+        state.getLocks().forEach(tables::add);
+        state.getEnvironment().forEach(envEntry -> {
+            tables.add(envEntry.getVarName());
+            tables.add(envEntry.getHeapObject());
+        });
+        state.getWaits().forEach(tables::add);
+
+        Output output = new Output();
+        output.writeInt(tables.strings.size());
+        tables.strings.keySet().forEach(output::writeString);
+        output.writeInt(tables.heapObjects.size());
+        tables.heapObjects.keySet().forEach(heapObject -> {
+            output.writeInt(tables.indexOf(heapObject.getProgramPoint().getVariableName()));
+            output.writeInt(heapObject.getProgramPoint().getOffset() + 1);
+            output.writeInt(tables.indexOf(heapObject.getClazz()));
+        });
+
+        Map<HeapObject, Set<HeapObject>> neighbors = state.getGraph().getNeighbors();
+        output.writeInt(neighbors.size());
+        neighbors.forEach((node, edges) -> {
+            output.writeInt(tables.heapObjects.get(node));
+            writeHeapObjects(output, tables, edges);
+        });
+        writeHeapObjects(output, tables, state.getRoots());
+        writeHeapObjects(output, tables, state.getLocks());
+        output.writeInt(state.getEnvironment().size());
+        state.getEnvironment().forEach(envEntry -> {
+            output.writeInt(tables.indexOf(envEntry.getVarName()));
+            output.writeInt(tables.heapObjects.get(envEntry.getHeapObject()));
+        });
+        writeHeapObjects(output, tables, state.getWaits());
+
+        return output.toByteArray();
+    }
+
+    /**
+     * Decodes a state.
+     *
+     * @param buffer buffer positioned at the beginning of the state
+     * @return state
+     * @throws AlgorithmValidationException if buffer does not contain a valid state
+     */
+    static State decode(ByteBuffer buffer) {
+        try {
+            String[] strings = new String[readInt(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readInt(buffer)];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            HeapObject[] heapObjects = new HeapObject[readInt(buffer)];
+            for (int i = 0; i < heapObjects.length; i++) {
+                String variableName = readString(buffer, strings);
+                int offset = readInt(buffer) - 1;
+                heapObjects[i] = HeapObject.of(ProgramPoint.of(variableName, offset), readString(buffer, strings));
+            }
+
+            int nodeCount = readInt(buffer);
+            Map<HeapObject, Set<HeapObject>> neighbors = new HashMap<>();
+            for (int i = 0; i < nodeCount; i++) {
+                HeapObject node = heapObjects[readInt(buffer)];
+                neighbors.put(node, PersistentHashSet.copyOf(readHeapObjects(buffer, heapObjects)));
+            }
+            List<HeapObject> roots = readHeapObjects(buffer, heapObjects);
+            List<HeapObject> locks = readHeapObjects(buffer, heapObjects);
+            int envSize = readInt(buffer);
+            List<EnvEntry> environment = new ArrayList<>(envSize);
+            for (int i = 0; i < envSize; i++) {
+                String varName = readString(buffer, strings);
+                environment.add(new EnvEntry(varName, heapObjects[readInt(buffer)]));
+            }
+            List<HeapObject> waits = readHeapObjects(buffer, heapObjects);
+
+            return new State(new Graph(neighbors), PersistentHashSet.copyOf(roots), locks, environment,
+                    PersistentHashSet.copyOf(waits));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new AlgorithmValidationException("Malformed state: " + e);
+        }
+    }
+
+    private static void writeHeapObjects(Output output, Tables tables, Collection<HeapObject> heapObjects) {
+        output.writeInt(heapObjects.size());
+        heapObjects.forEach(heapObject -> output.writeInt(tables.heapObjects.get(heapObject)));
+    }
+
+    private static List<HeapObject> readHeapObjects(ByteBuffer buffer, HeapObject[] heapObjects) {
+        int size = readInt(buffer);
+        List<HeapObject> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(heapObjects[readInt(buffer)]);
+        }
+        return result;
+    }
+
+    private static String readString(ByteBuffer buffer, String[] strings) {
+        int index = readInt(buffer);
+        return index == 0 ? null : strings[index - 1];
+    }
+
+    /**
+     * Reads non-negative variable-length integer: 7 bits per byte, high bit tells whether more bytes follow.
+     */
+    private static int readInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new AlgorithmValidationException("Malformed state: too long integer");
+    }
+
+    /**
+     * Strings and heap objects of a state, in order of appearance.
+     */
+    private static final class Tables {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<HeapObject, Integer> heapObjects = new LinkedHashMap<>();
+
+        private void add(String string) {
+            if (string != null) {
+                strings.putIfAbsent(string, strings.size());
+            }
+        }
+
+        private void add(HeapObject heapObject) {
+            if (!heapObjects.containsKey(heapObject)) {
+                add(heapObject.getProgramPoint().getVariableName());
+                add(heapObject.getClazz());
+                heapObjects.put(heapObject, heapObjects.size());
+            }
+        }
+
+        /**
+         * Index of a string, 0 being reserved for null.
+         */
+        private int indexOf(String string) {
+            return string == null ? 0 : strings.get(string) + 1;
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+
+        private void writeInt(int value) {
+            if (value < 0) {
+                throw new AlgorithmValidationException("Can't write negative number " + value);
+            }
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        private void writeString(String string) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
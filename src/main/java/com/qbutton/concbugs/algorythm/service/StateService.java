@@ -1,5 +1,6 @@
 package com.qbutton.concbugs.algorythm.service;
 
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
 import com.qbutton.concbugs.algorythm.dto.Graph;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
@@ -8,7 +9,6 @@ import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
 import com.qbutton.concbugs.algorythm.service.GraphService.ReplaceNodeResult;
 import lombok.RequiredArgsConstructor;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -66,7 +66,7 @@ public class StateService {
             } else {
                 //object is not from caller, replace object with bottom program point
                 replaceNodeResult = graphService.replaceNode(
-                        currentCalleeGraph, currentCalleeRoots, lockedHeapObject, new HeapObject(ProgramPoint.UNKNOWN, lockedHeapObject.getClazz()));
+                        currentCalleeGraph, currentCalleeRoots, lockedHeapObject, HeapObject.of(ProgramPoint.UNKNOWN, lockedHeapObject.getClazz()));
             }
         }
 
@@ -76,16 +76,16 @@ public class StateService {
     private Set<HeapObject> mergeWaits(State returnedMethodState,
                                        List<HeapObject> formalParameters,
                                        List<HeapObject> actualParameters) {
-        Set<HeapObject> newWaitSet = new HashSet<>();
-        returnedMethodState.getWaits().forEach(wait -> {
+        PersistentHashSet<HeapObject> newWaitSet = PersistentHashSet.empty();
+        for (HeapObject wait : returnedMethodState.getWaits()) {
             int index = formalParameters.indexOf(wait);
 
             if (index >= 0) {
-                newWaitSet.add(actualParameters.get(index));
+                newWaitSet = newWaitSet.plus(actualParameters.get(index));
             } else {
-                newWaitSet.add(new HeapObject(ProgramPoint.UNKNOWN, wait.getClazz()));
+                newWaitSet = newWaitSet.plus(HeapObject.of(ProgramPoint.UNKNOWN, wait.getClazz()));
             }
-        });
+        }
         return newWaitSet;
     }
 
@@ -0,0 +1,115 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Tarjan's algorithm of finding strongly connected components of a directed graph.
+ * <p>
+ * Depth-first search is done with an explicit stack, so deep graphs do not overflow the java stack.
+ */
+final class StronglyConnectedComponents {
+
+    private StronglyConnectedComponents() {
+    }
+
+    /**
+     * Finds strongly connected components reachable from given nodes.
+     *
+     * @param nodes      nodes to start search from
+     * @param successors function returning successors of a node
+     * @param <T>        node type
+     * @return components in reverse topological order: each component goes after all components reachable from it
+     */
+    static <T> List<List<T>> find(Collection<T> nodes, Function<T, ? extends Collection<T>> successors) {
+        Map<T, Integer> indexes = new HashMap<>();
+        Set<T> onStack = new HashSet<>();
+        Deque<T> stack = new ArrayDeque<>();
+        Deque<Frame<T>> callStack = new ArrayDeque<>();
+        List<List<T>> components = new ArrayList<>();
+
+        for (T root : nodes) {
+            if (indexes.containsKey(root)) {
+                continue;
+            }
+
+            callStack.push(visit(root, indexes, onStack, stack, successors));
+
+            while (!callStack.isEmpty()) {
+                Frame<T> frame = callStack.peek();
+
+                if (frame.successors.hasNext()) {
+                    T next = frame.successors.next();
+                    Integer nextIndex = indexes.get(next);
+                    if (nextIndex == null) {
+                        callStack.push(visit(next, indexes, onStack, stack, successors));
+                    } else if (onStack.contains(next)) {
+                        frame.lowLink = Math.min(frame.lowLink, nextIndex);
+                    }
+                    continue;
+                }
+
+                callStack.pop();
+
+                if (frame.lowLink == frame.index) {
+                    components.add(popComponent(frame.node, onStack, stack));
+                }
+
+                Frame<T> parent = callStack.peek();
+                if (parent != null) {
+                    parent.lowLink = Math.min(parent.lowLink, frame.lowLink);
+                }
+            }
+        }
+
+        return components;
+    }
+
+    private static <T> Frame<T> visit(T node,
+                                      Map<T, Integer> indexes,
+                                      Set<T> onStack,
+                                      Deque<T> stack,
+                                      Function<T, ? extends Collection<T>> successors) {
+        int index = indexes.size();
+        indexes.put(node, index);
+        stack.push(node);
+        onStack.add(node);
+
+        return new Frame<>(node, index, successors.apply(node).iterator());
+    }
+
+    private static <T> List<T> popComponent(T root, Set<T> onStack, Deque<T> stack) {
+        List<T> component = new ArrayList<>();
+        T node;
+        do {
+            node = stack.pop();
+            onStack.remove(node);
+            component.add(node);
+        } while (!node.equals(root));
+
+        return component;
+    }
+
+    private static final class Frame<T> {
+        private final T node;
+        private final int index;
+        private final Iterator<T> successors;
+        private int lowLink;
+
+        private Frame(T node, int index, Iterator<T> successors) {
+            this.node = node;
+            this.index = index;
+            this.successors = successors;
+            this.lowLink = index;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.qbutton.concbugs.algorythm.collection.PersistentHashSet;
+import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+import com.qbutton.concbugs.algorythm.exception.BudgetExceededException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of method summaries.
+ * <p>
+ * A summary is the state returned by visiting method declaration from an empty state. It does not depend on
+ * the call site, so it is computed once per declaration and only renamed to caller context on each call.
+ * The cache is bounded: least recently used summaries are evicted when there are more than maxSummaries of them.
+ * <p>
+ * Summaries of recursive methods are computed by {@link #computeFixpoint(List)}: while a method is in progress,
+ * calls to it are given its current approximation instead of descending into it again. Components are remembered,
+ * so that a summary of recursive method which has been evicted is computed again as a fixpoint of its component.
+ * A component which does not converge within maxFixpointIterations rounds is given conservative summaries.
+ * <p>
+ * Final summaries are also kept in {@link SummaryStore}, and are loaded from it instead of visiting the method
+ * again, e.g. in the next IDE session. Summaries loaded from the store are counted as hits.
+ * <p>
+ * Methods are visited within {@link AnalysisBudget}. A method which exceeds it, as well as a component which does
+ * not converge, is given a conservative summary, which is neither stored nor reused by later analyses.
+ * <p>
+ * The service is thread-safe, so summaries of independent methods can be computed in parallel.
+ */
+@RequiredArgsConstructor
+public class SummaryService {
+
+    static final int DEFAULT_MAX_SUMMARIES = 10_000;
+    static final int DEFAULT_MAX_FIXPOINT_ITERATIONS = 5;
+
+    private final VisitorService visitorService;
+    private final SummaryStore summaryStore;
+    private final AnalysisBudget analysisBudget;
+
+    @Getter
+    private volatile int maxSummaries = DEFAULT_MAX_SUMMARIES;
+
+    @Getter
+    @Setter
+    private volatile int maxFixpointIterations = DEFAULT_MAX_FIXPOINT_ITERATIONS;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Access-ordered, so the first entry is always the least recently used one. Guarded by this.
+     */
+    private final Map<MethodDeclaration, State> summaries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Methods with conservative summaries, mapped to generation of analysis which truncated them. Guarded by this.
+     */
+    private final Map<MethodDeclaration, Long> truncatedSummaries = new HashMap<>();
+
+    /**
+     * Strongly connected components of the call graph, by their methods. Guarded by this.
+     */
+    private final Map<MethodDeclaration, List<MethodDeclaration>> components = new HashMap<>();
+
+    /**
+     * Methods being visited, mapped to their approximations (null until one is needed).
+     * Recursion is a property of a call stack, so this is kept per thread.
+     */
+    private final ThreadLocal<Map<MethodDeclaration, State>> methodsInProgress = ThreadLocal.withInitial(HashMap::new);
+
+    public State getSummary(MethodDeclaration methodDeclaration) {
+        State summary = findSummary(methodDeclaration);
+        if (summary != null) {
+            return summary;
+        }
+
+        Map<MethodDeclaration, State> inProgress = methodsInProgress.get();
+        if (inProgress.containsKey(methodDeclaration)) {
+            //recursive call, the method is being visited further up the stack
+            return getApproximation(methodDeclaration, inProgress);
+        }
+
+        summary = summaryStore.load(methodDeclaration);
+        if (summary != null) {
+            putStoredSummary(methodDeclaration, summary);
+            return summary;
+        }
+
+        List<MethodDeclaration> component = findComponent(methodDeclaration);
+        if (component != null) {
+            //summary of recursive method was evicted, it is only correct as a fixpoint of the whole component
+            return computeComponent(component).get(methodDeclaration);
+        }
+
+        countMiss();
+        inProgress.put(methodDeclaration, null);
+        try {
+            //visiting may ask for summaries of callees, so computeIfAbsent cannot be used here
+            summary = visitWithinBudget(methodDeclaration);
+        } finally {
+            inProgress.remove(methodDeclaration);
+        }
+        putSummary(methodDeclaration, summary);
+        if (inProgress.isEmpty() && !isTruncated(methodDeclaration)) {
+            //otherwise the summary may be built from approximations of methods in progress, so it is not final
+            summaryStore.store(methodDeclaration, summary);
+        }
+
+        return summary;
+    }
+
+    /**
+     * Computes summaries of a strongly connected component of the call graph.
+     * <p>
+     * Methods of the component are visited in rounds, calls between them using the summaries of previous round,
+     * until no summary changes. If summaries still change after maxFixpointIterations rounds, they are not final,
+     * so the methods are given conservative summaries and are recorded as truncated.
+     * Summaries of all methods called from the component, but not belonging to it, are expected to be computed.
+     *
+     * @param component mutually recursive methods
+     */
+    public void computeFixpoint(List<MethodDeclaration> component) {
+        rememberComponent(component);
+        computeComponent(component);
+    }
+
+    private Map<MethodDeclaration, State> computeComponent(List<MethodDeclaration> component) {
+        Map<MethodDeclaration, State> storedSummaries = loadComponent(component);
+        if (storedSummaries != null) {
+            return storedSummaries;
+        }
+
+        Map<MethodDeclaration, State> inProgress = methodsInProgress.get();
+        component.forEach(methodDeclaration -> inProgress.put(methodDeclaration, null));
+
+        Map<MethodDeclaration, State> fixpoint = new HashMap<>();
+        boolean changed = true;
+        try {
+            for (int iteration = 0; changed && iteration < maxFixpointIterations; iteration++) {
+                changed = false;
+                for (MethodDeclaration methodDeclaration : component) {
+                    countMiss();
+                    State summary = visitWithinBudget(methodDeclaration);
+                    State previousSummary = inProgress.put(methodDeclaration, summary);
+                    changed |= !summary.equals(previousSummary);
+                }
+            }
+        } finally {
+            component.forEach(methodDeclaration -> fixpoint.put(methodDeclaration, inProgress.remove(methodDeclaration)));
+        }
+
+        if (changed) {
+            //the last round still changed summaries, so they may lack edges of further rounds
+            for (MethodDeclaration methodDeclaration : component) {
+                markTruncated(methodDeclaration);
+                fixpoint.put(methodDeclaration, getConservativeSummary(methodDeclaration));
+            }
+        }
+
+        boolean truncated = component.stream().anyMatch(this::isTruncated);
+        for (MethodDeclaration methodDeclaration : component) {
+            putSummary(methodDeclaration, fixpoint.get(methodDeclaration));
+            if (!truncated) {
+                summaryStore.store(methodDeclaration, fixpoint.get(methodDeclaration));
+            }
+        }
+        return fixpoint;
+    }
+
+    /**
+     * Loads summaries of all methods of a component from the store.
+     *
+     * @return summaries, or null if some of them are not stored
+     */
+    private Map<MethodDeclaration, State> loadComponent(List<MethodDeclaration> component) {
+        Map<MethodDeclaration, State> storedSummaries = new HashMap<>();
+        for (MethodDeclaration methodDeclaration : component) {
+            State summary = summaryStore.load(methodDeclaration);
+            if (summary == null) {
+                return null;
+            }
+            storedSummaries.put(methodDeclaration, summary);
+        }
+        storedSummaries.forEach(this::putStoredSummary);
+        return storedSummaries;
+    }
+
+    private synchronized void rememberComponent(List<MethodDeclaration> component) {
+        component.forEach(methodDeclaration -> components.put(methodDeclaration, component));
+    }
+
+    private synchronized List<MethodDeclaration> findComponent(MethodDeclaration methodDeclaration) {
+        return components.get(methodDeclaration);
+    }
+
+    private State getApproximation(MethodDeclaration methodDeclaration, Map<MethodDeclaration, State> inProgress) {
+        State approximation = inProgress.get(methodDeclaration);
+        if (approximation == null) {
+            //nothing is known about the method yet, start with its formal parameters only
+            approximation = visitFormalParameters(methodDeclaration);
+            inProgress.put(methodDeclaration, approximation);
+        }
+        return approximation;
+    }
+
+    private State visitFormalParameters(MethodDeclaration methodDeclaration) {
+        return visitorService.visitMethod(new MethodDeclaration(
+                methodDeclaration.getMethodName(),
+                methodDeclaration.getVariables(),
+                null,
+                methodDeclaration.getOffset(),
+                methodDeclaration.getDeclaringClass()
+        ));
+    }
+
+    private State visitWithinBudget(MethodDeclaration methodDeclaration) {
+        try {
+            return analysisBudget.meter(() -> visitorService.visitMethod(methodDeclaration));
+        } catch (BudgetExceededException e) {
+            markTruncated(methodDeclaration);
+            return getConservativeSummary(methodDeclaration);
+        }
+    }
+
+    /**
+     * Conservative summary of a method which was not visited completely: as its body is unknown, it may lock
+     * every object passed to it, in any order.
+     */
+    private State getConservativeSummary(MethodDeclaration methodDeclaration) {
+        State formalsOnly = visitFormalParameters(methodDeclaration);
+        List<HeapObject> formalParameters = formalsOnly.getEnvironment().stream()
+                .map(EnvEntry::getHeapObject)
+                .limit(methodDeclaration.getVariables().size())
+                .collect(Collectors.toList());
+
+        Graph graph = formalsOnly.getGraph();
+        for (HeapObject from : formalParameters) {
+            graph = graph.withNode(from);
+            for (HeapObject to : formalParameters) {
+                if (from != to) {
+                    graph = graph.withEdge(from, to);
+                }
+            }
+        }
+        return new State(graph, PersistentHashSet.copyOf(formalParameters), formalsOnly.getLocks(),
+                formalsOnly.getEnvironment(), formalsOnly.getWaits());
+    }
+
+    private synchronized void markTruncated(MethodDeclaration methodDeclaration) {
+        truncatedSummaries.put(methodDeclaration, analysisBudget.getGeneration());
+        analysisBudget.truncated(methodDeclaration);
+    }
+
+    private synchronized boolean isTruncated(MethodDeclaration methodDeclaration) {
+        return truncatedSummaries.containsKey(methodDeclaration);
+    }
+
+    private synchronized State findSummary(MethodDeclaration methodDeclaration) {
+        Long truncatedGeneration = truncatedSummaries.get(methodDeclaration);
+        if (truncatedGeneration != null && truncatedGeneration != analysisBudget.getGeneration()) {
+            //truncated by previous analysis, which may have had lower budget
+            truncatedSummaries.remove(methodDeclaration);
+            summaries.remove(methodDeclaration);
+        }
+
+        State summary = summaries.get(methodDeclaration);
+        if (summary != null) {
+            hits++;
+        }
+        return summary;
+    }
+
+    private synchronized void countMiss() {
+        misses++;
+    }
+
+    private synchronized void putSummary(MethodDeclaration methodDeclaration, State summary) {
+        summaries.put(methodDeclaration, summary);
+        evictIfNeeded();
+    }
+
+    private synchronized void putStoredSummary(MethodDeclaration methodDeclaration, State summary) {
+        hits++;
+        putSummary(methodDeclaration, summary);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<MethodDeclaration> leastRecentlyUsed = summaries.keySet().iterator();
+        while (summaries.size() > maxSummaries) {
+            truncatedSummaries.remove(leastRecentlyUsed.next());
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Evicts summaries of method declarations, e.g. because methods they were built from have changed.
+     *
+     * @param methodDeclarations method declarations
+     */
+    public synchronized void evict(Collection<MethodDeclaration> methodDeclarations) {
+        for (MethodDeclaration methodDeclaration : methodDeclarations) {
+            truncatedSummaries.remove(methodDeclaration);
+            components.remove(methodDeclaration);
+            if (summaries.remove(methodDeclaration) != null) {
+                evictions++;
+            }
+        }
+    }
+
+    public synchronized void setMaxSummaries(int maxSummaries) {
+        if (maxSummaries <= 0) {
+            throw new AlgorithmValidationException("maxSummaries should be positive, but it is " + maxSummaries);
+        }
+        this.maxSummaries = maxSummaries;
+        evictIfNeeded();
+    }
+
+    public synchronized int size() {
+        return summaries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized void clear() {
+        summaries.clear();
+        truncatedSummaries.clear();
+        components.clear();
+        methodsInProgress.remove();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+}
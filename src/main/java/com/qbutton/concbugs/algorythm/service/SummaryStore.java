@@ -0,0 +1,372 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk store of method summaries, which keeps them between IDE sessions.
+ * <p>
+ * Summaries are keyed by content hash of method declarations (see {@link DeclarationHasher}), so a summary is found
+ * only if neither the method nor anything it calls has changed, and stale summaries never need to be invalidated.
+ * Class hierarchy, which is consulted when heap objects are merged, is not a part of the key, so the store should be
+ * {@link #drop() dropped} whenever hierarchy may have changed.
+ * <p>
+ * The file is a header followed by records of key, length, checksum and {@link StateCodec encoded} state.
+ * It is memory-mapped and indexed on first lookup, states are decoded only when asked for. New summaries are kept
+ * in memory and appended by {@link #flush()}. Until the store is opened, it finds and keeps nothing.
+ * <p>
+ * Records are never updated, so the file only grows. When it would grow beyond maxFileSize, it is compacted instead:
+ * rewritten with only summaries loaded or stored since the store was opened.
+ * <p>
+ * The store is a cache, so I/O failures and malformed files are logged and the store is closed, but analysis goes on.
+ */
+public class SummaryStore {
+
+    private static final Logger LOGGER = Logger.getLogger(SummaryStore.class.getName());
+
+    private static final int MAGIC = 0x43425353;
+    /**
+     * Should be changed whenever the file format, the way declarations are hashed or the algorithm change.
+     */
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = Long.BYTES + 2 * Integer.BYTES;
+    private static final int DEFAULT_MAX_FILE_SIZE = 64 * 1024 * 1024;
+
+    private final DeclarationHasher declarationHasher = new DeclarationHasher();
+
+    /**
+     * Store file, null if the store is not open. This and all fields below are guarded by this.
+     */
+    private Path file;
+    /**
+     * Mapped file, null until first lookup after opening or flushing.
+     */
+    private ByteBuffer mappedFile;
+    /**
+     * End of the last valid record, new records are written from here.
+     */
+    private int fileEnd;
+    /**
+     * Positions of records in the file, by key.
+     */
+    private final Map<Long, Integer> positions = new HashMap<>();
+    /**
+     * Summaries not written to the file yet, by key.
+     */
+    private final Map<Long, byte[]> pendingStates = new LinkedHashMap<>();
+    /**
+     * Keys of summaries loaded or stored since opening, which survive compaction.
+     */
+    private final Set<Long> usedKeys = new LinkedHashSet<>();
+    private int maxFileSize = DEFAULT_MAX_FILE_SIZE;
+
+    /**
+     * Opens a store file, closing previously opened one. The file is created on first flush if it does not exist.
+     *
+     * @param file store file
+     */
+    public synchronized void open(Path file) {
+        close();
+        this.file = file;
+    }
+
+    /**
+     * Finds summary of a method declaration.
+     *
+     * @param methodDeclaration method declaration
+     * @return summary, or null if it is not stored or the store is not open
+     */
+    public synchronized State load(MethodDeclaration methodDeclaration) {
+        if (file == null || mappedFile == null && !indexFile()) {
+            return null;
+        }
+
+        long key = declarationHasher.hash(methodDeclaration);
+        Integer position = positions.get(key);
+        if (position == null) {
+            return null;
+        }
+
+        ByteBuffer state = readState(position);
+        int checksum = mappedFile.getInt(position + Long.BYTES + Integer.BYTES);
+        try {
+            if (checksum(state.slice()) != checksum) {
+                throw new AlgorithmValidationException("checksum mismatch at " + position);
+            }
+            State summary = StateCodec.decode(state);
+            usedKeys.add(key);
+            return summary;
+        } catch (AlgorithmValidationException e) {
+            fail("malformed summary in " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Keeps summary of a method declaration, which is written to the file on next flush.
+     *
+     * @param methodDeclaration method declaration
+     * @param summary           summary
+     */
+    public synchronized void store(MethodDeclaration methodDeclaration, State summary) {
+        if (file == null) {
+            return;
+        }
+
+        long key = declarationHasher.hash(methodDeclaration);
+        usedKeys.add(key);
+        if (!positions.containsKey(key) && !pendingStates.containsKey(key)) {
+            pendingStates.put(key, StateCodec.encode(summary));
+        }
+    }
+
+    /**
+     * Appends summaries kept since previous flush to the file, or compacts the file if it would grow too big.
+     */
+    public synchronized void flush() {
+        if (file == null || pendingStates.isEmpty() || mappedFile == null && !indexFile()) {
+            return;
+        }
+
+        long pendingSize = pendingStates.values().stream()
+                .mapToLong(state -> RECORD_HEADER_SIZE + state.length)
+                .sum();
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (Math.max(fileEnd, HEADER_SIZE) + pendingSize > maxFileSize) {
+                compact();
+            } else {
+                append();
+            }
+        } catch (IOException e) {
+            fail("can't write summaries to " + file, e);
+            return;
+        }
+
+        pendingStates.clear();
+    }
+
+    /**
+     * Drops all summaries, e.g. because class hierarchy they were computed with may have changed.
+     * The store stays open.
+     */
+    public synchronized void drop() {
+        if (file == null) {
+            return;
+        }
+
+        mappedFile = null;
+        fileEnd = 0;
+        positions.clear();
+        pendingStates.clear();
+        usedKeys.clear();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            fail("can't drop summaries in " + file, e);
+        }
+    }
+
+    /**
+     * Flushes and closes the store.
+     */
+    public synchronized void close() {
+        flush();
+        file = null;
+        mappedFile = null;
+        fileEnd = 0;
+        positions.clear();
+        pendingStates.clear();
+        usedKeys.clear();
+    }
+
+    public synchronized void setMaxFileSize(int maxFileSize) {
+        if (maxFileSize < HEADER_SIZE) {
+            throw new AlgorithmValidationException("maxFileSize should be at least " + HEADER_SIZE
+                    + ", but it is " + maxFileSize);
+        }
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * Appends pending summaries to the file and maps it again. Records already in the file keep their positions,
+     * so they are not indexed again.
+     */
+    private void append() throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (fileEnd == 0) {
+                fileEnd = writeHeader(channel);
+            }
+            for (Map.Entry<Long, byte[]> pendingState : pendingStates.entrySet()) {
+                positions.put(pendingState.getKey(), fileEnd);
+                fileEnd = writeRecord(channel, pendingState.getKey(), ByteBuffer.wrap(pendingState.getValue()), fileEnd);
+            }
+            mappedFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileEnd);
+        }
+    }
+
+    /**
+     * Rewrites the file with pending summaries and summaries used since opening, as many as fit into maxFileSize.
+     * The new file is written aside and then moved over the old one, so a crash leaves one of them intact.
+     */
+    private void compact() throws IOException {
+        Map<Long, ByteBuffer> liveStates = new LinkedHashMap<>();
+        pendingStates.forEach((key, state) -> liveStates.put(key, ByteBuffer.wrap(state)));
+        for (Long key : usedKeys) {
+            Integer position = positions.get(key);
+            if (position != null && !liveStates.containsKey(key)) {
+                ByteBuffer state = readState(position);
+                if (checksum(state.duplicate()) == mappedFile.getInt(position + Long.BYTES + Integer.BYTES)) {
+                    liveStates.put(key, state);
+                }
+            }
+        }
+
+        Path compactedFile = file.resolveSibling(file.getFileName() + ".compacted");
+        Map<Long, Integer> compactedPositions = new HashMap<>();
+        int compactedEnd;
+        try (FileChannel channel = FileChannel.open(compactedFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            compactedEnd = writeHeader(channel);
+            for (Map.Entry<Long, ByteBuffer> liveState : liveStates.entrySet()) {
+                if ((long) compactedEnd + RECORD_HEADER_SIZE + liveState.getValue().remaining() > maxFileSize) {
+                    continue;
+                }
+                compactedPositions.put(liveState.getKey(), compactedEnd);
+                compactedEnd = writeRecord(channel, liveState.getKey(), liveState.getValue(), compactedEnd);
+            }
+        }
+        mappedFile = null;
+        Files.move(compactedFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        LOGGER.info("summaries in " + file + " are compacted from " + positions.size() + " to "
+                + compactedPositions.size());
+        positions.clear();
+        positions.putAll(compactedPositions);
+        usedKeys.retainAll(compactedPositions.keySet());
+        fileEnd = compactedEnd;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mappedFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileEnd);
+        }
+    }
+
+    /**
+     * Encoded state of a record in the mapped file.
+     */
+    private ByteBuffer readState(int position) {
+        ByteBuffer state = mappedFile.duplicate();
+        state.position(position + RECORD_HEADER_SIZE);
+        state.limit(state.position() + mappedFile.getInt(position + Long.BYTES));
+        return state.slice();
+    }
+
+    /**
+     * Maps the file and indexes its records. Records after a malformed one, e.g. after a crash during flush,
+     * are dropped and overwritten on next flush. A file of other version is dropped completely.
+     *
+     * @return true if the file is indexed, false if the store had to be closed
+     */
+    private boolean indexFile() {
+        positions.clear();
+        mappedFile = ByteBuffer.allocate(0);
+        fileEnd = 0;
+        if (!Files.exists(file)) {
+            return true;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            if (!hasValidHeader(channel) || channel.size() > Integer.MAX_VALUE) {
+                LOGGER.info("summaries in " + file + " are of other version or too big, they are dropped");
+                channel.truncate(0);
+                return true;
+            }
+
+            mappedFile = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int position = HEADER_SIZE;
+            while (position + RECORD_HEADER_SIZE <= mappedFile.limit()) {
+                int length = mappedFile.getInt(position + Long.BYTES);
+                if (length < 0 || length > mappedFile.limit() - position - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                positions.put(mappedFile.getLong(position), position);
+                position += RECORD_HEADER_SIZE + length;
+            }
+            fileEnd = position;
+            if (position < mappedFile.limit()) {
+                LOGGER.warning("summaries in " + file + " are malformed after " + position + ", they are dropped");
+            }
+            return true;
+        } catch (IOException e) {
+            fail("can't read summaries from " + file, e);
+            return false;
+        }
+    }
+
+    private static boolean hasValidHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            //reading until header is full or file is over
+        }
+        return !header.hasRemaining() && header.getInt(0) == MAGIC && header.getInt(Integer.BYTES) == VERSION;
+    }
+
+    private static int writeHeader(FileChannel channel) throws IOException {
+        return write(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION), 0);
+    }
+
+    private static int writeRecord(FileChannel channel, long key, ByteBuffer state, int position) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + state.remaining())
+                .putLong(key)
+                .putInt(state.remaining())
+                .putInt(checksum(state.duplicate()))
+                .put(state.duplicate());
+        return write(channel, record, position);
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, int position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        return position + buffer.limit();
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    private void fail(String message, Exception e) {
+        LOGGER.warning(message + ", summaries are not stored: " + e);
+        file = null;
+        mappedFile = null;
+        fileEnd = 0;
+        positions.clear();
+        pendingStates.clear();
+        usedKeys.clear();
+    }
+}
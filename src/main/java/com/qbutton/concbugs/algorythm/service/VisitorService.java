@@ -19,7 +19,7 @@ import static java.util.Collections.emptySet;
 @Getter
 public class VisitorService {
 
-    private ProcessorFacade processorFacade;
+    private volatile ProcessorFacade processorFacade;
 
     public State visitStatement(Statement statement, State state) {
         if (statement != null) {
@@ -0,0 +1,223 @@
+package com.qbutton.concbugs.bytecode;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.jetbrains.org.objectweb.asm.ClassReader;
+import org.jetbrains.org.objectweb.asm.ClassVisitor;
+import org.jetbrains.org.objectweb.asm.MethodVisitor;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Classes read from .class files, directories and jars.
+ * <p>
+ * Classes are read with a streaming class reader which skips code: only hierarchy and method signatures are kept
+ * along with class bytes, so that bodies are read later and only for methods which are analyzed.
+ */
+public final class BytecodeLibrary {
+
+    static final int ASM_API = Opcodes.ASM6;
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Map<String, ClassInfo> classes = new LinkedHashMap<>();
+    private final Map<String, List<String>> directSubclasses = new HashMap<>();
+
+    /**
+     * Reads all classes from given paths.
+     *
+     * @param paths .class files, jars or directories with .class files
+     * @return library
+     * @throws IOException if a path can't be read
+     */
+    public static BytecodeLibrary read(Collection<Path> paths) throws IOException {
+        BytecodeLibrary library = new BytecodeLibrary();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                library.readDirectory(path);
+            } else if (path.toString().endsWith(CLASS_SUFFIX)) {
+                library.add(Files.readAllBytes(path));
+            } else {
+                try (InputStream inputStream = Files.newInputStream(path)) {
+                    library.readJar(inputStream);
+                }
+            }
+        }
+        return library;
+    }
+
+    /**
+     * Adds a class.
+     *
+     * @param bytes class file contents
+     */
+    public void add(byte[] bytes) {
+        ClassReader classReader = new ClassReader(bytes);
+        ClassInfo classInfo = new ClassInfo(
+                classReader.getClassName(),
+                classReader.getSuperName(),
+                Arrays.asList(classReader.getInterfaces()),
+                classReader.getAccess(),
+                bytes);
+
+        classReader.accept(new ClassVisitor(ASM_API) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                             String[] exceptions) {
+                classInfo.methods.put(MethodKey.of(name, descriptor), access);
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        classes.put(classInfo.getName(), classInfo);
+        if (classInfo.getSuperName() != null) {
+            directSubclasses.computeIfAbsent(classInfo.getSuperName(), name -> new ArrayList<>()).add(classInfo.getName());
+        }
+        classInfo.getInterfaces().forEach(anInterface ->
+                directSubclasses.computeIfAbsent(anInterface, name -> new ArrayList<>()).add(classInfo.getName()));
+    }
+
+    public Collection<ClassInfo> getClasses() {
+        return Collections.unmodifiableCollection(classes.values());
+    }
+
+    /**
+     * @param internalName internal name of class, e.g. java/lang/Object
+     * @return class, or null if it is not in the library
+     */
+    public ClassInfo get(String internalName) {
+        return classes.get(internalName);
+    }
+
+    /**
+     * Finds the class which declares a method, looking through superclasses of the owner.
+     *
+     * @param owner      internal name of class a method is called on
+     * @param methodKey  method
+     * @return declaring class, or null if there is no such class in the library
+     */
+    ClassInfo findDeclaringClass(String owner, MethodKey methodKey) {
+        ClassInfo classInfo = classes.get(owner);
+        while (classInfo != null && !classInfo.getMethods().containsKey(methodKey)) {
+            classInfo = classInfo.getSuperName() == null ? null : classes.get(classInfo.getSuperName());
+        }
+        return classInfo;
+    }
+
+    /**
+     * @param internalName internal name of class
+     * @return all classes of the library extending or implementing given one, directly or not
+     */
+    List<ClassInfo> getSubclasses(String internalName) {
+        List<ClassInfo> subclasses = new ArrayList<>();
+        List<String> queue = new ArrayList<>(directSubclasses.getOrDefault(internalName, Collections.emptyList()));
+        for (int i = 0; i < queue.size(); i++) {
+            ClassInfo subclass = classes.get(queue.get(i));
+            if (subclass != null && !subclasses.contains(subclass)) {
+                subclasses.add(subclass);
+                queue.addAll(directSubclasses.getOrDefault(subclass.getName(), Collections.emptyList()));
+            }
+        }
+        return subclasses;
+    }
+
+    private void readDirectory(Path directory) throws IOException {
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.walk(directory)) {
+            classFiles = files
+                    .filter(file -> file.toString().endsWith(CLASS_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path classFile : classFiles) {
+            add(Files.readAllBytes(classFile));
+        }
+    }
+
+    private void readJar(InputStream inputStream) throws IOException {
+        ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+        for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+            if (!entry.isDirectory() && entry.getName().endsWith(CLASS_SUFFIX)) {
+                add(readEntry(zipInputStream));
+            }
+        }
+    }
+
+    private static byte[] readEntry(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer)) {
+            result.write(buffer, 0, read);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Class header: hierarchy and method signatures with access flags.
+     */
+    @SuppressFBWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    public static final class ClassInfo {
+        private final String name;
+        private final String superName;
+        private final List<String> interfaces;
+        private final int access;
+        private final Map<MethodKey, Integer> methods = new LinkedHashMap<>();
+        private final byte[] bytes;
+
+        private ClassInfo(String name, String superName, List<String> interfaces, int access, byte[] bytes) {
+            this.name = name;
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.access = access;
+            this.bytes = bytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSuperName() {
+            return superName;
+        }
+
+        public List<String> getInterfaces() {
+            return interfaces;
+        }
+
+        public int getAccess() {
+            return access;
+        }
+
+        /**
+         * @return access flags of declared methods
+         */
+        public Map<MethodKey, Integer> getMethods() {
+            return Collections.unmodifiableMap(methods);
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.qbutton.concbugs.bytecode;
+
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.bytecode.BytecodeLibrary.ClassInfo;
+import com.qbutton.concbugs.inspection.deadlock.mapping.StatementShrinker;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+import org.jetbrains.org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bytecode front-end - produces the same method statements as {@code PsiToAlgorythmFacade} does for sources,
+ * but from compiled classes, so that libraries can be analyzed without their sources.
+ */
+@RequiredArgsConstructor
+public class BytecodeParser {
+
+    private static final int NOT_ANALYZED = Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE;
+
+    private final StatementShrinker statementShrinker;
+
+    /**
+     * Parses public methods of public classes of a library, which are analyzed as top-level methods.
+     *
+     * @param library library
+     * @return method statements, one per method
+     */
+    public List<MethodStatement> parseLibrary(BytecodeLibrary library) {
+        CallResolver callResolver = new CallResolver(library, statementShrinker);
+        List<MethodStatement> methodStatements = new ArrayList<>();
+
+        for (ClassInfo classInfo : library.getClasses()) {
+            if ((classInfo.getAccess() & Opcodes.ACC_PUBLIC) == 0) {
+                continue;
+            }
+            for (Map.Entry<MethodKey, Integer> method : classInfo.getMethods().entrySet()) {
+                if (isLibraryMethod(method.getKey(), method.getValue())) {
+                    MethodStatement methodStatement = parseMethod(callResolver, classInfo, method.getKey(), method.getValue());
+                    if (methodStatement != null) {
+                        methodStatements.add(methodStatement);
+                    }
+                }
+            }
+        }
+
+        return methodStatements;
+    }
+
+    private MethodStatement parseMethod(CallResolver callResolver, ClassInfo classInfo, MethodKey key, int access) {
+        int opcode = (access & Opcodes.ACC_STATIC) == 0 ? Opcodes.INVOKEVIRTUAL : Opcodes.INVOKESTATIC;
+        List<MethodDeclaration> methodDeclarations = callResolver.resolve(opcode, classInfo.getName(), key);
+        if (methodDeclarations == null || methodDeclarations.isEmpty()) {
+            return null;
+        }
+
+        String returnType = MethodTranslator.toClassName(Type.getReturnType(key.getDescriptor()));
+        return new MethodStatement(
+                methodDeclarations.get(0).getOffset(), null, methodDeclarations, returnType, Collections.emptyList());
+    }
+
+    private static boolean isLibraryMethod(MethodKey key, int access) {
+        return (access & Opcodes.ACC_PUBLIC) != 0
+                && (access & NOT_ANALYZED) == 0
+                && CallResolver.hasCode(access)
+                && !key.getName().startsWith("<");
+    }
+}
@@ -0,0 +1,145 @@
+package com.qbutton.concbugs.bytecode;
+
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.bytecode.BytecodeLibrary.ClassInfo;
+import com.qbutton.concbugs.inspection.deadlock.mapping.StatementShrinker;
+import lombok.Data;
+import org.jetbrains.org.objectweb.asm.ClassReader;
+import org.jetbrains.org.objectweb.asm.ClassVisitor;
+import org.jetbrains.org.objectweb.asm.MethodVisitor;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves calls to method declarations of a library, translating method bodies on first use.
+ * <p>
+ * Virtual calls are resolved to the called method and all its overriders, like {@code OverridingMethodsSearch}
+ * does for sources. Methods without code (abstract and native ones) and methods of classes outside the library
+ * are skipped, the same way library methods are skipped by {@code StatementParser}.
+ */
+final class CallResolver {
+
+    private final BytecodeLibrary library;
+    private final StatementShrinker statementShrinker;
+
+    private final Map<MethodRef, MethodDeclaration> declarations = new HashMap<>();
+    /**
+     * Methods whose bodies are being translated, mapped to declaration lists of recursive calls to them.
+     */
+    private final Map<MethodRef, List<List<MethodDeclaration>>> methodsInProgress = new HashMap<>();
+
+    CallResolver(BytecodeLibrary library, StatementShrinker statementShrinker) {
+        this.library = library;
+        this.statementShrinker = statementShrinker;
+    }
+
+    /**
+     * Resolves a call.
+     *
+     * @param opcode invoke opcode
+     * @param owner  internal name of class a method is called on
+     * @param key    called method
+     * @return declarations of methods which may be called, or null if no method of the library may be called
+     */
+    List<MethodDeclaration> resolve(int opcode, String owner, MethodKey key) {
+        ClassInfo declaringClass = library.findDeclaringClass(owner, key);
+        if (declaringClass == null) {
+            return null;
+        }
+
+        List<ClassInfo> targets = new ArrayList<>();
+        targets.add(declaringClass);
+        int access = declaringClass.getMethods().get(key);
+        if ((opcode == Opcodes.INVOKEVIRTUAL || opcode == Opcodes.INVOKEINTERFACE) && isOverridable(access)) {
+            library.getSubclasses(owner).stream()
+                    .filter(subclass -> subclass.getMethods().containsKey(key))
+                    .forEach(targets::add);
+        }
+
+        List<MethodDeclaration> methodDeclarations = new ArrayList<>();
+        boolean callable = false;
+        for (ClassInfo target : targets) {
+            callable |= addMethodDeclarationIfNeeded(new MethodRef(target.getName(), key), methodDeclarations);
+        }
+        return callable ? methodDeclarations : null;
+    }
+
+    /**
+     * @return false if method has no code, so that it is skipped
+     */
+    private boolean addMethodDeclarationIfNeeded(MethodRef method, List<MethodDeclaration> methodDeclarations) {
+        ClassInfo classInfo = library.get(method.getClassName());
+        if (!hasCode(classInfo.getMethods().get(method.getKey()))) {
+            return false;
+        }
+
+        MethodDeclaration parsed = declarations.get(method);
+        if (parsed != null) {
+            methodDeclarations.add(parsed);
+            return true;
+        }
+
+        List<List<MethodDeclaration>> recursiveCalls = methodsInProgress.get(method);
+        if (recursiveCalls != null) {
+            //recursive call, the declaration is added when translation of method body is finished
+            recursiveCalls.add(methodDeclarations);
+            return true;
+        }
+
+        List<List<MethodDeclaration>> pendingCalls = new ArrayList<>();
+        methodsInProgress.put(method, pendingCalls);
+        MethodDeclaration methodDeclaration;
+        try {
+            methodDeclaration = translate(classInfo, method.getKey());
+        } finally {
+            methodsInProgress.remove(method);
+        }
+
+        declarations.put(method, methodDeclaration);
+        methodDeclarations.add(methodDeclaration);
+        for (List<MethodDeclaration> declarations : pendingCalls) {
+            declarations.add(methodDeclaration);
+        }
+        return true;
+    }
+
+    private MethodDeclaration translate(ClassInfo classInfo, MethodKey key) {
+        MethodTranslator[] translator = new MethodTranslator[1];
+
+        new ClassReader(classInfo.getBytes()).accept(new ClassVisitor(BytecodeLibrary.ASM_API) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                             String[] exceptions) {
+                if (translator[0] != null || !key.equals(MethodKey.of(name, descriptor))) {
+                    return null;
+                }
+                translator[0] = new MethodTranslator(
+                        CallResolver.this, statementShrinker, classInfo.getName(), access, name, descriptor);
+                return translator[0];
+            }
+        }, ClassReader.EXPAND_FRAMES);
+
+        return translator[0].getMethodDeclaration();
+    }
+
+    private static boolean isOverridable(int access) {
+        return (access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL)) == 0;
+    }
+
+    static boolean hasCode(int access) {
+        return (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) == 0;
+    }
+
+    /**
+     * Method declared in a class of the library.
+     */
+    @Data
+    private static final class MethodRef {
+        private final String className;
+        private final MethodKey key;
+    }
+}
@@ -0,0 +1,16 @@
+package com.qbutton.concbugs.bytecode;
+
+import lombok.Data;
+
+/**
+ * Method key - name and descriptor, which identify a method within a class, e.g. foo and (Ljava/lang/Object;)V.
+ */
+@Data
+public final class MethodKey {
+    private final String name;
+    private final String descriptor;
+
+    public static MethodKey of(String name, String descriptor) {
+        return new MethodKey(name, descriptor);
+    }
+}
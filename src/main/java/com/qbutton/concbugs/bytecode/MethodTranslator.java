@@ -0,0 +1,900 @@
+package com.qbutton.concbugs.bytecode;
+
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration.Variable;
+import com.qbutton.concbugs.algorythm.dto.statement.CrossAssignmentStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.DeclarationStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.InnerAssignmentStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import com.qbutton.concbugs.inspection.deadlock.mapping.StatementShrinker;
+import org.jetbrains.org.objectweb.asm.Handle;
+import org.jetbrains.org.objectweb.asm.Label;
+import org.jetbrains.org.objectweb.asm.MethodVisitor;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+import org.jetbrains.org.objectweb.asm.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates bytecode of a method to statements by abstract interpretation of its operand stack.
+ * <p>
+ * Stack values are tracked only as far as statements need them: a value is either a fresh object, an object loaded
+ * from a field or an array, or a class literal. A value gets a variable name when it is stored to a local
+ * (v1, v2... by slot number, 'this' for slot 0 of instance methods), or when it is used as a lock, a wait target
+ * or a call argument before that (temporary $1, $2...). Program points are given by line numbers.
+ * <p>
+ * {@code monitorenter} opens a synchronized block. Compilers repeat {@code monitorexit} before every return, break
+ * or continue leaving the block, and in its catch-any handler; the block is closed only by the exit after which
+ * control falls through to the code following the block, which is where the range covered by its catch-any handler
+ * ends. Other exits only end their own paths. Control flow is followed linearly, so branches are translated
+ * one after another as sequential statements.
+ */
+final class MethodTranslator extends MethodVisitor {
+
+    private static final String OBJECT_CLASS = "java.lang.Object";
+    private static final String CLASS_CLASS = "java.lang.Class";
+    private static final String THROWABLE_CLASS = "java.lang.Throwable";
+    private static final String[] ARITHMETIC_TYPES = {"int", "long", "float", "double"};
+
+    private final CallResolver callResolver;
+    private final StatementShrinker statementShrinker;
+    private final String className;
+    private final int access;
+    private final String methodName;
+    private final List<Variable> variables = new ArrayList<>();
+
+    private final List<Value> stack = new ArrayList<>();
+    private final Map<Integer, Value> locals = new HashMap<>();
+    /**
+     * Names of values which are known in environment.
+     */
+    private final Map<Value, String> names = new HashMap<>();
+    private final Deque<Block> blocks = new ArrayDeque<>();
+    private final Set<Label> anyHandlers = new HashSet<>();
+    /**
+     * Catch-any handlers by start of range they cover.
+     */
+    private final Map<Label, Label> anyRangeHandlers = new HashMap<>();
+    /**
+     * Ends of the last ranges covered by catch-any handlers, by handler. A handler also covers its own code,
+     * such ranges are not counted.
+     */
+    private final Map<Label, Label> anyRangeEnds = new HashMap<>();
+
+    private int line;
+    private int firstLine = -1;
+    private int temps;
+    /**
+     * Catch-any handler which is being translated, or 0 if it is not a handler.
+     */
+    private int handler;
+    private int handlers;
+    /**
+     * Exception caught by the latest catch-any handler, it is rethrown and is of no interest.
+     */
+    private Value caught;
+    /**
+     * Frame of a catch-any handler is not visited yet, the handler's stack is already known.
+     */
+    private boolean handlerFrame;
+    /**
+     * Block opened by the previous instruction, its catch-any handler range starts at the next label.
+     */
+    private Block openedBlock;
+    /**
+     * Block exited by the previous instruction. It is closed if the exit falls through to the end of the block.
+     */
+    private Block exitedBlock;
+    private MethodDeclaration methodDeclaration;
+
+    MethodTranslator(CallResolver callResolver,
+                     StatementShrinker statementShrinker,
+                     String owner,
+                     int access,
+                     String methodName,
+                     String descriptor) {
+        super(BytecodeLibrary.ASM_API);
+        this.callResolver = callResolver;
+        this.statementShrinker = statementShrinker;
+        this.className = toClassName(Type.getObjectType(owner));
+        this.access = access;
+        this.methodName = methodName;
+
+        blocks.push(new Block(null, null, null, 0, 0));
+
+        int slot = 0;
+        if (!isStatic()) {
+            declareParameter(slot++, "this", className);
+        }
+        for (Type argumentType : Type.getArgumentTypes(descriptor)) {
+            declareParameter(slot, "v" + slot, toClassName(argumentType));
+            slot += argumentType.getSize();
+        }
+    }
+
+    /**
+     * @return translated method, available after the whole method is visited
+     */
+    MethodDeclaration getMethodDeclaration() {
+        return methodDeclaration;
+    }
+
+    @Override
+    public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+        if (type == null) {
+            anyHandlers.add(handler);
+            //nested ranges starting at the same label come first, so the outermost one is kept
+            anyRangeHandlers.put(start, handler);
+            if (start != handler) {
+                anyRangeEnds.put(handler, end);
+            }
+        }
+    }
+
+    @Override
+    public void visitLabel(Label label) {
+        if (openedBlock != null) {
+            Label blockHandler = anyRangeHandlers.get(label);
+            if (blockHandler != null) {
+                openedBlock.setEnd(anyRangeEnds.get(blockHandler));
+            }
+            openedBlock = null;
+        }
+        if (exitedBlock != null && label == exitedBlock.getEnd()) {
+            exitedBlock = null;
+            closeBlock();
+        }
+        handlerFrame = anyHandlers.contains(label);
+        if (handlerFrame) {
+            handler = ++handlers;
+            caught = Value.loaded(THROWABLE_CLASS);
+            stack.clear();
+            push(caught);
+        }
+    }
+
+    @Override
+    public void visitLineNumber(int line, Label start) {
+        this.line = line;
+        if (firstLine < 0) {
+            firstLine = line;
+        }
+    }
+
+    @Override
+    public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stackTypes) {
+        if (handlerFrame) {
+            handlerFrame = false;
+            return;
+        }
+        stack.clear();
+        for (int i = 0; i < numStack; i++) {
+            push(frameValue(stackTypes[i]));
+        }
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+        settleExit(opcode);
+        if (opcode >= Opcodes.IADD && opcode <= Opcodes.DREM) {
+            pop();
+            pop();
+            push(Value.fresh(ARITHMETIC_TYPES[(opcode - Opcodes.IADD) % 4]));
+        } else if (opcode >= Opcodes.INEG && opcode <= Opcodes.DNEG) {
+            pop();
+            push(Value.fresh(ARITHMETIC_TYPES[(opcode - Opcodes.INEG) % 4]));
+        } else if (opcode >= Opcodes.ISHL && opcode <= Opcodes.LXOR) {
+            pop();
+            pop();
+            push(Value.fresh(ARITHMETIC_TYPES[(opcode - Opcodes.ISHL) % 2]));
+        } else if (opcode >= Opcodes.I2L && opcode <= Opcodes.I2S) {
+            pop();
+            push(Value.fresh(conversionType(opcode)));
+        } else if (opcode >= Opcodes.LCMP && opcode <= Opcodes.DCMPG) {
+            pop();
+            pop();
+            push(Value.fresh("int"));
+        } else if (opcode >= Opcodes.IALOAD && opcode <= Opcodes.SALOAD) {
+            pop();
+            push(Value.loaded(componentClass(opcode, pop())));
+        } else if (opcode >= Opcodes.IASTORE && opcode <= Opcodes.SASTORE) {
+            pop();
+            pop();
+            pop();
+        } else if (endsPath(opcode)) {
+            endOfFlow();
+        } else {
+            visitOtherInsn(opcode);
+        }
+    }
+
+    private void visitOtherInsn(int opcode) {
+        switch (opcode) {
+            case Opcodes.ACONST_NULL:
+                push(Value.fresh(OBJECT_CLASS));
+                break;
+            case Opcodes.ICONST_M1:
+            case Opcodes.ICONST_0:
+            case Opcodes.ICONST_1:
+            case Opcodes.ICONST_2:
+            case Opcodes.ICONST_3:
+            case Opcodes.ICONST_4:
+            case Opcodes.ICONST_5:
+                push(Value.fresh("int"));
+                break;
+            case Opcodes.LCONST_0:
+            case Opcodes.LCONST_1:
+                push(Value.fresh("long"));
+                break;
+            case Opcodes.FCONST_0:
+            case Opcodes.FCONST_1:
+            case Opcodes.FCONST_2:
+                push(Value.fresh("float"));
+                break;
+            case Opcodes.DCONST_0:
+            case Opcodes.DCONST_1:
+                push(Value.fresh("double"));
+                break;
+            case Opcodes.ARRAYLENGTH:
+                pop();
+                push(Value.fresh("int"));
+                break;
+            case Opcodes.MONITORENTER:
+                monitorEnter(pop());
+                break;
+            case Opcodes.MONITOREXIT:
+                monitorExit(pop());
+                break;
+            default:
+                visitStackInsn(opcode);
+        }
+    }
+
+    /**
+     * Stack manipulations work on words, where long and double values take two words.
+     */
+    private void visitStackInsn(int opcode) {
+        Value v1;
+        Value v2;
+        switch (opcode) {
+            case Opcodes.POP:
+                pop();
+                break;
+            case Opcodes.POP2:
+                if (pop().getSize() == 1) {
+                    pop();
+                }
+                break;
+            case Opcodes.DUP:
+                v1 = pop();
+                push(v1, v1);
+                break;
+            case Opcodes.DUP_X1:
+                v1 = pop();
+                v2 = pop();
+                push(v1, v2, v1);
+                break;
+            case Opcodes.DUP_X2:
+                v1 = pop();
+                v2 = pop();
+                if (v2.getSize() == 2) {
+                    push(v1, v2, v1);
+                } else {
+                    Value v3 = pop();
+                    push(v1, v3, v2, v1);
+                }
+                break;
+            case Opcodes.DUP2:
+                v1 = pop();
+                if (v1.getSize() == 2) {
+                    push(v1, v1);
+                } else {
+                    v2 = pop();
+                    push(v2, v1, v2, v1);
+                }
+                break;
+            case Opcodes.DUP2_X1:
+                v1 = pop();
+                v2 = pop();
+                if (v1.getSize() == 2) {
+                    push(v1, v2, v1);
+                } else {
+                    Value v3 = pop();
+                    push(v2, v1, v3, v2, v1);
+                }
+                break;
+            case Opcodes.DUP2_X2:
+                dup2x2();
+                break;
+            case Opcodes.SWAP:
+                v1 = pop();
+                v2 = pop();
+                push(v1, v2);
+                break;
+            default:
+                //nop
+        }
+    }
+
+    private void dup2x2() {
+        Value v1 = pop();
+        Value v2 = pop();
+        if (v1.getSize() == 2) {
+            if (v2.getSize() == 2) {
+                push(v1, v2, v1);
+            } else {
+                Value v3 = pop();
+                push(v1, v3, v2, v1);
+            }
+        } else {
+            Value v3 = pop();
+            if (v3.getSize() == 2) {
+                push(v2, v1, v3, v2, v1);
+            } else {
+                Value v4 = pop();
+                push(v2, v1, v4, v3, v2, v1);
+            }
+        }
+    }
+
+    @Override
+    public void visitIntInsn(int opcode, int operand) {
+        settleExit(opcode);
+        if (opcode == Opcodes.NEWARRAY) {
+            pop();
+            push(Value.fresh(newArrayClass(operand)));
+        } else {
+            push(Value.fresh("int"));
+        }
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int slot) {
+        settleExit(opcode);
+        if (opcode >= Opcodes.ILOAD && opcode <= Opcodes.ALOAD) {
+            Value value = locals.get(slot);
+            push(value == null ? Value.loaded(opcode == Opcodes.ALOAD ? OBJECT_CLASS : loadedType(opcode)) : value);
+        } else if (opcode >= Opcodes.ISTORE && opcode <= Opcodes.ASTORE) {
+            store(slot, pop(), opcode == Opcodes.ASTORE);
+        }
+    }
+
+    @Override
+    public void visitTypeInsn(int opcode, String type) {
+        settleExit(opcode);
+        switch (opcode) {
+            case Opcodes.NEW:
+                push(Value.fresh(toClassName(Type.getObjectType(type))));
+                break;
+            case Opcodes.ANEWARRAY:
+                pop();
+                push(Value.fresh(toClassName(Type.getObjectType(type)) + "[]"));
+                break;
+            case Opcodes.INSTANCEOF:
+                pop();
+                push(Value.fresh("int"));
+                break;
+            default:
+                //checkcast keeps the value
+        }
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+        settleExit(opcode);
+        switch (opcode) {
+            case Opcodes.GETFIELD:
+                pop();
+                push(Value.loaded(toClassName(Type.getType(descriptor))));
+                break;
+            case Opcodes.GETSTATIC:
+                push(Value.loaded(toClassName(Type.getType(descriptor))));
+                break;
+            case Opcodes.PUTFIELD:
+                pop();
+                pop();
+                break;
+            default:
+                pop();
+        }
+    }
+
+    @Override
+    public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+        settleExit(opcode);
+        Type[] argumentTypes = Type.getArgumentTypes(descriptor);
+        Value[] arguments = new Value[argumentTypes.length];
+        for (int i = arguments.length - 1; i >= 0; i--) {
+            arguments[i] = pop();
+        }
+        Value receiver = opcode == Opcodes.INVOKESTATIC ? null : pop();
+
+        if ("<init>".equals(name)) {
+            //object created by new instruction stays on stack
+            return;
+        }
+        if (receiver != null && "wait".equals(name) && "()V".equals(descriptor)) {
+            addStatement(new WaitStatement(line, nameOf(receiver)));
+            return;
+        }
+
+        Type returnType = Type.getReturnType(descriptor);
+        List<MethodDeclaration> methodDeclarations = callResolver.resolve(opcode, owner, MethodKey.of(name, descriptor));
+        if (methodDeclarations == null) {
+            //method is not in the library
+            pushResult(Value.fresh(toClassName(returnType)), returnType);
+            return;
+        }
+
+        List<String> actualParameters = new ArrayList<>();
+        if (receiver != null) {
+            actualParameters.add(nameOf(receiver));
+        }
+        for (Value argument : arguments) {
+            actualParameters.add(nameOf(argument));
+        }
+
+        Value result = Value.fresh(toClassName(returnType));
+        String resultVarName = null;
+        if (isReference(returnType)) {
+            resultVarName = newTemp();
+            names.put(result, resultVarName);
+        }
+        addStatement(new MethodStatement(
+                line, resultVarName, methodDeclarations, toClassName(returnType), actualParameters));
+        pushResult(result, returnType);
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                       Object... bootstrapMethodArguments) {
+        settleExit(Opcodes.INVOKEDYNAMIC);
+        for (int i = Type.getArgumentTypes(descriptor).length; i > 0; i--) {
+            pop();
+        }
+        Type returnType = Type.getReturnType(descriptor);
+        pushResult(Value.fresh(toClassName(returnType)), returnType);
+    }
+
+    @Override
+    public void visitJumpInsn(int opcode, Label label) {
+        settleExit(opcode);
+        if (opcode >= Opcodes.IF_ICMPEQ && opcode <= Opcodes.IF_ACMPNE) {
+            pop();
+            pop();
+        } else if (opcode == Opcodes.GOTO) {
+            endOfFlow();
+        } else if (opcode == Opcodes.JSR) {
+            push(Value.fresh(OBJECT_CLASS));
+        } else {
+            pop();
+        }
+    }
+
+    @Override
+    public void visitLdcInsn(Object value) {
+        settleExit(Opcodes.LDC);
+        if (value instanceof Type && isReference((Type) value)) {
+            push(Value.classLiteral(toClassName((Type) value) + ".class"));
+        } else if (value instanceof Integer) {
+            push(Value.fresh("int"));
+        } else if (value instanceof Long) {
+            push(Value.fresh("long"));
+        } else if (value instanceof Float) {
+            push(Value.fresh("float"));
+        } else if (value instanceof Double) {
+            push(Value.fresh("double"));
+        } else if (value instanceof String) {
+            push(Value.fresh("java.lang.String"));
+        } else {
+            push(Value.fresh(OBJECT_CLASS));
+        }
+    }
+
+    @Override
+    public void visitTableSwitchInsn(int min, int max, Label defaultLabel, Label... labels) {
+        settleExit(Opcodes.TABLESWITCH);
+        pop();
+        endOfFlow();
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(Label defaultLabel, int[] keys, Label[] labels) {
+        settleExit(Opcodes.LOOKUPSWITCH);
+        pop();
+        endOfFlow();
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+        settleExit(Opcodes.MULTIANEWARRAY);
+        for (int i = 0; i < numDimensions; i++) {
+            pop();
+        }
+        push(Value.fresh(toClassName(Type.getType(descriptor))));
+    }
+
+    @Override
+    public void visitIincInsn(int slot, int increment) {
+        settleExit(Opcodes.IINC);
+    }
+
+    @Override
+    public void visitEnd() {
+        while (blocks.size() > 1) {
+            closeBlock();
+        }
+
+        int offset = Math.max(firstLine, 0);
+        Statement methodBody = statementShrinker.shrinkStatements(blocks.peek().getStatements());
+        if ((access & Opcodes.ACC_SYNCHRONIZED) != 0) {
+            methodBody = isStatic()
+                    ? new SynchronizedStatement(offset, className + ".class", methodBody, CLASS_CLASS)
+                    : new SynchronizedStatement(offset, "this", methodBody, className);
+        }
+
+        methodDeclaration = new MethodDeclaration(methodName, variables, methodBody, offset, className);
+    }
+
+    private void monitorEnter(Value lock) {
+        String lockClass = lock.getKind() == Kind.CLASS_LITERAL ? CLASS_CLASS : lock.getClassName();
+        String lockName = lock.getKind() == Kind.CLASS_LITERAL && !names.containsKey(lock)
+                ? lock.getClassLiteral()
+                : nameOf(lock);
+        Block block = new Block(lock, lockName, lockClass, line, handler);
+        blocks.push(block);
+        openedBlock = block;
+    }
+
+    private void monitorExit(Value lock) {
+        Block block = blocks.peek();
+        if (blocks.size() > 1
+                && block.getLock() == lock
+                && (handler == 0 || block.getHandler() == handler)) {
+            exitedBlock = block;
+        }
+    }
+
+    /**
+     * Decides on exit made by the previous instruction, before the next one is translated. If catch-any handler
+     * of the block is known, the block has been closed by the label ending the handler's range, and an exit followed
+     * by an instruction ends only its own path. Otherwise only exits followed by return or throw are known to do so.
+     */
+    private void settleExit(int opcode) {
+        openedBlock = null;
+        if (exitedBlock == null) {
+            return;
+        }
+        Block block = exitedBlock;
+        exitedBlock = null;
+        if (block.getEnd() == null && !endsPath(opcode)) {
+            closeBlock();
+        }
+    }
+
+    private void closeBlock() {
+        Block block = blocks.pop();
+        addStatement(new SynchronizedStatement(
+                block.getOffset(),
+                block.getVarName(),
+                statementShrinker.shrinkStatements(block.getStatements()),
+                block.getClassName()));
+    }
+
+    /**
+     * Stores a value to a local. Only objects need statements, primitive values are just remembered.
+     */
+    private void store(int slot, Value value, boolean isObject) {
+        String localName = slot == 0 && !isStatic() ? "this" : "v" + slot;
+        locals.put(slot, value);
+        if (localName.equals(names.get(value))) {
+            return;
+        }
+        //previous value of the local is not known by this name anymore
+        names.values().removeIf(localName::equals);
+        if (!isObject || value == caught || value.getKind() == Kind.CLASS_LITERAL && !names.containsKey(value)) {
+            //class literals are known by their names, as they are for static synchronized methods
+            return;
+        }
+
+        String name = names.get(value);
+        if (name != null) {
+            addStatement(new CrossAssignmentStatement(line, localName, name));
+        } else if (value.getKind() == Kind.FRESH) {
+            addStatement(new DeclarationStatement(line, localName, value.getClassName()));
+        } else {
+            addStatement(new InnerAssignmentStatement(line, localName, value.getClassName()));
+        }
+        names.putIfAbsent(value, localName);
+    }
+
+    /**
+     * Gives name to a value, declaring a temporary variable for it if needed.
+     */
+    private String nameOf(Value value) {
+        String name = names.get(value);
+        if (name != null) {
+            return name;
+        }
+        if (value.getKind() == Kind.CLASS_LITERAL) {
+            //a class literal, which is locked now, is known by its name
+            for (Block block : blocks) {
+                if (value.getClassLiteral().equals(block.getVarName())) {
+                    return block.getVarName();
+                }
+            }
+        }
+
+        name = newTemp();
+        if (value.getKind() == Kind.FRESH) {
+            addStatement(new DeclarationStatement(line, name, value.getClassName()));
+        } else {
+            addStatement(new InnerAssignmentStatement(line, name, value.getClassName()));
+        }
+        names.put(value, name);
+        return name;
+    }
+
+    private String newTemp() {
+        return "$" + ++temps;
+    }
+
+    private void addStatement(Statement statement) {
+        blocks.peek().getStatements().add(statement);
+    }
+
+    private void declareParameter(int slot, String name, String variableClass) {
+        Value value = Value.loaded(variableClass);
+        variables.add(new Variable(name, variableClass));
+        locals.put(slot, value);
+        names.put(value, name);
+    }
+
+    private void pushResult(Value result, Type returnType) {
+        if (returnType.getSort() != Type.VOID) {
+            push(result);
+        }
+    }
+
+    private void push(Value... values) {
+        for (Value value : values) {
+            stack.add(value);
+        }
+    }
+
+    /**
+     * Pops a value, or gives an unknown one if stack is not known here.
+     */
+    private Value pop() {
+        return stack.isEmpty()
+                ? Value.loaded(OBJECT_CLASS)
+                : stack.remove(stack.size() - 1);
+    }
+
+    /**
+     * Next instruction is not reached from this one, its stack is given by a frame.
+     */
+    private void endOfFlow() {
+        stack.clear();
+        handler = 0;
+    }
+
+    private static boolean endsPath(int opcode) {
+        return opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN || opcode == Opcodes.ATHROW;
+    }
+
+    private boolean isStatic() {
+        return (access & Opcodes.ACC_STATIC) != 0;
+    }
+
+    private static Value frameValue(Object frameType) {
+        if (Opcodes.INTEGER.equals(frameType)) {
+            return Value.fresh("int");
+        } else if (Opcodes.FLOAT.equals(frameType)) {
+            return Value.fresh("float");
+        } else if (Opcodes.LONG.equals(frameType)) {
+            return Value.fresh("long");
+        } else if (Opcodes.DOUBLE.equals(frameType)) {
+            return Value.fresh("double");
+        } else if (frameType instanceof String) {
+            return Value.loaded(toClassName(Type.getObjectType((String) frameType)));
+        }
+        return Value.loaded(OBJECT_CLASS);
+    }
+
+    private static String componentClass(int opcode, Value array) {
+        if (opcode == Opcodes.AALOAD) {
+            String arrayClass = array.getClassName();
+            return arrayClass.endsWith("[]")
+                    ? arrayClass.substring(0, arrayClass.length() - 2)
+                    : OBJECT_CLASS;
+        }
+        return loadedType(opcode - Opcodes.IALOAD + Opcodes.ILOAD);
+    }
+
+    private static String loadedType(int loadOpcode) {
+        switch (loadOpcode) {
+            case Opcodes.LLOAD:
+                return "long";
+            case Opcodes.FLOAD:
+                return "float";
+            case Opcodes.DLOAD:
+                return "double";
+            default:
+                return "int";
+        }
+    }
+
+    private static String conversionType(int opcode) {
+        switch (opcode) {
+            case Opcodes.I2L:
+            case Opcodes.F2L:
+            case Opcodes.D2L:
+                return "long";
+            case Opcodes.I2F:
+            case Opcodes.L2F:
+            case Opcodes.D2F:
+                return "float";
+            case Opcodes.I2D:
+            case Opcodes.L2D:
+            case Opcodes.F2D:
+                return "double";
+            default:
+                return "int";
+        }
+    }
+
+    private static String newArrayClass(int operand) {
+        switch (operand) {
+            case Opcodes.T_BOOLEAN:
+                return "boolean[]";
+            case Opcodes.T_CHAR:
+                return "char[]";
+            case Opcodes.T_FLOAT:
+                return "float[]";
+            case Opcodes.T_DOUBLE:
+                return "double[]";
+            case Opcodes.T_BYTE:
+                return "byte[]";
+            case Opcodes.T_SHORT:
+                return "short[]";
+            case Opcodes.T_LONG:
+                return "long[]";
+            default:
+                return "int[]";
+        }
+    }
+
+    private static boolean isReference(Type type) {
+        return type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY;
+    }
+
+    /**
+     * @return class name as PSI gives it, e.g. java.util.Map.Entry
+     */
+    static String toClassName(Type type) {
+        return type.getClassName().replace('$', '.');
+    }
+
+    private enum Kind {
+        /**
+         * New object or primitive value.
+         */
+        FRESH,
+        /**
+         * Object loaded from a field, an array or a local which is not known.
+         */
+        LOADED,
+        CLASS_LITERAL
+    }
+
+    /**
+     * Stack value. Values are compared by identity, so copies of the same value made by stack instructions
+     * and locals are recognized.
+     */
+    private static final class Value {
+        private final Kind kind;
+        private final String className;
+        private final String classLiteral;
+
+        private Value(Kind kind, String className, String classLiteral) {
+            this.kind = kind;
+            this.className = className;
+            this.classLiteral = classLiteral;
+        }
+
+        static Value fresh(String className) {
+            return new Value(Kind.FRESH, className, null);
+        }
+
+        static Value loaded(String className) {
+            return new Value(Kind.LOADED, className, null);
+        }
+
+        static Value classLiteral(String classLiteral) {
+            return new Value(Kind.CLASS_LITERAL, CLASS_CLASS, classLiteral);
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        String getClassName() {
+            return className;
+        }
+
+        String getClassLiteral() {
+            return classLiteral;
+        }
+
+        int getSize() {
+            return "long".equals(className) || "double".equals(className) ? 2 : 1;
+        }
+    }
+
+    /**
+     * Synchronized block which is being translated.
+     */
+    private static final class Block {
+        private final Value lock;
+        private final String varName;
+        private final String className;
+        private final int offset;
+        private final int handler;
+        private final List<Statement> statements = new ArrayList<>();
+        /**
+         * End of range covered by catch-any handler of the block, or null if it is not known.
+         */
+        private Label end;
+
+        private Block(Value lock, String varName, String className, int offset, int handler) {
+            this.lock = lock;
+            this.varName = varName;
+            this.className = className;
+            this.offset = offset;
+            this.handler = handler;
+        }
+
+        Value getLock() {
+            return lock;
+        }
+
+        String getVarName() {
+            return varName;
+        }
+
+        String getClassName() {
+            return className;
+        }
+
+        int getOffset() {
+            return offset;
+        }
+
+        int getHandler() {
+            return handler;
+        }
+
+        Label getEnd() {
+            return end;
+        }
+
+        void setEnd(Label end) {
+            this.end = end;
+        }
+
+        List<Statement> getStatements() {
+            return statements;
+        }
+    }
+}
@@ -7,17 +7,26 @@ import com.qbutton.concbugs.algorythm.processor.BranchStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.CrossAssignmentStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.DeclarationStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.InnerAssignmentStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.LoopStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.MethodStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.ProcessorFacade;
 import com.qbutton.concbugs.algorythm.processor.ProcessorProvider;
-import com.qbutton.concbugs.algorythm.processor.SequentialStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.StatementTracer;
 import com.qbutton.concbugs.algorythm.processor.SynchronizedStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.WaitStatementProcessor;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
 import com.qbutton.concbugs.algorythm.service.ClassFinderService;
+import com.qbutton.concbugs.algorythm.service.CycleService;
 import com.qbutton.concbugs.algorythm.service.GraphService;
 import com.qbutton.concbugs.algorythm.service.MergeService;
 import com.qbutton.concbugs.algorythm.service.StateService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
 import com.qbutton.concbugs.algorythm.service.VisitorService;
+import com.qbutton.concbugs.bytecode.BytecodeParser;
+import com.qbutton.concbugs.inspection.deadlock.IncrementalAnalyzer;
+import com.qbutton.concbugs.inspection.deadlock.mapping.ParsedMethodCache;
 import com.qbutton.concbugs.inspection.deadlock.mapping.PsiToAlgorythmFacade;
 import com.qbutton.concbugs.inspection.deadlock.mapping.StatementMapper;
 import com.qbutton.concbugs.inspection.deadlock.mapping.StatementParser;
@@ -41,18 +50,20 @@ public final class BeanFactory {
         PICO.registerComponentImplementation(StatementParser.class);
         PICO.registerComponentImplementation(StatementMapper.class);
         PICO.registerComponentImplementation(StatementShrinker.class);
-
-        setStatementParserToStatementMapper();
+        PICO.registerComponentImplementation(ParsedMethodCache.class);
+        PICO.registerComponentImplementation(BytecodeParser.class);
+        PICO.registerComponentImplementation(IncrementalAnalyzer.class);
 
         PICO.registerComponentImplementation(AlgorythmFacade.class);
         PICO.registerComponentImplementation(ProcessorFacade.class);
         PICO.registerComponentImplementation(ProcessorProvider.class);
+        PICO.registerComponentImplementation(StatementTracer.class);
         PICO.registerComponentImplementation(BranchStatementProcessor.class);
         PICO.registerComponentImplementation(CrossAssignmentStatementProcessor.class);
         PICO.registerComponentImplementation(DeclarationStatementProcessor.class);
         PICO.registerComponentImplementation(InnerAssignmentStatementProcessor.class);
+        PICO.registerComponentImplementation(LoopStatementProcessor.class);
         PICO.registerComponentImplementation(MethodStatementProcessor.class);
-        PICO.registerComponentImplementation(SequentialStatementProcessor.class);
         PICO.registerComponentImplementation(SynchronizedStatementProcessor.class);
         PICO.registerComponentImplementation(WaitStatementProcessor.class);
 
@@ -60,8 +71,15 @@ public final class BeanFactory {
         PICO.registerComponentImplementation(VisitorService.class);
         PICO.registerComponentImplementation(StateService.class);
         PICO.registerComponentImplementation(MergeService.class);
+        PICO.registerComponentImplementation(SummaryService.class);
+        PICO.registerComponentImplementation(SummaryStore.class);
+        PICO.registerComponentImplementation(AnalysisBudget.class);
+        PICO.registerComponentImplementation(CallGraphService.class);
+        PICO.registerComponentImplementation(CycleService.class);
         PICO.registerComponentImplementation(ClassFinderService.class);
 
+        //setters resolve beans, so they are called only when all components are registered
+        setStatementParserToStatementMapper();
         setProjectToClassFinderService();
         setProcessorFacadeToVisitorService();
     }
@@ -0,0 +1,116 @@
+package com.qbutton.concbugs.headless;
+
+import com.qbutton.concbugs.algorythm.service.CycleService;
+import com.qbutton.concbugs.inspection.deadlock.visualization.GraphExporter;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Command-line options of headless analyzer:
+ * <pre>
+ * concbugs &lt;projectPath&gt; [-parallelism N] [-maxCycles N] [-bytecode path]... [-summaryCache file] [-timeBudget N]
+ *          [-exportGraph file]
+ * </pre>
+ * The first argument, which is the name of the command, is skipped. Bytecode paths are .class files, jars or
+ * directories, which are analyzed along with project sources. Summary cache file keeps method summaries between
+ * runs, so that methods which did not change are not visited again. Time budget is in seconds, methods visited
+ * after it is spent are given conservative summaries. Lock-order graph is exported to a file in the format given
+ * by its extension, see {@link GraphExporter.Format#ofFileName(String)}.
+ */
+@Data
+final class AnalyzerOptions {
+
+    static final String USAGE = "usage: concbugs <projectPath> [-parallelism N] [-maxCycles N] [-bytecode path]... [-summaryCache file] [-timeBudget N] [-exportGraph file]";
+
+    private final String projectPath;
+    private final int parallelism;
+    private final int maxCycles;
+    private final List<String> bytecodePaths;
+    /**
+     * Summary cache file, null if summaries are not kept between runs.
+     */
+    private final String summaryCache;
+    /**
+     * Time budget of analysis in seconds, 0 if it is not limited.
+     */
+    private final int timeBudget;
+    /**
+     * File to export lock-order graph to, null if it is not exported.
+     */
+    private final String exportGraph;
+
+    /**
+     * Parses options.
+     *
+     * @param args command line, starting with the name of the command
+     * @return options
+     * @throws IllegalArgumentException if command line is malformed
+     */
+    static AnalyzerOptions parse(String[] args) {
+        String projectPath = null;
+        int parallelism = 1;
+        int maxCycles = CycleService.DEFAULT_MAX_CYCLES;
+        List<String> bytecodePaths = new ArrayList<>();
+        String summaryCache = null;
+        int timeBudget = 0;
+        String exportGraph = null;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-parallelism":
+                    parallelism = parsePositive(args, ++i);
+                    break;
+                case "-maxCycles":
+                    maxCycles = parsePositive(args, ++i);
+                    break;
+                case "-bytecode":
+                    bytecodePaths.add(parseValue(args, ++i));
+                    break;
+                case "-summaryCache":
+                    summaryCache = parseValue(args, ++i);
+                    break;
+                case "-timeBudget":
+                    timeBudget = parsePositive(args, ++i);
+                    break;
+                case "-exportGraph":
+                    exportGraph = parseValue(args, ++i);
+                    GraphExporter.Format.ofFileName(exportGraph);
+                    break;
+                default:
+                    if (projectPath != null || args[i].startsWith("-")) {
+                        throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                    }
+                    projectPath = args[i];
+            }
+        }
+
+        if (projectPath == null) {
+            throw new IllegalArgumentException("Project path is not given");
+        }
+        return new AnalyzerOptions(projectPath, parallelism, maxCycles, Collections.unmodifiableList(bytecodePaths),
+                summaryCache, timeBudget, exportGraph);
+    }
+
+    private static String parseValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Value of " + args[index - 1] + " is not given");
+        }
+        return args[index];
+    }
+
+    private static int parsePositive(String[] args, int index) {
+        String value = parseValue(args, index);
+        try {
+            int number = Integer.parseInt(value);
+            if (number < 1) {
+                throw new IllegalArgumentException(args[index - 1] + " must be positive, but was " + number);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(args[index - 1] + " must be a number, but was " + value);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.qbutton.concbugs.headless;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarterEx;
+import com.intellij.openapi.application.ex.ApplicationManagerEx;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.qbutton.concbugs.algorythm.AlgorythmFacade;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.Cycle;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.ClassFinderService;
+import com.qbutton.concbugs.algorythm.service.CycleService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
+import com.qbutton.concbugs.bytecode.BytecodeLibrary;
+import com.qbutton.concbugs.bytecode.BytecodeParser;
+import com.qbutton.concbugs.di.BeanFactory;
+import com.qbutton.concbugs.inspection.deadlock.mapping.PsiToAlgorythmFacade;
+import com.qbutton.concbugs.inspection.deadlock.visualization.GraphExporter;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Headless entry point, which analyzes a whole project without any UI, e.g. on CI:
+ * <pre>
+ * idea.sh concbugs &lt;projectPath&gt; [-parallelism N] [-maxCycles N] [-bytecode path]... [-summaryCache file]
+ *                  [-timeBudget N] [-exportGraph file]
+ * </pre>
+ * Public methods of public classes of the project, and of compiled classes given by bytecode paths, are analyzed
+ * together once the project is indexed, found deadlocks are printed to stdout.
+ * Given summary cache file, summaries of methods which did not change since previous run are not computed again.
+ * Given export file, the expanded lock-order graph is written to it, to be inspected offline.
+ * Exit code is 0 if there are no deadlocks, 1 if there are some, and 2 if analysis could not be done.
+ */
+public class DeadlocksAnalyzerStarter extends ApplicationStarterEx {
+
+    @Override
+    public String getCommandName() {
+        return "concbugs";
+    }
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+
+    @Override
+    public void premain(String[] args) {
+    }
+
+    @Override
+    public void main(String[] args) {
+        AnalyzerOptions options;
+        try {
+            options = AnalyzerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(AnalyzerOptions.USAGE);
+            exit(null, DeadlocksReport.EXIT_ERROR);
+            return;
+        }
+
+        Project project = ProjectUtil.openOrImport(options.getProjectPath(), null, false);
+        if (project == null) {
+            System.err.println("Can't open project at " + options.getProjectPath());
+            exit(null, DeadlocksReport.EXIT_ERROR);
+            return;
+        }
+
+        //project is indexed in background after opening, so it is waited for outside of the dispatch thread
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            int exitCode;
+            try {
+                exitCode = DeadlocksReport.write(analyze(project, options), System.out);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                exitCode = DeadlocksReport.EXIT_ERROR;
+            }
+            int finalExitCode = exitCode;
+            ApplicationManager.getApplication().invokeLater(() -> exit(project, finalExitCode));
+        });
+    }
+
+    @SuppressFBWarnings("DM_EXIT")
+    private static void exit(@Nullable Project project, int exitCode) {
+        if (project != null) {
+            ProjectUtil.closeAndDispose(project);
+        }
+        if (exitCode == DeadlocksReport.EXIT_NO_DEADLOCKS) {
+            ApplicationManagerEx.getApplicationEx().exit(true, true);
+        } else {
+            //application exit always reports success, so other codes are passed once the project is disposed
+            System.exit(exitCode);
+        }
+    }
+
+    private List<Cycle> analyze(Project project, AnalyzerOptions options) {
+        BeanFactory.getBean(ClassFinderService.class).setProject(project);
+        BeanFactory.getBean(CycleService.class).setMaxCycles(options.getMaxCycles());
+        BeanFactory.getBean(AnalysisBudget.class).setMaxMillis(TimeUnit.SECONDS.toMillis(options.getTimeBudget()));
+        PsiToAlgorythmFacade parsingFacade = BeanFactory.getBean(PsiToAlgorythmFacade.class);
+        AlgorythmFacade algorythmFacade = BeanFactory.getBean(AlgorythmFacade.class);
+
+        parsingFacade.setParallelism(options.getParallelism());
+        List<MethodStatement> methodStatements = DumbService.getInstance(project).runReadActionInSmartMode(
+                (Computable<List<MethodStatement>>) () -> parseLibrary(project, parsingFacade));
+        methodStatements.addAll(parseBytecode(options.getBytecodePaths()));
+
+        SummaryStore summaryStore = BeanFactory.getBean(SummaryStore.class);
+        if (options.getSummaryCache() != null) {
+            summaryStore.open(Paths.get(options.getSummaryCache()));
+        }
+
+        //parsing is over, so summaries can be computed in parallel without holding a read action
+        algorythmFacade.setParallelism(options.getParallelism());
+        try {
+            ClassEdgeGraph graph = algorythmFacade.visitLibrary(methodStatements);
+            if (!graph.getTruncatedMethods().isEmpty()) {
+                System.err.println("Analysis ran out of budget, lock order is approximated in methods: "
+                        + String.join(", ", graph.getTruncatedMethods()));
+            }
+            if (options.getExportGraph() != null) {
+                exportGraph(graph, options.getExportGraph());
+            }
+            return algorythmFacade.findDeadlocks(graph);
+        } finally {
+            summaryStore.close();
+        }
+    }
+
+    private void exportGraph(ClassEdgeGraph graph, String fileName) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            GraphExporter.export(graph, GraphExporter.Format.ofFileName(fileName), channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<MethodStatement> parseLibrary(Project project, PsiToAlgorythmFacade parsingFacade) {
+        List<PsiMethod> publicMethods = new ArrayList<>();
+        PsiManager psiManager = PsiManager.getInstance(project);
+
+        FileTypeIndex.getFiles(JavaFileType.INSTANCE, GlobalSearchScope.projectScope(project)).forEach(virtualFile -> {
+            PsiFile psiFile = psiManager.findFile(virtualFile);
+            if (!(psiFile instanceof PsiJavaFile)) {
+                return;
+            }
+            for (PsiClass psiClass : PsiTreeUtil.findChildrenOfType(psiFile, PsiClass.class)) {
+                for (PsiMethod method : psiClass.getMethods()) {
+                    if (parsingFacade.isLibraryMethod(method)) {
+                        publicMethods.add(method);
+                    }
+                }
+            }
+        });
+
+        List<MethodStatement> methodStatements = new ArrayList<>();
+        for (MethodStatement methodStatement : parsingFacade.parseMethods(publicMethods)) {
+            if (methodStatement != null) {
+                methodStatements.add(methodStatement);
+            }
+        }
+        return methodStatements;
+    }
+
+    private List<MethodStatement> parseBytecode(List<String> bytecodePaths) {
+        if (bytecodePaths.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Path> paths = bytecodePaths.stream()
+                .map(Paths::get)
+                .collect(Collectors.toList());
+        try {
+            return BeanFactory.getBean(BytecodeParser.class).parseLibrary(BytecodeLibrary.read(paths));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
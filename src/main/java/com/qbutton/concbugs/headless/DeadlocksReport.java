@@ -0,0 +1,39 @@
+package com.qbutton.concbugs.headless;
+
+import com.qbutton.concbugs.algorythm.dto.Cycle;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Plain text report of found deadlocks, with exit codes usable as a build gate.
+ */
+final class DeadlocksReport {
+
+    static final int EXIT_NO_DEADLOCKS = 0;
+    static final int EXIT_DEADLOCKS_FOUND = 1;
+    static final int EXIT_ERROR = 2;
+
+    private DeadlocksReport() {
+    }
+
+    /**
+     * Prints one line per cycle followed by a summary line.
+     *
+     * @param cycles found cycles
+     * @param out    stream to print to
+     * @return exit code
+     */
+    static int write(List<Cycle> cycles, PrintStream out) {
+        for (Cycle cycle : cycles) {
+            out.println("Potential deadlock: " + cycle.describe());
+        }
+
+        if (cycles.isEmpty()) {
+            out.println("No potential deadlocks found");
+            return EXIT_NO_DEADLOCKS;
+        }
+        out.println(cycles.size() + " potential deadlock(s) found");
+        return EXIT_DEADLOCKS_FOUND;
+    }
+}
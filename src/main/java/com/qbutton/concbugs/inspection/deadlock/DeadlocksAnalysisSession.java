@@ -0,0 +1,61 @@
+package com.qbutton.concbugs.inspection.deadlock;
+
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.qbutton.concbugs.inspection.deadlock.mapping.PsiToAlgorythmFacade;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single run of the inspection over a scope. Public methods are gathered from every file of the scope, so that
+ * they are analyzed once, as a whole library, when all files are checked, and deadlocks spanning several
+ * classes are found.
+ * <p>
+ * Files may be checked concurrently, so gathering is thread-safe.
+ */
+@RequiredArgsConstructor
+final class DeadlocksAnalysisSession {
+
+    static final Key<DeadlocksAnalysisSession> KEY = Key.create("concbugs.deadlocksAnalysisSession");
+
+    private final PsiToAlgorythmFacade parsingFacade;
+
+    /**
+     * Public methods of checked files. Guarded by this.
+     */
+    private final List<PsiMethod> publicMethods = new ArrayList<>();
+
+    /**
+     * Gathers public library methods of all classes of a file, including nested ones.
+     *
+     * @param file checked file
+     */
+    void addFile(PsiFile file) {
+        if (!(file instanceof PsiJavaFile)) {
+            return;
+        }
+
+        List<PsiMethod> fileMethods = new ArrayList<>();
+        for (PsiClass psiClass : PsiTreeUtil.findChildrenOfType(file, PsiClass.class)) {
+            for (PsiMethod method : psiClass.getMethods()) {
+                if (parsingFacade.isLibraryMethod(method)) {
+                    fileMethods.add(method);
+                }
+            }
+        }
+
+        synchronized (this) {
+            publicMethods.addAll(fileMethods);
+        }
+    }
+
+    synchronized List<PsiMethod> getPublicMethods() {
+        return new ArrayList<>(publicMethods);
+    }
+}
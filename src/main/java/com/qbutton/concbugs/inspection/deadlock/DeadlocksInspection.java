@@ -1,16 +1,26 @@
 package com.qbutton.concbugs.inspection.deadlock;
 
 import com.intellij.codeInsight.daemon.GroupNames;
-import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.GlobalInspectionContext;
+import com.intellij.codeInspection.GlobalSimpleInspectionTool;
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemDescriptionsProcessor;
 import com.intellij.codeInspection.ProblemsHolder;
-import com.intellij.psi.JavaElementVisitor;
+import com.intellij.codeInspection.reference.RefElement;
+import com.intellij.codeInspection.reference.RefEntity;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.psi.JavaPsiFacade;
 import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiElementVisitor;
-import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.ui.DocumentAdapter;
 import com.qbutton.concbugs.algorythm.AlgorythmFacade;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.Cycle;
 import com.qbutton.concbugs.algorythm.dto.Graph;
-import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.di.BeanFactory;
 import com.qbutton.concbugs.inspection.deadlock.mapping.PsiToAlgorythmFacade;
 import com.qbutton.concbugs.inspection.deadlock.visualization.GraphVisualizer;
@@ -21,11 +31,9 @@ import org.jetbrains.annotations.NotNull;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.List;
 
 @SuppressFBWarnings({"DLS_DEAD_LOCAL_STORE", "NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE"})
-public class DeadlocksInspection extends AbstractBaseJavaLocalInspectionTool {
+public class DeadlocksInspection extends GlobalSimpleInspectionTool {
 
     public DeadlocksInspection() {
         System.setProperty("org.graphstream.ui.renderer", "org.graphstream.ui.j2dviewer.J2DGraphRenderer");
@@ -35,6 +43,13 @@ public class DeadlocksInspection extends AbstractBaseJavaLocalInspectionTool {
     @NonNls
     public String CHECKED_METHODS = "all public methods of selected scope";
 
+    /**
+     * Whether the lock-order graph is shown in a window after analysis. The graph is expanded to heap objects
+     * for that, which may take long on big scopes, so it is off by default.
+     */
+    @SuppressWarnings({"WeakerAccess"})
+    public boolean VISUALIZE_GRAPH = false;
+
     @NotNull
     public String getDisplayName() {
 
@@ -47,50 +62,89 @@ public class DeadlocksInspection extends AbstractBaseJavaLocalInspectionTool {
     }
 
     @Override
-    public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
-        return new JavaElementVisitor() {
-
-            private final List<MethodStatement> methodStatements = new ArrayList<>();
-
-            private final PsiToAlgorythmFacade parsingFacade =  BeanFactory.getBean(PsiToAlgorythmFacade.class);
-            private final AlgorythmFacade algorythmFacade =  BeanFactory.getBean(AlgorythmFacade.class);
-
-            @Override
-            public void visitMethod(PsiMethod method) {
-                super.visitMethod(method);
-
-                if (!isLibraryMethod(method) || isOnTheFly) {
-                    //only public library methods are analyzed and through analyze action
-                    return;
-                }
+    public void inspectionStarted(@NotNull InspectionManager manager,
+                                  @NotNull GlobalInspectionContext globalContext,
+                                  @NotNull ProblemDescriptionsProcessor problemDescriptionsProcessor) {
+        globalContext.putUserData(DeadlocksAnalysisSession.KEY,
+                new DeadlocksAnalysisSession(BeanFactory.getBean(PsiToAlgorythmFacade.class)));
+    }
 
-                MethodStatement methodStatement = parsingFacade.parseMethod(method);
+    @Override
+    public void checkFile(@NotNull PsiFile file,
+                          @NotNull InspectionManager manager,
+                          @NotNull ProblemsHolder problemsHolder,
+                          @NotNull GlobalInspectionContext globalContext,
+                          @NotNull ProblemDescriptionsProcessor problemDescriptionsProcessor) {
+        //only public library methods are analyzed, all at once when every file of the scope is checked
+        DeadlocksAnalysisSession session = globalContext.getUserData(DeadlocksAnalysisSession.KEY);
+        if (session != null) {
+            session.addFile(file);
+        }
+    }
 
-                if (methodStatement != null) {
-                    methodStatements.add(methodStatement);
-                }
+    @Override
+    public void inspectionFinished(@NotNull InspectionManager manager,
+                                   @NotNull GlobalInspectionContext globalContext,
+                                   @NotNull ProblemDescriptionsProcessor problemDescriptionsProcessor) {
+        DeadlocksAnalysisSession session = globalContext.getUserData(DeadlocksAnalysisSession.KEY);
+        globalContext.putUserData(DeadlocksAnalysisSession.KEY, null);
+        if (session == null) {
+            return;
+        }
+
+        Project project = globalContext.getProject();
+        AlgorythmFacade algorythmFacade = BeanFactory.getBean(AlgorythmFacade.class);
+        IncrementalAnalyzer incrementalAnalyzer = BeanFactory.getBean(IncrementalAnalyzer.class);
+
+        ClassEdgeGraph graph = ApplicationManager.getApplication().runReadAction((Computable<ClassEdgeGraph>) () -> {
+            //methods which did not change since previous run are not parsed and visited again
+            ClassEdgeGraph analyzedGraph = incrementalAnalyzer.analyze(project, session.getPublicMethods());
+
+            for (Cycle cycle : algorythmFacade.findDeadlocks(analyzedGraph)) {
+                registerProblem(manager, problemDescriptionsProcessor, findProblemEntity(globalContext, cycle),
+                        "Potential deadlock: " + cycle.describe());
+            }
+            if (!analyzedGraph.getTruncatedMethods().isEmpty()) {
+                registerProblem(manager, problemDescriptionsProcessor, globalContext.getRefManager().getRefProject(),
+                        "Analysis ran out of budget, lock order is approximated in methods: "
+                                + String.join(", ", analyzedGraph.getTruncatedMethods()));
             }
+            return analyzedGraph;
+        });
 
-            @Override
-            public void visitClass(PsiClass aClass) {
-                super.visitClass(aClass);
+        if (VISUALIZE_GRAPH) {
+            //the graph does not need PSI, and its window is Swing, so it is shown on EDT
+            Graph expandedGraph = graph.expand();
+            ApplicationManager.getApplication().invokeLater(() -> GraphVisualizer.visualizeGraph(expandedGraph));
+        }
+    }
 
-                if (isOnTheFly) {
-                    return;
+    /**
+     * Finds where to show a deadlock: the first class of its locks which belongs to the project,
+     * or the project itself.
+     */
+    private static RefEntity findProblemEntity(GlobalInspectionContext globalContext, Cycle cycle) {
+        Project project = globalContext.getProject();
+        JavaPsiFacade psiFacade = JavaPsiFacade.getInstance(project);
+        GlobalSearchScope projectScope = GlobalSearchScope.projectScope(project);
+
+        for (HeapObject heapObject : cycle.getHeapObjects()) {
+            PsiClass psiClass = psiFacade.findClass(heapObject.getClazz(), projectScope);
+            if (psiClass != null) {
+                RefElement refClass = globalContext.getRefManager().getReference(psiClass);
+                if (refClass != null) {
+                    return refClass;
                 }
-
-                Graph graph = algorythmFacade.visitLibrary(methodStatements);
-
-                GraphVisualizer.visualizeGraph(graph);
-
-                methodStatements.clear();
             }
-        };
+        }
+        return globalContext.getRefManager().getRefProject();
     }
 
-    private boolean isLibraryMethod(PsiMethod method) {
-        return method.getModifierList().hasModifierProperty("public") &&
-                method.getContainingClass().getModifierList().hasModifierProperty("public");
+    private static void registerProblem(InspectionManager manager,
+                                        ProblemDescriptionsProcessor problemDescriptionsProcessor,
+                                        RefEntity refEntity,
+                                        String description) {
+        problemDescriptionsProcessor.addProblemElement(refEntity, manager.createProblemDescriptor(description));
     }
 
     public JComponent createOptionsPanel() {
@@ -102,7 +156,11 @@ public class DeadlocksInspection extends AbstractBaseJavaLocalInspectionTool {
             }
         });
 
+        final JCheckBox visualizeGraph = new JCheckBox("Show lock-order graph", VISUALIZE_GRAPH);
+        visualizeGraph.addChangeListener(event -> VISUALIZE_GRAPH = visualizeGraph.isSelected());
+
         panel.add(checkedClasses);
+        panel.add(visualizeGraph);
         return panel;
     }
 
@@ -0,0 +1,337 @@
+package com.qbutton.concbugs.inspection.deadlock;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.qbutton.concbugs.algorythm.AlgorythmFacade;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
+import com.qbutton.concbugs.inspection.deadlock.mapping.PsiToAlgorythmFacade;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental analyzer - keeps results of previous runs of the inspection, so that only what has changed since
+ * is parsed and visited again.
+ * <p>
+ * Dependency index maps each method whose body was parsed to public methods which consumed it: the method itself
+ * and its transitive callers. When a method body changes, only these public methods are analyzed again, and
+ * summaries of declarations built from stale bodies are evicted. States of other public methods are kept, and
+ * the global graph is rebuilt from them. A change outside method bodies may change hierarchy or overriders,
+ * so it invalidates everything.
+ * <p>
+ * Summaries are also stored on disk per project, so that the first analysis in the next IDE session reuses them.
+ * Stored summaries are dropped along with everything else, as they depend on hierarchy too.
+ * <p>
+ * Analysis is cancelled along with the progress indicator it runs under. Methods analyzed by an analysis which
+ * truncated some methods are analyzed again next time, as the budget may be enough by then.
+ */
+@RequiredArgsConstructor
+public class IncrementalAnalyzer {
+
+    private final PsiToAlgorythmFacade parsingFacade;
+    private final AlgorythmFacade algorythmFacade;
+    private final CallGraphService callGraphService;
+    private final SummaryService summaryService;
+    private final SummaryStore summaryStore;
+    private final AnalysisBudget analysisBudget;
+
+    /**
+     * Public methods analyzed before. Guarded by this.
+     */
+    private final Map<PsiMethod, AnalyzedMethod> analyzedMethods = new HashMap<>();
+    /**
+     * Methods whose bodies were parsed, mapped to public methods which consumed them. Guarded by this.
+     */
+    private final Map<PsiMethod, Set<PsiMethod>> consumers = new HashMap<>();
+    /**
+     * Public methods whose states may be built from truncated summaries. Guarded by this.
+     */
+    private final Set<PsiMethod> truncatedMethods = new HashSet<>();
+
+    /**
+     * Project whose changes are listened to. Guarded by this.
+     */
+    private Project project;
+
+    /**
+     * Analyzes public methods, reusing results of those which did not change since they were analyzed.
+     *
+     * @param project       project methods belong to
+     * @param publicMethods public methods
+     * @return global graph of given methods
+     */
+    public synchronized ClassEdgeGraph analyze(Project project, List<PsiMethod> publicMethods) {
+        listenTo(project);
+        truncatedMethods.forEach(this::forget);
+        truncatedMethods.clear();
+
+        List<PsiMethod> methodsToParse = new ArrayList<>();
+        for (PsiMethod publicMethod : publicMethods) {
+            if (!analyzedMethods.containsKey(publicMethod)) {
+                methodsToParse.add(publicMethod);
+            }
+        }
+        List<Map<PsiMethod, List<MethodDeclaration>>> methodsDeclarations = new ArrayList<>();
+        List<MethodStatement> methodStatements = parsingFacade.parseMethods(methodsToParse, methodsDeclarations);
+
+        List<PsiMethod> changedMethods = new ArrayList<>();
+        List<MethodStatement> changedStatements = new ArrayList<>();
+        for (int i = 0; i < methodsToParse.size(); i++) {
+            PsiMethod publicMethod = methodsToParse.get(i);
+            Map<PsiMethod, List<MethodDeclaration>> parsedDeclarations = methodsDeclarations.get(i);
+            analyzedMethods.put(publicMethod, new AnalyzedMethod(parsedDeclarations));
+            parsedDeclarations.keySet().forEach(method ->
+                    consumers.computeIfAbsent(method, key -> new HashSet<>()).add(publicMethod));
+
+            MethodStatement methodStatement = methodStatements.get(i);
+            if (methodStatement != null) {
+                changedMethods.add(publicMethod);
+                changedStatements.add(methodStatement);
+            }
+        }
+
+        List<State> changedStates = visitMethods(changedMethods, changedStatements);
+        for (int i = 0; i < changedMethods.size(); i++) {
+            AnalyzedMethod analyzedMethod = analyzedMethods.get(changedMethods.get(i));
+            analyzedMethod.setState(changedStates.get(i));
+            analyzedMethod.setMethodName(AlgorythmFacade.getMethodName(changedStatements.get(i)));
+        }
+        Set<String> truncatedMethodNames = algorythmFacade.getTruncatedMethodNames();
+        if (!truncatedMethodNames.isEmpty()) {
+            truncatedMethods.addAll(changedMethods);
+        }
+
+        List<State> methodStates = new ArrayList<>();
+        List<String> methodNames = new ArrayList<>();
+        for (PsiMethod publicMethod : publicMethods) {
+            AnalyzedMethod analyzedMethod = analyzedMethods.get(publicMethod);
+            if (analyzedMethod.getState() != null) {
+                methodStates.add(analyzedMethod.getState());
+                methodNames.add(analyzedMethod.getMethodName());
+            }
+        }
+        ClassEdgeGraph graph = algorythmFacade.buildGraph(methodStates, methodNames);
+        summaryStore.flush();
+        return graph.withTruncatedMethods(truncatedMethodNames);
+    }
+
+    /**
+     * Visits methods, checking the progress indicator of current thread for cancellation.
+     * If the analysis is cancelled, methods are forgotten, so that they are analyzed next time.
+     */
+    private List<State> visitMethods(List<PsiMethod> methods, List<MethodStatement> methodStatements) {
+        ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+        if (indicator != null) {
+            analysisBudget.setCancellationCheck(indicator::checkCanceled);
+        }
+        boolean visited = false;
+        try {
+            List<State> states = algorythmFacade.visitMethods(methodStatements);
+            visited = true;
+            return states;
+        } finally {
+            analysisBudget.resetCancellationCheck();
+            if (!visited) {
+                methods.forEach(this::forget);
+            }
+        }
+    }
+
+    /**
+     * Forgets results which consumed the body of a method: results of the method itself and of its callers.
+     *
+     * @param method method whose body has changed
+     */
+    public synchronized void methodChanged(PsiMethod method) {
+        Set<PsiMethod> affectedMethods = consumers.remove(method);
+        if (affectedMethods == null) {
+            return;
+        }
+
+        for (PsiMethod affectedMethod : affectedMethods) {
+            AnalyzedMethod analyzedMethod = forget(affectedMethod);
+            if (analyzedMethod != null) {
+                summaryService.evict(findStaleDeclarations(analyzedMethod.getDeclarations(), method));
+            }
+        }
+    }
+
+    /**
+     * Forgets all results, including stored summaries.
+     */
+    public synchronized void invalidateAll() {
+        forgetAll();
+        summaryStore.drop();
+    }
+
+    /**
+     * Forgets all results kept in memory.
+     */
+    private void forgetAll() {
+        analyzedMethods.values().forEach(analyzedMethod -> analyzedMethod.getDeclarations().values()
+                .forEach(summaryService::evict));
+        analyzedMethods.clear();
+        consumers.clear();
+        truncatedMethods.clear();
+    }
+
+    /**
+     * Forgets results of a public method, keeping summaries of declarations it parsed.
+     *
+     * @return forgotten results, or null if the method was not analyzed
+     */
+    private AnalyzedMethod forget(PsiMethod publicMethod) {
+        AnalyzedMethod analyzedMethod = analyzedMethods.remove(publicMethod);
+        if (analyzedMethod != null) {
+            analyzedMethod.getDeclarations().keySet().forEach(parsedMethod -> {
+                Set<PsiMethod> parsedMethodConsumers = consumers.get(parsedMethod);
+                if (parsedMethodConsumers != null) {
+                    parsedMethodConsumers.remove(publicMethod);
+                }
+            });
+        }
+        return analyzedMethod;
+    }
+
+    /**
+     * Finds declarations built from the body of a method, and declarations of its transitive callers.
+     * Other declarations are the same as they would be if parsed again, so their summaries are still valid.
+     */
+    private Set<MethodDeclaration> findStaleDeclarations(Map<PsiMethod, List<MethodDeclaration>> declarations,
+                                                         PsiMethod changedMethod) {
+        Map<MethodDeclaration, List<MethodDeclaration>> callers = new IdentityHashMap<>();
+        declarations.values().forEach(methodDeclarations -> methodDeclarations.forEach(caller ->
+                callGraphService.getCallees(caller).forEach(callee ->
+                        callers.computeIfAbsent(callee, key -> new ArrayList<>()).add(caller))));
+
+        Set<MethodDeclaration> staleDeclarations = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<MethodDeclaration> queue = new ArrayDeque<>(
+                declarations.getOrDefault(changedMethod, Collections.emptyList()));
+        while (!queue.isEmpty()) {
+            MethodDeclaration staleDeclaration = queue.pop();
+            if (staleDeclarations.add(staleDeclaration)) {
+                queue.addAll(callers.getOrDefault(staleDeclaration, Collections.emptyList()));
+            }
+        }
+        return staleDeclarations;
+    }
+
+    private void listenTo(Project project) {
+        if (project == this.project) {
+            return;
+        }
+        forgetAll();
+        this.project = project;
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new ChangeListener(), project);
+
+        summaryStore.open(Paths.get(PathManager.getSystemPath(), "concbugs", project.getLocationHash() + ".summaries"));
+        Disposer.register(project, () -> projectClosed(project));
+    }
+
+    private synchronized void projectClosed(Project project) {
+        if (project == this.project) {
+            forgetAll();
+            summaryStore.close();
+            this.project = null;
+        }
+    }
+
+    /**
+     * Listens to PSI changes: those inside method bodies invalidate these methods, others invalidate everything.
+     */
+    private final class ChangeListener extends PsiTreeChangeAdapter {
+
+        @Override
+        public void childAdded(@NotNull PsiTreeChangeEvent event) {
+            changed(event);
+        }
+
+        @Override
+        public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+            changed(event);
+        }
+
+        @Override
+        public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+            changed(event);
+        }
+
+        @Override
+        public void childMoved(@NotNull PsiTreeChangeEvent event) {
+            changed(event);
+        }
+
+        @Override
+        public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+            changed(event);
+        }
+
+        @Override
+        public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+            changed(event);
+        }
+
+        private void changed(PsiTreeChangeEvent event) {
+            PsiFile file = event.getFile();
+            if (file != null && !(file instanceof PsiJavaFile)) {
+                return;
+            }
+
+            PsiElement parent = event.getParent();
+            PsiMethod method = PsiTreeUtil.getParentOfType(parent, PsiMethod.class, false);
+            PsiCodeBlock body = method == null ? null : method.getBody();
+            if (body != null && PsiTreeUtil.isAncestor(body, parent, false)) {
+                methodChanged(method);
+            } else {
+                invalidateAll();
+            }
+        }
+    }
+
+    @Data
+    private static final class AnalyzedMethod {
+        /**
+         * Declarations parsed for this public method, by method they were parsed from.
+         */
+        private final Map<PsiMethod, List<MethodDeclaration>> declarations;
+        /**
+         * State of the method, or null if the method is not analyzed, e.g. it is a constructor.
+         */
+        private State state;
+        /**
+         * Name of the method, which edges of the global graph refer to.
+         */
+        private String methodName;
+    }
+}
@@ -0,0 +1,152 @@
+package com.qbutton.concbugs.inspection.deadlock.mapping;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.search.searches.OverridingMethodsSearch;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers what {@link StatementParser} found out about methods of a project: overriding methods of called
+ * methods and declarations parsed from method bodies. So a method called from many places is searched and parsed
+ * once, rather than once per call.
+ * <p>
+ * Overriding methods depend only on class structure, so they are kept until Java structure of the project changes.
+ * Declarations depend on method bodies, so they are kept until any PSI change.
+ */
+@RequiredArgsConstructor
+public class ParsedMethodCache {
+
+    private static final Key<CachedValue<Map<PsiMethod, Collection<PsiMethod>>>> OVERRIDING_METHODS_KEY =
+            Key.create("concbugs.overridingMethods");
+    private static final Key<CachedValue<Declarations>> DECLARATIONS_KEY = Key.create("concbugs.declarations");
+
+    private final CallGraphService callGraphService;
+
+    /**
+     * Finds methods overriding a method, in the whole project.
+     *
+     * @param method method
+     * @return overriding methods
+     */
+    Collection<PsiMethod> getOverridingMethods(PsiMethod method) {
+        Map<PsiMethod, Collection<PsiMethod>> overridingMethods = getOverridingMethods(method.getProject());
+
+        Collection<PsiMethod> methodOverriders = overridingMethods.get(method);
+        if (methodOverriders == null) {
+            methodOverriders = Collections.unmodifiableCollection(OverridingMethodsSearch.search(method).findAll());
+            overridingMethods.putIfAbsent(method, methodOverriders);
+        }
+        return methodOverriders;
+    }
+
+    /**
+     * Returns declaration parsed from a method before, if PSI has not changed since.
+     *
+     * @param method method
+     * @return declaration, or null if there is none
+     */
+    MethodDeclaration getDeclaration(PsiMethod method) {
+        return getDeclarations(method.getProject()).byMethod.get(method);
+    }
+
+    /**
+     * Remembers declaration parsed from a method. Declarations it calls must be already remembered.
+     *
+     * @param method      method
+     * @param declaration declaration
+     */
+    void putDeclaration(PsiMethod method, MethodDeclaration declaration) {
+        Declarations declarations = getDeclarations(method.getProject());
+        synchronized (declarations) {
+            if (declarations.byMethod.putIfAbsent(method, declaration) == null) {
+                declarations.methods.put(declaration, method);
+            }
+        }
+    }
+
+    /**
+     * Collects remembered declaration, and declarations it calls transitively, by method they were parsed from.
+     * These are all methods whose bodies the declaration is built from.
+     *
+     * @param project            project
+     * @param declaration        remembered declaration
+     * @param parsedDeclarations map to put declarations to
+     */
+    void collectDeclarations(Project project,
+                             MethodDeclaration declaration,
+                             Map<PsiMethod, List<MethodDeclaration>> parsedDeclarations) {
+        Declarations declarations = getDeclarations(project);
+        Set<MethodDeclaration> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<MethodDeclaration> queue = new ArrayDeque<>();
+        queue.push(declaration);
+
+        while (!queue.isEmpty()) {
+            MethodDeclaration current = queue.pop();
+            if (!visited.add(current)) {
+                continue;
+            }
+
+            PsiMethod method;
+            synchronized (declarations) {
+                method = declarations.methods.get(current);
+            }
+            if (method != null) {
+                List<MethodDeclaration> methodDeclarations =
+                        parsedDeclarations.computeIfAbsent(method, key -> new ArrayList<>());
+                if (methodDeclarations.stream().noneMatch(methodDeclaration -> methodDeclaration == current)) {
+                    methodDeclarations.add(current);
+                }
+            }
+            callGraphService.getCallees(current).forEach(queue::push);
+        }
+    }
+
+    private Map<PsiMethod, Collection<PsiMethod>> getOverridingMethods(Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(
+                project,
+                OVERRIDING_METHODS_KEY,
+                () -> CachedValueProvider.Result.create(
+                        new ConcurrentHashMap<PsiMethod, Collection<PsiMethod>>(),
+                        PsiModificationTracker.SERVICE.getInstance(project).getJavaStructureModificationTracker()),
+                false);
+    }
+
+    private Declarations getDeclarations(Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(
+                project,
+                DECLARATIONS_KEY,
+                () -> CachedValueProvider.Result.create(
+                        new Declarations(),
+                        PsiModificationTracker.SERVICE.getInstance(project)),
+                false);
+    }
+
+    /**
+     * Declarations parsed from a single version of project PSI.
+     */
+    private static final class Declarations {
+        private final Map<PsiMethod, MethodDeclaration> byMethod = new ConcurrentHashMap<>();
+        /**
+         * Methods declarations were parsed from. Declarations are compared by identity. Guarded by this.
+         */
+        private final Map<MethodDeclaration, PsiMethod> methods = new IdentityHashMap<>();
+    }
+}
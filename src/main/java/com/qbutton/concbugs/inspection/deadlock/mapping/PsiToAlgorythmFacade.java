@@ -1,15 +1,174 @@
 package com.qbutton.concbugs.inspection.deadlock.mapping;
 
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifier;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
 import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+import lombok.Data;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
 @RequiredArgsConstructor
 public class PsiToAlgorythmFacade {
 
     private final StatementParser statementParser;
 
+    /**
+     * Number of threads methods are parsed by in {@link #parseMethods(List)}.
+     */
+    @Getter
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new AlgorithmValidationException("Parallelism must be positive, but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
     public MethodStatement parseMethod(PsiMethod psiMethod) {
         return statementParser.parseMethod(psiMethod);
     }
+
+    /**
+     * Parses a method, collecting declarations of the method and of all methods it calls.
+     *
+     * @param psiMethod          method
+     * @param parsedDeclarations map to put declarations to, by method they were parsed from
+     * @return resulting method statement
+     */
+    public MethodStatement parseMethod(PsiMethod psiMethod, Map<PsiMethod, List<MethodDeclaration>> parsedDeclarations) {
+        return statementParser.parseMethod(psiMethod, parsedDeclarations);
+    }
+
+    /**
+     * Parses methods on a pool of threads. Must be called under a read action.
+     *
+     * @param psiMethods methods
+     * @return resulting method statements in order of methods, null for methods without a statement
+     * @see #parseMethods(List, List)
+     */
+    public List<MethodStatement> parseMethods(List<PsiMethod> psiMethods) {
+        return parseMethods(psiMethods, null);
+    }
+
+    /**
+     * Parses methods on a pool of threads, collecting declarations of each method and of all methods it calls.
+     * Must be called under a read action.
+     * <p>
+     * Every worker parses a method in a read action of its own, which gives way to write actions instead of
+     * blocking them: a write action waiting for the caller's read action would otherwise block the workers,
+     * and the caller would wait for them forever. Methods whose parsing was given up are parsed by the caller.
+     *
+     * @param psiMethods         methods
+     * @param parsedDeclarations list to add maps of declarations to, one per method, in order of methods;
+     *                           null if declarations are not needed
+     * @return resulting method statements in order of methods, null for methods without a statement
+     */
+    public List<MethodStatement> parseMethods(List<PsiMethod> psiMethods,
+                                              List<Map<PsiMethod, List<MethodDeclaration>>> parsedDeclarations) {
+        ParsedMethod[] parsedMethods = new ParsedMethod[psiMethods.size()];
+
+        int threads = Math.min(parallelism, psiMethods.size());
+        if (threads > 1) {
+            Queue<Integer> pendingMethods = new ConcurrentLinkedQueue<>();
+            for (int i = 0; i < psiMethods.size(); i++) {
+                pendingMethods.add(i);
+            }
+            Queue<ParsedMethod> parsedQueue = new ConcurrentLinkedQueue<>();
+            parseInParallel(psiMethods, pendingMethods, parsedQueue, parsedDeclarations != null, threads);
+            parsedQueue.forEach(parsedMethod -> parsedMethods[parsedMethod.getIndex()] = parsedMethod);
+        }
+
+        List<MethodStatement> methodStatements = new ArrayList<>(psiMethods.size());
+        for (int i = 0; i < psiMethods.size(); i++) {
+            ParsedMethod parsedMethod = parsedMethods[i] != null
+                    ? parsedMethods[i]
+                    : parse(psiMethods.get(i), i, parsedDeclarations != null);
+            methodStatements.add(parsedMethod.getMethodStatement());
+            if (parsedDeclarations != null) {
+                parsedDeclarations.add(parsedMethod.getDeclarations());
+            }
+        }
+        return methodStatements;
+    }
+
+    /**
+     * Parses pending methods until there are none, or until a write action is pending.
+     */
+    private void parseInParallel(List<PsiMethod> psiMethods,
+                                 Queue<Integer> pendingMethods,
+                                 Queue<ParsedMethod> parsedMethods,
+                                 boolean collectDeclarations,
+                                 int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            CompletableFuture<?>[] workers = new CompletableFuture<?>[threads];
+            Arrays.setAll(workers, worker -> CompletableFuture.runAsync(() -> {
+                Integer index;
+                while ((index = pendingMethods.poll()) != null) {
+                    int methodIndex = index;
+                    boolean parsed = ProgressIndicatorUtils.runInReadActionWithWriteActionPriority(() ->
+                            parsedMethods.add(parse(psiMethods.get(methodIndex), methodIndex, collectDeclarations)));
+                    if (!parsed) {
+                        //parsing was cancelled by a write action, the caller parses the rest
+                        return;
+                    }
+                }
+            }, pool));
+            CompletableFuture.allOf(workers).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private ParsedMethod parse(PsiMethod psiMethod, int index, boolean collectDeclarations) {
+        if (!collectDeclarations) {
+            return new ParsedMethod(index, statementParser.parseMethod(psiMethod), Collections.emptyMap());
+        }
+        Map<PsiMethod, List<MethodDeclaration>> declarations = new HashMap<>();
+        return new ParsedMethod(index, statementParser.parseMethod(psiMethod, declarations), declarations);
+    }
+
+    /**
+     * Tells whether a method is a part of library API: only such methods are analyzed as entry points.
+     *
+     * @param psiMethod method
+     * @return true if method and its class are public
+     */
+    public boolean isLibraryMethod(PsiMethod psiMethod) {
+        PsiClass containingClass = psiMethod.getContainingClass();
+        return psiMethod.getModifierList().hasModifierProperty(PsiModifier.PUBLIC)
+                && containingClass != null
+                && containingClass.getModifierList() != null
+                && containingClass.getModifierList().hasModifierProperty(PsiModifier.PUBLIC);
+    }
+
+    @Data
+    private static final class ParsedMethod {
+        private final int index;
+        private final MethodStatement methodStatement;
+        private final Map<PsiMethod, List<MethodDeclaration>> declarations;
+    }
 }
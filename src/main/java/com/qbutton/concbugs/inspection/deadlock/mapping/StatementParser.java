@@ -19,13 +19,13 @@ import com.intellij.psi.PsiStatement;
 import com.intellij.psi.PsiSynchronizedStatement;
 import com.intellij.psi.PsiType;
 import com.intellij.psi.impl.source.tree.java.PsiLocalVariableImpl;
-import com.intellij.psi.search.searches.OverridingMethodsSearch;
 import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
 import com.qbutton.concbugs.algorythm.dto.MethodDeclaration.Variable;
 import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.CrossAssignmentStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.DeclarationStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.InnerAssignmentStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.Statement;
 import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
@@ -37,8 +37,9 @@ import lombok.RequiredArgsConstructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.function.BiConsumer;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -48,6 +49,12 @@ public class StatementParser {
 
     private final StatementShrinker statementShrinker;
     private final StatementMapper statementMapper;
+    private final ParsedMethodCache parsedMethodCache;
+
+    /**
+     * State of top-level parsing. Methods are parsed on several threads at once, so each thread has its own.
+     */
+    private final ThreadLocal<ParsingContext> parsingContext = ThreadLocal.withInitial(ParsingContext::new);
 
     private void parseAssignmentExpression(PsiAssignmentExpression expression, List<Statement> statements) {
         PsiReferenceExpression left;
@@ -104,24 +111,10 @@ public class StatementParser {
     }
 
     private Statement parseStatements(PsiCodeBlock psiCodeBlock) {
-        PsiStatement[] statements = psiCodeBlock.getStatements();
         List<Statement> resultStatements = new ArrayList<>();
-
-        Arrays.stream(statements)
-                .forEach(psiStatement -> {
-                    Statement statement = parseStatement(psiStatement);
-                    resultStatements.add(statement);
-                });
-
-
-        return statementShrinker.shrinkStatements(resultStatements);
-    }
-
-    private Statement parseStatement(PsiStatement statement) {
-        List<Statement> resultStatements = new ArrayList<>();
-
-        BiConsumer<PsiStatement, List<Statement>> parseFunction = statementMapper.getParser(statement);
-        parseFunction.accept(statement, resultStatements);
+        for (PsiStatement psiStatement : psiCodeBlock.getStatements()) {
+            statementMapper.getParser(psiStatement).accept(psiStatement, resultStatements);
+        }
 
         return statementShrinker.shrinkStatements(resultStatements);
     }
@@ -162,7 +155,7 @@ public class StatementParser {
                 : initialTextOffset;
 
         methodsToParse.add(psiMethod);
-        methodsToParse.addAll(OverridingMethodsSearch.search(psiMethod).findAll());
+        methodsToParse.addAll(parsedMethodCache.getOverridingMethods(psiMethod));
 
         methodsToParse.forEach(addMethodDeclarationIfNeeded(psiMethod.getName(), methodDeclarations));
 
@@ -177,7 +170,35 @@ public class StatementParser {
      * @return resulting method statement
      */
     MethodStatement parseMethod(PsiMethod psiMethod) {
-        return parseMethod(psiMethod, null, null, Collections.emptyList());
+        Map<PsiMethod, MethodDeclaration> newDeclarations = parsingContext.get().newDeclarations;
+        boolean parsed = false;
+        try {
+            MethodStatement methodStatement = parseMethod(psiMethod, null, null, Collections.emptyList());
+            parsed = true;
+            return methodStatement;
+        } finally {
+            if (parsed) {
+                newDeclarations.forEach(parsedMethodCache::putDeclaration);
+            }
+            newDeclarations.clear();
+        }
+    }
+
+    /**
+     * Top-level method parsing, which also collects method declarations parsed on the way.
+     *
+     * @param psiMethod          psiMethod
+     * @param parsedDeclarations map to put declarations to, by method they were parsed from
+     * @return resulting method statement
+     */
+    MethodStatement parseMethod(PsiMethod psiMethod, Map<PsiMethod, List<MethodDeclaration>> parsedDeclarations) {
+        ParsingContext context = parsingContext.get();
+        context.parsedDeclarations = parsedDeclarations;
+        try {
+            return parseMethod(psiMethod);
+        } finally {
+            context.parsedDeclarations = null;
+        }
     }
 
     void parseDeclarationStatement(PsiDeclarationStatement psiDeclarationStatement, List<Statement> statements) {
@@ -259,8 +280,9 @@ public class StatementParser {
         }
 
         Statement statement = this.parseStatements((PsiCodeBlock) firstChild);
+        if (statement == null) return;
 
-        statements.add(statement);
+        statements.add(new LoopStatement(psiLoopStatement.getTextOffset(), null, statement));
     }
 
     private Consumer<PsiMethod> addMethodDeclarationIfNeeded(String methodName,
@@ -270,39 +292,80 @@ public class StatementParser {
                 return;
             }
 
-            String className = method.getContainingClass().getQualifiedName();
+            ParsingContext context = parsingContext.get();
+            List<List<MethodDeclaration>> recursiveCalls = context.methodsInProgress.get(method);
+            if (recursiveCalls != null) {
+                //recursive call, the declaration is added when parsing of method body is finished
+                recursiveCalls.add(methodDeclarations);
+                return;
+            }
 
-            String synchronizationVarName = isStatic(method)
-                    ? className + ".class"
-                    : "this";
+            MethodDeclaration knownDeclaration = context.newDeclarations.get(method);
+            if (knownDeclaration != null) {
+                methodDeclarations.add(knownDeclaration);
+                return;
+            }
+            MethodDeclaration cachedDeclaration = parsedMethodCache.getDeclaration(method);
+            if (cachedDeclaration != null) {
+                methodDeclarations.add(cachedDeclaration);
+                if (context.parsedDeclarations != null) {
+                    parsedMethodCache.collectDeclarations(method.getProject(), cachedDeclaration,
+                            context.parsedDeclarations);
+                }
+                return;
+            }
 
-            String synchronizationClassName = isStatic(method)
-                    ? "java.lang.Class"
-                    : className;
+            List<List<MethodDeclaration>> pendingCalls = new ArrayList<>();
+            context.methodsInProgress.put(method, pendingCalls);
+            MethodDeclaration methodDeclaration;
+            try {
+                methodDeclaration = parseMethodDeclaration(methodName, method);
+            } finally {
+                context.methodsInProgress.remove(method);
+            }
 
-            //add this as a first argument for synchronization if it is instance method
-            List<Variable> variables = new ArrayList<>();
-            if (!isStatic(method)) {
-                variables.add(new Variable(synchronizationVarName, className));
+            methodDeclarations.add(methodDeclaration);
+            context.newDeclarations.put(method, methodDeclaration);
+            if (context.parsedDeclarations != null) {
+                context.parsedDeclarations.computeIfAbsent(method, key -> new ArrayList<>()).add(methodDeclaration);
+            }
+            for (List<MethodDeclaration> declarations : pendingCalls) {
+                declarations.add(methodDeclaration);
             }
+        };
+    }
 
-            variables.addAll(
-                    Arrays.stream(method.getParameterList().getParameters())
-                            .map(param -> new Variable(param.getName(), param.getType().getCanonicalText()))
-                            .collect(Collectors.toList())
-            );
+    private MethodDeclaration parseMethodDeclaration(String methodName, PsiMethod method) {
+        String className = method.getContainingClass().getQualifiedName();
 
-            PsiCodeBlock actualBody = method.getBody();
-            Statement methodBody = this.parseStatements(actualBody);
+        String synchronizationVarName = isStatic(method)
+                ? className + ".class"
+                : "this";
 
-            int textOffset = method.getTextOffset();
+        String synchronizationClassName = isStatic(method)
+                ? "java.lang.Class"
+                : className;
 
-            methodBody = desugarSynchronizedIfNeeded(textOffset, method, synchronizationVarName, methodBody, synchronizationClassName);
+        //add this as a first argument for synchronization if it is instance method
+        List<Variable> variables = new ArrayList<>();
+        if (!isStatic(method)) {
+            variables.add(new Variable(synchronizationVarName, className));
+        }
 
-            methodDeclarations.add(
-                    new MethodDeclaration(methodName, variables, methodBody, textOffset)
-            );
-        };
+        variables.addAll(
+                Arrays.stream(method.getParameterList().getParameters())
+                        .map(param -> new Variable(param.getName(), param.getType().getCanonicalText()))
+                        .collect(Collectors.toList())
+        );
+
+        PsiCodeBlock actualBody = method.getBody();
+        Statement methodBody = this.parseStatements(actualBody);
+
+        int textOffset = method.getTextOffset();
+
+        methodBody = desugarSynchronizedIfNeeded(textOffset, method, synchronizationVarName, methodBody, synchronizationClassName);
+
+        return new MethodDeclaration(methodName, variables, methodBody, textOffset, className);
     }
 
     private boolean isStatic(PsiMethod method) {
@@ -371,4 +434,22 @@ public class StatementParser {
     private boolean isLibraryMethod(PsiMethod psiMethod) {
         return psiMethod.getBody() == null;
     }
+
+    private static final class ParsingContext {
+        /**
+         * Methods whose bodies are being parsed, mapped to declaration lists of recursive calls to them.
+         */
+        private final Map<PsiMethod, List<List<MethodDeclaration>>> methodsInProgress = new HashMap<>();
+
+        /**
+         * Declarations parsed during current top-level parsing, by method they were parsed from; null if not collected.
+         */
+        private Map<PsiMethod, List<MethodDeclaration>> parsedDeclarations;
+
+        /**
+         * Declarations parsed during current top-level parsing, by method they were parsed from. They are remembered
+         * in the cache when top-level parsing succeeds, as recursive calls in them are not resolved before that.
+         */
+        private final Map<PsiMethod, MethodDeclaration> newDeclarations = new HashMap<>();
+    }
 }
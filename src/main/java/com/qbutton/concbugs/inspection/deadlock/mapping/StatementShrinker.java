@@ -4,50 +4,48 @@ import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.Statement;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Shrinks a list of statements to a single one. Statements are put into a single flat sequential statement,
+ * with null statements skipped and nested sequential statements inlined, so that no intermediate lists
+ * are built and statement trees do not get deeper.
+ */
 public class StatementShrinker {
 
     @Nullable
-    Statement shrinkStatements(List<Statement> statements) {
-        if (statements.isEmpty()) {
-            return null;
-        }
-
-        List<Statement> statementsToShrink = new ArrayList<>(statements);
-        List<Statement> currentStatements = new ArrayList<>();
-
-        while (statementsToShrink.size() != 1) {
-            int currentSize = statementsToShrink.size();
-            for (int i = 0; i < currentSize - 1; i += 2) {
-                Statement first = statementsToShrink.get(i);
-                Statement second = statementsToShrink.get(i + 1);
-
-                Statement unionStatement = getStatement(first, second);
-                currentStatements.add(unionStatement);
+    public Statement shrinkStatements(List<Statement> statements) {
+        int size = 0;
+        Statement lastStatement = null;
+        int nonNullStatements = 0;
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+            if (statement != null) {
+                size += statement instanceof SequentialStatement
+                        ? ((SequentialStatement) statement).getStatements().size()
+                        : 1;
+                lastStatement = statement;
+                nonNullStatements++;
             }
-            if (currentSize % 2 == 1) {
-                currentStatements.add(statementsToShrink.get(currentSize - 1));
-            }
-            statementsToShrink = new ArrayList<>(currentStatements);
-            currentStatements.clear();
         }
 
-        return statementsToShrink.get(0);
-    }
-
-    private Statement getStatement(Statement first, Statement second) {
-        if (first != null && second != null) {
-            return new SequentialStatement(first, second);
+        if (nonNullStatements <= 1) {
+            return lastStatement;
         }
-        if (first == null) {
-            if (second == null) {
-                return null;
+
+        Statement[] sequence = new Statement[size];
+        int position = 0;
+        for (int i = 0; i < statements.size(); i++) {
+            Statement statement = statements.get(i);
+            if (statement instanceof SequentialStatement) {
+                List<Statement> innerStatements = ((SequentialStatement) statement).getStatements();
+                for (int j = 0; j < innerStatements.size(); j++) {
+                    sequence[position++] = innerStatements.get(j);
+                }
+            } else if (statement != null) {
+                sequence[position++] = statement;
             }
-            return second;
-        } else {
-            return first;
         }
+        return new SequentialStatement(sequence);
     }
 }
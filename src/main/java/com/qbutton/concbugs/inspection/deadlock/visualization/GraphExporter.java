@@ -0,0 +1,342 @@
+package com.qbutton.concbugs.inspection.deadlock.visualization;
+
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes lock-order graph to a channel, so that graphs too big for {@link GraphVisualizer} can be inspected
+ * offline with dedicated tools.
+ * <p>
+ * Graph is written while its neighbors are iterated, with every node written just before the first edge
+ * which refers to it. Only ids of written nodes are kept in memory, output goes to the channel through
+ * a fixed-size buffer. The channel is not closed.
+ * <p>
+ * {@link ClassEdgeGraph} is exported expanded over subclasses, one source node at a time, so that the expanded
+ * graph is never built in memory.
+ */
+public final class GraphExporter {
+
+    /**
+     * Bytes every binary graph starts with, the last one being version of the format.
+     */
+    private static final byte[] BINARY_MAGIC = {'C', 'B', 'L', 'G', 1};
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private GraphExporter() {
+    }
+
+    public enum Format {
+        /**
+         * Graphviz DOT.
+         */
+        DOT,
+        /**
+         * GraphML, with class, variable and offset of every node as data.
+         */
+        GRAPHML,
+        /**
+         * Compact binary edge list, see {@link #exportBinary(Graph, WritableByteChannel)}.
+         */
+        BINARY;
+
+        /**
+         * Finds format by extension of a file name: .dot or .gv for DOT, .graphml for GraphML, .bin for binary.
+         *
+         * @param fileName file name
+         * @return format
+         * @throws IllegalArgumentException if extension is unknown
+         */
+        public static Format ofFileName(String fileName) {
+            String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+            if (lowerCaseName.endsWith(".dot") || lowerCaseName.endsWith(".gv")) {
+                return DOT;
+            }
+            if (lowerCaseName.endsWith(".graphml")) {
+                return GRAPHML;
+            }
+            if (lowerCaseName.endsWith(".bin")) {
+                return BINARY;
+            }
+            throw new IllegalArgumentException("Unknown graph format of " + fileName + ", expected .dot, .gv, .graphml or .bin");
+        }
+    }
+
+    public static void export(Graph graph, Format format, WritableByteChannel channel) throws IOException {
+        export(graph.getNeighbors().entrySet(), format, channel);
+    }
+
+    public static void export(ClassEdgeGraph graph, Format format, WritableByteChannel channel) throws IOException {
+        export(graph.expandedNeighbors(), format, channel);
+    }
+
+    private static void export(Iterable<Map.Entry<HeapObject, Set<HeapObject>>> neighbors,
+                               Format format,
+                               WritableByteChannel channel) throws IOException {
+        switch (format) {
+            case DOT:
+                exportDot(neighbors, channel);
+                break;
+            case GRAPHML:
+                exportGraphMl(neighbors, channel);
+                break;
+            case BINARY:
+                exportBinary(neighbors, channel);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown graph format " + format);
+        }
+    }
+
+    public static void exportDot(Graph graph, WritableByteChannel channel) throws IOException {
+        exportDot(graph.getNeighbors().entrySet(), channel);
+    }
+
+    private static void exportDot(Iterable<Map.Entry<HeapObject, Set<HeapObject>>> neighbors,
+                                  WritableByteChannel channel) throws IOException {
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE);
+        NodeIds nodeIds = new NodeIds();
+
+        writer.write("digraph locks {\n");
+        for (Map.Entry<HeapObject, Set<HeapObject>> entry : neighbors) {
+            int from = writeDotNode(writer, nodeIds, entry.getKey());
+            for (HeapObject to : entry.getValue()) {
+                int toId = writeDotNode(writer, nodeIds, to);
+                writer.write("  n" + from + " -> n" + toId + ";\n");
+            }
+        }
+        writer.write("}\n");
+        writer.flush();
+    }
+
+    public static void exportGraphMl(Graph graph, WritableByteChannel channel) throws IOException {
+        exportGraphMl(graph.getNeighbors().entrySet(), channel);
+    }
+
+    private static void exportGraphMl(Iterable<Map.Entry<HeapObject, Set<HeapObject>>> neighbors,
+                                      WritableByteChannel channel) throws IOException {
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE);
+        NodeIds nodeIds = new NodeIds();
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n"
+                + "  <key id=\"class\" for=\"node\" attr.name=\"class\" attr.type=\"string\"/>\n"
+                + "  <key id=\"variable\" for=\"node\" attr.name=\"variable\" attr.type=\"string\"/>\n"
+                + "  <key id=\"offset\" for=\"node\" attr.name=\"offset\" attr.type=\"int\"/>\n"
+                + "  <graph id=\"locks\" edgedefault=\"directed\">\n");
+        for (Map.Entry<HeapObject, Set<HeapObject>> entry : neighbors) {
+            int from = writeGraphMlNode(writer, nodeIds, entry.getKey());
+            for (HeapObject to : entry.getValue()) {
+                int toId = writeGraphMlNode(writer, nodeIds, to);
+                writer.write("    <edge source=\"n" + from + "\" target=\"n" + toId + "\"/>\n");
+            }
+        }
+        writer.write("  </graph>\n</graphml>\n");
+        writer.flush();
+    }
+
+    /**
+     * Writes graph as a sequence of records, each starting with its tag:
+     * <ul>
+     * <li>{@code 1 length bytes} - string in UTF-8, which gets the next string index starting from 1;</li>
+     * <li>{@code 2 variable offset+1 class} - node with indices of its strings (0 for no variable),
+     * which gets the next node id starting from 0;</li>
+     * <li>{@code 3 from to} - edge between node ids;</li>
+     * <li>{@code 0} - end of graph.</li>
+     * </ul>
+     * The records follow magic bytes {@code CBLG} and version of the format, which is 1. All numbers are
+     * variable-length integers: 7 bits per byte, high bit tells whether more bytes follow. Strings and nodes
+     * are written before their first use.
+     *
+     * @param graph   graph
+     * @param channel channel
+     * @throws IOException if writing fails
+     */
+    public static void exportBinary(Graph graph, WritableByteChannel channel) throws IOException {
+        exportBinary(graph.getNeighbors().entrySet(), channel);
+    }
+
+    private static void exportBinary(Iterable<Map.Entry<HeapObject, Set<HeapObject>>> neighbors,
+                                     WritableByteChannel channel) throws IOException {
+        BinaryOutput output = new BinaryOutput(channel);
+        output.writeMagic();
+        for (Map.Entry<HeapObject, Set<HeapObject>> entry : neighbors) {
+            int from = output.writeNode(entry.getKey());
+            for (HeapObject to : entry.getValue()) {
+                int toId = output.writeNode(to);
+                output.writeInt(BinaryOutput.EDGE);
+                output.writeInt(from);
+                output.writeInt(toId);
+            }
+        }
+        output.writeInt(BinaryOutput.END);
+        output.flush();
+    }
+
+    private static int writeDotNode(Writer writer, NodeIds nodeIds, HeapObject heapObject) throws IOException {
+        int id = nodeIds.get(heapObject);
+        if (id < 0) {
+            id = nodeIds.add(heapObject);
+            writer.write("  n" + id + " [label=\"" + escapeDot(getLabel(heapObject))
+                    + "\", tooltip=\"" + escapeDot(heapObject.getClazz()) + "\"];\n");
+        }
+        return id;
+    }
+
+    private static int writeGraphMlNode(Writer writer, NodeIds nodeIds, HeapObject heapObject) throws IOException {
+        int id = nodeIds.get(heapObject);
+        if (id < 0) {
+            id = nodeIds.add(heapObject);
+            writer.write("    <node id=\"n" + id + "\">"
+                    + "<data key=\"class\">" + escapeXml(heapObject.getClazz()) + "</data>");
+            String variableName = heapObject.getProgramPoint().getVariableName();
+            if (variableName != null) {
+                writer.write("<data key=\"variable\">" + escapeXml(variableName) + "</data>");
+            }
+            writer.write("<data key=\"offset\">" + heapObject.getProgramPoint().getOffset() + "</data></node>\n");
+        }
+        return id;
+    }
+
+    /**
+     * Simple class name, followed by the variable and offset of the program point if it is known.
+     */
+    private static String getLabel(HeapObject heapObject) {
+        String clazz = heapObject.getClazz();
+        String label = clazz.substring(clazz.lastIndexOf('.') + 1);
+        String variableName = heapObject.getProgramPoint().getVariableName();
+        return variableName == null
+                ? label
+                : label + "\n" + variableName + "@" + heapObject.getProgramPoint().getOffset();
+    }
+
+    private static String escapeDot(String string) {
+        return string.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeXml(String string) {
+        return string.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * Ids of written nodes, in order of writing.
+     */
+    private static final class NodeIds {
+        private final Map<HeapObject, Integer> ids = new HashMap<>();
+
+        private int get(HeapObject heapObject) {
+            return ids.getOrDefault(heapObject, -1);
+        }
+
+        private int add(HeapObject heapObject) {
+            int id = ids.size();
+            ids.put(heapObject, id);
+            return id;
+        }
+    }
+
+    private static final class BinaryOutput {
+        private static final int END = 0;
+        private static final int STRING = 1;
+        private static final int NODE = 2;
+        private static final int EDGE = 3;
+
+        private static final int MAX_INT_SIZE = 5;
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final NodeIds nodeIds = new NodeIds();
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        private BinaryOutput(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        private void writeMagic() throws IOException {
+            ensureRemaining(BINARY_MAGIC.length);
+            buffer.put(BINARY_MAGIC);
+        }
+
+        private int writeNode(HeapObject heapObject) throws IOException {
+            int id = nodeIds.get(heapObject);
+            if (id >= 0) {
+                return id;
+            }
+
+            int variable = writeString(heapObject.getProgramPoint().getVariableName());
+            int clazz = writeString(heapObject.getClazz());
+            writeInt(NODE);
+            writeInt(variable);
+            writeInt(heapObject.getProgramPoint().getOffset() + 1);
+            writeInt(clazz);
+            return nodeIds.add(heapObject);
+        }
+
+        /**
+         * Writes string unless it is already written.
+         *
+         * @return index of string, 0 for null
+         */
+        private int writeString(String string) throws IOException {
+            if (string == null) {
+                return 0;
+            }
+            Integer index = strings.get(string);
+            if (index != null) {
+                return index;
+            }
+
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeInt(STRING);
+            writeInt(bytes.length);
+            for (int position = 0; position < bytes.length; ) {
+                ensureRemaining(1);
+                int length = Math.min(buffer.remaining(), bytes.length - position);
+                buffer.put(bytes, position, length);
+                position += length;
+            }
+
+            index = strings.size() + 1;
+            strings.put(string, index);
+            return index;
+        }
+
+        private void writeInt(int value) throws IOException {
+            if (value < 0) {
+                throw new IllegalArgumentException("Can't write negative number " + value);
+            }
+            ensureRemaining(MAX_INT_SIZE);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -1,10 +1,19 @@
 package com.qbutton.concbugs.algorythm;
 
 import com.google.common.collect.ImmutableList;
-import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.google.common.collect.ImmutableSet;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.Cycle;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
 import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
 import com.qbutton.concbugs.algorythm.processor.ProcessorFacade;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
+import com.qbutton.concbugs.algorythm.service.CycleService;
 import com.qbutton.concbugs.algorythm.service.GraphService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,13 +23,19 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.nCopies;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -33,12 +48,18 @@ class AlgorythmFacadeTest {
     private ProcessorFacade processorFacade;
     @Mock
     private GraphService graphService;
+    @Mock
+    private CallGraphService callGraphService;
+    @Mock
+    private CycleService cycleService;
+    @Mock
+    private AnalysisBudget analysisBudget;
 
     private AlgorythmFacade algorythmFacade;
 
     @BeforeEach
     void init() {
-        algorythmFacade = new AlgorythmFacade(processorFacade, graphService);
+        algorythmFacade = new AlgorythmFacade(processorFacade, graphService, callGraphService, cycleService, analysisBudget);
     }
 
     @Test
@@ -63,12 +84,12 @@ class AlgorythmFacadeTest {
             return null;
         });
 
-        Graph emptyGraph = new Graph(Collections.emptyMap());
-        when(graphService.postProcess(ImmutableList.of(methodProcessResult1, methodProcessResult2)))
+        ClassEdgeGraph emptyGraph = ClassEdgeGraph.EMPTY_GRAPH;
+        when(graphService.postProcess(ImmutableList.of(methodProcessResult1, methodProcessResult2), nCopies(2, null)))
                 .thenReturn(emptyGraph);
 
         //when
-        Graph resultGraph = algorythmFacade.visitLibrary(ImmutableList.of(method1, method2));
+        ClassEdgeGraph resultGraph = algorythmFacade.visitLibrary(ImmutableList.of(method1, method2));
 
         //then
         assertThat(resultGraph, is(emptyGraph));
@@ -77,6 +98,102 @@ class AlgorythmFacadeTest {
         verify(processorFacade).process(method2, State.EMPTY_STATE);
         verifyNoMoreInteractions(processorFacade);
 
-        verify(graphService).postProcess(ImmutableList.of(methodProcessResult1, methodProcessResult2));
+        verify(graphService).postProcess(ImmutableList.of(methodProcessResult1, methodProcessResult2), nCopies(2, null));
+        verify(callGraphService).computeSummaries(ImmutableList.of(method1, method2));
+        verify(analysisBudget).start();
+    }
+
+    @Test
+    @DisplayName("passes qualified names of public methods to the graph")
+    void visitLibrary_methodNames() {
+        //given
+        MethodStatement transfer = new MethodStatement(0, null,
+                ImmutableList.of(new MethodDeclaration("transfer", emptyList(), null, 0, "a.A")), "void", emptyList());
+        MethodStatement refund = new MethodStatement(1, null,
+                ImmutableList.of(new MethodDeclaration("refund", emptyList(), null, 1, "b.B")), "void", emptyList());
+        State transferState = Mockito.mock(State.class);
+        State refundState = Mockito.mock(State.class);
+        when(processorFacade.process(any(), eq(State.EMPTY_STATE))).thenAnswer(invocation ->
+                invocation.getArguments()[0] == transfer ? transferState : refundState);
+        when(graphService.postProcess(ImmutableList.of(transferState, refundState), ImmutableList.of("a.A.transfer", "b.B.refund")))
+                .thenReturn(ClassEdgeGraph.EMPTY_GRAPH);
+
+        //when
+        ClassEdgeGraph resultGraph = algorythmFacade.visitLibrary(ImmutableList.of(transfer, refund));
+
+        //then
+        assertThat(resultGraph, is(ClassEdgeGraph.EMPTY_GRAPH));
+        verify(graphService).postProcess(
+                ImmutableList.of(transferState, refundState), ImmutableList.of("a.A.transfer", "b.B.refund"));
+    }
+
+    @Test
+    @DisplayName("records methods which ran out of budget in the graph")
+    void visitLibrary_truncatedMethods() {
+        //given
+        MethodStatement method = new MethodStatement(0, "0", emptyList(), "int", emptyList());
+        State methodProcessResult = Mockito.mock(State.class);
+        when(processorFacade.process(method, State.EMPTY_STATE)).thenReturn(methodProcessResult);
+        when(graphService.postProcess(ImmutableList.of(methodProcessResult), nCopies(1, null))).thenReturn(ClassEdgeGraph.EMPTY_GRAPH);
+        when(analysisBudget.getTruncatedMethods()).thenReturn(ImmutableSet.of(
+                new MethodDeclaration("run", emptyList(), null, 1, "b.B"),
+                new MethodDeclaration("run", emptyList(), null, 2, "a.A")));
+
+        //when
+        ClassEdgeGraph resultGraph = algorythmFacade.visitLibrary(ImmutableList.of(method));
+
+        //then
+        assertThat(resultGraph.getTruncatedMethods(), is(ImmutableSet.of("a.A.run", "b.B.run")));
+        assertThat(resultGraph.getEdges(), is(ClassEdgeGraph.EMPTY_GRAPH.getEdges()));
+    }
+
+    @Test
+    void visitLibrary_parallel() {
+        //given
+        List<MethodStatement> methods = IntStream.range(0, 20)
+                .mapToObj(i -> new MethodStatement(i, String.valueOf(i), emptyList(), "int", emptyList()))
+                .collect(Collectors.toList());
+        List<State> methodProcessResults = methods.stream()
+                .map(method -> Mockito.mock(State.class))
+                .collect(Collectors.toList());
+
+        when(processorFacade.process(any(), eq(State.EMPTY_STATE))).thenAnswer(invocation ->
+                methodProcessResults.get(methods.indexOf((MethodStatement) invocation.getArguments()[0])));
+
+        ClassEdgeGraph emptyGraph = ClassEdgeGraph.EMPTY_GRAPH;
+        when(graphService.postProcess(methodProcessResults, nCopies(20, null))).thenReturn(emptyGraph);
+
+        algorythmFacade.setParallelism(4);
+
+        //when
+        ClassEdgeGraph resultGraph = algorythmFacade.visitLibrary(methods);
+
+        //then
+        assertThat(resultGraph, is(emptyGraph));
+
+        verify(graphService).postProcess(methodProcessResults, nCopies(20, null));
+        verify(callGraphService).computeSummaries(eq(methods), any(ForkJoinPool.class));
+        verify(callGraphService, never()).computeSummaries(any());
+    }
+
+    @Test
+    void setParallelism_notPositive() {
+        //when
+        //then
+        assertThrows(AlgorithmValidationException.class, () -> algorythmFacade.setParallelism(0));
+    }
+
+    @Test
+    void findDeadlocks() {
+        //given
+        ClassEdgeGraph graph = ClassEdgeGraph.EMPTY_GRAPH;
+        List<Cycle> cycles = ImmutableList.of(new Cycle(ImmutableList.of(new HeapObject(ProgramPoint.UNKNOWN, "a.A"))));
+        when(cycleService.findCycles(graph)).thenReturn(cycles);
+
+        //when
+        List<Cycle> result = algorythmFacade.findDeadlocks(graph);
+
+        //then
+        assertThat(result, is(cycles));
     }
-}
\ No newline at end of file
+}
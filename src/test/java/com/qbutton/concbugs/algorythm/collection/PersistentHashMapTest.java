@@ -0,0 +1,129 @@
+package com.qbutton.concbugs.algorythm.collection;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@DisplayName("PersistentHashMap")
+class PersistentHashMapTest {
+
+    @Test
+    @DisplayName("adds and removes keys without changing original map")
+    void plusAndMinus() {
+        //given
+        PersistentHashMap<String, Integer> original = PersistentHashMap.<String, Integer>empty()
+                .plus("a", 1)
+                .plus("b", 2);
+
+        //when
+        PersistentHashMap<String, Integer> updated = original.plus("c", 3).plus("a", 10).minus("b");
+
+        //then
+        assertThat(original, is(ImmutableMap.of("a", 1, "b", 2)));
+        assertThat(updated, is(ImmutableMap.of("a", 10, "c", 3)));
+        assertThat(updated.size(), is(2));
+        assertThat(updated.get("b"), is(nullValue()));
+    }
+
+    @Test
+    @DisplayName("returns same instance when nothing changes")
+    void plusAndMinus_sameInstance() {
+        //given
+        Integer value = 1;
+        PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer>empty().plus("a", value);
+
+        //when
+        //then
+        assertThat(map.plus("a", value), is(sameInstance(map)));
+        assertThat(map.minus("b"), is(sameInstance(map)));
+        assertThat(PersistentHashMap.copyOf(map), is(sameInstance(map)));
+    }
+
+    @Test
+    @DisplayName("behaves as hash map on many keys")
+    void manyKeys() {
+        //given
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+
+        //when
+        for (int i = 0; i < 5_000; i++) {
+            expected.put(i * 31, i);
+            map = map.plus(i * 31, i);
+        }
+        for (int i = 0; i < 5_000; i += 3) {
+            expected.remove(i * 31);
+            map = map.minus(i * 31);
+        }
+
+        //then
+        assertThat(map.size(), is(expected.size()));
+        assertThat(map, is(expected));
+        assertThat(map.hashCode(), is(expected.hashCode()));
+    }
+
+    @Test
+    @DisplayName("keeps keys with same hash code apart")
+    void hashCollisions() {
+        //given
+        CollidingKey key1 = new CollidingKey("1");
+        CollidingKey key2 = new CollidingKey("2");
+        CollidingKey key3 = new CollidingKey("3");
+
+        //when
+        PersistentHashMap<CollidingKey, String> map = PersistentHashMap.<CollidingKey, String>empty()
+                .plus(key1, "a")
+                .plus(key2, "b")
+                .plus(key3, "c")
+                .minus(key2);
+
+        //then
+        assertThat(map, is(ImmutableMap.of(key1, "a", key3, "c")));
+        assertFalse(map.containsKey(key2));
+    }
+
+    @Test
+    @DisplayName("set union shares the bigger set")
+    void setUnion() {
+        //given
+        PersistentHashSet<Integer> small = PersistentHashSet.of(1);
+        PersistentHashSet<Integer> big = PersistentHashSet.copyOf(ImmutableSet.of(1, 2, 3));
+
+        //when
+        PersistentHashSet<Integer> union = small.union(big);
+
+        //then
+        assertThat(union, is(sameInstance(big)));
+        assertThat(union, is(ImmutableSet.of(1, 2, 3)));
+        assertTrue(union.minus(2).contains(3));
+    }
+
+    private static final class CollidingKey {
+        private final String name;
+
+        private CollidingKey(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && name.equals(((CollidingKey) o).name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}
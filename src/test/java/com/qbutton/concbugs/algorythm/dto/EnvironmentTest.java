@@ -0,0 +1,109 @@
+package com.qbutton.concbugs.algorythm.dto;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Environment")
+class EnvironmentTest {
+
+    private static final HeapObject HO_A = HeapObject.of(ProgramPoint.of("a", 1), "A");
+    private static final HeapObject HO_B = HeapObject.of(ProgramPoint.of("b", 2), "B");
+    private static final HeapObject HO_C = HeapObject.of(ProgramPoint.of("c", 3), "C");
+
+    @Test
+    @DisplayName("adds and replaces entries without changing original environment")
+    void with() {
+        //given
+        Environment original = Environment.empty()
+                .with(new EnvEntry("a", HO_A))
+                .with(new EnvEntry("b", HO_B));
+
+        //when
+        Environment updated = original.with(new EnvEntry("c", HO_C)).with(new EnvEntry("a", HO_C));
+
+        //then
+        assertThat(original, is(ImmutableList.of(new EnvEntry("a", HO_A), new EnvEntry("b", HO_B))));
+        assertThat(updated, is(ImmutableList.of(
+                new EnvEntry("a", HO_C), new EnvEntry("b", HO_B), new EnvEntry("c", HO_C))));
+    }
+
+    @Test
+    @DisplayName("returns same instance when nothing changes")
+    void with_sameInstance() {
+        //given
+        Environment environment = Environment.copyOf(ImmutableList.of(new EnvEntry("a", HO_A)));
+
+        //when
+        //then
+        assertThat(environment.with(new EnvEntry("a", HO_A)), is(sameInstance(environment)));
+        assertThat(Environment.copyOf(environment), is(sameInstance(environment)));
+        assertThat(environment.retainVariablesOf(environment), is(sameInstance(environment)));
+    }
+
+    @Test
+    @DisplayName("finds heap objects by variable name")
+    void getHeapObject() {
+        //given
+        Environment environment = Environment.copyOf(ImmutableList.of(
+                new EnvEntry("a", HO_A), new EnvEntry("b", HO_B), new EnvEntry("a", HO_C)));
+
+        //when
+        //then
+        assertThat(environment.size(), is(2));
+        assertThat(environment.getHeapObject("a"), is(HO_C));
+        assertThat(environment.getHeapObject("b"), is(HO_B));
+        assertThat(environment.getHeapObject("c"), is(nullValue()));
+        assertTrue(environment.containsVariable("b"));
+        assertFalse(environment.containsVariable("c"));
+        assertThrows(IndexOutOfBoundsException.class, () -> environment.get(2));
+    }
+
+    @Test
+    @DisplayName("keeps only variables of another environment in original order")
+    void retainVariablesOf() {
+        //given
+        Environment scope = Environment.copyOf(ImmutableList.of(new EnvEntry("c", HO_C), new EnvEntry("a", HO_B)));
+        Environment environment = Environment.copyOf(ImmutableList.of(
+                new EnvEntry("a", HO_A), new EnvEntry("b", HO_B), new EnvEntry("c", HO_C)));
+
+        //when
+        Environment retained = environment.retainVariablesOf(scope);
+
+        //then
+        assertThat(retained, is(ImmutableList.of(new EnvEntry("a", HO_A), new EnvEntry("c", HO_C))));
+        assertFalse(retained.containsVariable("b"));
+        assertThat(retained.with(new EnvEntry("d", HO_B)).get(2), is(new EnvEntry("d", HO_B)));
+    }
+
+    @Test
+    @DisplayName("behaves as list on many variables")
+    void manyVariables() {
+        //given
+        List<EnvEntry> expected = new ArrayList<>();
+        Environment environment = Environment.empty();
+
+        //when
+        for (int i = 0; i < 1000; i++) {
+            EnvEntry entry = new EnvEntry("v" + i, HeapObject.of(ProgramPoint.of("v" + i, i), "A"));
+            expected.add(entry);
+            environment = environment.with(entry);
+        }
+
+        //then
+        assertThat(environment, is(expected));
+        assertThat(environment.hashCode(), is(expected.hashCode()));
+        assertThat(environment.getHeapObject("v500"), is(expected.get(500).getHeapObject()));
+    }
+}
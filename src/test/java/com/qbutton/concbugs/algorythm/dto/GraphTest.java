@@ -0,0 +1,73 @@
+package com.qbutton.concbugs.algorythm.dto;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@DisplayName("Graph")
+class GraphTest {
+
+    private static final HeapObject HO_A = HeapObject.of(ProgramPoint.of("a", 1), "A");
+    private static final HeapObject HO_B = HeapObject.of(ProgramPoint.of("b", 2), "B");
+    private static final HeapObject HO_C = HeapObject.of(ProgramPoint.of("c", 3), "C");
+
+    @Test
+    @DisplayName("finds predecessors of nodes of graph it is created of")
+    void getPredecessors() {
+        //given
+        Graph graph = new Graph(ImmutableMap.of(
+                HO_A, ImmutableSet.of(HO_B, HO_C),
+                HO_B, ImmutableSet.of(HO_C),
+                HO_C, ImmutableSet.of()));
+
+        //when
+        //then
+        assertThat(graph.getPredecessors(HO_A), is(ImmutableSet.of()));
+        assertThat(graph.getPredecessors(HO_B), is(ImmutableSet.of(HO_A)));
+        assertThat(graph.getPredecessors(HO_C), is(ImmutableSet.of(HO_A, HO_B)));
+    }
+
+    @Test
+    @DisplayName("keeps predecessors when edges are added and removed")
+    void getPredecessors_modified() {
+        //given
+        Graph graph = Graph.EMPTY_GRAPH.withEdge(HO_A, HO_B).withEdges(HO_C, ImmutableSet.of(HO_A, HO_B));
+
+        //when
+        Graph withoutEdge = graph.withoutEdge(HO_A, HO_B);
+        Graph withoutNode = graph.withoutNode(HO_A);
+
+        //then
+        assertThat(graph.getPredecessors(HO_A), is(ImmutableSet.of(HO_C)));
+        assertThat(graph.getPredecessors(HO_B), is(ImmutableSet.of(HO_A, HO_C)));
+        assertThat(withoutEdge.getPredecessors(HO_B), is(ImmutableSet.of(HO_C)));
+        assertThat(withoutEdge, is(new Graph(ImmutableMap.of(
+                HO_A, ImmutableSet.of(),
+                HO_B, ImmutableSet.of(),
+                HO_C, ImmutableSet.of(HO_A, HO_B)))));
+        assertThat(withoutNode.getPredecessors(HO_B), is(ImmutableSet.of(HO_C)));
+        assertThat(withoutNode, is(new Graph(ImmutableMap.of(
+                HO_B, ImmutableSet.of(),
+                HO_C, ImmutableSet.of(HO_B)))));
+    }
+
+    @Test
+    @DisplayName("returns same instance when nothing changes")
+    void with_sameInstance() {
+        //given
+        Graph graph = Graph.EMPTY_GRAPH.withEdge(HO_A, HO_B);
+
+        //when
+        //then
+        assertThat(graph.withNode(HO_A), is(sameInstance(graph)));
+        assertThat(graph.withEdge(HO_A, HO_B), is(sameInstance(graph)));
+        assertThat(graph.withEdges(HO_A, ImmutableSet.of(HO_B)), is(sameInstance(graph)));
+        assertThat(graph.withoutEdge(HO_B, HO_A), is(sameInstance(graph)));
+        assertThat(graph.withoutNode(HO_C), is(sameInstance(graph)));
+    }
+}
@@ -5,7 +5,6 @@ import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.Statement;
 import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
 import com.qbutton.concbugs.algorythm.service.MergeService;
-import com.qbutton.concbugs.algorythm.service.VisitorService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -16,8 +15,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -26,8 +23,6 @@ import static org.mockito.Mockito.when;
 @DisplayName("BranchStatementProcessor")
 class BranchStatementProcessorTest {
 
-    @Mock
-    private VisitorService visitorService;
     @Mock
     private MergeService mergeService;
 
@@ -35,55 +30,37 @@ class BranchStatementProcessorTest {
 
     @BeforeEach
     void init() {
-        branchStatementProcessor = new BranchStatementProcessor(visitorService, mergeService);
+        branchStatementProcessor = new BranchStatementProcessor(mergeService);
     }
 
     @Test
-    @DisplayName("processes correctly when statements are not null")
-    void process() {
+    @DisplayName("joins correctly when statements are not null")
+    void join() {
         //given
         int offset = 32;
         Statement statement1 = new WaitStatement(offset, "1");
         Statement statement2 = new WaitStatement(offset, "2");
 
-        State initialState = Mockito.mock(State.class);
         State state2 = Mockito.mock(State.class);
         State state3 = Mockito.mock(State.class);
         State resultState = Mockito.mock(State.class);
 
-        when(visitorService.visitStatement(any(), any())).thenAnswer(invocationOnMock -> {
-            WaitStatement statement = (WaitStatement) invocationOnMock.getArguments()[0];
-            if (statement.getVarName().equals("1")
-                    && invocationOnMock.getArguments()[1] == initialState) {
-                return state2;
-            }
-            if (statement.getVarName().equals("2")
-                    && invocationOnMock.getArguments()[1] == initialState) {
-                return state3;
-            }
-            return null;
-        });
-
         when(mergeService.mergeStates(state2, state3, 34)).thenReturn(resultState);
 
         //when
-        State actual = branchStatementProcessor.process(
-                new BranchStatement(34, "", statement1, statement2), initialState);
+        State actual = branchStatementProcessor.join(
+                new BranchStatement(34, "", statement1, statement2), state2, state3);
 
         //then
         assertThat(actual, is(resultState));
 
-        verify(visitorService).visitStatement(eq(new WaitStatement(offset, "1")), eq(initialState));
-        verify(visitorService).visitStatement(eq(new WaitStatement(offset, "2")), eq(initialState));
-        verifyNoMoreInteractions(visitorService);
-
         verify(mergeService).mergeStates(state2, state3, 34);
         verifyNoMoreInteractions(mergeService);
     }
 
     @Test
-    @DisplayName("processes correctly when first statement is null")
-    void process_firstStatementIsNull() {
+    @DisplayName("joins correctly when first statement is null")
+    void join_firstStatementIsNull() {
         //given
         int offset = 32;
         Statement statement2 = new WaitStatement(offset, "2");
@@ -92,65 +69,40 @@ class BranchStatementProcessorTest {
         State state3 = Mockito.mock(State.class);
         State resultState = Mockito.mock(State.class);
 
-        when(visitorService.visitStatement(statement2, initialState)).thenReturn(state3);
         when(mergeService.mergeStates(State.EMPTY_STATE, state3, 34)).thenReturn(resultState);
 
         //when
-        State actual = branchStatementProcessor.process(
-                new BranchStatement(34, "", null, statement2), initialState);
+        State actual = branchStatementProcessor.join(
+                new BranchStatement(34, "", null, statement2), initialState, state3);
 
         //then
         assertThat(actual, is(resultState));
 
-        verify(visitorService).visitStatement(eq(new WaitStatement(offset, "2")), eq(initialState));
-        verifyNoMoreInteractions(visitorService);
-
         verify(mergeService).mergeStates(State.EMPTY_STATE, state3, 34);
         verifyNoMoreInteractions(mergeService);
     }
 
     @Test
-    @DisplayName("processes correctly when second statement is null")
-    void process_secondStatementIsNull() {
+    @DisplayName("joins correctly when second statement is null")
+    void join_secondStatementIsNull() {
         //given
         int offset = 32;
-        Statement statement2 = new WaitStatement(offset, "2");
+        Statement statement1 = new WaitStatement(offset, "1");
 
         State initialState = Mockito.mock(State.class);
-        State state3 = Mockito.mock(State.class);
+        State state2 = Mockito.mock(State.class);
         State resultState = Mockito.mock(State.class);
 
-        when(visitorService.visitStatement(statement2, initialState)).thenReturn(state3);
-        when(mergeService.mergeStates(state3, State.EMPTY_STATE, 66)).thenReturn(resultState);
+        when(mergeService.mergeStates(state2, State.EMPTY_STATE, 66)).thenReturn(resultState);
 
         //when
-        State actual = branchStatementProcessor.process(
-                new BranchStatement(66, "", statement2, null), initialState);
+        State actual = branchStatementProcessor.join(
+                new BranchStatement(66, "", statement1, null), state2, initialState);
 
         //then
         assertThat(actual, is(resultState));
 
-        verify(visitorService).visitStatement(eq(new WaitStatement(offset, "2")), eq(initialState));
-        verifyNoMoreInteractions(visitorService);
-
-        verify(mergeService).mergeStates(state3, State.EMPTY_STATE, 66);
-        verifyNoMoreInteractions(mergeService);
-    }
-
-    @Test
-    @DisplayName("processes correctly when both statements are null")
-    void process_bothStatementsAreNull() {
-        //given
-        State initialState = Mockito.mock(State.class);
-
-        //when
-        State actual = branchStatementProcessor.process(
-                new BranchStatement(66, "", null, null), initialState);
-
-        //then
-        assertThat(actual, is(initialState));
-
-        verifyNoMoreInteractions(visitorService);
+        verify(mergeService).mergeStates(state2, State.EMPTY_STATE, 66);
         verifyNoMoreInteractions(mergeService);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package com.qbutton.concbugs.algorythm.processor;
+
+import com.google.common.collect.ImmutableList;
+import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Environment;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import com.qbutton.concbugs.algorythm.service.MergeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LoopStatementProcessor")
+class LoopStatementProcessorTest {
+
+    private static final LoopStatement LOOP = new LoopStatement(30, null, new WaitStatement(32, "a"));
+
+    @Mock
+    private MergeService mergeService;
+
+    private LoopStatementProcessor loopStatementProcessor;
+
+    @BeforeEach
+    void init() {
+        loopStatementProcessor = new LoopStatementProcessor(mergeService);
+    }
+
+    @Test
+    @DisplayName("merges state before iteration with state after it")
+    void join() {
+        //given
+        Environment env = Environment.copyOf(
+                ImmutableList.of(new EnvEntry("a", HeapObject.of(ProgramPoint.of("a", 10), "A"))));
+        State loopState = Mockito.mock(State.class);
+        State bodyState = Mockito.mock(State.class);
+        State mergedState = Mockito.mock(State.class);
+        when(loopState.getEnvironment()).thenReturn(env);
+        when(bodyState.getEnvironment()).thenReturn(env);
+        when(mergeService.mergeStates(loopState, bodyState, 30)).thenReturn(mergedState);
+
+        //when
+        State actual = loopStatementProcessor.join(LOOP, loopState, bodyState,
+                LoopStatementProcessor.WIDENING_THRESHOLD - 1);
+
+        //then
+        assertThat(actual, is(mergedState));
+        verify(mergeService).mergeStates(loopState, bodyState, 30);
+        verifyNoMoreInteractions(mergeService);
+    }
+
+    @Test
+    @DisplayName("widens states when environment has changed too many times")
+    void join_widening() {
+        //given
+        Environment env = Environment.copyOf(
+                ImmutableList.of(new EnvEntry("a", HeapObject.of(ProgramPoint.of("a", 10), "A"))));
+        State loopState = Mockito.mock(State.class);
+        State bodyState = Mockito.mock(State.class);
+        State widenedState = Mockito.mock(State.class);
+        when(loopState.getEnvironment()).thenReturn(env);
+        when(bodyState.getEnvironment()).thenReturn(env);
+        when(mergeService.widenStates(loopState, bodyState, 30)).thenReturn(widenedState);
+
+        //when
+        State actual = loopStatementProcessor.join(LOOP, loopState, bodyState,
+                LoopStatementProcessor.WIDENING_THRESHOLD);
+
+        //then
+        assertThat(actual, is(widenedState));
+        verify(mergeService).widenStates(loopState, bodyState, 30);
+        verifyNoMoreInteractions(mergeService);
+    }
+
+    @Test
+    @DisplayName("drops variables declared in body")
+    void join_bodyDeclarations() {
+        //given
+        EnvEntry outerEntry = new EnvEntry("a", HeapObject.of(ProgramPoint.of("a", 10), "Integer"));
+        EnvEntry innerEntry = new EnvEntry("b", HeapObject.of(ProgramPoint.of("b", 33), "Long"));
+
+        State loopState = new State(Graph.EMPTY_GRAPH, Collections.emptySet(), Collections.emptyList(),
+                ImmutableList.of(outerEntry), Collections.emptySet());
+        State bodyState = new State(Graph.EMPTY_GRAPH, Collections.emptySet(), Collections.emptyList(),
+                ImmutableList.of(outerEntry, innerEntry), Collections.emptySet());
+
+        when(mergeService.mergeStates(eq(loopState), any(), eq(30))).thenReturn(loopState);
+
+        //when
+        State actual = loopStatementProcessor.join(LOOP, loopState, bodyState, 0);
+
+        //then
+        assertThat(actual, is(loopState));
+        verify(mergeService).mergeStates(eq(loopState),
+                argThat(state -> state.getEnvironment().equals(ImmutableList.of(outerEntry))), eq(30));
+    }
+}
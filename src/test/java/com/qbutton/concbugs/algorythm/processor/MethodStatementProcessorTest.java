@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Environment;
 import com.qbutton.concbugs.algorythm.dto.Graph;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
@@ -11,9 +12,12 @@ import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
 import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
 import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
 import com.qbutton.concbugs.algorythm.service.GraphService;
 import com.qbutton.concbugs.algorythm.service.MergeService;
 import com.qbutton.concbugs.algorythm.service.StateService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
 import com.qbutton.concbugs.algorythm.service.VisitorService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -55,7 +59,8 @@ class MethodStatementProcessorTest {
 
     @BeforeEach
     void init() {
-        methodStatementProcessor = new MethodStatementProcessor(visitorService, stateService, mergeService, graphService);
+        methodStatementProcessor = new MethodStatementProcessor(
+                new SummaryService(visitorService, new SummaryStore(), new AnalysisBudget()), stateService, mergeService, graphService);
         doCallRealMethod().when(graphService).addOrReplaceEnv(any(), any());
     }
 
@@ -67,8 +72,8 @@ class MethodStatementProcessorTest {
         String varName = "myVar";
         MethodStatement methodStatement
                 = new MethodStatement(32, varName, Collections.emptyList(), "int", ImmutableList.of("varName"));
-        when(originalState.getEnvironment()).thenReturn(ImmutableList.of(
-                new EnvEntry(varName, new HeapObject(ProgramPoint.UNKNOWN, "java.lang.Object"))));
+        when(originalState.getEnvironment()).thenReturn(Environment.copyOf(ImmutableList.of(
+                new EnvEntry(varName, new HeapObject(ProgramPoint.UNKNOWN, "java.lang.Object")))));
 
         //when
         State resultState = methodStatementProcessor.process(methodStatement, originalState);
@@ -88,7 +93,7 @@ class MethodStatementProcessorTest {
         MethodStatement methodStatement
                 = new MethodStatement(32, varName, Collections.emptyList(), "int", ImmutableList.of("someVar"));
         EnvEntry originalEnvEntry = new EnvEntry("someVar", new HeapObject(ProgramPoint.UNKNOWN, "java.lang.Object"));
-        when(originalState.getEnvironment()).thenReturn(ImmutableList.of(originalEnvEntry));
+        when(originalState.getEnvironment()).thenReturn(Environment.copyOf(ImmutableList.of(originalEnvEntry)));
 
         //when
         State resultState = methodStatementProcessor.process(methodStatement, originalState);
@@ -109,6 +114,8 @@ class MethodStatementProcessorTest {
         MethodDeclaration second = Mockito.mock(MethodDeclaration.class);
         State returnedMethodState1 = Mockito.mock(State.class);
         State returnedMethodState2 = Mockito.mock(State.class);
+        when(returnedMethodState1.getEnvironment()).thenReturn(Environment.empty());
+        when(returnedMethodState2.getEnvironment()).thenReturn(Environment.empty());
         MethodStatement methodStatement
                 = new MethodStatement(32, varName, ImmutableList.of(first, second), "int", emptyList());
         EnvEntry expectedEntry = new EnvEntry(varName, new HeapObject(new ProgramPoint(varName, 32), "int"));
@@ -180,6 +187,8 @@ class MethodStatementProcessorTest {
         MethodDeclaration second = Mockito.mock(MethodDeclaration.class);
         State returnedMethodState1 = Mockito.mock(State.class);
         State returnedMethodState2 = Mockito.mock(State.class);
+        when(returnedMethodState1.getEnvironment()).thenReturn(Environment.empty());
+        when(returnedMethodState2.getEnvironment()).thenReturn(Environment.empty());
         MethodStatement methodStatement
                 = new MethodStatement(32, varName, ImmutableList.of(first, second), "int", emptyList());
         EnvEntry expectedEntry = new EnvEntry(varName, new HeapObject(new ProgramPoint(varName, 32), "int"));
@@ -265,6 +274,8 @@ class MethodStatementProcessorTest {
         MethodDeclaration second = Mockito.mock(MethodDeclaration.class);
         State returnedMethodState1 = Mockito.mock(State.class);
         State returnedMethodState2 = Mockito.mock(State.class);
+        //summary of the first method is merged before the lock is found missing
+        when(returnedMethodState1.getEnvironment()).thenReturn(Environment.empty());
         MethodStatement methodStatement
                 = new MethodStatement(32, varName, ImmutableList.of(first, second), "int", emptyList());
         EnvEntry expectedEntry = new EnvEntry(varName, new HeapObject(new ProgramPoint(varName, 32), "int"));
@@ -356,7 +367,7 @@ class MethodStatementProcessorTest {
 
         MethodDeclaration methodDeclaration = new MethodDeclaration("some method",
                 ImmutableList.of(new MethodDeclaration.Variable("lil", "actualClass")),
-                null, 104);
+                null, 104, "Methods");
 
         MethodStatement methodStatement = new MethodStatement(
                 43, methodReturnVarName,
@@ -424,7 +435,7 @@ class MethodStatementProcessorTest {
 
         MethodDeclaration methodDeclaration = new MethodDeclaration("some method",
                 ImmutableList.of(new MethodDeclaration.Variable("lil", "actualClass")),
-                null, 104);
+                null, 104, "Methods");
 
         MethodStatement methodStatement = new MethodStatement(
                 43, methodReturnVarName,
@@ -491,7 +502,7 @@ class MethodStatementProcessorTest {
 
         MethodDeclaration methodDeclaration = new MethodDeclaration("some method",
                 ImmutableList.of(new MethodDeclaration.Variable("lil", "actualClass")),
-                null, 104);
+                null, 104, "Methods");
 
         MethodStatement methodStatement = new MethodStatement(
                 43, methodReturnVarName,
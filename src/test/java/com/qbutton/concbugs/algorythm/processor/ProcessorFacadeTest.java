@@ -0,0 +1,158 @@
+package com.qbutton.concbugs.algorythm.processor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.CrossAssignmentStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.DeclarationStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.ClassFinderService;
+import com.qbutton.concbugs.algorythm.service.GraphService;
+import com.qbutton.concbugs.algorythm.service.MergeService;
+import com.qbutton.concbugs.algorythm.service.StateService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
+import com.qbutton.concbugs.algorythm.service.VisitorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+@DisplayName("ProcessorFacade")
+class ProcessorFacadeTest {
+
+    private static final HeapObject A = HeapObject.of(ProgramPoint.of("a", 1), "Lock");
+    private static final HeapObject B = HeapObject.of(ProgramPoint.of("b", 2), "Lock");
+    private static final State INITIAL_STATE = new State(Graph.EMPTY_GRAPH, emptySet(), emptyList(),
+            ImmutableList.of(new EnvEntry("a", A), new EnvEntry("b", B)), emptySet());
+
+    private ProcessorFacade processorFacade;
+
+    @BeforeEach
+    void init() {
+        //there is no project to search classes in, and variables are joined only with variables of the same class
+        ClassFinderService classFinderService = Mockito.mock(ClassFinderService.class,
+                invocation -> invocation.getArguments()[0]);
+        GraphService graphService = new GraphService(classFinderService);
+        MergeService mergeService = new MergeService(classFinderService, graphService);
+        VisitorService visitorService = new VisitorService();
+        AnalysisBudget analysisBudget = new AnalysisBudget();
+        SummaryService summaryService = new SummaryService(visitorService, new SummaryStore(), analysisBudget);
+
+        ProcessorProvider processorProvider = new ProcessorProvider(
+                new BranchStatementProcessor(mergeService),
+                new CrossAssignmentStatementProcessor(graphService),
+                new DeclarationStatementProcessor(graphService),
+                new InnerAssignmentStatementProcessor(graphService),
+                new LoopStatementProcessor(mergeService),
+                new MethodStatementProcessor(summaryService, new StateService(graphService), mergeService, graphService),
+                new SynchronizedStatementProcessor(),
+                new WaitStatementProcessor());
+        processorFacade = new ProcessorFacade(processorProvider, new StatementTracer(), analysisBudget);
+        visitorService.setProcessorFacade(processorFacade);
+    }
+
+    @Test
+    @DisplayName("orders nested locks and releases them after synchronized statements")
+    void process_synchronized() {
+        //given
+        Statement statement = new SequentialStatement(
+                sync(10, "a", sync(11, "b", new WaitStatement(12, "b"))),
+                new WaitStatement(13, "a"));
+
+        //when
+        State actual = processorFacade.process(statement, INITIAL_STATE);
+
+        //then
+        assertThat(actual.getGraph(), is(Graph.EMPTY_GRAPH.withEdge(A, B)));
+        assertThat(actual.getRoots(), is(ImmutableSet.of(A)));
+        assertThat(actual.getLocks(), is(emptyList()));
+        assertThat(actual.getWaits(), is(ImmutableSet.of(A)));
+        assertThat(actual.getEnvironment(), is(INITIAL_STATE.getEnvironment()));
+    }
+
+    @Test
+    @DisplayName("joins states after both branches")
+    void process_branch() {
+        //given
+        Statement statement = new BranchStatement(10, null,
+                sync(11, "a", sync(12, "b", null)),
+                sync(13, "b", sync(14, "a", null)));
+
+        //when
+        State actual = processorFacade.process(statement, INITIAL_STATE);
+
+        //then
+        assertThat(actual.getGraph(), is(Graph.EMPTY_GRAPH.withEdge(A, B).withEdge(B, A)));
+        assertThat(actual.getRoots(), is(ImmutableSet.of(A, B)));
+        assertThat(actual.getLocks(), is(emptyList()));
+        assertThat(actual.getEnvironment(), is(INITIAL_STATE.getEnvironment()));
+    }
+
+    @Test
+    @DisplayName("iterates loop until locks taken in one iteration are ordered before locks taken in the next")
+    void process_loop() {
+        //given
+        Statement body = new SequentialStatement(
+                sync(10, "a", sync(11, "b", null)),
+                new SequentialStatement(new DeclarationStatement(12, "t", "Lock"),
+                        new SequentialStatement(new CrossAssignmentStatement(13, "t", "a"),
+                                new SequentialStatement(new CrossAssignmentStatement(14, "a", "b"),
+                                        new CrossAssignmentStatement(15, "b", "t")))));
+
+        //when
+        State actual = processorFacade.process(new LoopStatement(9, null, body), INITIAL_STATE);
+
+        //then
+        HeapObject joinedA = HeapObject.of(ProgramPoint.of("a", 9), "Lock");
+        HeapObject joinedB = HeapObject.of(ProgramPoint.of("b", 9), "Lock");
+        assertThat(actual.getEnvironment(), is(ImmutableList.of(new EnvEntry("a", joinedA), new EnvEntry("b", joinedB))));
+        assertThat(actual.getLocks(), is(emptyList()));
+        assertThat(actual.getGraph().getNeighbors().get(A), is(Collections.singleton(B)));
+        assertThat(actual.getGraph().getNeighbors().get(joinedA), is(Collections.singleton(joinedB)));
+    }
+
+    @Test
+    @DisplayName("processes deeply nested statements without growing the stack")
+    void process_deepNesting() {
+        //given
+        int depth = 100_000;
+        Statement statement = new WaitStatement(0, "a");
+        for (int i = 1; i < depth; i++) {
+            statement = new SequentialStatement(new WaitStatement(i, "a"), statement);
+        }
+        for (int i = 0; i < depth; i++) {
+            statement = sync(i, i % 2 == 0 ? "a" : "b", statement);
+        }
+
+        //when
+        State actual = processorFacade.process(statement, INITIAL_STATE);
+
+        //then
+        assertThat(actual.getGraph(), is(Graph.EMPTY_GRAPH.withEdge(B, A)));
+        assertThat(actual.getRoots(), is(ImmutableSet.of(B)));
+        assertThat(actual.getLocks(), is(emptyList()));
+        assertThat(actual.getWaits(), is(emptySet()));
+    }
+
+    private static Statement sync(int offset, String varName, Statement innerStatement) {
+        return new SynchronizedStatement(offset, varName, innerStatement, "Lock");
+    }
+}
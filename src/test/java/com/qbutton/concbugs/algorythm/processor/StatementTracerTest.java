@@ -0,0 +1,112 @@
+package com.qbutton.concbugs.algorythm.processor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("StatementTracer")
+class StatementTracerTest {
+
+    @Test
+    @DisplayName("samples nothing when disabled")
+    void sample_disabled() {
+        //given
+        StatementTracer tracer = new StatementTracer();
+
+        //when
+        //then
+        assertFalse(tracer.isEnabled());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(tracer.sample());
+        }
+    }
+
+    @Test
+    @DisplayName("samples every n-th statement when enabled")
+    void sample_enabled() {
+        //given
+        StatementTracer tracer = new StatementTracer();
+        tracer.enable(event -> { }, 3);
+
+        //when
+        List<Boolean> samples = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            samples.add(tracer.sample());
+        }
+
+        //then
+        assertThat(samples, is(ImmutableList.of(false, false, true, false, false, true)));
+    }
+
+    @Test
+    @DisplayName("reports sizes of resulting state")
+    void trace() {
+        //given
+        StatementTracer tracer = new StatementTracer();
+        List<StatementTraceEvent> events = new ArrayList<>();
+        tracer.enable(events::add, 1);
+
+        HeapObject heapObject = new HeapObject(new ProgramPoint("a", 1), "java.lang.Object");
+        State state = new State(
+                new Graph(ImmutableMap.of(heapObject, Collections.emptySet())),
+                ImmutableSet.of(heapObject),
+                ImmutableList.of(heapObject),
+                ImmutableList.of(new EnvEntry("a", heapObject)),
+                Collections.emptySet());
+        WaitStatement statement = new WaitStatement(2, "a");
+
+        //when
+        tracer.trace(new WaitStatementProcessor(), statement, state, 5);
+
+        //then
+        assertThat(events, is(ImmutableList.of(
+                new StatementTraceEvent(WaitStatementProcessor.class, statement, 5, 1, 1, 1, 0))));
+    }
+
+    @Test
+    @DisplayName("reports nothing after disabling")
+    void trace_disabled() {
+        //given
+        StatementTracer tracer = new StatementTracer();
+        List<StatementTraceEvent> events = new ArrayList<>();
+        tracer.enable(events::add, 1);
+        tracer.disable();
+
+        //when
+        tracer.trace(new WaitStatementProcessor(), new WaitStatement(2, "a"), State.EMPTY_STATE, 5);
+
+        //then
+        assertFalse(tracer.sample());
+        assertThat(events, is(emptyList()));
+    }
+
+    @Test
+    @DisplayName("fails when sample rate is not positive")
+    void enable_notPositiveSampleRate() {
+        //given
+        StatementTracer tracer = new StatementTracer();
+
+        //when
+        //then
+        assertThrows(AlgorithmValidationException.class, () -> tracer.enable(event -> { }, 0));
+    }
+}
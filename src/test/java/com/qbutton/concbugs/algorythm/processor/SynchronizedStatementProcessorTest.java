@@ -10,14 +10,9 @@ import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
 import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
-import com.qbutton.concbugs.algorythm.service.VisitorService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Collections;
 import java.util.List;
@@ -28,23 +23,15 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
 @DisplayName("SynchronizedStatementProcessor")
 class SynchronizedStatementProcessorTest {
 
-    @Mock
-    private VisitorService visitorService;
-
     private SynchronizedStatementProcessor synchronizedStatementProcessor;
 
     @BeforeEach
     void init() {
-        synchronizedStatementProcessor = new SynchronizedStatementProcessor(visitorService);
+        synchronizedStatementProcessor = new SynchronizedStatementProcessor();
     }
 
     @Test
@@ -57,18 +44,6 @@ class SynchronizedStatementProcessorTest {
         String className = "java.lang.String";
         SynchronizedStatement statement = new SynchronizedStatement(offset, varName, body, className);
         HeapObject ho1 = new HeapObject(new ProgramPoint("v1", 2), "int");
-        HeapObject ho2 = new HeapObject(new ProgramPoint("v2", 3), "java.lang.String");
-        HeapObject ho3 = new HeapObject(new ProgramPoint("v3", 4), "java.lang.Number");
-        Graph graph = new Graph(ImmutableMap.of(
-                ho1, ImmutableSet.of(ho2, ho3),
-                ho2, ImmutableSet.of(ho3),
-                ho3, Collections.emptySet()
-        ));
-        Set<HeapObject> roots = ImmutableSet.of(ho3);
-        List<HeapObject> locks = ImmutableList.of(ho2, ho1);
-        List<EnvEntry> envs = ImmutableList.of(new EnvEntry("v2", ho2));
-        Set<HeapObject> waits = ImmutableSet.of(ho1);
-        State visitResultState = new State(graph, roots, locks, envs, waits);
 
         List<EnvEntry> envEntries = ImmutableList.of(new EnvEntry(varName, ho1));
 
@@ -79,23 +54,17 @@ class SynchronizedStatementProcessorTest {
                 envEntries,
                 emptySet()
         );
-        when(visitorService.visitStatement(eq(body), eq(initialState))).thenReturn(visitResultState);
 
         //when
         State result = synchronizedStatementProcessor.process(statement, initialState);
 
         //then
-        verify(visitorService).visitStatement(eq(body), eq(initialState));
-        assertThat(result.getGraph(), is(graph));
-        assertThat(result.getRoots(), is(roots));
-        assertThat(result.getLocks(), is(ImmutableList.of(ho1)));
-        assertThat(result.getEnvironment(), is(envs));
-        assertThat(result.getWaits(), is(waits));
+        assertThat(result, is(initialState));
     }
 
     @Test
-    @DisplayName("processes correctly when some lock is already held")
-    void process_success_someLockIsHeld() {
+    @DisplayName("processes correctly when no locks are already held")
+    void process_success_noLockIsHeld() {
         //given
         int offset = 34;
         String varName = "this";
@@ -115,7 +84,7 @@ class SynchronizedStatementProcessorTest {
         Set<HeapObject> waits1 = ImmutableSet.of(ho1);
         State initialState = new State(graph1, roots1, locks1, envs1, waits1);
 
-        State stateAfterMerge = new State(
+        State expectedState = new State(
                 new Graph(ImmutableMap.of(
                         ho1, ImmutableSet.of(ho2),
                         ho2, ImmutableSet.of(ho1),
@@ -126,32 +95,16 @@ class SynchronizedStatementProcessorTest {
                 waits1
         );
 
-        Graph graph2 = new Graph(ImmutableMap.of(
-                ho3, Collections.emptySet()
-        ));
-        Set<HeapObject> roots2 = ImmutableSet.of(ho1);
-        List<HeapObject> locks2 = ImmutableList.of(ho2);
-        List<EnvEntry> envs2 = ImmutableList.of(new EnvEntry("v3", ho3));
-        Set<HeapObject> waits2 = ImmutableSet.of(ho3);
-
-        State visitorState = new State(graph2, roots2, locks2, envs2, waits2);
-        when(visitorService.visitStatement(eq(body), eq(stateAfterMerge))).thenReturn(visitorState);
-
         //when
         State result = synchronizedStatementProcessor.process(statement, initialState);
 
         //then
-        verify(visitorService).visitStatement(eq(body), eq(stateAfterMerge));
-        assertThat(result.getGraph(), is(graph2));
-        assertThat(result.getRoots(), is(roots2));
-        assertThat(result.getLocks(), is(emptyList()));
-        assertThat(result.getEnvironment(), is(envs2));
-        assertThat(result.getWaits(), is(waits2));
+        assertThat(result, is(expectedState));
     }
 
     @Test
-    @DisplayName("processes correctly when no locks are already held")
-    void process_success_noLockIsHeld() {
+    @DisplayName("processes correctly when some lock is already held")
+    void process_success_someLockIsHeld() {
         //given
         int offset = 34;
         String varName = "this";
@@ -171,7 +124,7 @@ class SynchronizedStatementProcessorTest {
         Set<HeapObject> waits1 = ImmutableSet.of(ho1);
         State initialState = new State(graph1, roots1, locks1, envs1, waits1);
 
-        State stateAfterMerge = new State(
+        State expectedState = new State(
                 new Graph(ImmutableMap.of(
                         ho1, ImmutableSet.of(ho2),
                         ho2, ImmutableSet.of(ho1, ho3),
@@ -182,32 +135,16 @@ class SynchronizedStatementProcessorTest {
                 waits1
         );
 
-        Graph graph2 = new Graph(ImmutableMap.of(
-                ho3, Collections.emptySet()
-        ));
-        Set<HeapObject> roots2 = ImmutableSet.of(ho1);
-        List<HeapObject> locks2 = ImmutableList.of(ho2);
-        List<EnvEntry> envs2 = ImmutableList.of(new EnvEntry("v3", ho3));
-        Set<HeapObject> waits2 = ImmutableSet.of(ho3);
-
-        State visitorState = new State(graph2, roots2, locks2, envs2, waits2);
-        when(visitorService.visitStatement(eq(body), eq(stateAfterMerge))).thenReturn(visitorState);
-
         //when
         State result = synchronizedStatementProcessor.process(statement, initialState);
 
         //then
-        verify(visitorService).visitStatement(eq(body), eq(stateAfterMerge));
-        assertThat(result.getGraph(), is(graph2));
-        assertThat(result.getRoots(), is(roots2));
-        assertThat(result.getLocks(), is(locks1));
-        assertThat(result.getEnvironment(), is(envs2));
-        assertThat(result.getWaits(), is(waits2));
+        assertThat(result, is(expectedState));
     }
 
     @Test
-    @DisplayName("processes correctly when no locks are already held, and synchronized object is already in graph")
-    void process_success_noLockIsHeld_graphMerge() {
+    @DisplayName("processes correctly when some lock is already held, and synchronized object is already in graph")
+    void process_success_someLockIsHeld_graphMerge() {
         //given
         int offset = 34;
         String varName = "this";
@@ -228,7 +165,7 @@ class SynchronizedStatementProcessorTest {
         Set<HeapObject> waits1 = ImmutableSet.of(ho1);
         State initialState = new State(graph1, roots1, locks1, envs1, waits1);
 
-        State stateAfterMerge = new State(
+        State expectedState = new State(
                 new Graph(ImmutableMap.of(
                         ho1, ImmutableSet.of(ho2),
                         ho2, ImmutableSet.of(ho1, ho3),
@@ -239,27 +176,11 @@ class SynchronizedStatementProcessorTest {
                 waits1
         );
 
-        Graph graph2 = new Graph(ImmutableMap.of(
-                ho3, Collections.emptySet()
-        ));
-        Set<HeapObject> roots2 = ImmutableSet.of(ho1);
-        List<HeapObject> locks2 = ImmutableList.of(ho2);
-        List<EnvEntry> envs2 = ImmutableList.of(new EnvEntry("v3", ho3));
-        Set<HeapObject> waits2 = ImmutableSet.of(ho3);
-
-        State visitorState = new State(graph2, roots2, locks2, envs2, waits2);
-        when(visitorService.visitStatement(eq(body), eq(stateAfterMerge))).thenReturn(visitorState);
-
         //when
         State result = synchronizedStatementProcessor.process(statement, initialState);
 
         //then
-        verify(visitorService).visitStatement(eq(body), eq(stateAfterMerge));
-        assertThat(result.getGraph(), is(graph2));
-        assertThat(result.getRoots(), is(roots2));
-        assertThat(result.getLocks(), is(locks1));
-        assertThat(result.getEnvironment(), is(envs2));
-        assertThat(result.getWaits(), is(waits2));
+        assertThat(result, is(expectedState));
     }
 
     @Test
@@ -278,17 +199,50 @@ class SynchronizedStatementProcessorTest {
                 emptyList(),
                 emptySet()
         );
-        ArgumentCaptor<State> stateArgumentCaptor = ArgumentCaptor.forClass(State.class);
-        when(visitorService.visitStatement(any(), stateArgumentCaptor.capture())).thenReturn(emptyState);
 
         //when
-        State processResult = synchronizedStatementProcessor.process(statement, emptyState);
+        State result = synchronizedStatementProcessor.process(statement, emptyState);
+
+        //then
+        assertThat(result.getEnvironment().size(), is(1));
+        assertThat(result.getEnvironment().get(0).getHeapObject().getClazz(), is(className));
+        assertThat(result.getEnvironment().get(0).getHeapObject().getProgramPoint(), is(ProgramPoint.UNKNOWN));
+        assertThat(result.getEnvironment().get(0).getVarName(), is("this"));
+        assertThat(result.getLocks(), is(ImmutableList.of(result.getEnvironment().get(0).getHeapObject())));
+    }
+
+    @Test
+    @DisplayName("releases lock keeping everything else from inner state")
+    void release() {
+        //given
+        HeapObject ho1 = new HeapObject(new ProgramPoint("v1", 2), "int");
+        HeapObject ho2 = new HeapObject(new ProgramPoint("v2", 3), "java.lang.String");
+        HeapObject ho3 = new HeapObject(new ProgramPoint("v3", 4), "java.lang.Number");
+        State originalState = new State(
+                new Graph(ImmutableMap.of(ho1, ImmutableSet.of(ho2))),
+                ImmutableSet.of(ho1),
+                ImmutableList.of(ho1),
+                ImmutableList.of(new EnvEntry("v1", ho1)),
+                emptySet()
+        );
+
+        Graph graph2 = new Graph(ImmutableMap.of(
+                ho3, Collections.emptySet()
+        ));
+        Set<HeapObject> roots2 = ImmutableSet.of(ho1);
+        List<HeapObject> locks2 = ImmutableList.of(ho1, ho2);
+        List<EnvEntry> envs2 = ImmutableList.of(new EnvEntry("v3", ho3));
+        Set<HeapObject> waits2 = ImmutableSet.of(ho3);
+        State innerState = new State(graph2, roots2, locks2, envs2, waits2);
+
+        //when
+        State result = synchronizedStatementProcessor.release(innerState, originalState);
+
         //then
-        State capturedState = stateArgumentCaptor.getValue();
-        assertThat(processResult, is(emptyState));
-        assertThat(capturedState.getEnvironment().size(), is(1));
-        assertThat(capturedState.getEnvironment().get(0).getHeapObject().getClazz(), is(className));
-        assertThat(capturedState.getEnvironment().get(0).getHeapObject().getProgramPoint(), is(ProgramPoint.UNKNOWN));
-        assertThat(capturedState.getEnvironment().get(0).getVarName(), is("this"));
+        assertThat(result.getGraph(), is(graph2));
+        assertThat(result.getRoots(), is(roots2));
+        assertThat(result.getLocks(), is(ImmutableList.of(ho1)));
+        assertThat(result.getEnvironment(), is(envs2));
+        assertThat(result.getWaits(), is(waits2));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.google.common.collect.ImmutableList;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+import com.qbutton.concbugs.algorythm.exception.BudgetExceededException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("AnalysisBudget")
+class AnalysisBudgetTest {
+
+    private final AnalysisBudget analysisBudget = new AnalysisBudget();
+
+    @Test
+    @DisplayName("does not limit statements outside of metered methods")
+    void charge_notMetered() {
+        //given
+        analysisBudget.setMaxStatementsPerMethod(1);
+
+        //when
+        analysisBudget.charge();
+        analysisBudget.charge();
+
+        //then
+        //no exception
+    }
+
+    @Test
+    @DisplayName("fails method which processes too many statements")
+    void meter_tooManyStatements() {
+        //given
+        analysisBudget.setMaxStatementsPerMethod(2);
+
+        //when
+        //then
+        assertThrows(BudgetExceededException.class, () -> analysisBudget.meter(() -> {
+            analysisBudget.charge();
+            analysisBudget.charge();
+            analysisBudget.charge();
+            return null;
+        }));
+    }
+
+    @Test
+    @DisplayName("counts statements of nested method separately")
+    void meter_nestedMethod() {
+        //given
+        analysisBudget.setMaxStatementsPerMethod(2);
+
+        //when
+        String result = analysisBudget.meter(() -> {
+            analysisBudget.charge();
+            analysisBudget.meter(() -> {
+                analysisBudget.charge();
+                analysisBudget.charge();
+                return null;
+            });
+            analysisBudget.charge();
+            return "done";
+        });
+
+        //then
+        assertThat(result, is("done"));
+    }
+
+    @Test
+    @DisplayName("fails method when analysis time is over")
+    void meter_timeIsOver() throws InterruptedException {
+        //given
+        analysisBudget.setMaxMillis(1);
+        analysisBudget.start();
+        Thread.sleep(10);
+
+        //when
+        //then
+        assertThrows(BudgetExceededException.class, () -> analysisBudget.meter(() -> null));
+    }
+
+    @Test
+    @DisplayName("checks for cancellation on every statement")
+    void charge_cancelled() {
+        //given
+        analysisBudget.setCancellationCheck(() -> {
+            throw new IllegalStateException("cancelled");
+        });
+
+        //when
+        //then
+        assertThrows(IllegalStateException.class, analysisBudget::charge);
+        analysisBudget.resetCancellationCheck();
+        analysisBudget.charge();
+    }
+
+    @Test
+    @DisplayName("forgets truncated methods when new analysis starts")
+    void start_forgetsTruncatedMethods() {
+        //given
+        MethodDeclaration method = new MethodDeclaration("method", ImmutableList.of(), null, 10, "Methods");
+        analysisBudget.start();
+        analysisBudget.truncated(method);
+        long generation = analysisBudget.getGeneration();
+
+        //when
+        boolean truncatedBefore = analysisBudget.getTruncatedMethods().contains(method);
+        analysisBudget.start();
+
+        //then
+        assertThat(truncatedBefore, is(true));
+        assertThat(analysisBudget.getTruncatedMethods().isEmpty(), is(true));
+        assertThat(analysisBudget.getGeneration(), is(generation + 1));
+    }
+
+    @Test
+    @DisplayName("fails when limits are out of range")
+    void setLimits_fail() {
+        assertThrows(AlgorithmValidationException.class, () -> analysisBudget.setMaxMillis(-1));
+        assertThrows(AlgorithmValidationException.class, () -> analysisBudget.setMaxStatementsPerMethod(0));
+    }
+}
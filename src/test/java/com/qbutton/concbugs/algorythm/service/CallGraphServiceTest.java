@@ -0,0 +1,147 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.google.common.collect.ImmutableList;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CallGraphService")
+class CallGraphServiceTest {
+
+    @Mock
+    private SummaryService summaryService;
+
+    private CallGraphService callGraphService;
+
+    @BeforeEach
+    void init() {
+        callGraphService = new CallGraphService(summaryService);
+    }
+
+    @Test
+    @DisplayName("finds callees in all nested statements")
+    void getCallees_nestedStatements() {
+        //given
+        MethodDeclaration callee1 = new MethodDeclaration("callee1", emptyList(), null, 1, "Methods");
+        MethodDeclaration callee2 = new MethodDeclaration("callee2", emptyList(), null, 2, "Methods");
+        MethodDeclaration callee3 = new MethodDeclaration("callee3", emptyList(), null, 3, "Methods");
+
+        MethodDeclaration caller = new MethodDeclaration("caller", emptyList(),
+                new SequentialStatement(
+                        new BranchStatement(10, null, call(callee1), new WaitStatement(11, "a")),
+                        new SynchronizedStatement(12, "a",
+                                new LoopStatement(13, null, call(callee2, callee3)), "java.lang.Object")),
+                0, "Methods");
+
+        //when
+        //then
+        assertThat(new ArrayList<>(callGraphService.getCallees(caller)), is(ImmutableList.of(callee1, callee2, callee3)));
+    }
+
+    @Test
+    @DisplayName("computes summaries of callees before callers")
+    void computeSummaries_bottomUp() {
+        //given
+        MethodDeclaration leaf = new MethodDeclaration("leaf", emptyList(), null, 1, "Methods");
+        MethodDeclaration middle = new MethodDeclaration("middle", emptyList(), call(leaf), 2, "Methods");
+        MethodDeclaration top = new MethodDeclaration("top", emptyList(), call(middle), 3, "Methods");
+
+        //when
+        callGraphService.computeSummaries(ImmutableList.of(call(top)));
+
+        //then
+        InOrder inOrder = inOrder(summaryService);
+        inOrder.verify(summaryService).getSummary(leaf);
+        inOrder.verify(summaryService).getSummary(middle);
+        inOrder.verify(summaryService).getSummary(top);
+        verify(summaryService, never()).computeFixpoint(any());
+    }
+
+    @Test
+    @DisplayName("computes fixpoint for mutually recursive methods")
+    void computeSummaries_recursion() {
+        //given
+        List<MethodDeclaration> pongCallees = new ArrayList<>();
+        MethodDeclaration pong = new MethodDeclaration("pong", emptyList(),
+                new MethodStatement(5, null, pongCallees, "void", emptyList()), 4, "Methods");
+        MethodDeclaration ping = new MethodDeclaration("ping", emptyList(), call(pong), 3, "Methods");
+        pongCallees.add(ping);
+        MethodDeclaration top = new MethodDeclaration("top", emptyList(), call(ping), 1, "Methods");
+
+        //when
+        callGraphService.computeSummaries(ImmutableList.of(call(top)));
+
+        //then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MethodDeclaration>> componentCaptor = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(summaryService);
+        inOrder.verify(summaryService).computeFixpoint(componentCaptor.capture());
+        inOrder.verify(summaryService).getSummary(top);
+
+        List<MethodDeclaration> component = componentCaptor.getValue();
+        assertThat(component.size(), is(2));
+        assertTrue(component.contains(ping));
+        assertTrue(component.contains(pong));
+    }
+
+    @Test
+    @DisplayName("computes summaries of callees before callers in parallel")
+    void computeSummaries_parallel() {
+        //given
+        MethodDeclaration leaf = new MethodDeclaration("leaf", emptyList(), null, 1, "Methods");
+        MethodDeclaration left = new MethodDeclaration("left", emptyList(), call(leaf), 2, "Methods");
+        MethodDeclaration right = new MethodDeclaration("right", emptyList(), call(leaf), 3, "Methods");
+        MethodDeclaration top = new MethodDeclaration("top", emptyList(), call(left, right), 4, "Methods");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        //when
+        try {
+            callGraphService.computeSummaries(ImmutableList.of(call(top)), executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        //then
+        InOrder leftOrder = inOrder(summaryService);
+        leftOrder.verify(summaryService).getSummary(leaf);
+        leftOrder.verify(summaryService).getSummary(left);
+        leftOrder.verify(summaryService).getSummary(top);
+
+        InOrder rightOrder = inOrder(summaryService);
+        rightOrder.verify(summaryService).getSummary(leaf);
+        rightOrder.verify(summaryService).getSummary(right);
+        rightOrder.verify(summaryService).getSummary(top);
+    }
+
+    private MethodStatement call(MethodDeclaration... methodDeclarations) {
+        return new MethodStatement(0, null, ImmutableList.copyOf(methodDeclarations), "void", emptyList());
+    }
+}
@@ -113,4 +113,33 @@ class ClassFinderServiceTest extends LightCodeInsightFixtureTestCase {
 
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("caches answers")
+    class CachesAnswers {
+
+        @Test
+        @DisplayName("for subclasses")
+        void getSubclassesOf_cached() {
+            Set<String> subclasses = classFinderService.getSubclassesOf("java.lang.Number");
+
+            assertSame(subclasses, classFinderService.getSubclassesOf("java.lang.Number"));
+        }
+
+        @Test
+        @DisplayName("until PSI is modified")
+        void getSubclassesOf_invalidated() {
+            Set<String> subclasses = classFinderService.getSubclassesOf("java.lang.Number");
+
+            myFixture.addClass("package a; public class MyNumber extends Number {" +
+                    " public int intValue() { return 0; }" +
+                    " public long longValue() { return 0; }" +
+                    " public float floatValue() { return 0; }" +
+                    " public double doubleValue() { return 0; } }");
+            Set<String> newSubclasses = classFinderService.getSubclassesOf("java.lang.Number");
+
+            assertNotSame(subclasses, newSubclasses);
+            assertContainsElements(newSubclasses, "a.MyNumber");
+        }
+    }
+}
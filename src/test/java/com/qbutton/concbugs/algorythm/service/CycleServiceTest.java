@@ -0,0 +1,197 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.Cycle;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@DisplayName("CycleService")
+class CycleServiceTest {
+
+    private final HeapObject ho1 = new HeapObject(ProgramPoint.UNKNOWN, "a.A");
+    private final HeapObject ho2 = new HeapObject(ProgramPoint.UNKNOWN, "b.B");
+    private final HeapObject ho3 = new HeapObject(ProgramPoint.UNKNOWN, "c.C");
+    private final HeapObject ho4 = new HeapObject(new ProgramPoint("d", 42), "d.D");
+
+    private CycleService cycleService;
+
+    @BeforeEach
+    void init() {
+        cycleService = new CycleService();
+    }
+
+    @Test
+    @DisplayName("finds no cycles in acyclic graph")
+    void findCycles_acyclic() {
+        //given
+        Graph graph = new Graph(ImmutableMap.of(
+                ho1, ImmutableSet.of(ho2, ho3),
+                ho2, ImmutableSet.of(ho3),
+                ho3, emptySet()
+        ));
+
+        //when
+        List<Cycle> cycles = cycleService.findCycles(graph);
+
+        //then
+        assertTrue(cycles.isEmpty());
+    }
+
+    @Test
+    @DisplayName("finds all elementary cycles, shortest first")
+    void findCycles_ranked() {
+        /*
+            ho1 -> ho2 -> ho3 -> ho1
+            ho2 -> ho1
+            ho4 -> ho4
+         */
+        Graph graph = new Graph(ImmutableMap.of(
+                ho1, ImmutableSet.of(ho2),
+                ho2, ImmutableSet.of(ho3, ho1),
+                ho3, ImmutableSet.of(ho1),
+                ho4, ImmutableSet.of(ho4)
+        ));
+
+        //when
+        List<Cycle> cycles = cycleService.findCycles(graph);
+
+        //then
+        assertThat(cycles.size(), is(3));
+        assertThat(cycles.get(0).getHeapObjects(), is(ImmutableList.of(ho4)));
+        assertThat(cycles.get(0).describe(), is("d.D (d at 42) -> d.D (d at 42)"));
+        assertThat(cycles.get(1).length(), is(2));
+        assertTrue(cycles.get(1).getHeapObjects().containsAll(ImmutableList.of(ho1, ho2)));
+        assertThat(cycles.get(2).length(), is(3));
+        assertTrue(cycles.get(2).getHeapObjects().containsAll(ImmutableList.of(ho1, ho2, ho3)));
+    }
+
+    @Test
+    @DisplayName("finds cycles when edges lead to heap objects which are not nodes")
+    void findCycles_danglingEdges() {
+        //given
+        Graph graph = new Graph(ImmutableMap.of(
+                ho1, ImmutableSet.of(ho2, ho3),
+                ho2, ImmutableSet.of(ho1, ho4)
+        ));
+
+        //when
+        List<Cycle> cycles = cycleService.findCycles(graph);
+
+        //then
+        assertThat(cycles.size(), is(1));
+        assertThat(cycles.get(0).length(), is(2));
+        assertTrue(cycles.get(0).getHeapObjects().containsAll(ImmutableList.of(ho1, ho2)));
+    }
+
+    @Test
+    @DisplayName("stops enumeration when limit is reached")
+    void findCycles_limited() {
+        //given
+        Graph graph = new Graph(ImmutableMap.of(
+                ho1, ImmutableSet.of(ho2, ho3, ho4),
+                ho2, ImmutableSet.of(ho1, ho3, ho4),
+                ho3, ImmutableSet.of(ho1, ho2, ho4),
+                ho4, ImmutableSet.of(ho1, ho2, ho3)
+        ));
+        cycleService.setMaxCycles(5);
+
+        //when
+        List<Cycle> cycles = cycleService.findCycles(graph);
+
+        //then
+        assertThat(cycles.size(), is(5));
+    }
+
+    @Test
+    @DisplayName("finds cycles of class edge graph via subclasses")
+    void findCycles_classEdges() {
+        /*
+            a.A -> b.B -> c.C, where a.A extends c.C, so b.B -> a.A too
+            d.D -> e.E
+         */
+        ClassEdgeGraph graph = new ClassEdgeGraph(
+                ImmutableMap.of(
+                        "a.A", ImmutableSet.of("b.B"),
+                        "b.B", ImmutableSet.of("c.C"),
+                        "d.D", ImmutableSet.of("e.E")),
+                ImmutableMap.<String, Set<String>>builder()
+                        .put("a.A", ImmutableSet.of("a.A"))
+                        .put("b.B", ImmutableSet.of("b.B"))
+                        .put("c.C", ImmutableSet.of("c.C", "a.A"))
+                        .put("d.D", ImmutableSet.of("d.D"))
+                        .put("e.E", ImmutableSet.of("e.E"))
+                        .build());
+
+        //when
+        Set<String> cyclicClasses = cycleService.findCyclicClasses(graph);
+        List<Cycle> cycles = cycleService.findCycles(graph);
+
+        //then
+        assertThat(cyclicClasses, is(ImmutableSet.of("a.A", "b.B")));
+        assertThat(cycles.size(), is(1));
+        assertThat(cycles.get(0).length(), is(2));
+        assertTrue(cycles.get(0).getHeapObjects().containsAll(ImmutableList.of(ho1, ho2)));
+    }
+
+    @Test
+    @DisplayName("finds methods of class edge graph cycles")
+    void findCycles_classEdgesMethods() {
+        /*
+            a.A -> c.C in x.X.transfer, where b.B extends c.C
+            b.B -> a.A in x.X.refund
+         */
+        ClassEdgeGraph graph = new ClassEdgeGraph(
+                ImmutableMap.of(
+                        "a.A", ImmutableSet.of("c.C"),
+                        "b.B", ImmutableSet.of("a.A")),
+                ImmutableMap.of(
+                        "a.A", ImmutableSet.of("a.A"),
+                        "b.B", ImmutableSet.of("b.B"),
+                        "c.C", ImmutableSet.of("c.C", "b.B")),
+                ImmutableMap.of(
+                        "a.A", ImmutableMap.of("c.C", "x.X.transfer"),
+                        "b.B", ImmutableMap.of("a.A", "x.X.refund")));
+
+        //when
+        List<Cycle> cycles = cycleService.findCycles(graph);
+
+        //then
+        assertThat(cycles.size(), is(1));
+        Cycle cycle = cycles.get(0);
+        assertThat(cycle.getMethods().get(cycle.getHeapObjects().indexOf(ho1)), is("x.X.transfer"));
+        assertThat(cycle.getMethods().get(cycle.getHeapObjects().indexOf(ho2)), is("x.X.refund"));
+        assertTrue(cycle.describe().contains("a.A -> b.B in x.X.transfer"));
+        assertTrue(cycle.describe().contains("b.B -> a.A in x.X.refund"));
+    }
+
+    @Test
+    @DisplayName("finds self-links of class edge graph")
+    void findCycles_classEdgesSelfLink() {
+        //given
+        ClassEdgeGraph graph = new ClassEdgeGraph(
+                ImmutableMap.of("a.A", ImmutableSet.of("a.A")),
+                ImmutableMap.of("a.A", ImmutableSet.of("a.A")));
+
+        //when
+        List<Cycle> cycles = cycleService.findCycles(graph);
+
+        //then
+        assertThat(cycles.size(), is(1));
+        assertThat(cycles.get(0).getHeapObjects(), is(ImmutableList.of(ho1)));
+    }
+}
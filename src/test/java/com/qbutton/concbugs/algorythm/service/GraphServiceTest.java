@@ -3,6 +3,7 @@ package com.qbutton.concbugs.algorythm.service;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
 import com.qbutton.concbugs.algorythm.dto.Graph;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
@@ -16,9 +17,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
@@ -507,7 +511,7 @@ class GraphServiceTest {
 
 
             //when
-            Graph resultGraph = graphService.postProcess(ImmutableList.of(state1, state2));
+            Graph resultGraph = graphService.postProcess(ImmutableList.of(state1, state2)).expand();
 
             //then
             /*
@@ -597,5 +601,75 @@ class GraphServiceTest {
             assertTrue(graphMap.containsKey(expectedHo6));
             assertTrue(graphMap.get(expectedHo6).isEmpty());
         }
+
+        @Test
+        @DisplayName("correctly when expanded graph is dense")
+        void postProcess_dense() {
+            //given
+            HeapObject handler = new HeapObject(new ProgramPoint("h", 10), "Handler");
+            HeapObject lock = new HeapObject(new ProgramPoint("l", 11), "Lock");
+
+            when(classFinderService.getSubclassesOf(any())).thenAnswer(invocation -> {
+                String clazz = (String) invocation.getArguments()[0];
+                return IntStream.range(0, 50)
+                        .mapToObj(i -> clazz + i)
+                        .collect(Collectors.toSet());
+            });
+
+            /*
+            handler -> lock
+            lock -> handler
+             */
+            State state = new State(
+                    new Graph(ImmutableMap.of(
+                            handler, ImmutableSet.of(lock),
+                            lock, ImmutableSet.of(handler))),
+                    emptySet(),
+                    emptyList(),
+                    emptyList(),
+                    emptySet()
+            );
+
+            //when
+            Graph resultGraph = graphService.postProcess(ImmutableList.of(state)).expand();
+
+            //then
+            //each of 50 handlers is linked to each of 50 locks and vice versa
+            Map<HeapObject, Set<HeapObject>> graphMap = resultGraph.getNeighbors();
+            assertThat(graphMap.size(), is(100));
+
+            Set<HeapObject> expectedLocks = IntStream.range(0, 50)
+                    .mapToObj(i -> new HeapObject(ProgramPoint.UNKNOWN, "Lock" + i))
+                    .collect(Collectors.toSet());
+            Set<HeapObject> expectedHandlers = IntStream.range(0, 50)
+                    .mapToObj(i -> new HeapObject(ProgramPoint.UNKNOWN, "Handler" + i))
+                    .collect(Collectors.toSet());
+
+            expectedHandlers.forEach(expectedHandler -> assertThat(graphMap.get(expectedHandler), is(expectedLocks)));
+            expectedLocks.forEach(expectedLock -> assertThat(graphMap.get(expectedLock), is(expectedHandlers)));
+        }
+
+        @Test
+        @DisplayName("recording the first method every class edge was found in")
+        void postProcess_methods() {
+            //given
+            HeapObject handler = new HeapObject(ProgramPoint.UNKNOWN, "Handler");
+            HeapObject lock = new HeapObject(ProgramPoint.UNKNOWN, "Lock");
+            when(classFinderService.getSubclassesOf(any())).thenAnswer(invocation ->
+                    ImmutableSet.of((String) invocation.getArguments()[0]));
+
+            State handlerFirst = new State(new Graph(ImmutableMap.of(handler, ImmutableSet.of(lock))),
+                    emptySet(), emptyList(), emptyList(), emptySet());
+            State lockFirst = new State(new Graph(ImmutableMap.of(lock, ImmutableSet.of(handler))),
+                    emptySet(), emptyList(), emptyList(), emptySet());
+
+            //when
+            ClassEdgeGraph resultGraph = graphService.postProcess(
+                    ImmutableList.of(handlerFirst, lockFirst, handlerFirst),
+                    Arrays.asList("a.A.handle", null, "a.A.rehandle"));
+
+            //then
+            assertThat(resultGraph.getMethods(), is(ImmutableMap.of("Handler", ImmutableMap.of("Lock", "a.A.handle"))));
+        }
     }
-}
\ No newline at end of file
+}
@@ -4,9 +4,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Environment;
 import com.qbutton.concbugs.algorythm.dto.Graph;
 import com.qbutton.concbugs.algorythm.dto.HeapObject;
 import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import com.qbutton.concbugs.algorythm.dto.State;
 import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -28,6 +30,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @DisplayName("MergeService class")
@@ -131,14 +134,14 @@ class MergeServiceTest {
             HeapObject ho2 = new HeapObject(new ProgramPoint(varName2, 11), "java.lang.String");
             HeapObject ho3 = new HeapObject(new ProgramPoint(varName1, 12), "java.lang.Number");
 
-            List<EnvEntry> env1 = ImmutableList.of(
+            Environment env1 = Environment.copyOf(ImmutableList.of(
                     new EnvEntry(varName1, ho1),
                     new EnvEntry(varName2, ho2)
-            );
-            List<EnvEntry> env2 = ImmutableList.of(
+            ));
+            Environment env2 = Environment.copyOf(ImmutableList.of(
                     new EnvEntry(varName1, ho3),
                     new EnvEntry(varName2, ho2)
-            );
+            ));
             when(classFinderService.findLowestSuperClass("int", "java.lang.Number"))
                     .thenReturn("java.lang.Number");
             doCallRealMethod().when(graphService).addOrReplaceEnv(any(), any());
@@ -159,6 +162,33 @@ class MergeServiceTest {
             assertThat(newHeapObject.getProgramPoint().getVariableName(), is(varName1));
         }
 
+        @Test
+        @DisplayName("by variable name when variables are in different order")
+        void mergeEnvs_differentOrder() {
+            //given
+            String varName1 = "v1";
+            HeapObject ho1 = new HeapObject(new ProgramPoint(varName1, 10), "int");
+            String varName2 = "v2";
+            HeapObject ho2 = new HeapObject(new ProgramPoint(varName2, 11), "java.lang.String");
+
+            Environment env1 = Environment.copyOf(ImmutableList.of(
+                    new EnvEntry(varName1, ho1),
+                    new EnvEntry(varName2, ho2)
+            ));
+            Environment env2 = Environment.copyOf(ImmutableList.of(
+                    new EnvEntry(varName2, ho2),
+                    new EnvEntry(varName1, ho1)
+            ));
+            doCallRealMethod().when(graphService).addOrReplaceEnv(any(), any());
+
+            //when
+            List<EnvEntry> mergedEnv = mergeService.mergeEnvs(env1, env2, 14);
+
+            //then
+            assertThat(mergedEnv, is(env1));
+            verifyZeroInteractions(classFinderService);
+        }
+
         @Test
         @DisplayName("with exception when validation is not ok")
         void mergeEnvs_envsAreDifferent() {
@@ -169,14 +199,14 @@ class MergeServiceTest {
             String varName3 = "v3";
             HeapObject ho2 = new HeapObject(new ProgramPoint(varName2, 11), "java.lang.String");
 
-            List<EnvEntry> env1 = ImmutableList.of(
+            Environment env1 = Environment.copyOf(ImmutableList.of(
                     new EnvEntry(varName1, ho1),
                     new EnvEntry(varName2, ho2)
-            );
-            List<EnvEntry> env2 = ImmutableList.of(
+            ));
+            Environment env2 = Environment.copyOf(ImmutableList.of(
                     new EnvEntry(varName1, ho1),
                     new EnvEntry(varName3, ho2)
-            );
+            ));
 
             //when
             //then
@@ -184,4 +214,31 @@ class MergeServiceTest {
                     () -> mergeService.mergeEnvs(env1, env2, 30));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("widens states to the most general class")
+    void widenStates() {
+        //given
+        String varName1 = "v1";
+        HeapObject ho1 = new HeapObject(new ProgramPoint(varName1, 10), "java.lang.Integer");
+        String varName2 = "v2";
+        HeapObject ho2 = new HeapObject(new ProgramPoint(varName2, 11), "java.lang.String");
+        HeapObject ho3 = new HeapObject(new ProgramPoint(varName1, 12), "java.lang.Long");
+
+        State state1 = new State(Graph.EMPTY_GRAPH.withNode(ho1), ImmutableSet.of(ho1), Collections.emptyList(),
+                ImmutableList.of(new EnvEntry(varName1, ho1), new EnvEntry(varName2, ho2)), Collections.emptySet());
+        State state2 = new State(Graph.EMPTY_GRAPH.withNode(ho3), ImmutableSet.of(ho3), Collections.emptyList(),
+                ImmutableList.of(new EnvEntry(varName1, ho3), new EnvEntry(varName2, ho2)), Collections.emptySet());
+        doCallRealMethod().when(graphService).addOrReplaceEnv(any(), any());
+
+        //when
+        State widenedState = mergeService.widenStates(state1, state2, 14);
+
+        //then
+        assertThat(widenedState.getRoots(), is(ImmutableSet.of(ho1, ho3)));
+        assertThat(widenedState.getEnvironment(), is(ImmutableList.of(
+                new EnvEntry(varName1, HeapObject.of(ProgramPoint.of(varName1, 14), "java.lang.Object")),
+                new EnvEntry(varName2, ho2))));
+        verifyZeroInteractions(classFinderService);
+    }
+}
@@ -0,0 +1,284 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+import com.qbutton.concbugs.algorythm.exception.BudgetExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SummaryService")
+class SummaryServiceTest {
+
+    @Mock
+    private VisitorService visitorService;
+
+    private final AnalysisBudget analysisBudget = new AnalysisBudget();
+
+    private SummaryService summaryService;
+
+    @BeforeEach
+    void init() {
+        summaryService = new SummaryService(visitorService, new SummaryStore(), analysisBudget);
+    }
+
+    @Test
+    @DisplayName("visits method only once and counts hits and misses")
+    void getSummary_cachesSummary() {
+        //given
+        MethodDeclaration method = new MethodDeclaration("method", ImmutableList.of(), null, 10, "Methods");
+        State summary = Mockito.mock(State.class);
+        when(visitorService.visitMethod(method)).thenReturn(summary);
+
+        //when
+        State first = summaryService.getSummary(method);
+        State second = summaryService.getSummary(method);
+
+        //then
+        assertThat(first, is(summary));
+        assertThat(second, is(summary));
+        verify(visitorService, times(1)).visitMethod(method);
+        assertThat(summaryService.getMisses(), is(1L));
+        assertThat(summaryService.getHits(), is(1L));
+    }
+
+    @Test
+    @DisplayName("keeps separate summaries of same static methods of different classes")
+    void getSummary_differentClasses() {
+        //given
+        MethodDeclaration method1 = new MethodDeclaration("method", ImmutableList.of(), new WaitStatement(11, "a"), 10, "A");
+        MethodDeclaration method2 = new MethodDeclaration("method", ImmutableList.of(), new WaitStatement(11, "a"), 10, "B");
+        State summary1 = Mockito.mock(State.class);
+        State summary2 = Mockito.mock(State.class);
+        when(visitorService.visitMethod(any(MethodDeclaration.class))).thenAnswer(invocation -> {
+            MethodDeclaration visited = (MethodDeclaration) invocation.getArguments()[0];
+            return "A".equals(visited.getDeclaringClass()) ? summary1 : summary2;
+        });
+
+        //when
+        State first = summaryService.getSummary(method1);
+        State second = summaryService.getSummary(method2);
+
+        //then
+        assertThat(first, is(summary1));
+        assertThat(second, is(summary2));
+        assertThat(summaryService.getMisses(), is(2L));
+    }
+
+    @Test
+    @DisplayName("evicts least recently used summary when cap is reached")
+    void getSummary_evictsLeastRecentlyUsed() {
+        //given
+        MethodDeclaration method1 = new MethodDeclaration("method1", ImmutableList.of(), null, 10, "Methods");
+        MethodDeclaration method2 = new MethodDeclaration("method2", ImmutableList.of(), null, 20, "Methods");
+        MethodDeclaration method3 = new MethodDeclaration("method3", ImmutableList.of(), null, 30, "Methods");
+        when(visitorService.visitMethod(any(MethodDeclaration.class))).thenAnswer(invocation -> Mockito.mock(State.class));
+        summaryService.setMaxSummaries(2);
+
+        //when
+        summaryService.getSummary(method1);
+        summaryService.getSummary(method2);
+        summaryService.getSummary(method1);
+        summaryService.getSummary(method3);
+        summaryService.getSummary(method1);
+        summaryService.getSummary(method2);
+
+        //then
+        assertThat(summaryService.size(), is(2));
+        assertThat(summaryService.getEvictions(), is(2L));
+        verify(visitorService, times(1)).visitMethod(method1);
+        verify(visitorService, times(2)).visitMethod(method2);
+        verify(visitorService, times(1)).visitMethod(method3);
+    }
+
+    @Test
+    @DisplayName("visits evicted method again and keeps other summaries")
+    void evict_success() {
+        //given
+        MethodDeclaration method1 = new MethodDeclaration("method1", ImmutableList.of(), null, 10, "Methods");
+        MethodDeclaration method2 = new MethodDeclaration("method2", ImmutableList.of(), null, 20, "Methods");
+        when(visitorService.visitMethod(any(MethodDeclaration.class))).thenAnswer(invocation -> Mockito.mock(State.class));
+        summaryService.getSummary(method1);
+        summaryService.getSummary(method2);
+
+        //when
+        summaryService.evict(ImmutableList.of(method1));
+        summaryService.getSummary(method1);
+        summaryService.getSummary(method2);
+
+        //then
+        assertThat(summaryService.getEvictions(), is(1L));
+        verify(visitorService, times(2)).visitMethod(method1);
+        verify(visitorService, times(1)).visitMethod(method2);
+    }
+
+    @Test
+    @DisplayName("loads summary from store instead of visiting method")
+    void getSummary_loadsStoredSummary() {
+        //given
+        MethodDeclaration method = new MethodDeclaration("method", ImmutableList.of(), null, 10, "Methods");
+        State summary = Mockito.mock(State.class);
+        SummaryStore summaryStore = Mockito.mock(SummaryStore.class);
+        when(summaryStore.load(method)).thenReturn(summary);
+        summaryService = new SummaryService(visitorService, summaryStore, analysisBudget);
+
+        //when
+        State first = summaryService.getSummary(method);
+        State second = summaryService.getSummary(method);
+
+        //then
+        assertThat(first, is(summary));
+        assertThat(second, is(summary));
+        verify(visitorService, never()).visitMethod(any(MethodDeclaration.class));
+        verify(summaryStore, never()).store(any(MethodDeclaration.class), any(State.class));
+        assertThat(summaryService.getHits(), is(2L));
+    }
+
+    @Test
+    @DisplayName("iterates recursive method until its summary does not change")
+    void computeFixpoint_stopsWhenStable() {
+        //given
+        MethodDeclaration method = new MethodDeclaration("method", ImmutableList.of(), new WaitStatement(11, "a"), 10, "Methods");
+        State formalsOnly = Mockito.mock(State.class);
+        State summary = Mockito.mock(State.class);
+        when(visitorService.visitMethod(any(MethodDeclaration.class))).thenAnswer(invocation -> {
+            MethodDeclaration visited = (MethodDeclaration) invocation.getArguments()[0];
+            if (visited.getMethodBody() == null) {
+                return formalsOnly;
+            }
+            //recursive call
+            summaryService.getSummary(method);
+            return summary;
+        });
+
+        //when
+        summaryService.computeFixpoint(ImmutableList.of(method));
+
+        //then
+        assertThat(summaryService.getSummary(method), is(summary));
+        verify(visitorService, times(2)).visitMethod(method);
+        assertThat(summaryService.getMisses(), is(2L));
+    }
+
+    @Test
+    @DisplayName("visits recursive method a bounded number of times and does not store summary which did not converge")
+    void computeFixpoint_boundedIterations() {
+        //given
+        SummaryStore summaryStore = Mockito.mock(SummaryStore.class);
+        summaryService = new SummaryService(visitorService, summaryStore, analysisBudget);
+        MethodDeclaration method = new MethodDeclaration("method", ImmutableList.of(), new WaitStatement(11, "a"), 10, "Methods");
+        State formalsOnly = new State(Graph.EMPTY_GRAPH, emptySet(), emptyList(), emptyList(), emptySet());
+        when(visitorService.visitMethod(any(MethodDeclaration.class))).thenAnswer(invocation -> {
+            MethodDeclaration visited = (MethodDeclaration) invocation.getArguments()[0];
+            //every visit of the body gives a new summary, so it never converges
+            return visited.getMethodBody() == null ? formalsOnly : Mockito.mock(State.class);
+        });
+        summaryService.setMaxFixpointIterations(3);
+        analysisBudget.start();
+
+        //when
+        summaryService.computeFixpoint(ImmutableList.of(method));
+
+        //then
+        verify(visitorService, times(3)).visitMethod(method);
+        verify(summaryStore, never()).store(any(MethodDeclaration.class), any(State.class));
+        assertThat(summaryService.size(), is(1));
+        assertThat(summaryService.getSummary(method).getGraph(), is(Graph.EMPTY_GRAPH));
+        assertThat(analysisBudget.getTruncatedMethods().contains(method), is(true));
+    }
+
+    @Test
+    @DisplayName("computes fixpoint again for recursive method whose summary was evicted")
+    void getSummary_evictedRecursiveMethod() {
+        //given
+        MethodDeclaration method = new MethodDeclaration("method", ImmutableList.of(), new WaitStatement(11, "a"), 10, "Methods");
+        MethodDeclaration other = new MethodDeclaration("other", ImmutableList.of(), null, 20, "Methods");
+        State formalsOnly = Mockito.mock(State.class);
+        State partial = Mockito.mock(State.class);
+        State summary = Mockito.mock(State.class);
+        when(visitorService.visitMethod(any(MethodDeclaration.class))).thenAnswer(invocation -> {
+            MethodDeclaration visited = (MethodDeclaration) invocation.getArguments()[0];
+            if (visited.getMethodBody() == null) {
+                return formalsOnly;
+            }
+            //recursive call, summary is only complete once it is called with partial summary
+            return summaryService.getSummary(method) == formalsOnly ? partial : summary;
+        });
+        summaryService.setMaxSummaries(1);
+        summaryService.computeFixpoint(ImmutableList.of(method));
+        summaryService.getSummary(other);
+
+        //when
+        State recomputed = summaryService.getSummary(method);
+
+        //then
+        assertThat(recomputed, is(summary));
+        verify(visitorService, times(6)).visitMethod(method);
+    }
+
+    @Test
+    @DisplayName("gives conservative summary to method out of budget and visits it again in next analysis")
+    void getSummary_budgetExceeded() {
+        //given
+        ImmutableList<MethodDeclaration.Variable> variables = ImmutableList.of(
+                new MethodDeclaration.Variable("a", "A"), new MethodDeclaration.Variable("b", "B"));
+        MethodDeclaration method = new MethodDeclaration("method", variables, new WaitStatement(11, "a"), 10, "Methods");
+        HeapObject a = HeapObject.of(ProgramPoint.of("a", 10), "A");
+        HeapObject b = HeapObject.of(ProgramPoint.of("b", 10), "B");
+        State formalsOnly = new State(Graph.EMPTY_GRAPH, emptySet(), emptyList(),
+                ImmutableList.of(new EnvEntry("a", a), new EnvEntry("b", b)), emptySet());
+        when(visitorService.visitMethod(any(MethodDeclaration.class))).thenAnswer(invocation -> {
+            MethodDeclaration visited = (MethodDeclaration) invocation.getArguments()[0];
+            if (visited.getMethodBody() == null) {
+                return formalsOnly;
+            }
+            throw new BudgetExceededException("spent");
+        });
+        analysisBudget.start();
+
+        //when
+        State summary = summaryService.getSummary(method);
+        State sameAnalysisSummary = summaryService.getSummary(method);
+        boolean truncated = analysisBudget.getTruncatedMethods().contains(method);
+        analysisBudget.start();
+        summaryService.getSummary(method);
+
+        //then
+        assertThat(summary.getRoots(), is(ImmutableSet.of(a, b)));
+        assertThat(summary.getGraph().getNeighbors().get(a), is(ImmutableSet.of(b)));
+        assertThat(summary.getGraph().getNeighbors().get(b), is(ImmutableSet.of(a)));
+        assertThat(sameAnalysisSummary, is(summary));
+        assertThat(truncated, is(true));
+        verify(visitorService, times(2)).visitMethod(method);
+    }
+
+    @Test
+    @DisplayName("fails when cap is not positive")
+    void setMaxSummaries_fail() {
+        assertThrows(AlgorithmValidationException.class, () -> summaryService.setMaxSummaries(0));
+    }
+}
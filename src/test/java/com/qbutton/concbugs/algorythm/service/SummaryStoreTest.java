@@ -0,0 +1,198 @@
+package com.qbutton.concbugs.algorythm.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.qbutton.concbugs.algorythm.dto.EnvEntry;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
+import com.qbutton.concbugs.algorythm.exception.AlgorithmValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("SummaryStore")
+class SummaryStoreTest {
+
+    private static final HeapObject LOCK_1 = HeapObject.of(ProgramPoint.of("a", 1), "Lock1");
+    private static final HeapObject LOCK_2 = HeapObject.of(ProgramPoint.UNKNOWN, "Lock2");
+    private static final State SUMMARY = new State(
+            Graph.EMPTY_GRAPH.withEdge(LOCK_1, LOCK_2),
+            ImmutableSet.of(LOCK_1),
+            ImmutableList.of(),
+            ImmutableList.of(new EnvEntry("a", LOCK_1), new EnvEntry("b", LOCK_2)),
+            ImmutableSet.of(LOCK_2));
+
+    private final SummaryStore summaryStore = new SummaryStore();
+    private Path file;
+
+    @BeforeEach
+    void init() throws IOException {
+        file = Files.createTempFile("summaries", ".bin");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        summaryStore.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @DisplayName("loads summary stored in previous session for method with the same content")
+    void load_storedSummary() {
+        //given
+        summaryStore.open(file);
+        summaryStore.store(caller("Lock1"), SUMMARY);
+        summaryStore.close();
+
+        //when
+        summaryStore.open(file);
+        State summary = summaryStore.load(caller("Lock1"));
+
+        //then
+        assertThat(summary, is(SUMMARY));
+    }
+
+    @Test
+    @DisplayName("does not load summary when a called method has changed")
+    void load_calleeChanged() {
+        //given
+        summaryStore.open(file);
+        summaryStore.store(caller("Lock1"), SUMMARY);
+        summaryStore.close();
+
+        //when
+        summaryStore.open(file);
+        State summary = summaryStore.load(caller("Lock2"));
+
+        //then
+        assertNull(summary);
+    }
+
+    @Test
+    @DisplayName("does not load summary from malformed file")
+    void load_malformedFile() throws IOException {
+        //given
+        summaryStore.open(file);
+        summaryStore.store(caller("Lock1"), SUMMARY);
+        summaryStore.close();
+        byte[] content = Files.readAllBytes(file);
+        content[content.length - 1] ^= 1;
+        Files.write(file, content);
+
+        //when
+        summaryStore.open(file);
+        State summary = summaryStore.load(caller("Lock1"));
+
+        //then
+        assertNull(summary);
+    }
+
+    @Test
+    @DisplayName("loads summary flushed in the same session")
+    void load_flushedSummary() {
+        //given
+        summaryStore.open(file);
+        summaryStore.store(caller("Lock1"), SUMMARY);
+        summaryStore.flush();
+        summaryStore.store(caller("Lock2"), SUMMARY);
+        summaryStore.flush();
+
+        //when
+        State summary1 = summaryStore.load(caller("Lock1"));
+        State summary2 = summaryStore.load(caller("Lock2"));
+
+        //then
+        assertThat(summary1, is(SUMMARY));
+        assertThat(summary2, is(SUMMARY));
+    }
+
+    @Test
+    @DisplayName("does not load summaries after they are dropped")
+    void load_dropped() {
+        //given
+        summaryStore.open(file);
+        summaryStore.store(caller("Lock1"), SUMMARY);
+        summaryStore.flush();
+        summaryStore.store(caller("Lock2"), SUMMARY);
+
+        //when
+        summaryStore.drop();
+        summaryStore.close();
+        summaryStore.open(file);
+
+        //then
+        assertNull(summaryStore.load(caller("Lock1")));
+        assertNull(summaryStore.load(caller("Lock2")));
+    }
+
+    @Test
+    @DisplayName("compacts file to summaries used in current session when it grows too big")
+    void flush_compacts() throws IOException {
+        //given
+        summaryStore.open(file);
+        summaryStore.store(caller("Lock1"), SUMMARY);
+        summaryStore.close();
+        int maxFileSize = (int) Files.size(file);
+
+        //when
+        summaryStore.open(file);
+        summaryStore.setMaxFileSize(maxFileSize);
+        summaryStore.store(caller("Lock2"), SUMMARY);
+        summaryStore.close();
+        summaryStore.open(file);
+
+        //then
+        assertThat(Files.size(file), is((long) maxFileSize));
+        assertNull(summaryStore.load(caller("Lock1")));
+        assertThat(summaryStore.load(caller("Lock2")), is(SUMMARY));
+    }
+
+    @Test
+    @DisplayName("fails when file cap is less than header")
+    void setMaxFileSize_fail() {
+        assertThrows(AlgorithmValidationException.class, () -> summaryStore.setMaxFileSize(1));
+    }
+
+    @Test
+    @DisplayName("keeps nothing until opened")
+    void load_notOpen() {
+        //when
+        summaryStore.store(caller("Lock1"), SUMMARY);
+        summaryStore.flush();
+
+        //then
+        assertNull(summaryStore.load(caller("Lock1")));
+        assertThat(Files.exists(file), is(false));
+    }
+
+    private static MethodDeclaration caller(String calleeLockClass) {
+        MethodDeclaration callee = new MethodDeclaration(
+                "callee",
+                ImmutableList.of(new MethodDeclaration.Variable("lock", calleeLockClass)),
+                new SynchronizedStatement(21, "lock", null, calleeLockClass),
+                20,
+                "Methods");
+        return new MethodDeclaration(
+                "caller",
+                ImmutableList.of(new MethodDeclaration.Variable("a", "Lock1")),
+                new MethodStatement(11, null, ImmutableList.of(callee), "void", ImmutableList.of("a")),
+                10,
+                "Methods");
+    }
+}
@@ -81,7 +81,8 @@ class VisitorServiceTest {
                         new MethodDeclaration.Variable("a", "int"),
                         new MethodDeclaration.Variable("b", "java.lang.String")),
                 methodBody,
-                34);
+                34,
+                "Methods");
         when(processorFacade.process(any(), any())).thenAnswer(invocationOnMock -> {
             DeclarationStatement statement = (DeclarationStatement) invocationOnMock.getArguments()[0];
             if (statement.getVarName().equals("a")
@@ -0,0 +1,98 @@
+package com.qbutton.concbugs.bytecode;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.qbutton.concbugs.bytecode.BytecodeParserTest.libraryOf;
+import static com.qbutton.concbugs.bytecode.BytecodeParserTest.readClass;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@DisplayName("BytecodeLibrary")
+class BytecodeLibraryTest {
+
+    private static final String BASE = "com/qbutton/concbugs/bytecode/BytecodeLibraryTest$Base";
+    private static final String MIDDLE = "com/qbutton/concbugs/bytecode/BytecodeLibraryTest$Middle";
+    private static final String LEAF = "com/qbutton/concbugs/bytecode/BytecodeLibraryTest$Leaf";
+
+    @Test
+    @DisplayName("reads classes from jar")
+    void read_jar() throws IOException {
+        //given
+        Path jar = Files.createTempFile("library", ".jar");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(jar);
+                 ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+                zipOutputStream.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+                zipOutputStream.putNextEntry(new ZipEntry(BASE + ".class"));
+                zipOutputStream.write(readClass(Base.class));
+                zipOutputStream.putNextEntry(new ZipEntry(LEAF + ".class"));
+                zipOutputStream.write(readClass(Leaf.class));
+            }
+
+            //when
+            BytecodeLibrary library = BytecodeLibrary.read(Collections.singletonList(jar));
+
+            //then
+            List<String> classNames = library.getClasses().stream()
+                    .map(BytecodeLibrary.ClassInfo::getName)
+                    .collect(Collectors.toList());
+            assertThat(classNames, is(Arrays.asList(BASE, LEAF)));
+        } finally {
+            Files.delete(jar);
+        }
+    }
+
+    @Test
+    @DisplayName("finds subclasses transitively")
+    void getSubclasses() {
+        //given
+        BytecodeLibrary library = libraryOf(Base.class, Middle.class, Leaf.class);
+
+        //when
+        List<String> subclasses = library.getSubclasses(BASE).stream()
+                .map(BytecodeLibrary.ClassInfo::getName)
+                .collect(Collectors.toList());
+
+        //then
+        assertThat(subclasses, is(Arrays.asList(MIDDLE, LEAF)));
+    }
+
+    @Test
+    @DisplayName("finds declaring class among superclasses")
+    void findDeclaringClass() {
+        //given
+        BytecodeLibrary library = libraryOf(Base.class, Middle.class, Leaf.class);
+
+        //when
+        BytecodeLibrary.ClassInfo declaringClass = library.findDeclaringClass(LEAF, MethodKey.of("lock", "()V"));
+        BytecodeLibrary.ClassInfo missingClass = library.findDeclaringClass(LEAF, MethodKey.of("unlock", "()V"));
+
+        //then
+        assertThat(declaringClass.getName(), is(BASE));
+        assertNull(missingClass);
+    }
+
+    public static class Base {
+        public synchronized void lock() {
+        }
+    }
+
+    public static class Middle extends Base {
+    }
+
+    public static class Leaf extends Middle {
+    }
+}
@@ -0,0 +1,355 @@
+package com.qbutton.concbugs.bytecode;
+
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration.Variable;
+import com.qbutton.concbugs.algorythm.dto.statement.DeclarationStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.Statement;
+import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import com.qbutton.concbugs.inspection.deadlock.mapping.StatementShrinker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@DisplayName("BytecodeParser")
+class BytecodeParserTest {
+
+    private static final String ACCOUNT = "com.qbutton.concbugs.bytecode.BytecodeParserTest.Account";
+    private static final String REGISTRY = "com.qbutton.concbugs.bytecode.BytecodeParserTest.Registry";
+
+    private final BytecodeParser bytecodeParser = new BytecodeParser(new StatementShrinker());
+
+    @Test
+    @DisplayName("maps monitorenter and monitorexit to nested synchronized statements")
+    void parseLibrary_synchronizedBlocks() {
+        //given
+        BytecodeLibrary library = libraryOf(Account.class);
+
+        //when
+        MethodDeclaration transfer = findDeclaration(bytecodeParser.parseLibrary(library), "transfer");
+
+        //then
+        assertThat(transfer.getVariables(), is(Arrays.asList(new Variable("this", ACCOUNT), new Variable("v1", ACCOUNT))));
+
+        SynchronizedStatement outer = single(flatten(transfer.getMethodBody()), SynchronizedStatement.class);
+        assertThat(outer.getVarName(), is("this"));
+        assertThat(outer.getClassName(), is(ACCOUNT));
+
+        SynchronizedStatement inner = single(flatten(outer.getInnerStatement()), SynchronizedStatement.class);
+        assertThat(inner.getClassName(), is("java.lang.Object"));
+
+        MethodStatement deposit = single(flatten(inner.getInnerStatement()), MethodStatement.class);
+        assertThat(deposit.getActualParameters(), is(Collections.singletonList("v1")));
+        assertThat(deposit.getMethodDeclarations().size(), is(1));
+        assertThat(deposit.getMethodDeclarations().get(0).getMethodName(), is("deposit"));
+    }
+
+    @Test
+    @DisplayName("maps synchronized modifier to synchronized statement on this")
+    void parseLibrary_synchronizedMethod() {
+        //given
+        BytecodeLibrary library = libraryOf(Account.class);
+
+        //when
+        MethodDeclaration deposit = findDeclaration(bytecodeParser.parseLibrary(library), "deposit");
+
+        //then
+        SynchronizedStatement body = (SynchronizedStatement) deposit.getMethodBody();
+        assertThat(body.getVarName(), is("this"));
+        assertThat(body.getClassName(), is(ACCOUNT));
+    }
+
+    @Test
+    @DisplayName("maps static synchronized methods, class literal locks and waits")
+    void parseLibrary_classLiterals() {
+        //given
+        BytecodeLibrary library = libraryOf(Registry.class);
+
+        //when
+        List<MethodStatement> methodStatements = bytecodeParser.parseLibrary(library);
+
+        //then
+        SynchronizedStatement register = (SynchronizedStatement) findDeclaration(methodStatements, "register").getMethodBody();
+        assertThat(register.getVarName(), is(REGISTRY + ".class"));
+        assertThat(register.getClassName(), is("java.lang.Class"));
+
+        Statement awaitBody = findDeclaration(methodStatements, "await").getMethodBody();
+        SynchronizedStatement lock = single(flatten(awaitBody), SynchronizedStatement.class);
+        assertThat(lock.getVarName(), is(REGISTRY + ".class"));
+        assertThat(lock.getClassName(), is("java.lang.Class"));
+
+        WaitStatement wait = single(flatten(lock.getInnerStatement()), WaitStatement.class);
+        assertThat(wait.getVarName(), is(REGISTRY + ".class"));
+    }
+
+    @Test
+    @DisplayName("resolves interface calls to implementations and declares arguments")
+    void parseLibrary_virtualCalls() {
+        //given
+        BytecodeLibrary library = libraryOf(Task.class, LockingTask.class, Runner.class);
+
+        //when
+        MethodDeclaration runAll = findDeclaration(bytecodeParser.parseLibrary(library), "runAll");
+
+        //then
+        List<Statement> statements = flatten(runAll.getMethodBody());
+        DeclarationStatement argument = single(statements, DeclarationStatement.class);
+        assertThat(argument.getClazz(), is("java.lang.Object"));
+
+        MethodStatement run = single(statements, MethodStatement.class);
+        assertThat(run.getActualParameters(), is(Arrays.asList("v1", argument.getVarName())));
+        assertThat(run.getMethodDeclarations().size(), is(1));
+
+        Statement runBody = run.getMethodDeclarations().get(0).getMethodBody();
+        SynchronizedStatement lock = single(flatten(runBody), SynchronizedStatement.class);
+        assertThat(lock.getVarName(), is("v1"));
+    }
+
+    @Test
+    @DisplayName("reuses declaration of recursive method")
+    void parseLibrary_recursion() {
+        //given
+        BytecodeLibrary library = libraryOf(Runner.class);
+
+        //when
+        MethodDeclaration countDown = findDeclaration(bytecodeParser.parseLibrary(library), "countDown");
+
+        //then
+        MethodStatement recursiveCall = single(flatten(countDown.getMethodBody()), MethodStatement.class);
+        assertThat(recursiveCall.getMethodDeclarations().size(), is(1));
+        assertThat(recursiveCall.getMethodDeclarations().get(0), is(sameInstance(countDown)));
+    }
+
+    @Test
+    @DisplayName("skips classes and methods which are not public")
+    void parseLibrary_publicOnly() {
+        //given
+        BytecodeLibrary library = libraryOf(Runner.class, Hidden.class);
+
+        //when
+        List<String> methodNames = bytecodeParser.parseLibrary(library).stream()
+                .map(methodStatement -> methodStatement.getMethodDeclarations().get(0).getMethodName())
+                .collect(Collectors.toList());
+
+        //then
+        assertThat(methodNames, is(Arrays.asList("runAll", "countDown")));
+    }
+
+    @Test
+    @DisplayName("keeps block open after early return from it")
+    void parseLibrary_earlyReturn() {
+        //given
+        BytecodeLibrary library = libraryOf(Guard.class);
+
+        //when
+        MethodDeclaration returnEarly = findDeclaration(bytecodeParser.parseLibrary(library), "returnEarly");
+
+        //then
+        SynchronizedStatement first = single(flatten(returnEarly.getMethodBody()), SynchronizedStatement.class);
+        SynchronizedStatement second = single(flatten(first.getInnerStatement()), SynchronizedStatement.class);
+        single(flatten(second.getInnerStatement()), MethodStatement.class);
+    }
+
+    @Test
+    @DisplayName("keeps block open after break and continue from it")
+    void parseLibrary_breakAndContinue() {
+        //given
+        BytecodeLibrary library = libraryOf(Guard.class);
+
+        //when
+        MethodDeclaration loop = findDeclaration(bytecodeParser.parseLibrary(library), "loop");
+
+        //then
+        SynchronizedStatement first = single(flatten(loop.getMethodBody()), SynchronizedStatement.class);
+        SynchronizedStatement second = single(flatten(first.getInnerStatement()), SynchronizedStatement.class);
+        single(flatten(second.getInnerStatement()), MethodStatement.class);
+    }
+
+    @Test
+    @DisplayName("keeps outer block open after early return from nested blocks")
+    void parseLibrary_earlyReturnFromNestedBlocks() {
+        //given
+        BytecodeLibrary library = libraryOf(Guard.class);
+
+        //when
+        MethodDeclaration returnFromInner = findDeclaration(bytecodeParser.parseLibrary(library), "returnFromInner");
+
+        //then
+        SynchronizedStatement first = single(flatten(returnFromInner.getMethodBody()), SynchronizedStatement.class);
+        List<Statement> firstStatements = flatten(first.getInnerStatement());
+        SynchronizedStatement second = single(firstStatements, SynchronizedStatement.class);
+        single(flatten(second.getInnerStatement()), MethodStatement.class);
+        assertThat(firstStatements.get(firstStatements.size() - 1), is(instanceOf(MethodStatement.class)));
+    }
+
+    static BytecodeLibrary libraryOf(Class<?>... classes) {
+        BytecodeLibrary library = new BytecodeLibrary();
+        for (Class<?> clazz : classes) {
+            library.add(readClass(clazz));
+        }
+        return library;
+    }
+
+    static byte[] readClass(Class<?> clazz) {
+        String resource = "/" + clazz.getName().replace('.', '/') + ".class";
+        try (InputStream inputStream = clazz.getResourceAsStream(resource)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MethodDeclaration findDeclaration(List<MethodStatement> methodStatements, String methodName) {
+        return methodStatements.stream()
+                .map(methodStatement -> methodStatement.getMethodDeclarations().get(0))
+                .filter(methodDeclaration -> methodDeclaration.getMethodName().equals(methodName))
+                .findAny()
+                .orElseThrow(() -> new AssertionError("no method " + methodName));
+    }
+
+    private static List<Statement> flatten(Statement statement) {
+        List<Statement> statements = new ArrayList<>();
+        if (statement instanceof SequentialStatement) {
+            ((SequentialStatement) statement).getStatements().forEach(inner -> statements.addAll(flatten(inner)));
+        } else if (statement != null) {
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    private static <T extends Statement> T single(List<Statement> statements, Class<T> statementClass) {
+        List<T> found = statements.stream()
+                .filter(statementClass::isInstance)
+                .map(statementClass::cast)
+                .collect(Collectors.toList());
+        assertThat(found.size(), is(1));
+        return found.get(0);
+    }
+
+    public static class Account {
+        private final Object lock = new Object();
+
+        public void transfer(Account other) {
+            synchronized (this) {
+                synchronized (other.lock) {
+                    other.deposit();
+                }
+            }
+        }
+
+        public synchronized void deposit() {
+        }
+    }
+
+    public static class Registry {
+        public static synchronized void register() {
+        }
+
+        public void await() throws InterruptedException {
+            synchronized (Registry.class) {
+                Registry.class.wait();
+            }
+        }
+    }
+
+    public static class Guard {
+        private final Object first = new Object();
+        private final Object second = new Object();
+
+        public void returnEarly(boolean done) {
+            synchronized (first) {
+                if (done) {
+                    return;
+                }
+                synchronized (second) {
+                    touch();
+                }
+            }
+        }
+
+        public void loop(int count) {
+            for (int i = 0; i < count; i++) {
+                synchronized (first) {
+                    if (i == 0) {
+                        continue;
+                    }
+                    if (i == 2) {
+                        break;
+                    }
+                    synchronized (second) {
+                        touch();
+                    }
+                }
+            }
+        }
+
+        public void returnFromInner(boolean done) {
+            synchronized (first) {
+                synchronized (second) {
+                    if (done) {
+                        return;
+                    }
+                    touch();
+                }
+                touch();
+            }
+        }
+
+        public void touch() {
+        }
+    }
+
+    public interface Task {
+        void run(Object lock);
+    }
+
+    public static class LockingTask implements Task {
+        @Override
+        public void run(Object lock) {
+            synchronized (lock) {
+                lock.hashCode();
+            }
+        }
+    }
+
+    public static class Runner {
+        public void runAll(Task task) {
+            task.run(new Object());
+        }
+
+        public void countDown(int count) {
+            if (count > 0) {
+                countDown(count - 1);
+            }
+        }
+
+        void hidden() {
+        }
+    }
+
+    static class Hidden {
+        public void run() {
+        }
+    }
+}
@@ -5,17 +5,26 @@ import com.qbutton.concbugs.algorythm.processor.BranchStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.CrossAssignmentStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.DeclarationStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.InnerAssignmentStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.LoopStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.MethodStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.ProcessorFacade;
 import com.qbutton.concbugs.algorythm.processor.ProcessorProvider;
-import com.qbutton.concbugs.algorythm.processor.SequentialStatementProcessor;
+import com.qbutton.concbugs.algorythm.processor.StatementTracer;
 import com.qbutton.concbugs.algorythm.processor.SynchronizedStatementProcessor;
 import com.qbutton.concbugs.algorythm.processor.WaitStatementProcessor;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
 import com.qbutton.concbugs.algorythm.service.ClassFinderService;
+import com.qbutton.concbugs.algorythm.service.CycleService;
 import com.qbutton.concbugs.algorythm.service.GraphService;
 import com.qbutton.concbugs.algorythm.service.MergeService;
 import com.qbutton.concbugs.algorythm.service.StateService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
 import com.qbutton.concbugs.algorythm.service.VisitorService;
+import com.qbutton.concbugs.bytecode.BytecodeParser;
+import com.qbutton.concbugs.inspection.deadlock.IncrementalAnalyzer;
+import com.qbutton.concbugs.inspection.deadlock.mapping.ParsedMethodCache;
 import com.qbutton.concbugs.inspection.deadlock.mapping.PsiToAlgorythmFacade;
 import com.qbutton.concbugs.inspection.deadlock.mapping.StatementMapper;
 import com.qbutton.concbugs.inspection.deadlock.mapping.StatementParser;
@@ -26,6 +35,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 @DisplayName("Bean factory")
 class BeanFactoryTest {
@@ -37,16 +47,20 @@ class BeanFactoryTest {
             StatementParser.class,
             StatementMapper.class,
             StatementShrinker.class,
+            ParsedMethodCache.class,
+            BytecodeParser.class,
+            IncrementalAnalyzer.class,
 
             AlgorythmFacade.class,
             ProcessorFacade.class,
             ProcessorProvider.class,
+            StatementTracer.class,
             BranchStatementProcessor.class,
             CrossAssignmentStatementProcessor.class,
             DeclarationStatementProcessor.class,
             InnerAssignmentStatementProcessor.class,
+            LoopStatementProcessor.class,
             MethodStatementProcessor.class,
-            SequentialStatementProcessor.class,
             SynchronizedStatementProcessor.class,
             WaitStatementProcessor.class,
 
@@ -54,6 +68,11 @@ class BeanFactoryTest {
             VisitorService.class,
             StateService.class,
             MergeService.class,
+            SummaryService.class,
+            SummaryStore.class,
+            AnalysisBudget.class,
+            CallGraphService.class,
+            CycleService.class,
             ClassFinderService.class
     })
     <T> void getPsiToAlgorythmFacadeBean(Class<T> candidate) {
@@ -62,6 +81,15 @@ class BeanFactoryTest {
         assertNotNull(bean);
     }
 
+    @DisplayName("resolves parsedMethodCache, which depends on callGraphService registered after it")
+    @Test
+    void parsedMethodCacheResolved() {
+        ParsedMethodCache bean = BeanFactory.getBean(ParsedMethodCache.class);
+
+        assertNotNull(bean);
+        assertSame(bean, BeanFactory.getBean(ParsedMethodCache.class));
+    }
+
     @DisplayName("has correctly injected statementParser to statementMapper via setter")
     @Test
     void statementParserInjected() {
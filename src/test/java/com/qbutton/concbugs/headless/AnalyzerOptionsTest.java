@@ -0,0 +1,85 @@
+package com.qbutton.concbugs.headless;
+
+import com.qbutton.concbugs.algorythm.service.CycleService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("AnalyzerOptions")
+class AnalyzerOptionsTest {
+
+    @Test
+    @DisplayName("uses defaults when only project path is given")
+    void parse_defaults() {
+        //when
+        AnalyzerOptions options = AnalyzerOptions.parse(new String[]{"concbugs", "/tmp/project"});
+
+        //then
+        assertThat(options, is(new AnalyzerOptions(
+                "/tmp/project", 1, CycleService.DEFAULT_MAX_CYCLES, Collections.emptyList(), null, 0, null)));
+    }
+
+    @Test
+    @DisplayName("parses all options")
+    void parse_allOptions() {
+        //when
+        AnalyzerOptions options = AnalyzerOptions.parse(
+                new String[]{"concbugs", "-parallelism", "4", "/tmp/project", "-maxCycles", "10",
+                        "-bytecode", "/tmp/lib.jar", "-bytecode", "/tmp/classes", "-summaryCache", "/tmp/summaries",
+                        "-timeBudget", "60", "-exportGraph", "/tmp/locks.graphml"});
+
+        //then
+        assertThat(options, is(new AnalyzerOptions(
+                "/tmp/project", 4, 10, Arrays.asList("/tmp/lib.jar", "/tmp/classes"), "/tmp/summaries", 60,
+                "/tmp/locks.graphml")));
+    }
+
+    @Test
+    @DisplayName("fails when project path is not given")
+    void parse_noProjectPath() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.parse(new String[]{"concbugs", "-parallelism", "4"}));
+    }
+
+    @Test
+    @DisplayName("fails when option value is missing")
+    void parse_missingValue() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.parse(new String[]{"concbugs", "/tmp/project", "-maxCycles"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.parse(new String[]{"concbugs", "/tmp/project", "-bytecode"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.parse(new String[]{"concbugs", "/tmp/project", "-summaryCache"}));
+    }
+
+    @Test
+    @DisplayName("fails when option value is not a positive number")
+    void parse_notPositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.parse(new String[]{"concbugs", "/tmp/project", "-parallelism", "0"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.parse(new String[]{"concbugs", "/tmp/project", "-parallelism", "many"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.parse(new String[]{"concbugs", "/tmp/project", "-timeBudget", "0"}));
+    }
+
+    @Test
+    @DisplayName("fails on unknown option")
+    void parse_unknownOption() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.parse(new String[]{"concbugs", "/tmp/project", "-verbose"}));
+    }
+
+    @Test
+    @DisplayName("fails when graph is exported to a file of unknown format")
+    void parse_unknownGraphFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.parse(new String[]{"concbugs", "/tmp/project", "-exportGraph", "/tmp/locks.png"}));
+    }
+}
@@ -0,0 +1,52 @@
+package com.qbutton.concbugs.headless;
+
+import com.google.common.collect.ImmutableList;
+import com.qbutton.concbugs.algorythm.dto.Cycle;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+@DisplayName("DeadlocksReport")
+class DeadlocksReportTest {
+
+    @Test
+    @DisplayName("exits with success when there are no deadlocks")
+    void write_noDeadlocks() {
+        //given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        int exitCode = DeadlocksReport.write(emptyList(), new PrintStream(out, true));
+
+        //then
+        assertThat(exitCode, is(DeadlocksReport.EXIT_NO_DEADLOCKS));
+        assertThat(out.toString(), is("No potential deadlocks found" + System.lineSeparator()));
+    }
+
+    @Test
+    @DisplayName("prints deadlocks and exits with failure")
+    void write_deadlocks() {
+        //given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Cycle cycle = new Cycle(ImmutableList.of(
+                new HeapObject(ProgramPoint.UNKNOWN, "a.A"),
+                new HeapObject(ProgramPoint.UNKNOWN, "b.B")));
+
+        //when
+        int exitCode = DeadlocksReport.write(ImmutableList.of(cycle), new PrintStream(out, true));
+
+        //then
+        assertThat(exitCode, is(DeadlocksReport.EXIT_DEADLOCKS_FOUND));
+        assertThat(out.toString(), is(
+                "Potential deadlock: " + cycle.describe() + System.lineSeparator()
+                        + "1 potential deadlock(s) found" + System.lineSeparator()));
+    }
+}
@@ -0,0 +1,227 @@
+package com.qbutton.concbugs.inspection.deadlock;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.intellij.openapi.application.ex.ApplicationManagerEx;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.projectRoots.impl.JavaAwareProjectJdkTableImpl;
+import com.intellij.openapi.util.Computable;
+import com.intellij.pom.java.LanguageLevel;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElementFactory;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import com.qbutton.concbugs.algorythm.AlgorythmFacade;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.State;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
+import com.qbutton.concbugs.inspection.deadlock.mapping.ParsedMethodCache;
+import com.qbutton.concbugs.inspection.deadlock.mapping.PsiToAlgorythmFacade;
+import com.qbutton.concbugs.inspection.deadlock.mapping.StatementMapper;
+import com.qbutton.concbugs.inspection.deadlock.mapping.StatementParser;
+import com.qbutton.concbugs.inspection.deadlock.mapping.StatementShrinker;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("IncrementalAnalyzer")
+class IncrementalAnalyzerTest extends LightCodeInsightFixtureTestCase {
+
+    private final SummaryService summaryService = Mockito.mock(SummaryService.class);
+    private final SummaryStore summaryStore = Mockito.mock(SummaryStore.class);
+    private final AlgorythmFacade algorythmFacade = Mockito.mock(AlgorythmFacade.class);
+
+    /**
+     * Names of methods passed to each visit, in order of visits.
+     */
+    private final List<List<String>> visitedMethods = new ArrayList<>();
+    /**
+     * Names of methods whose summaries were evicted.
+     */
+    private final List<String> evictedMethods = new ArrayList<>();
+
+    private IncrementalAnalyzer incrementalAnalyzer;
+    private PsiClass clazz;
+
+    @NotNull
+    @Override
+    protected LightProjectDescriptor getProjectDescriptor() {
+        return new ProjectDescriptor(LanguageLevel.HIGHEST) {
+            @Override
+            public Sdk getSdk() {
+                return JavaAwareProjectJdkTableImpl.getInstanceEx().getInternalJdk();
+            }
+        };
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "src/test/resources/incremental/";
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+
+        CallGraphService callGraphService = new CallGraphService(summaryService);
+        StatementMapper statementMapper = new StatementMapper();
+        StatementParser statementParser = new StatementParser(
+                new StatementShrinker(), statementMapper, new ParsedMethodCache(callGraphService));
+        statementMapper.setStatementParser(statementParser);
+        PsiToAlgorythmFacade parsingFacade = new PsiToAlgorythmFacade(statementParser);
+        parsingFacade.setParallelism(1);
+
+        incrementalAnalyzer = new IncrementalAnalyzer(parsingFacade, algorythmFacade, callGraphService,
+                summaryService, summaryStore, new AnalysisBudget());
+
+        when(algorythmFacade.visitMethods(anyList())).thenAnswer(invocation -> visit(invocation.getArguments()[0]));
+        when(algorythmFacade.buildGraph(anyList(), anyList())).thenReturn(ClassEdgeGraph.EMPTY_GRAPH);
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Collection<MethodDeclaration> methodDeclarations = (Collection<MethodDeclaration>) invocation.getArguments()[0];
+            methodDeclarations.forEach(methodDeclaration -> evictedMethods.add(methodDeclaration.getMethodName()));
+            return null;
+        }).when(summaryService).evict(any());
+
+        PsiJavaFile file = (PsiJavaFile) myFixture.configureByFile("Incremental_1.java");
+        clazz = ApplicationManagerEx.getApplicationEx().runReadAction((Computable<PsiClass>) () -> file.getClasses()[0]);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    @Test
+    @DisplayName("evicts declarations of changed method and its callers, and analyzes only its callers again")
+    void methodChanged_evictsStaleDeclarations() {
+        //given
+        analyze();
+        evictedMethods.clear();
+
+        //when
+        changeBody("callee", "o.hashCode();");
+        analyze();
+
+        //then
+        assertThat(evictedMethods).containsOnly("callee", "caller");
+        assertThat(visitedMethods).isEqualTo(ImmutableList.of(
+                ImmutableList.of("Incremental_1.caller", "Incremental_1.other"),
+                ImmutableList.of("Incremental_1.caller")));
+        verify(summaryStore, never()).drop();
+    }
+
+    @Test
+    @DisplayName("forgets everything, including stored summaries, when PSI changes outside of method bodies")
+    void invalidateAll_outsideOfBody() {
+        //given
+        analyze();
+
+        //when
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            PsiElementFactory factory = JavaPsiFacade.getElementFactory(getProject());
+            clazz.add(factory.createFieldFromText("private Object otherLock = new Object();", clazz));
+        });
+        analyze();
+
+        //then
+        assertThat(evictedMethods).contains("caller", "callee", "other", "unrelated");
+        assertThat(visitedMethods).isEqualTo(ImmutableList.of(
+                ImmutableList.of("Incremental_1.caller", "Incremental_1.other"),
+                ImmutableList.of("Incremental_1.caller", "Incremental_1.other")));
+        verify(summaryStore).drop();
+    }
+
+    @Test
+    @DisplayName("analyzes methods again when their analysis was cancelled")
+    void analyze_cancelled() {
+        //given
+        doThrow(new ProcessCanceledException())
+                .doAnswer(invocation -> visit(invocation.getArguments()[0]))
+                .when(algorythmFacade).visitMethods(anyList());
+
+        //when
+        assertThrows(ProcessCanceledException.class, this::analyze);
+        analyze();
+
+        //then
+        assertThat(visitedMethods).isEqualTo(ImmutableList.of(
+                ImmutableList.of("Incremental_1.caller", "Incremental_1.other")));
+    }
+
+    @Test
+    @DisplayName("analyzes methods again when their analysis was truncated, until it is not")
+    void analyze_truncated() {
+        //given
+        when(algorythmFacade.getTruncatedMethodNames())
+                .thenReturn(ImmutableSet.of("Incremental_1.callee"))
+                .thenReturn(Collections.emptySet());
+
+        //when
+        analyze();
+        analyze();
+        analyze();
+
+        //then
+        assertThat(visitedMethods).isEqualTo(ImmutableList.of(
+                ImmutableList.of("Incremental_1.caller", "Incremental_1.other"),
+                ImmutableList.of("Incremental_1.caller", "Incremental_1.other"),
+                ImmutableList.of()));
+    }
+
+    private void analyze() {
+        ApplicationManagerEx.getApplicationEx().runReadAction((Computable<ClassEdgeGraph>) () ->
+                incrementalAnalyzer.analyze(getProject(), ImmutableList.of(findMethod("caller"), findMethod("other"))));
+    }
+
+    private void changeBody(String methodName, String statement) {
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            PsiMethod method = findMethod(methodName);
+            PsiElementFactory factory = JavaPsiFacade.getElementFactory(getProject());
+            method.getBody().add(factory.createStatementFromText(statement, method));
+        });
+    }
+
+    private PsiMethod findMethod(String methodName) {
+        return ApplicationManagerEx.getApplicationEx().runReadAction((Computable<PsiMethod>) () ->
+                clazz.findMethodsByName(methodName, false)[0]);
+    }
+
+    private List<State> visit(Object methodStatements) {
+        @SuppressWarnings("unchecked")
+        List<MethodStatement> statements = (List<MethodStatement>) methodStatements;
+        visitedMethods.add(statements.stream()
+                .map(AlgorythmFacade::getMethodName)
+                .collect(Collectors.toList()));
+        return Collections.nCopies(statements.size(), State.EMPTY_STATE);
+    }
+}
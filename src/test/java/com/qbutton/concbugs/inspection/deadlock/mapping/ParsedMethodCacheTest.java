@@ -0,0 +1,135 @@
+package com.qbutton.concbugs.inspection.deadlock.mapping;
+
+import com.intellij.openapi.application.ex.ApplicationManagerEx;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.intellij.openapi.projectRoots.impl.JavaAwareProjectJdkTableImpl;
+import com.intellij.pom.java.LanguageLevel;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import com.qbutton.concbugs.algorythm.dto.MethodDeclaration;
+import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
+import com.qbutton.concbugs.algorythm.service.VisitorService;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@DisplayName("ParsedMethodCache")
+class ParsedMethodCacheTest extends LightCodeInsightFixtureTestCase {
+
+    private final CallGraphService callGraphService = new CallGraphService(
+            new SummaryService(new VisitorService(), new SummaryStore(), new AnalysisBudget()));
+    private final ParsedMethodCache parsedMethodCache = Mockito.spy(new ParsedMethodCache(callGraphService));
+
+    private PsiToAlgorythmFacade psiToAlgorythmFacade;
+
+    @NotNull
+    @Override
+    protected LightProjectDescriptor getProjectDescriptor() {
+        return new ProjectDescriptor(LanguageLevel.HIGHEST) {
+            @Override
+            public Sdk getSdk() {
+                return JavaAwareProjectJdkTableImpl.getInstanceEx().getInternalJdk();
+            }
+        };
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "src/test/resources/mapping/";
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        super.setUp();
+
+        StatementMapper statementMapper = new StatementMapper();
+        StatementParser statementParser =
+                new StatementParser(new StatementShrinker(), statementMapper, parsedMethodCache);
+        statementMapper.setStatementParser(statementParser);
+        psiToAlgorythmFacade = new PsiToAlgorythmFacade(statementParser);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        super.tearDown();
+    }
+
+    @Test
+    @DisplayName("reports declarations called transitively from a declaration found in cache")
+    void collectDeclarations_cacheHit() {
+        PsiJavaFile file = (PsiJavaFile) myFixture.configureByFile("Recursion_1.java");
+
+        ApplicationManagerEx.getApplicationEx().runReadAction(() -> {
+            PsiClass clazz = file.getClasses()[0];
+            PsiMethod recursionTest = clazz.findMethodsByName("recursion_test", false)[0];
+            PsiMethod ping = clazz.findMethodsByName("ping", false)[0];
+            PsiMethod pong = clazz.findMethodsByName("pong", false)[0];
+            Map<PsiMethod, List<MethodDeclaration>> firstDeclarations = new HashMap<>();
+            Map<PsiMethod, List<MethodDeclaration>> cachedDeclarations = new HashMap<>();
+
+            psiToAlgorythmFacade.parseMethod(recursionTest, firstDeclarations);
+            MethodStatement methodStatement = psiToAlgorythmFacade.parseMethod(ping, cachedDeclarations);
+
+            //ping is not parsed again, but pong, which it is built from, is still reported
+            assertThat(methodStatement.getMethodDeclarations().get(0)).isSameAs(firstDeclarations.get(ping).get(0));
+            assertThat(cachedDeclarations.keySet()).containsOnly(ping, pong);
+            assertThat(cachedDeclarations.get(ping)).containsOnly(firstDeclarations.get(ping).get(0));
+            assertThat(cachedDeclarations.get(pong)).containsOnly(firstDeclarations.get(pong).get(0));
+        });
+    }
+
+    @Test
+    @DisplayName("does not remember recursive declaration until its parsing is complete")
+    void putDeclaration_recursion() {
+        PsiJavaFile file = (PsiJavaFile) myFixture.configureByFile("Recursion_1.java");
+        Map<String, Set<MethodDeclaration>> calleesWhenPut = new HashMap<>();
+        List<MethodDeclaration> cachedWhenPut = new ArrayList<>();
+        doAnswer(invocation -> {
+            PsiMethod method = (PsiMethod) invocation.getArguments()[0];
+            MethodDeclaration declaration = (MethodDeclaration) invocation.getArguments()[1];
+            calleesWhenPut.put(declaration.getMethodName(), callGraphService.getCallees(declaration));
+            MethodDeclaration cachedDeclaration = parsedMethodCache.getDeclaration(method);
+            if (cachedDeclaration != null) {
+                cachedWhenPut.add(cachedDeclaration);
+            }
+            return invocation.callRealMethod();
+        }).when(parsedMethodCache).putDeclaration(any(), any());
+
+        ApplicationManagerEx.getApplicationEx().runReadAction(() -> {
+            PsiClass clazz = file.getClasses()[0];
+            PsiMethod ping = clazz.findMethodsByName("ping", false)[0];
+            PsiMethod pong = clazz.findMethodsByName("pong", false)[0];
+            Map<PsiMethod, List<MethodDeclaration>> parsedDeclarations = new HashMap<>();
+
+            psiToAlgorythmFacade.parseMethod(clazz.findMethodsByName("recursion_test", false)[0], parsedDeclarations);
+            MethodDeclaration pingDeclaration = parsedDeclarations.get(ping).get(0);
+            MethodDeclaration pongDeclaration = parsedDeclarations.get(pong).get(0);
+
+            //calls between ping and pong were resolved before either of them was remembered
+            assertThat(calleesWhenPut.get("ping")).containsOnly(pongDeclaration);
+            assertThat(calleesWhenPut.get("pong")).containsOnly(pingDeclaration);
+            assertThat(cachedWhenPut).isEmpty();
+            assertThat(parsedMethodCache.getDeclaration(ping)).isSameAs(pingDeclaration);
+        });
+    }
+}
@@ -16,11 +16,17 @@ import com.qbutton.concbugs.algorythm.dto.statement.BranchStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.CrossAssignmentStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.DeclarationStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.InnerAssignmentStatement;
+import com.qbutton.concbugs.algorythm.dto.statement.LoopStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.MethodStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.SequentialStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.Statement;
 import com.qbutton.concbugs.algorythm.dto.statement.SynchronizedStatement;
 import com.qbutton.concbugs.algorythm.dto.statement.WaitStatement;
+import com.qbutton.concbugs.algorythm.service.AnalysisBudget;
+import com.qbutton.concbugs.algorythm.service.CallGraphService;
+import com.qbutton.concbugs.algorythm.service.SummaryService;
+import com.qbutton.concbugs.algorythm.service.SummaryStore;
+import com.qbutton.concbugs.algorythm.service.VisitorService;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,7 +35,9 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -43,7 +51,10 @@ class PsiToAlgorythmFacadeTest extends LightCodeInsightFixtureTestCase {
 
     PsiToAlgorythmFacadeTest() {
         StatementMapper statementMapper = new StatementMapper();
-        StatementParser statementParser = new StatementParser(new StatementShrinker(), statementMapper);
+        ParsedMethodCache parsedMethodCache = new ParsedMethodCache(new CallGraphService(
+                new SummaryService(new VisitorService(), new SummaryStore(), new AnalysisBudget())));
+        StatementParser statementParser =
+                new StatementParser(new StatementShrinker(), statementMapper, parsedMethodCache);
         statementMapper.setStatementParser(statementParser);
 
         psiToAlgorythmFacade = new PsiToAlgorythmFacade(statementParser);
@@ -239,9 +250,11 @@ class PsiToAlgorythmFacadeTest extends LightCodeInsightFixtureTestCase {
         void method_varDeclaration_success() {
             Statement readStatement = readSingleStatementFromFirstMethod("Method_1.java");
             assertInstanceOf(readStatement, SequentialStatement.class);
-            assertInstanceOf(((SequentialStatement) readStatement).getStmt1(), DeclarationStatement.class);
-            assertInstanceOf(((SequentialStatement) readStatement).getStmt2(), MethodStatement.class);
-            MethodStatement result = (MethodStatement) ((SequentialStatement) readStatement).getStmt2();
+            List<Statement> sequence = ((SequentialStatement) readStatement).getStatements();
+            assertThat(sequence.size()).isEqualTo(2);
+            assertInstanceOf(sequence.get(0), DeclarationStatement.class);
+            assertInstanceOf(sequence.get(1), MethodStatement.class);
+            MethodStatement result = (MethodStatement) sequence.get(1);
             assertThat(result.getOffset()).isEqualTo(119);
             assertThat(result.getVarName()).isEqualTo("b");
             assertThat(result.getReturnType()).isEqualTo("java.util.Date");
@@ -256,7 +269,7 @@ class PsiToAlgorythmFacadeTest extends LightCodeInsightFixtureTestCase {
             assertThat(methodDeclaration.getVariables().get(0).getVariableName()).isEqualTo("this");
             assertThat(methodDeclaration.getVariables().get(1).getVariableClass()).isEqualTo("java.lang.Object");
             assertThat(methodDeclaration.getVariables().get(1).getVariableName()).isEqualTo("expected");
-            DeclarationStatement declarationStatement = (DeclarationStatement) ((SequentialStatement) readStatement).getStmt1();
+            DeclarationStatement declarationStatement = (DeclarationStatement) sequence.get(0);
             assertThat(declarationStatement.getOffset()).isEqualTo(115);
             assertThat(declarationStatement.getVarName()).isEqualTo("b");
             assertThat(declarationStatement.getClazz()).isEqualTo("java.util.Date");
@@ -314,6 +327,83 @@ class PsiToAlgorythmFacadeTest extends LightCodeInsightFixtureTestCase {
         }
     }
 
+    @Nested
+    @DisplayName("parses recursive methods correctly")
+    class ParseRecursiveMethods {
+
+        @Test
+        @DisplayName("when methods are mutually recursive")
+        void mutualRecursion_success() {
+            Statement readStatement = readSingleStatementFromFirstMethod("Recursion_1.java");
+            assertInstanceOf(readStatement, MethodStatement.class);
+            MethodDeclaration ping = ((MethodStatement) readStatement).getMethodDeclarations().get(0);
+            assertThat(ping.getMethodName()).isEqualTo("ping");
+
+            assertInstanceOf(ping.getMethodBody(), SynchronizedStatement.class);
+            Statement pingInner = ((SynchronizedStatement) ping.getMethodBody()).getInnerStatement();
+            assertInstanceOf(pingInner, MethodStatement.class);
+            MethodDeclaration pong = ((MethodStatement) pingInner).getMethodDeclarations().get(0);
+            assertThat(pong.getMethodName()).isEqualTo("pong");
+
+            assertInstanceOf(pong.getMethodBody(), MethodStatement.class);
+            MethodStatement recursiveCall = (MethodStatement) pong.getMethodBody();
+            assertThat(recursiveCall.getMethodDeclarations().size()).isEqualTo(1);
+            assertThat(recursiveCall.getMethodDeclarations().get(0)).isSameAs(ping);
+        }
+    }
+
+    @Nested
+    @DisplayName("collects parsed declarations correctly")
+    class CollectParsedDeclarations {
+
+        @Test
+        @DisplayName("when method calls other methods")
+        void parsedDeclarations_success() {
+            PsiFile[] psiFiles = myFixture.configureByFiles("Recursion_1.java");
+            Map<PsiMethod, List<MethodDeclaration>> parsedDeclarations = new HashMap<>();
+
+            ApplicationManagerEx.getApplicationEx().runReadAction(() -> {
+                PsiClass clazz = ((PsiJavaFile) psiFiles[0]).getClasses()[0];
+                PsiMethod[] methods = clazz.getMethods();
+                MethodStatement methodStatement = psiToAlgorythmFacade.parseMethod(methods[0], parsedDeclarations);
+
+                assertThat(parsedDeclarations.size()).isEqualTo(3);
+                assertThat(parsedDeclarations.get(methods[0]).get(0)).isSameAs(methodStatement.getMethodDeclarations().get(0));
+                assertThat(parsedDeclarations.get(methods[1]).size()).isEqualTo(1);
+                assertThat(parsedDeclarations.get(methods[1]).get(0).getMethodName()).isEqualTo("ping");
+                assertThat(parsedDeclarations.get(methods[2]).size()).isEqualTo(1);
+                assertThat(parsedDeclarations.get(methods[2]).get(0).getMethodName()).isEqualTo("pong");
+            });
+        }
+    }
+
+    @Nested
+    @DisplayName("parses many methods correctly")
+    class ParseManyMethods {
+
+        @Test
+        @DisplayName("when they are parsed in parallel")
+        void parallelParsing_success() {
+            PsiFile[] psiFiles = myFixture.configureByFiles("Recursion_1.java");
+            List<Map<PsiMethod, List<MethodDeclaration>>> parsedDeclarations = new ArrayList<>();
+            psiToAlgorythmFacade.setParallelism(2);
+
+            ApplicationManagerEx.getApplicationEx().runReadAction(() -> {
+                PsiClass clazz = ((PsiJavaFile) psiFiles[0]).getClasses()[0];
+                List<PsiMethod> methods = ImmutableList.copyOf(clazz.getMethods());
+                List<MethodStatement> methodStatements = psiToAlgorythmFacade.parseMethods(methods, parsedDeclarations);
+
+                assertThat(methodStatements.size()).isEqualTo(3);
+                assertThat(parsedDeclarations.size()).isEqualTo(3);
+                for (int i = 0; i < methods.size(); i++) {
+                    MethodDeclaration declaration = methodStatements.get(i).getMethodDeclarations().get(0);
+                    assertThat(declaration.getMethodName()).isEqualTo(methods.get(i).getName());
+                    assertThat(parsedDeclarations.get(i).get(methods.get(i))).contains(declaration);
+                }
+            });
+        }
+    }
+
     @Nested
     @DisplayName("parses loop statement correctly")
     class ParseLoopStatements {
@@ -323,26 +413,24 @@ class PsiToAlgorythmFacadeTest extends LightCodeInsightFixtureTestCase {
         void loop_success() {
             Statement statement = readSingleStatementFromFirstMethod("Loop_1.java");
             assertInstanceOf(statement, SequentialStatement.class);
-            assertInstanceOf(((SequentialStatement) statement).getStmt1(), SequentialStatement.class);
-            assertInstanceOf(((SequentialStatement) statement).getStmt2(), SequentialStatement.class);
-            SequentialStatement firstSequentialStatement = (SequentialStatement) ((SequentialStatement) statement).getStmt1();
-            SequentialStatement secondSequentialStatement = (SequentialStatement) ((SequentialStatement) statement).getStmt2();
-
-            assertInstanceOf(firstSequentialStatement.getStmt1(), CrossAssignmentStatement.class);
-            assertThat(((CrossAssignmentStatement) firstSequentialStatement.getStmt1()).getRightValueName()).isEqualTo("b");
-            assertThat(firstSequentialStatement.getStmt1().getVarName()).isEqualTo("a");
-
-            assertInstanceOf(firstSequentialStatement.getStmt2(), CrossAssignmentStatement.class);
-            assertThat(((CrossAssignmentStatement) firstSequentialStatement.getStmt2()).getRightValueName()).isEqualTo("d");
-            assertThat(firstSequentialStatement.getStmt2().getVarName()).isEqualTo("c");
-
-            assertInstanceOf(secondSequentialStatement.getStmt1(), CrossAssignmentStatement.class);
-            assertThat(((CrossAssignmentStatement) secondSequentialStatement.getStmt1()).getRightValueName()).isEqualTo("f");
-            assertThat(secondSequentialStatement.getStmt1().getVarName()).isEqualTo("e");
-
-            assertInstanceOf(secondSequentialStatement.getStmt2(), CrossAssignmentStatement.class);
-            assertThat(((CrossAssignmentStatement) secondSequentialStatement.getStmt2()).getRightValueName()).isEqualTo("h");
-            assertThat(secondSequentialStatement.getStmt2().getVarName()).isEqualTo("g");
+            List<Statement> actualStatements = new ArrayList<>();
+            demapSequentialStatement((SequentialStatement) statement, actualStatements);
+
+            assertThat(actualStatements.size()).isEqualTo(4);
+            assertLoop(actualStatements.get(0), 57, "a", "b");
+            assertLoop(actualStatements.get(1), 109, "c", "d");
+            assertLoop(actualStatements.get(2), 178, "e", "f");
+            assertLoop(actualStatements.get(3), 235, "g", "h");
+        }
+
+        private void assertLoop(Statement statement, int offset, String varName, String rightValueName) {
+            assertInstanceOf(statement, LoopStatement.class);
+            assertThat(statement.getOffset()).isEqualTo(offset);
+
+            Statement body = ((LoopStatement) statement).getBody();
+            assertInstanceOf(body, CrossAssignmentStatement.class);
+            assertThat(body.getVarName()).isEqualTo(varName);
+            assertThat(((CrossAssignmentStatement) body).getRightValueName()).isEqualTo(rightValueName);
         }
     }
 
@@ -476,11 +564,14 @@ class PsiToAlgorythmFacadeTest extends LightCodeInsightFixtureTestCase {
             assertThat(actualStatements.get(19).getOffset()).isEqualTo(1377);
             assertThat(((DeclarationStatement) actualStatements.get(19)).getClazz()).isEqualTo("int");
 
-            assertInstanceOf(actualStatements.get(20), MethodStatement.class);
-            assertThat(actualStatements.get(20).getVarName()).isEqualTo("newDate");
-            assertThat(actualStatements.get(20).getOffset()).isEqualTo(1751);
-            assertThat(((MethodStatement) actualStatements.get(20)).getReturnType()).isEqualTo("Date");
-            assertThat(((MethodStatement) actualStatements.get(20)).getMethodDeclarations().get(0)).isEqualTo(getDateMethodDeclaration);
+            assertInstanceOf(actualStatements.get(20), LoopStatement.class);
+            assertThat(actualStatements.get(20).getOffset()).isEqualTo(1715);
+            assertInstanceOf(((LoopStatement) actualStatements.get(20)).getBody(), MethodStatement.class);
+            MethodStatement loopMethodStatement = (MethodStatement) ((LoopStatement) actualStatements.get(20)).getBody();
+            assertThat(loopMethodStatement.getVarName()).isEqualTo("newDate");
+            assertThat(loopMethodStatement.getOffset()).isEqualTo(1751);
+            assertThat(loopMethodStatement.getReturnType()).isEqualTo("Date");
+            assertThat(loopMethodStatement.getMethodDeclarations().get(0)).isEqualTo(getDateMethodDeclaration);
         }
 
     }
@@ -507,16 +598,12 @@ class PsiToAlgorythmFacadeTest extends LightCodeInsightFixtureTestCase {
     }
 
     private void demapSequentialStatement(SequentialStatement sequentialStatement, List<Statement> statements) {
-        if (sequentialStatement.getStmt1() instanceof SequentialStatement) {
-            demapSequentialStatement((SequentialStatement) sequentialStatement.getStmt1(), statements);
-        } else {
-            statements.add(sequentialStatement.getStmt1());
-        }
-
-        if (sequentialStatement.getStmt2() instanceof SequentialStatement) {
-            demapSequentialStatement((SequentialStatement) sequentialStatement.getStmt2(), statements);
-        } else {
-            statements.add(sequentialStatement.getStmt2());
+        for (Statement statement : sequentialStatement.getStatements()) {
+            if (statement instanceof SequentialStatement) {
+                demapSequentialStatement((SequentialStatement) statement, statements);
+            } else {
+                statements.add(statement);
+            }
         }
     }
 
@@ -526,7 +613,7 @@ class PsiToAlgorythmFacadeTest extends LightCodeInsightFixtureTestCase {
                 new MethodDeclaration.Variable("b", "Date")
         );
         test2MethodDeclaration = new MethodDeclaration("test2", variables,
-                new CrossAssignmentStatement(1837, "c", "d"), 1803);
+                new CrossAssignmentStatement(1837, "c", "d"), 1803, "Complex");
     }
 
     private void initGetDateMethodDeclaration() {
@@ -535,6 +622,6 @@ class PsiToAlgorythmFacadeTest extends LightCodeInsightFixtureTestCase {
         );
         getDateMethodDeclaration = new MethodDeclaration("getDate", variables,
                 new SynchronizedStatement(1902, "this",
-                        new CrossAssignmentStatement(1922, "a", "b"), "Complex"), 1902);
+                        new CrossAssignmentStatement(1922, "a", "b"), "Complex"), 1902, "Complex");
     }
 }
\ No newline at end of file
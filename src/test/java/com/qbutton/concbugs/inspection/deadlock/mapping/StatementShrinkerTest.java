@@ -28,16 +28,9 @@ class StatementShrinkerTest {
 
         Statement statement = statementShrinker.shrinkStatements(ImmutableList.of(statement1, statement2, statement3));
 
-        assertThat(statement instanceof SequentialStatement);
-        SequentialStatement sequentialStatement1 = (SequentialStatement) statement;
-        assertThat(sequentialStatement1.getStmt1() instanceof SequentialStatement);
-        assertThat(sequentialStatement1.getStmt2() instanceof WaitStatement);
-        SequentialStatement sequentialStatement2 = (SequentialStatement) sequentialStatement1.getStmt1();
-        assertThat(sequentialStatement2.getStmt1() instanceof WaitStatement);
-        assertThat(sequentialStatement2.getStmt2() instanceof WaitStatement);
-        assertThat(sequentialStatement2.getStmt1().getOffset()).isEqualTo(2);
-        assertThat(sequentialStatement2.getStmt2().getOffset()).isEqualTo(3);
-        assertThat(sequentialStatement1.getStmt2().getOffset()).isEqualTo(4);
+        assertThat(statement).isInstanceOf(SequentialStatement.class);
+        assertThat(((SequentialStatement) statement).getStatements())
+                .isEqualTo(ImmutableList.of(statement1, statement2, statement3));
     }
 
     @Test
@@ -61,14 +54,13 @@ class StatementShrinkerTest {
 
         Statement statement = statementShrinker.shrinkStatements(ImmutableList.of(statement1, statement2));
 
-        assertThat(statement instanceof SequentialStatement);
-        SequentialStatement sequentialStatement = (SequentialStatement) statement;
-        assertThat(sequentialStatement.getStmt1() instanceof WaitStatement);
-        assertThat(sequentialStatement.getStmt2() instanceof WaitStatement);
-        assertThat(sequentialStatement.getStmt1().getOffset()).isEqualTo(2);
-        assertThat(sequentialStatement.getStmt1().getVarName()).isEqualTo("1");
-        assertThat(sequentialStatement.getStmt2().getOffset()).isEqualTo(3);
-        assertThat(sequentialStatement.getStmt2().getVarName()).isEqualTo("2");
+        assertThat(statement).isInstanceOf(SequentialStatement.class);
+        List<Statement> sequence = ((SequentialStatement) statement).getStatements();
+        assertThat(sequence.size()).isEqualTo(2);
+        assertThat(sequence.get(0).getOffset()).isEqualTo(2);
+        assertThat(sequence.get(0).getVarName()).isEqualTo("1");
+        assertThat(sequence.get(1).getOffset()).isEqualTo(3);
+        assertThat(sequence.get(1).getVarName()).isEqualTo("2");
     }
 
     @Test
@@ -83,59 +75,29 @@ class StatementShrinkerTest {
         Statement statement = statementShrinker.shrinkStatements(ImmutableList.of(
                 statement1, statement2, statement3, statement4, statement5));
 
-        assertThat(statement instanceof SequentialStatement);
-        SequentialStatement sequentialStatement1 = (SequentialStatement) statement;
-        assertThat(sequentialStatement1.getStmt1() instanceof SequentialStatement);
-        assertThat(sequentialStatement1.getStmt2() instanceof WaitStatement);
-        SequentialStatement sequentialStatement2 = (SequentialStatement) sequentialStatement1.getStmt1();
-        assertThat(sequentialStatement2.getStmt1() instanceof SequentialStatement);
-        assertThat(sequentialStatement2.getStmt2() instanceof SequentialStatement);
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt1()).getStmt1() instanceof WaitStatement);
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt1()).getStmt1().getOffset()).isEqualTo(2);
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt1()).getStmt1().getVarName()).isEqualTo("1");
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt1()).getStmt2() instanceof WaitStatement);
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt1()).getStmt2().getOffset()).isEqualTo(3);
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt1()).getStmt2().getVarName()).isEqualTo("2");
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt2()).getStmt1() instanceof WaitStatement);
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt2()).getStmt1().getOffset()).isEqualTo(4);
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt2()).getStmt1().getVarName()).isEqualTo("3");
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt2()).getStmt2() instanceof WaitStatement);
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt2()).getStmt2().getOffset()).isEqualTo(5);
-        assertThat(((SequentialStatement) sequentialStatement2.getStmt2()).getStmt2().getVarName()).isEqualTo("4");
-        assertThat(sequentialStatement1.getStmt2().getOffset()).isEqualTo(6);
-        assertThat(sequentialStatement1.getStmt2().getVarName()).isEqualTo("5");
+        assertThat(statement).isInstanceOf(SequentialStatement.class);
+        assertThat(((SequentialStatement) statement).getStatements())
+                .isEqualTo(ImmutableList.of(statement1, statement2, statement3, statement4, statement5));
     }
 
     @Test
-    @DisplayName("shrinks correctly when there are 4 of them")
-    void shrink_fourItems_success() {
+    @DisplayName("shrinks correctly when there are nulls and sequential statements among them")
+    void shrink_nullAndSequentialItems_success() {
         Statement statement1 = new WaitStatement(2, "1");
         Statement statement2 = new WaitStatement(3, "2");
         Statement statement3 = new WaitStatement(4, "3");
         Statement statement4 = new WaitStatement(5, "4");
+        List<Statement> statements = new ArrayList<>();
+        statements.add(statement1);
+        statements.add(null);
+        statements.add(new SequentialStatement(statement2, statement3));
+        statements.add(statement4);
 
-        Statement statement = statementShrinker.shrinkStatements(ImmutableList.of(
-                statement1, statement2, statement3, statement4));
-
-        assertThat(statement instanceof SequentialStatement);
-        SequentialStatement sequentialStatement1 = (SequentialStatement) statement;
-        assertThat(sequentialStatement1.getStmt1() instanceof SequentialStatement);
-        assertThat(sequentialStatement1.getStmt2() instanceof SequentialStatement);
-        SequentialStatement sequentialStatement2 = (SequentialStatement) sequentialStatement1.getStmt1();
-        SequentialStatement sequentialStatement3 = (SequentialStatement) sequentialStatement1.getStmt2();
-        assertThat(sequentialStatement2.getStmt1() instanceof WaitStatement);
-        assertThat(sequentialStatement2.getStmt2() instanceof WaitStatement);
-        assertThat(sequentialStatement3.getStmt1() instanceof WaitStatement);
-        assertThat(sequentialStatement3.getStmt2() instanceof WaitStatement);
-
-        assertThat(sequentialStatement2.getStmt1().getOffset()).isEqualTo(2);
-        assertThat(sequentialStatement2.getStmt1().getVarName()).isEqualTo("1");
-        assertThat(sequentialStatement2.getStmt2().getOffset()).isEqualTo(3);
-        assertThat(sequentialStatement2.getStmt2().getVarName()).isEqualTo("2");
-        assertThat(sequentialStatement3.getStmt1().getOffset()).isEqualTo(4);
-        assertThat(sequentialStatement3.getStmt1().getVarName()).isEqualTo("3");
-        assertThat(sequentialStatement3.getStmt2().getOffset()).isEqualTo(5);
-        assertThat(sequentialStatement3.getStmt2().getVarName()).isEqualTo("4");
+        Statement statement = statementShrinker.shrinkStatements(statements);
+
+        assertThat(statement).isInstanceOf(SequentialStatement.class);
+        assertThat(((SequentialStatement) statement).getStatements())
+                .isEqualTo(ImmutableList.of(statement1, statement2, statement3, statement4));
     }
 
     @Test
@@ -0,0 +1,147 @@
+package com.qbutton.concbugs.inspection.deadlock.visualization;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.qbutton.concbugs.algorythm.dto.ClassEdgeGraph;
+import com.qbutton.concbugs.algorythm.dto.Graph;
+import com.qbutton.concbugs.algorythm.dto.HeapObject;
+import com.qbutton.concbugs.algorythm.dto.ProgramPoint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("GraphExporter")
+class GraphExporterTest {
+
+    private static final HeapObject ACCOUNT = HeapObject.of(ProgramPoint.of("from", 12), "bank.Account");
+    private static final HeapObject LEDGER = HeapObject.of(ProgramPoint.UNKNOWN, "bank.Ledger<\"x\">");
+    private static final Graph GRAPH = new Graph(ImmutableMap.of(ACCOUNT, ImmutableSet.of(LEDGER)));
+
+    @Test
+    @DisplayName("exports graph to DOT")
+    void exportDot() throws IOException {
+        //when
+        String dot = new String(export(GraphExporter.Format.DOT, GRAPH), StandardCharsets.UTF_8);
+
+        //then
+        assertThat(dot, is("digraph locks {\n"
+                + "  n0 [label=\"Account\\nfrom@12\", tooltip=\"bank.Account\"];\n"
+                + "  n1 [label=\"Ledger<\\\"x\\\">\", tooltip=\"bank.Ledger<\\\"x\\\">\"];\n"
+                + "  n0 -> n1;\n"
+                + "}\n"));
+    }
+
+    @Test
+    @DisplayName("exports graph to GraphML")
+    void exportGraphMl() throws IOException {
+        //when
+        String graphMl = new String(export(GraphExporter.Format.GRAPHML, GRAPH), StandardCharsets.UTF_8);
+
+        //then
+        assertThat(graphMl, is("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n"
+                + "  <key id=\"class\" for=\"node\" attr.name=\"class\" attr.type=\"string\"/>\n"
+                + "  <key id=\"variable\" for=\"node\" attr.name=\"variable\" attr.type=\"string\"/>\n"
+                + "  <key id=\"offset\" for=\"node\" attr.name=\"offset\" attr.type=\"int\"/>\n"
+                + "  <graph id=\"locks\" edgedefault=\"directed\">\n"
+                + "    <node id=\"n0\"><data key=\"class\">bank.Account</data><data key=\"variable\">from</data>"
+                + "<data key=\"offset\">12</data></node>\n"
+                + "    <node id=\"n1\"><data key=\"class\">bank.Ledger&lt;&quot;x&quot;&gt;</data>"
+                + "<data key=\"offset\">-1</data></node>\n"
+                + "    <edge source=\"n0\" target=\"n1\"/>\n"
+                + "  </graph>\n"
+                + "</graphml>\n"));
+    }
+
+    @Test
+    @DisplayName("exports graph to binary edge list, writing every string and node once")
+    void exportBinary() throws IOException {
+        //given
+        HeapObject to = HeapObject.of(ProgramPoint.of("to", 200), "A");
+        Graph graph = new Graph(ImmutableMap.of(
+                HeapObject.of(ProgramPoint.of("from", 1), "A"), ImmutableSet.of(to)));
+
+        //when
+        byte[] bytes = export(GraphExporter.Format.BINARY, graph);
+
+        //then
+        byte[] expected = {
+                'C', 'B', 'L', 'G', 1,
+                1, 4, 'f', 'r', 'o', 'm',
+                1, 1, 'A',
+                2, 1, 2, 2,
+                1, 2, 't', 'o',
+                2, 3, (byte) 0xC9, 1, 2,
+                3, 0, 1,
+                0
+        };
+        assertArrayEquals(expected, bytes);
+    }
+
+    @Test
+    @DisplayName("exports graphs bigger than its buffer")
+    void exportBinary_bigGraph() throws IOException {
+        //given
+        Graph graph = Graph.EMPTY_GRAPH;
+        for (int i = 0; i < 10_000; i++) {
+            graph = graph.withEdge(HeapObject.of(ProgramPoint.of("v" + i, i), "Lock" + i),
+                    HeapObject.of(ProgramPoint.of("v" + (i + 1), i + 1), "Lock" + (i + 1)));
+        }
+
+        //when
+        byte[] bytes = export(GraphExporter.Format.BINARY, graph);
+
+        //then
+        assertThat(bytes.length > 64 * 1024, is(true));
+        assertThat(bytes[bytes.length - 1], is((byte) 0));
+    }
+
+    @Test
+    @DisplayName("exports class edge graph expanded over subclasses")
+    void exportDot_classEdgeGraph() throws IOException {
+        //given
+        ClassEdgeGraph graph = new ClassEdgeGraph(
+                ImmutableMap.of("bank.Account", ImmutableSet.of("bank.Ledger")),
+                ImmutableMap.of(
+                        "bank.Account", ImmutableSet.of("bank.Account", "bank.SavingsAccount"),
+                        "bank.Ledger", ImmutableSet.of("bank.Ledger")));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //when
+        GraphExporter.export(graph, GraphExporter.Format.DOT, Channels.newChannel(outputStream));
+
+        //then
+        assertThat(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), is("digraph locks {\n"
+                + "  n0 [label=\"Account\", tooltip=\"bank.Account\"];\n"
+                + "  n1 [label=\"Ledger\", tooltip=\"bank.Ledger\"];\n"
+                + "  n0 -> n1;\n"
+                + "  n2 [label=\"SavingsAccount\", tooltip=\"bank.SavingsAccount\"];\n"
+                + "  n2 -> n1;\n"
+                + "}\n"));
+    }
+
+    @Test
+    @DisplayName("finds format by file extension")
+    void ofFileName() {
+        assertThat(GraphExporter.Format.ofFileName("/tmp/locks.dot"), is(GraphExporter.Format.DOT));
+        assertThat(GraphExporter.Format.ofFileName("/tmp/locks.GV"), is(GraphExporter.Format.DOT));
+        assertThat(GraphExporter.Format.ofFileName("/tmp/locks.graphml"), is(GraphExporter.Format.GRAPHML));
+        assertThat(GraphExporter.Format.ofFileName("/tmp/locks.bin"), is(GraphExporter.Format.BINARY));
+        assertThrows(IllegalArgumentException.class, () -> GraphExporter.Format.ofFileName("/tmp/locks.png"));
+    }
+
+    private static byte[] export(GraphExporter.Format format, Graph graph) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GraphExporter.export(graph, format, Channels.newChannel(outputStream));
+        return outputStream.toByteArray();
+    }
+}
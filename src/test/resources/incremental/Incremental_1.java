@@ -0,0 +1,21 @@
+public class Incremental_1 {
+    private Object lock = new Object();
+
+    public void caller() {
+        callee(lock);
+    }
+
+    public void other() {
+        unrelated(lock);
+    }
+
+    void callee(Object o) {
+        synchronized (o) {
+        }
+    }
+
+    void unrelated(Object o) {
+        synchronized (o) {
+        }
+    }
+}
@@ -0,0 +1,17 @@
+public class Recursion_1 {
+    java.lang.String a;
+
+    public void recursion_test() {
+        ping(a);
+    }
+
+    void ping(java.lang.String ball) {
+        synchronized (ball) {
+            pong(ball);
+        }
+    }
+
+    void pong(java.lang.String ball) {
+        ping(ball);
+    }
+}